@@ -0,0 +1,21 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.model;
+
+import org.json.simple.JSONStreamAware;
+
+import java.io.IOException;
+
+/**
+ * Data that can write itself to a {@link CollectorJsonWriter}. Payloads made of many of these share one writer instead
+ * of going through json-simple for each of them.
+ */
+public interface CollectorJsonAware extends JSONStreamAware {
+
+    void writeJSONString(CollectorJsonWriter writer) throws IOException;
+}
@@ -0,0 +1,334 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.model;
+
+import org.json.simple.JSONAware;
+import org.json.simple.JSONStreamAware;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams JSON in the collector wire format straight to a {@link Writer}. The output is the same as json-simple's
+ * {@code JSONValue.writeJSONString}: strings are escaped the same way and numbers are formatted the same way. Unlike
+ * json-simple it does not need the data in a map first, it writes constant keys that were escaped once up front, and
+ * it writes primitives without boxing them.
+ *
+ * Commas between the elements of arrays and the members of objects are added by the writer.
+ */
+public final class CollectorJsonWriter {
+
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final Writer out;
+    private final char[] digits = new char[20];
+    // for each open array or object, whether it has an element yet
+    private boolean[] hasElements = new boolean[8];
+    private int depth;
+    private boolean afterName;
+
+    public CollectorJsonWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * An object member name, escaped and quoted once so writing it is a single write.
+     */
+    public static Key key(String name) {
+        return new Key(name);
+    }
+
+    public CollectorJsonWriter beginArray() throws IOException {
+        beforeValue();
+        out.write('[');
+        push();
+        return this;
+    }
+
+    public CollectorJsonWriter endArray() throws IOException {
+        depth--;
+        out.write(']');
+        return this;
+    }
+
+    public CollectorJsonWriter beginObject() throws IOException {
+        beforeValue();
+        out.write('{');
+        push();
+        return this;
+    }
+
+    public CollectorJsonWriter endObject() throws IOException {
+        depth--;
+        out.write('}');
+        return this;
+    }
+
+    public CollectorJsonWriter name(Key key) throws IOException {
+        separator();
+        out.write(key.json);
+        afterName = true;
+        return this;
+    }
+
+    public CollectorJsonWriter name(String name) throws IOException {
+        separator();
+        out.write('\"');
+        writeEscaped(String.valueOf(name));
+        out.write("\":");
+        afterName = true;
+        return this;
+    }
+
+    public CollectorJsonWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            out.write("null");
+        } else {
+            out.write('\"');
+            writeEscaped(value);
+            out.write('\"');
+        }
+        return this;
+    }
+
+    public CollectorJsonWriter value(long value) throws IOException {
+        beforeValue();
+        writeLong(value);
+        return this;
+    }
+
+    public CollectorJsonWriter value(float value) throws IOException {
+        beforeValue();
+        if (Float.isInfinite(value) || Float.isNaN(value)) {
+            out.write("null");
+        } else {
+            out.write(Float.toString(value));
+        }
+        return this;
+    }
+
+    public CollectorJsonWriter value(double value) throws IOException {
+        beforeValue();
+        if (Double.isInfinite(value) || Double.isNaN(value)) {
+            out.write("null");
+        } else {
+            out.write(Double.toString(value));
+        }
+        return this;
+    }
+
+    public CollectorJsonWriter value(boolean value) throws IOException {
+        beforeValue();
+        out.write(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Write any value the way json-simple would, including values it has no JSON form for, which are written with
+     * {@code toString()}.
+     */
+    public CollectorJsonWriter value(Object value) throws IOException {
+        if (value == null) {
+            beforeValue();
+            out.write("null");
+        } else if (value instanceof String) {
+            value((String) value);
+        } else if (value instanceof Double) {
+            value(((Double) value).doubleValue());
+        } else if (value instanceof Float) {
+            value(((Float) value).floatValue());
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            value(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            beforeValue();
+            out.write(value.toString());
+        } else if (value instanceof Boolean) {
+            value(((Boolean) value).booleanValue());
+        } else if (value instanceof CollectorJsonAware) {
+            // it begins its own array or object, which adds the separator
+            ((CollectorJsonAware) value).writeJSONString(this);
+        } else if (value instanceof JSONStreamAware) {
+            beforeValue();
+            ((JSONStreamAware) value).writeJSONString(out);
+        } else if (value instanceof JSONAware) {
+            beforeValue();
+            out.write(((JSONAware) value).toJSONString());
+        } else if (value instanceof Map) {
+            value((Map<?, ?>) value);
+        } else if (value instanceof List) {
+            beginArray();
+            for (Object element : (List<?>) value) {
+                value(element);
+            }
+            endArray();
+        } else {
+            beforeValue();
+            out.write(value.toString());
+        }
+        return this;
+    }
+
+    public CollectorJsonWriter value(Map<?, ?> map) throws IOException {
+        if (map == null) {
+            beforeValue();
+            out.write("null");
+            return this;
+        }
+        beginObject();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            name(String.valueOf(entry.getKey()));
+            value(entry.getValue());
+        }
+        return endObject();
+    }
+
+    /**
+     * Write the members of a map into the object that is currently open.
+     */
+    public CollectorJsonWriter members(Map<?, ?> map) throws IOException {
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            name(String.valueOf(entry.getKey()));
+            value(entry.getValue());
+        }
+        return this;
+    }
+
+    private void push() {
+        if (depth == hasElements.length) {
+            hasElements = Arrays.copyOf(hasElements, depth * 2);
+        }
+        hasElements[depth++] = false;
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+        } else {
+            separator();
+        }
+    }
+
+    private void separator() throws IOException {
+        if (depth > 0) {
+            if (hasElements[depth - 1]) {
+                out.write(',');
+            } else {
+                hasElements[depth - 1] = true;
+            }
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.write(Long.toString(value));
+            return;
+        }
+        boolean negative = value < 0;
+        if (negative) {
+            value = -value;
+        }
+        int position = digits.length;
+        do {
+            digits[--position] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+        if (negative) {
+            digits[--position] = '-';
+        }
+        out.write(digits, position, digits.length - position);
+    }
+
+    private void writeEscaped(String value) throws IOException {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '"':
+                    replacement = "\\\"";
+                    break;
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case '\b':
+                    replacement = "\\b";
+                    break;
+                case '\f':
+                    replacement = "\\f";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                case '\r':
+                    replacement = "\\r";
+                    break;
+                case '\t':
+                    replacement = "\\t";
+                    break;
+                case '/':
+                    replacement = "\\/";
+                    break;
+                default:
+                    if (!needsUnicodeEscape(c)) {
+                        continue;
+                    }
+                    replacement = null;
+            }
+            if (i > start) {
+                out.write(value, start, i - start);
+            }
+            if (replacement != null) {
+                out.write(replacement);
+            } else {
+                out.write("\\u");
+                out.write(HEX_DIGITS[(c >> 12) & 0xF]);
+                out.write(HEX_DIGITS[(c >> 8) & 0xF]);
+                out.write(HEX_DIGITS[(c >> 4) & 0xF]);
+                out.write(HEX_DIGITS[c & 0xF]);
+            }
+            start = i + 1;
+        }
+        if (length > start) {
+            out.write(value, start, length - start);
+        }
+    }
+
+    /**
+     * The characters json-simple writes as a unicode escape.
+     */
+    private static boolean needsUnicodeEscape(char c) {
+        return c <= '\u001F' || (c >= '\u007F' && c <= '\u009F') || (c >= '\u2000' && c <= '\u20FF');
+    }
+
+    public static final class Key {
+        private final String name;
+        private final String json;
+
+        private Key(String name) {
+            this.name = name;
+            StringWriter json = new StringWriter(name.length() + 3);
+            try {
+                new CollectorJsonWriter(json).name(name);
+            } catch (IOException e) {
+                // a StringWriter does not throw
+                throw new IllegalStateException(e);
+            }
+            this.json = json.toString();
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -7,16 +7,14 @@
 
 package com.newrelic.agent.model;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONStreamAware;
-
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Arrays;
 import java.util.Map;
 
-public class CustomInsightsEvent extends AnalyticsEvent implements JSONStreamAware {
+public class CustomInsightsEvent extends AnalyticsEvent implements CollectorJsonAware {
+
+    private static final CollectorJsonWriter.Key TYPE = CollectorJsonWriter.key("type");
+    private static final CollectorJsonWriter.Key TIMESTAMP = CollectorJsonWriter.key("timestamp");
 
     private volatile float mutablePriority;
 
@@ -34,13 +32,17 @@ public class CustomInsightsEvent extends AnalyticsEvent implements JSONStreamAwa
         return mutablePriority;
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public void writeJSONString(Writer out) throws IOException {
-        JSONObject intrinsics = new JSONObject();
-        intrinsics.put("type", getType());
-        intrinsics.put("timestamp", getTimestamp());
-        JSONArray.writeJSONString(Arrays.asList(intrinsics, getMutableUserAttributes()), out);
+        writeJSONString(new CollectorJsonWriter(out));
+    }
+
+    @Override
+    public void writeJSONString(CollectorJsonWriter writer) throws IOException {
+        writer.beginArray();
+        writer.beginObject().name(TYPE).value(getType()).name(TIMESTAMP).value(getTimestamp()).endObject();
+        writer.value(getMutableUserAttributes());
+        writer.endArray();
     }
 
 }
@@ -7,23 +7,41 @@
 
 package com.newrelic.agent.model;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONStreamAware;
-
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
-public class ErrorEvent extends AnalyticsEvent implements JSONStreamAware {
+public class ErrorEvent extends AnalyticsEvent implements CollectorJsonAware {
     public static final float UNASSIGNED = Float.NEGATIVE_INFINITY;
     public static final int UNASSIGNED_INT = Integer.MIN_VALUE;
     public static final String TYPE = "TransactionError";
     public static final String UNKNOWN = "Unknown";
 
+    private static final CollectorJsonWriter.Key TYPE_KEY = CollectorJsonWriter.key("type");
+    private static final CollectorJsonWriter.Key ERROR_CLASS_KEY = CollectorJsonWriter.key("error.class");
+    private static final CollectorJsonWriter.Key ERROR_MESSAGE_KEY = CollectorJsonWriter.key("error.message");
+    private static final CollectorJsonWriter.Key TIMESTAMP_KEY = CollectorJsonWriter.key("timestamp");
+    private static final CollectorJsonWriter.Key TRANSACTION_NAME_KEY = CollectorJsonWriter.key("transactionName");
+    private static final CollectorJsonWriter.Key ERROR_EXPECTED_KEY = CollectorJsonWriter.key("error.expected");
+    private static final CollectorJsonWriter.Key DURATION_KEY = CollectorJsonWriter.key("duration");
+    private static final CollectorJsonWriter.Key QUEUE_DURATION_KEY = CollectorJsonWriter.key("queueDuration");
+    private static final CollectorJsonWriter.Key EXTERNAL_DURATION_KEY = CollectorJsonWriter.key("externalDuration");
+    private static final CollectorJsonWriter.Key DATABASE_DURATION_KEY = CollectorJsonWriter.key("databaseDuration");
+    private static final CollectorJsonWriter.Key GC_CUMULATIVE_KEY = CollectorJsonWriter.key("gcCumulative");
+    private static final CollectorJsonWriter.Key DATABASE_CALL_COUNT_KEY = CollectorJsonWriter.key("databaseCallCount");
+    private static final CollectorJsonWriter.Key EXTERNAL_CALL_COUNT_KEY = CollectorJsonWriter.key("externalCallCount");
+    private static final CollectorJsonWriter.Key TRANSACTION_GUID_KEY = CollectorJsonWriter.key("nr.transactionGuid");
+    private static final CollectorJsonWriter.Key REFERRING_TRANSACTION_GUID_KEY = CollectorJsonWriter.key("nr.referringTransactionGuid");
+    private static final CollectorJsonWriter.Key SYNTHETICS_RESOURCE_ID_KEY = CollectorJsonWriter.key("nr.syntheticsResourceId");
+    private static final CollectorJsonWriter.Key SYNTHETICS_MONITOR_ID_KEY = CollectorJsonWriter.key("nr.syntheticsMonitorId");
+    private static final CollectorJsonWriter.Key SYNTHETICS_JOB_ID_KEY = CollectorJsonWriter.key("nr.syntheticsJobId");
+    private static final CollectorJsonWriter.Key PORT_KEY = CollectorJsonWriter.key("port");
+    private static final CollectorJsonWriter.Key TIMEOUT_CAUSE_KEY = CollectorJsonWriter.key("nr.timeoutCause");
+    private static final CollectorJsonWriter.Key TRIP_ID_KEY = CollectorJsonWriter.key("nr.tripId");
+    private static final CollectorJsonWriter.Key PRIORITY_KEY = CollectorJsonWriter.key("priority");
+
     /**
      * Required.
      */
@@ -195,80 +213,113 @@ public class ErrorEvent extends AnalyticsEvent implements JSONStreamAware {
      * "duration":value, "type":"value" }, { "user_param1":"value", "user_param2":value, }, { "agent_param1": "value",
      * "agent_param2": value }
      */
-    @SuppressWarnings("unchecked")
     @Override
     public void writeJSONString(Writer out) throws IOException {
-        JSONObject obj = new JSONObject();
-        obj.put("type", getType());
-        obj.put("error.class", errorClass);
-        obj.put("error.message", errorMessage);
-        obj.put("timestamp", getTimestamp());
-        obj.put("transactionName", transactionName);
-        obj.put("error.expected", errorExpected);
-
-        if (duration != UNASSIGNED) {
-            obj.put("duration", duration);
+        writeJSONString(new CollectorJsonWriter(out));
+    }
+
+    @Override
+    public void writeJSONString(CollectorJsonWriter writer) throws IOException {
+        writer.beginArray().beginObject();
+        if (name(writer, TYPE_KEY)) {
+            writer.value(getType());
+        }
+        if (name(writer, ERROR_CLASS_KEY)) {
+            writer.value(errorClass);
+        }
+        if (name(writer, ERROR_MESSAGE_KEY)) {
+            writer.value(errorMessage);
+        }
+        if (name(writer, TIMESTAMP_KEY)) {
+            writer.value(getTimestamp());
+        }
+        if (name(writer, TRANSACTION_NAME_KEY)) {
+            writer.value(transactionName);
+        }
+        if (name(writer, ERROR_EXPECTED_KEY)) {
+            writer.value(errorExpected);
         }
-        if (queueDuration != UNASSIGNED) {
-            obj.put("queueDuration", queueDuration);
+
+        if (duration != UNASSIGNED && name(writer, DURATION_KEY)) {
+            writer.value(duration);
+        }
+        if (queueDuration != UNASSIGNED && name(writer, QUEUE_DURATION_KEY)) {
+            writer.value(queueDuration);
         }
-        if (externalDuration != UNASSIGNED) {
-            obj.put("externalDuration", externalDuration);
+        if (externalDuration != UNASSIGNED && name(writer, EXTERNAL_DURATION_KEY)) {
+            writer.value(externalDuration);
         }
-        if (databaseDuration > 0) {
-            obj.put("databaseDuration", databaseDuration);
+        if (databaseDuration > 0 && name(writer, DATABASE_DURATION_KEY)) {
+            writer.value(databaseDuration);
         }
-        if (gcCumulative != UNASSIGNED) {
-            obj.put("gcCumulative", gcCumulative);
+        if (gcCumulative != UNASSIGNED && name(writer, GC_CUMULATIVE_KEY)) {
+            writer.value(gcCumulative);
         }
-        if (databaseCallCount > 0) {
-            obj.put("databaseCallCount", databaseCallCount);
+        if (databaseCallCount > 0 && name(writer, DATABASE_CALL_COUNT_KEY)) {
+            writer.value(databaseCallCount);
         }
-        if (externalCallCount > 0) {
-            obj.put("externalCallCount", externalCallCount);
+        if (externalCallCount > 0 && name(writer, EXTERNAL_CALL_COUNT_KEY)) {
+            writer.value(externalCallCount);
         }
-        if (transactionGuid != null) {
-            obj.put("nr.transactionGuid", transactionGuid); // prefixed to be hidden by Insights
+        if (transactionGuid != null && name(writer, TRANSACTION_GUID_KEY)) {
+            writer.value(transactionGuid); // prefixed to be hidden by Insights
         }
-        if (referringTransactionGuid != null) {
-            obj.put("nr.referringTransactionGuid", referringTransactionGuid); // prefixed to be hidden by Insights
+        if (referringTransactionGuid != null && name(writer, REFERRING_TRANSACTION_GUID_KEY)) {
+            writer.value(referringTransactionGuid); // prefixed to be hidden by Insights
         }
-        if (this.syntheticsResourceId != null) {
-            obj.put("nr.syntheticsResourceId", this.syntheticsResourceId);
+        if (this.syntheticsResourceId != null && name(writer, SYNTHETICS_RESOURCE_ID_KEY)) {
+            writer.value(this.syntheticsResourceId);
         }
-        if (this.syntheticsMonitorId != null) {
-            obj.put("nr.syntheticsMonitorId", this.syntheticsMonitorId);
+        if (this.syntheticsMonitorId != null && name(writer, SYNTHETICS_MONITOR_ID_KEY)) {
+            writer.value(this.syntheticsMonitorId);
         }
-        if (this.syntheticsJobId != null) {
-            obj.put("nr.syntheticsJobId", this.syntheticsJobId);
+        if (this.syntheticsJobId != null && name(writer, SYNTHETICS_JOB_ID_KEY)) {
+            writer.value(this.syntheticsJobId);
         }
-        if (port != UNASSIGNED_INT) {
-            obj.put("port", port);
+        if (port != UNASSIGNED_INT && name(writer, PORT_KEY)) {
+            writer.value(port);
         }
-        if (timeoutCause != null) {
-            obj.put("nr.timeoutCause", timeoutCause);
+        if (timeoutCause != null && name(writer, TIMEOUT_CAUSE_KEY)) {
+            writer.value(timeoutCause);
         }
-        if (distributedTraceIntrinsics != null && !distributedTraceIntrinsics.isEmpty()) {
-            obj.putAll(distributedTraceIntrinsics);
+        if (distributedTraceIntrinsics != null) {
+            for (Map.Entry<String, Object> entry : distributedTraceIntrinsics.entrySet()) {
+                // the trip id and priority below take precedence over the intrinsics
+                if ((tripId != null && TRIP_ID_KEY.getName().equals(entry.getKey()))
+                        || (getPriority() != UNASSIGNED && PRIORITY_KEY.getName().equals(entry.getKey()))) {
+                    continue;
+                }
+                writer.name(entry.getKey()).value(entry.getValue());
+            }
         }
         if (tripId != null) {
-            obj.put("nr.tripId", tripId); // prefixed to be hidden by Insights
+            writer.name(TRIP_ID_KEY).value(tripId); // prefixed to be hidden by Insights
         }
         if (getPriority() != UNASSIGNED) {
-            obj.put("priority", getPriority());
+            writer.name(PRIORITY_KEY).value(getPriority());
         }
+        writer.endObject();
 
         Map<String, ?> filteredUserAttrs = attributeFilter.filterUserAttributes(appName, getMutableUserAttributes());
         Map<String, ?> filteredAgentAttrs = attributeFilter.filterAgentAttributes(appName, agentAttributes);
-        if (filteredAgentAttrs.isEmpty()) {
-            if (filteredUserAttrs.isEmpty()) {
-                JSONArray.writeJSONString(Collections.singletonList(obj), out);
-            } else {
-                JSONArray.writeJSONString(Arrays.asList(obj, filteredUserAttrs), out);
-            }
-        } else {
-            JSONArray.writeJSONString(Arrays.asList(obj, filteredUserAttrs, filteredAgentAttrs), out);
+        if (!filteredAgentAttrs.isEmpty()) {
+            writer.value(filteredUserAttrs).value(filteredAgentAttrs);
+        } else if (!filteredUserAttrs.isEmpty()) {
+            writer.value(filteredUserAttrs);
+        }
+        writer.endArray();
+    }
+
+    /**
+     * Write the name of an intrinsic unless the distributed trace intrinsics have one of the same name, which is
+     * written instead.
+     */
+    private boolean name(CollectorJsonWriter writer, CollectorJsonWriter.Key key) throws IOException {
+        if (distributedTraceIntrinsics != null && distributedTraceIntrinsics.containsKey(key.getName())) {
+            return false;
         }
+        writer.name(key);
+        return true;
     }
 
     @Override
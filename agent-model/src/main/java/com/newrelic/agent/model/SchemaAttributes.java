@@ -0,0 +1,248 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.model;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map of attributes where the keys of a fixed schema are stored in a slot array, indexed by the position of the key
+ * in the schema. Keys outside the schema, and null values, are stored in an overflow map that is only allocated when
+ * one is added. A key is only ever stored in one of the two places.
+ *
+ * Writes itself as a JSON object without going through {@link #entrySet()}.
+ */
+final class SchemaAttributes extends AbstractMap<String, Object> implements CollectorJsonAware {
+
+    interface Key {
+        String getKey();
+    }
+
+    static final class Schema {
+        private final String[] keys;
+        private final CollectorJsonWriter.Key[] jsonKeys;
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        Schema(Key[] schemaKeys) {
+            keys = new String[schemaKeys.length];
+            jsonKeys = new CollectorJsonWriter.Key[schemaKeys.length];
+            for (int slot = 0; slot < schemaKeys.length; slot++) {
+                keys[slot] = schemaKeys[slot].getKey();
+                jsonKeys[slot] = CollectorJsonWriter.key(keys[slot]);
+                slots.put(keys[slot], slot);
+            }
+        }
+
+        int slot(Object key) {
+            Integer slot = slots.get(key);
+            return slot == null ? -1 : slot;
+        }
+    }
+
+    private final Schema schema;
+    private final Object[] values;
+    private int slotCount;
+    private Map<String, Object> overflow;
+
+    SchemaAttributes(Schema schema) {
+        this.schema = schema;
+        this.values = new Object[schema.keys.length];
+    }
+
+    Object get(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Store a non-null value in a slot.
+     */
+    void put(int slot, Object value) {
+        if (values[slot] == null) {
+            slotCount++;
+            if (overflow != null) {
+                overflow.remove(schema.keys[slot]);
+            }
+        }
+        values[slot] = value;
+    }
+
+    void visit(SpanEvent.AttributeVisitor visitor) {
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                visitor.visit(schema.keys[slot], values[slot]);
+            }
+        }
+        if (overflow != null) {
+            for (Map.Entry<String, Object> entry : overflow.entrySet()) {
+                visitor.visit(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return slotCount + (overflow == null ? 0 : overflow.size());
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = schema.slot(key);
+        if (slot >= 0 && values[slot] != null) {
+            return true;
+        }
+        return overflow != null && overflow.containsKey(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = schema.slot(key);
+        if (slot >= 0 && values[slot] != null) {
+            return values[slot];
+        }
+        return overflow == null ? null : overflow.get(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int slot = schema.slot(key);
+        if (slot >= 0 && value != null) {
+            Object previous = values[slot];
+            if (previous == null && overflow != null) {
+                previous = overflow.get(key);
+            }
+            put(slot, value);
+            return previous;
+        }
+
+        Object previous = null;
+        if (slot >= 0 && values[slot] != null) {
+            previous = values[slot];
+            values[slot] = null;
+            slotCount--;
+        }
+        if (overflow == null) {
+            overflow = new HashMap<>();
+        }
+        Object overflowPrevious = overflow.put(key, value);
+        return previous != null ? previous : overflowPrevious;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = schema.slot(key);
+        if (slot >= 0 && values[slot] != null) {
+            Object previous = values[slot];
+            values[slot] = null;
+            slotCount--;
+            return previous;
+        }
+        return overflow == null ? null : overflow.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        slotCount = 0;
+        overflow = null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return SchemaAttributes.this.size();
+            }
+        };
+    }
+
+    @Override
+    public void writeJSONString(Writer out) throws IOException {
+        writeJSONString(new CollectorJsonWriter(out));
+    }
+
+    @Override
+    public void writeJSONString(CollectorJsonWriter writer) throws IOException {
+        writer.beginObject();
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                writer.name(schema.jsonKeys[slot]).value(values[slot]);
+            }
+        }
+        if (overflow != null) {
+            writer.members(overflow);
+        }
+        writer.endObject();
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int nextSlot = nextSlot(0);
+        private int lastSlot = -1;
+        private Iterator<Entry<String, Object>> overflowIterator;
+
+        @Override
+        public boolean hasNext() {
+            return nextSlot < values.length || overflowIterator().hasNext();
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (nextSlot < values.length) {
+                lastSlot = nextSlot;
+                nextSlot = nextSlot(nextSlot + 1);
+                return new SimpleImmutableEntry<>(schema.keys[lastSlot], values[lastSlot]);
+            }
+            if (!overflowIterator().hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastSlot = -1;
+            return overflowIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (lastSlot >= 0) {
+                values[lastSlot] = null;
+                slotCount--;
+                lastSlot = -1;
+            } else if (overflowIterator != null) {
+                overflowIterator.remove();
+            } else {
+                throw new IllegalStateException();
+            }
+        }
+
+        private int nextSlot(int slot) {
+            while (slot < values.length && values[slot] == null) {
+                slot++;
+            }
+            return slot;
+        }
+
+        private Iterator<Entry<String, Object>> overflowIterator() {
+            if (overflowIterator == null) {
+                overflowIterator = overflow == null ? Collections.<Entry<String, Object>>emptyIterator() : overflow.entrySet().iterator();
+            }
+            return overflowIterator;
+        }
+    }
+}
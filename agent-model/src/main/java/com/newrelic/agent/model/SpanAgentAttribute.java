@@ -0,0 +1,34 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.model;
+
+/**
+ * The agent attributes the agent sets on spans itself. Each has a fixed slot in a {@link SpanEvent}, any other agent
+ * attribute is kept in an overflow map.
+ */
+public enum SpanAgentAttribute implements SchemaAttributes.Key {
+    HTTP_URL("http.url"),
+    HTTP_METHOD("http.method"),
+    ERROR_CLASS("error.class"),
+    ERROR_MESSAGE("error.message"),
+    ERROR_EXPECTED("error.expected"),
+    PORT("port");
+
+    static final SchemaAttributes.Schema SCHEMA = new SchemaAttributes.Schema(values());
+
+    private final String key;
+
+    SpanAgentAttribute(String key) {
+        this.key = key;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+}
@@ -7,26 +7,20 @@
 
 package com.newrelic.agent.model;
 
-import org.json.simple.JSONArray;
-import org.json.simple.JSONStreamAware;
-
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
 
-public class SpanEvent extends AnalyticsEvent implements JSONStreamAware {
+public class SpanEvent extends AnalyticsEvent implements CollectorJsonAware {
 
     public static final String SPAN = "Span";
     static final String SPAN_KIND = "client";
 
     private final String appName;
-    private final Map<String, Object> intrinsics;
-    private final Map<String, Object> agentAttributes;
+    private final SchemaAttributes intrinsics;
+    private final SchemaAttributes agentAttributes;
     private final boolean decider;
 
     private SpanEvent(Builder builder) {
@@ -53,6 +47,31 @@ public class SpanEvent extends AnalyticsEvent implements JSONStreamAware {
         return agentAttributes;
     }
 
+    public Object getIntrinsic(SpanIntrinsic intrinsic) {
+        return intrinsics.get(intrinsic.ordinal());
+    }
+
+    public Object getAgentAttribute(SpanAgentAttribute attribute) {
+        return agentAttributes.get(attribute.ordinal());
+    }
+
+    /**
+     * Visit the intrinsics without copying them or allocating map entries.
+     */
+    public void visitIntrinsics(AttributeVisitor visitor) {
+        intrinsics.visit(visitor);
+    }
+
+    public void visitAgentAttributes(AttributeVisitor visitor) {
+        agentAttributes.visit(visitor);
+    }
+
+    public void visitUserAttributes(AttributeVisitor visitor) {
+        for (Map.Entry<String, ?> entry : getMutableUserAttributes().entrySet()) {
+            visitor.visit(entry.getKey(), entry.getValue());
+        }
+    }
+
     @Override
     public boolean decider() {
         return decider;
@@ -60,35 +79,44 @@ public class SpanEvent extends AnalyticsEvent implements JSONStreamAware {
 
     @Override
     public void writeJSONString(Writer out) throws IOException {
-        JSONArray.writeJSONString(Arrays.asList(intrinsics, getMutableUserAttributes(), getAgentAttributes()), out);
+        writeJSONString(new CollectorJsonWriter(out));
+    }
+
+    @Override
+    public void writeJSONString(CollectorJsonWriter writer) throws IOException {
+        writer.beginArray();
+        intrinsics.writeJSONString(writer);
+        writer.value(getMutableUserAttributes());
+        agentAttributes.writeJSONString(writer);
+        writer.endArray();
     }
 
     public String getTraceId() {
-        return (String) intrinsics.get("traceId");
+        return (String) getIntrinsic(SpanIntrinsic.TRACE_ID);
     }
 
     public String getGuid() {
-        return (String) intrinsics.get("guid");
+        return (String) getIntrinsic(SpanIntrinsic.GUID);
     }
 
     public String getParentId() {
-        return (String) intrinsics.get("parentId");
+        return (String) getIntrinsic(SpanIntrinsic.PARENT_ID);
     }
 
     public String getName() {
-        return (String) intrinsics.get("name");
+        return (String) getIntrinsic(SpanIntrinsic.NAME);
     }
 
     public float getDuration() {
-        return (Float) intrinsics.get("duration");
+        return (Float) getIntrinsic(SpanIntrinsic.DURATION);
     }
 
     public String getTransactionId() {
-        return (String) intrinsics.get("transactionId");
+        return (String) getIntrinsic(SpanIntrinsic.TRANSACTION_ID);
     }
 
     public SpanCategory getCategory() {
-        return SpanCategory.fromString((String) intrinsics.get("category"));
+        return SpanCategory.fromString((String) getIntrinsic(SpanIntrinsic.CATEGORY));
     }
 
     @Override
@@ -112,9 +140,13 @@ public class SpanEvent extends AnalyticsEvent implements JSONStreamAware {
         return Objects.hash(appName, intrinsics, agentAttributes, decider);
     }
 
+    public interface AttributeVisitor {
+        void visit(String key, Object value);
+    }
+
     public static class Builder {
-        private final Map<String, Object> intrinsics = new HashMap<>();
-        private final Map<String, Object> agentAttributes = new HashMap<>();
+        private final SchemaAttributes intrinsics = new SchemaAttributes(SpanIntrinsic.SCHEMA);
+        private final SchemaAttributes agentAttributes = new SchemaAttributes(SpanAgentAttribute.SCHEMA);
         private final Map<String, Object> userAttributes = new HashMap<>();
         private String appName;
         private float priority;
@@ -138,6 +170,13 @@ public class SpanEvent extends AnalyticsEvent implements JSONStreamAware {
             return this;
         }
 
+        public Builder putIntrinsic(SpanIntrinsic intrinsic, Object value) {
+            if (value != null) {
+                intrinsics.put(intrinsic.ordinal(), value);
+            }
+            return this;
+        }
+
         public Builder putAllIntrinsics(Map<String, ?> intrinsicAttributes) {
             this.intrinsics.putAll(intrinsicAttributes);
             return this;
@@ -177,6 +216,13 @@ public class SpanEvent extends AnalyticsEvent implements JSONStreamAware {
             return this;
         }
 
+        public Builder putAgentAttribute(SpanAgentAttribute attribute, Object value) {
+            if (value != null) {
+                agentAttributes.put(attribute.ordinal(), value);
+            }
+            return this;
+        }
+
         public Object getSpanKindFromUserAttributes() {
             Object result = userAttributes.get("span.kind");
             return result == null ? SPAN_KIND : result;
@@ -0,0 +1,51 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.model;
+
+/**
+ * The intrinsics the agent sets on most spans. Each has a fixed slot in a {@link SpanEvent}, any other intrinsic is
+ * kept in an overflow map.
+ */
+public enum SpanIntrinsic implements SchemaAttributes.Key {
+    TYPE("type"),
+    CATEGORY("category"),
+    NAME("name"),
+    GUID("guid"),
+    TRACE_ID("traceId"),
+    PARENT_ID("parentId"),
+    TRANSACTION_ID("transactionId"),
+    SAMPLED("sampled"),
+    PRIORITY("priority"),
+    DURATION("duration"),
+    TIMESTAMP("timestamp"),
+    ENTRY_POINT("nr.entryPoint"),
+    PARENT_TYPE("parent.type"),
+    TRUSTED_PARENT_ID("trustedParentId"),
+    TRACING_VENDORS("tracingVendors"),
+    TRANSACTION_NAME("transaction.name"),
+    SPAN_KIND("span.kind"),
+    COMPONENT("component"),
+    PEER_HOSTNAME("peer.hostname"),
+    PEER_ADDRESS("peer.address"),
+    DB_INSTANCE("db.instance"),
+    DB_COLLECTION("db.collection"),
+    DB_STATEMENT("db.statement");
+
+    static final SchemaAttributes.Schema SCHEMA = new SchemaAttributes.Schema(values());
+
+    private final String key;
+
+    SpanIntrinsic(String key) {
+        this.key = key;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.model;
+
+import org.json.simple.JSONValue;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class CollectorJsonWriterTest {
+
+    @Test
+    public void writesSameValuesAsJsonValue() throws IOException {
+        List<Object> values = Arrays.<Object>asList(null, "", "plain", "\"/\\\b\f\n\r\t", "\u0000\u001f\u007f\u009f\u00a0\u2000\u20ff\u2100",
+                0, -1, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, (short) 3, (byte) -4, 0.1f, 1.0E-10f,
+                Float.POSITIVE_INFINITY, Float.NaN, 2.5d, -0.0d, Double.NEGATIVE_INFINITY, true, false,
+                Collections.singletonMap("key/\"", 1), Arrays.asList(1, "two", null), new StringBuilder("sb"));
+        for (Object value : values) {
+            assertEquals(JSONValue.toJSONString(value), toJson(value));
+        }
+    }
+
+    @Test
+    public void escapesRandomStringsLikeJsonValue() throws IOException {
+        Random random = new Random(18);
+        for (int run = 0; run < 2000; run++) {
+            char[] chars = new char[random.nextInt(20)];
+            for (int i = 0; i < chars.length; i++) {
+                // mostly the ranges that are escaped
+                chars[i] = random.nextBoolean() ? (char) random.nextInt(0xA0) : (char) (0x1FF0 + random.nextInt(0x120));
+            }
+            String value = new String(chars);
+            assertEquals(JSONValue.toJSONString(value), toJson(value));
+
+            StringWriter out = new StringWriter();
+            new CollectorJsonWriter(out).beginObject().name(value).value(1).name(CollectorJsonWriter.key(value)).value(2).endObject();
+            String name = JSONValue.toJSONString(value);
+            assertEquals("{" + name + ":1," + name + ":2}", out.toString());
+        }
+    }
+
+    @Test
+    public void writesPrimitivesLikeJsonValue() throws IOException {
+        Random random = new Random(18);
+        for (int run = 0; run < 2000; run++) {
+            long longValue = random.nextLong() >> random.nextInt(64);
+            float floatValue = Float.intBitsToFloat(random.nextInt());
+            double doubleValue = Double.longBitsToDouble(random.nextLong());
+
+            StringWriter out = new StringWriter();
+            new CollectorJsonWriter(out).beginArray().value(longValue).value(floatValue).value(doubleValue).endArray();
+            assertEquals(JSONValue.toJSONString(Arrays.asList(longValue, floatValue, doubleValue)), out.toString());
+        }
+    }
+
+    @Test
+    public void addsSeparators() throws IOException {
+        Map<String, Object> members = new LinkedHashMap<>();
+        members.put("a", 1);
+        members.put("b", Collections.emptyMap());
+
+        StringWriter out = new StringWriter();
+        new CollectorJsonWriter(out)
+                .beginArray()
+                .beginObject().endObject()
+                .beginArray().endArray()
+                .beginObject().name("x").beginArray().value(1).value("2").endArray().members(members).endObject()
+                .value(Collections.<String, Object>emptyMap())
+                .endArray();
+        assertEquals("[{},[],{\"x\":[1,\"2\"],\"a\":1,\"b\":{}},{}]", out.toString());
+    }
+
+    @Test
+    public void nestsCollectorJsonAware() throws IOException {
+        CustomInsightsEvent event = new CustomInsightsEvent("Custom", 1234L, Collections.<String, Object>singletonMap("key", "value"), 0.5f);
+
+        StringWriter out = new StringWriter();
+        new CollectorJsonWriter(out).beginArray().value((Object) event).value((Object) event).endArray();
+        String json = JSONValue.toJSONString(event);
+        assertEquals("[" + json + "," + json + "]", out.toString());
+    }
+
+    private static String toJson(Object value) throws IOException {
+        StringWriter out = new StringWriter();
+        new CollectorJsonWriter(out).value(value);
+        return out.toString();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.model;
+
+import org.json.simple.JSONObject;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SchemaAttributesTest {
+
+    @Test
+    public void schemaKeysUseSlots() {
+        SchemaAttributes attributes = new SchemaAttributes(SpanIntrinsic.SCHEMA);
+        attributes.put(SpanIntrinsic.GUID.ordinal(), "abc");
+        attributes.put("traceId", "def");
+
+        assertEquals("abc", attributes.get("guid"));
+        assertEquals("def", attributes.get(SpanIntrinsic.TRACE_ID.ordinal()));
+        assertEquals(2, attributes.size());
+        assertTrue(attributes.containsKey("traceId"));
+        assertFalse(attributes.containsKey("parentId"));
+    }
+
+    @Test
+    public void nullValuesAreKept() {
+        SchemaAttributes attributes = new SchemaAttributes(SpanIntrinsic.SCHEMA);
+        attributes.put("guid", "abc");
+        assertEquals("abc", attributes.put("guid", null));
+
+        assertTrue(attributes.containsKey("guid"));
+        assertNull(attributes.get("guid"));
+        assertNull(attributes.get(SpanIntrinsic.GUID.ordinal()));
+        assertEquals(1, attributes.size());
+
+        attributes.put(SpanIntrinsic.GUID.ordinal(), "def");
+        assertEquals(1, attributes.size());
+        assertEquals("def", attributes.get("guid"));
+    }
+
+    @Test
+    public void writesSameJsonAsJsonObject() throws IOException {
+        SchemaAttributes attributes = new SchemaAttributes(SpanIntrinsic.SCHEMA);
+        assertEquals("{}", toJson(attributes));
+
+        attributes.put("name", "Java/\"quoted\"");
+        attributes.put("duration", 1.5f);
+        attributes.put("nr.entryPoint", true);
+        attributes.put("custom\n", null);
+        attributes.put("count", 3L);
+
+        StringWriter expected = new StringWriter();
+        JSONObject.writeJSONString(new LinkedHashMap<>(attributes), expected);
+        assertEquals(expected.toString(), toJson(attributes));
+    }
+
+    @Test
+    public void behavesLikeHashMap() throws IOException {
+        String[] keys = { "type", "guid", "traceId", "db.statement", "custom", "other", null };
+        Random random = new Random(23);
+        for (int run = 0; run < 200; run++) {
+            SchemaAttributes attributes = new SchemaAttributes(SpanIntrinsic.SCHEMA);
+            Map<String, Object> expected = new HashMap<>();
+            for (int i = 0; i < 20; i++) {
+                String key = keys[random.nextInt(keys.length)];
+                Object value = random.nextInt(4) == 0 ? null : random.nextInt(10);
+                switch (random.nextInt(4)) {
+                    case 0:
+                        assertEquals(expected.remove(key), attributes.remove(key));
+                        break;
+                    case 1:
+                        removeWithIterator(expected, key);
+                        removeWithIterator(attributes, key);
+                        break;
+                    default:
+                        assertEquals(expected.put(key, value), attributes.put(key, value));
+                }
+                assertEquals(expected, attributes);
+                assertEquals(attributes, expected);
+                assertEquals(expected.hashCode(), attributes.hashCode());
+                for (String k : keys) {
+                    assertEquals(expected.containsKey(k), attributes.containsKey(k));
+                    assertEquals(expected.get(k), attributes.get(k));
+                }
+            }
+        }
+    }
+
+    private static void removeWithIterator(Map<String, Object> map, String key) {
+        for (Iterator<Map.Entry<String, Object>> iterator = map.entrySet().iterator(); iterator.hasNext(); ) {
+            Map.Entry<String, Object> entry = iterator.next();
+            if (key == null ? entry.getKey() == null : key.equals(entry.getKey())) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static String toJson(SchemaAttributes attributes) throws IOException {
+        StringWriter writer = new StringWriter();
+        attributes.writeJSONString(writer);
+        return writer.toString();
+    }
+}
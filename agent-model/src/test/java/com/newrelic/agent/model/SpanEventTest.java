@@ -7,8 +7,12 @@
 
 package com.newrelic.agent.model;
 
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
 import org.junit.Test;
 
+import java.io.StringWriter;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -65,6 +69,31 @@ public class SpanEventTest {
         assertNotEquals(span2, span8);
     }
 
+    @Test
+    public void testSchemaAttributes() throws Exception {
+        SpanEvent span = baseBuilder(System.currentTimeMillis())
+                .putIntrinsic(SpanIntrinsic.TRACE_ID, "abc")
+                .putIntrinsic("guid", "def")
+                .putAgentAttribute(SpanAgentAttribute.HTTP_METHOD, "GET")
+                .build();
+
+        assertEquals("abc", span.getTraceId());
+        assertEquals("abc", span.getIntrinsics().get("traceId"));
+        assertEquals("def", span.getGuid());
+        assertEquals("def", span.getIntrinsic(SpanIntrinsic.GUID));
+        assertEquals("GET", span.getAgentAttributes().get("http.method"));
+        assertEquals(2, span.getAgentAttributes().size());
+
+        StringWriter writer = new StringWriter();
+        span.writeJSONString(writer);
+        JSONArray json = (JSONArray) new JSONParser().parse(writer.toString());
+        assertEquals(3, json.size());
+        assertEquals(span.getIntrinsics(), json.get(0));
+        assertEquals(singletonMap("a", "b"), json.get(1));
+        assertEquals(span.getAgentAttributes(), json.get(2));
+        assertEquals(JSONObject.class, json.get(0).getClass());
+    }
+
     private SpanEvent.Builder baseBuilderExtraUser(long now, String extraUserAttr, String value) {
         return baseBuilder(now).putAllUserAttributes(singletonMap(extraUserAttr, value));
     }
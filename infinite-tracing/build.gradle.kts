@@ -12,7 +12,7 @@ java {
 }
 
 dependencies {
-    implementation("com.newrelic.agent.java:infinite-tracing-protobuf:3.2")
+    implementation("com.newrelic.agent.java:infinite-tracing-protobuf:3.3")
     implementation("com.google.guava:guava:28.2-android")
     implementation(project(":agent-model"))
     implementation(project(":agent-interfaces"))
@@ -1,6 +1,5 @@
 package com.newrelic;
 
-import com.newrelic.trace.v1.V1;
 import io.grpc.ManagedChannel;
 import io.grpc.stub.ClientCallStreamObserver;
 
@@ -11,21 +10,21 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *
  * Not thread-safe.
  */
-public class ChannelToStreamObserver implements Function<ManagedChannel, ClientCallStreamObserver<V1.Span>> {
-    private final StreamObserverFactory streamObserverFactory;
+public class ChannelToStreamObserver<T> implements Function<ManagedChannel, ClientCallStreamObserver<T>> {
+    private final StreamObserverFactory<T> streamObserverFactory;
     private final AtomicBoolean shouldRecreateCall;
     private volatile ManagedChannel lastChannel;
-    private volatile ClientCallStreamObserver<V1.Span> streamObserver;
+    private volatile ClientCallStreamObserver<T> streamObserver;
 
     public ChannelToStreamObserver(
-            StreamObserverFactory streamObserverFactory,
+            StreamObserverFactory<T> streamObserverFactory,
             AtomicBoolean shouldRecreateCall) {
         this.streamObserverFactory = streamObserverFactory;
         this.shouldRecreateCall = shouldRecreateCall;
     }
 
     @Override
-    public ClientCallStreamObserver<V1.Span> apply(ManagedChannel channel) {
+    public ClientCallStreamObserver<T> apply(ManagedChannel channel) {
         if (channel == null) {
             return null;
         }
@@ -46,7 +45,7 @@ public class ChannelToStreamObserver implements Function<ManagedChannel, ClientC
 
     private void clearStreamObserver() {
         if (this.streamObserver != null) {
-            ClientCallStreamObserver<V1.Span> oldStreamObserver = this.streamObserver;
+            ClientCallStreamObserver<T> oldStreamObserver = this.streamObserver;
             this.streamObserver = null;
             oldStreamObserver.cancel("CLOSING_CONNECTION", new ChannelClosingException());
         }
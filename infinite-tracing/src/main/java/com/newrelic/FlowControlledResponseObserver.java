@@ -0,0 +1,45 @@
+package com.newrelic;
+
+import com.newrelic.trace.v1.V1;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Forwards responses to the shared response observer and registers an on-ready handler on the request stream
+ * before the call starts, which is the only point gRPC allows it to be set.
+ */
+class FlowControlledResponseObserver<ReqT> implements ClientResponseObserver<ReqT, V1.RecordStatus> {
+    private final StreamObserver<V1.RecordStatus> delegate;
+    private final ReadySignal readySignal;
+
+    FlowControlledResponseObserver(StreamObserver<V1.RecordStatus> delegate, ReadySignal readySignal) {
+        this.delegate = delegate;
+        this.readySignal = readySignal;
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+        requestStream.setOnReadyHandler(new Runnable() {
+            @Override
+            public void run() {
+                readySignal.signal();
+            }
+        });
+    }
+
+    @Override
+    public void onNext(V1.RecordStatus value) {
+        delegate.onNext(value);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        delegate.onError(t);
+    }
+
+    @Override
+    public void onCompleted() {
+        delegate.onCompleted();
+    }
+}
@@ -5,6 +5,8 @@ import com.newrelic.api.agent.Logger;
 
 public class InfiniteTracingConfig {
 
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
     private final String licenseKey;
     private final int maxQueueSize;
     private final String host;
@@ -12,6 +14,8 @@ public class InfiniteTracingConfig {
     private final Logger logger;
     private final Double flakyPercentage;
     private final boolean usePlaintext;
+    private final boolean useBatching;
+    private final int batchSize;
 
     public InfiniteTracingConfig(Builder builder) {
         this.licenseKey = builder.licenseKey;
@@ -21,6 +25,8 @@ public class InfiniteTracingConfig {
         this.logger = builder.logger;
         this.flakyPercentage = builder.flakyPercentage;
         this.usePlaintext = builder.usePlaintext;
+        this.useBatching = builder.useBatching;
+        this.batchSize = builder.batchSize;
     }
 
     public static Builder builder() {
@@ -55,6 +61,14 @@ public class InfiniteTracingConfig {
         return usePlaintext;
     }
 
+    public boolean getUseBatching() {
+        return useBatching;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
     public static class Builder {
         public int maxQueueSize;
         public Logger logger;
@@ -63,6 +77,8 @@ public class InfiniteTracingConfig {
         private int port;
         private Double flakyPercentage;
         private boolean usePlaintext;
+        private boolean useBatching;
+        private int batchSize = DEFAULT_BATCH_SIZE;
 
         /**
          * The New Relic APM license key configured for the application.
@@ -125,6 +141,24 @@ public class InfiniteTracingConfig {
             return this;
         }
 
+        /**
+         * The optional boolean to send spans in batches using the {@code RecordSpanBatch} call
+         *
+         * @param useBatching
+         */
+        public Builder useBatching(boolean useBatching) {
+            this.useBatching = useBatching;
+            return this;
+        }
+
+        /**
+         * The maximum number of spans sent in a single batch. Only used when batching is enabled.
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
         public InfiniteTracingConfig build() {
             return new InfiniteTracingConfig(this);
         }
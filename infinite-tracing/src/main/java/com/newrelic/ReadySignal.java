@@ -0,0 +1,56 @@
+package com.newrelic;
+
+import io.grpc.stub.ClientCallStreamObserver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lets the span delivery thread wait for gRPC flow control instead of sleeping and polling
+ * {@link ClientCallStreamObserver#isReady()}. gRPC calls {@link #signal()} from the call's on-ready handler.
+ *
+ * Thread-safe.
+ */
+public class ReadySignal {
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+
+    /**
+     * Wakes up the thread waiting in {@link #awaitReady}.
+     */
+    public void signal() {
+        lock.lock();
+        try {
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the observer is ready to accept a message or the timeout elapses.
+     *
+     * @return true if the observer is ready
+     */
+    public boolean awaitReady(ClientCallStreamObserver<?> streamObserver, long timeout, TimeUnit unit) throws InterruptedException {
+        if (streamObserver.isReady()) {
+            return true;
+        }
+
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            // isReady is re-checked under the lock so a signal between the check and the wait is not lost
+            while (!streamObserver.isReady()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = ready.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.newrelic;
+
+import com.newrelic.agent.interfaces.backport.Supplier;
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.api.agent.Logger;
+import com.newrelic.api.agent.MetricAggregator;
+import com.newrelic.trace.v1.V1;
+import io.grpc.stub.ClientCallStreamObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Sends spans to the Trace Observer as {@link V1.SpanBatch} messages. Each run waits for the call to become ready,
+ * then drains up to {@code batchSize} spans from the queue and writes them as a single message.
+ *
+ * Unlike {@link SpanDelivery}, the delivery thread does not sleep while the call is not ready; it waits on the
+ * {@link ReadySignal} that gRPC's on-ready handler notifies.
+ *
+ * Not thread-safe.
+ */
+class SpanBatchDelivery implements Runnable {
+
+    private static final long WAIT_MILLIS = 250;
+
+    private final SpanConverter<V1.Span> spanConverter;
+    private final MetricAggregator metricAggregator;
+    private final Logger logger;
+    private final BlockingQueue<SpanEvent> queue;
+    private final Supplier<ClientCallStreamObserver<V1.SpanBatch>> streamObserverSupplier;
+    private final ReadySignal readySignal;
+    private final int batchSize;
+    private final List<SpanEvent> drained;
+
+    public SpanBatchDelivery(SpanConverter<V1.Span> spanConverter, MetricAggregator metricAggregator, Logger logger, BlockingQueue<SpanEvent> queue,
+            Supplier<ClientCallStreamObserver<V1.SpanBatch>> streamObserverSupplier, ReadySignal readySignal, int batchSize) {
+        this.spanConverter = spanConverter;
+        this.metricAggregator = metricAggregator;
+        this.logger = logger;
+        this.queue = queue;
+        this.streamObserverSupplier = streamObserverSupplier;
+        this.readySignal = readySignal;
+        this.batchSize = Math.max(1, batchSize);
+        this.drained = new ArrayList<>(this.batchSize);
+    }
+
+    @Override
+    public void run() {
+        ClientCallStreamObserver<V1.SpanBatch> spanBatchClientCallStreamObserver = streamObserverSupplier.get();
+
+        if (spanBatchClientCallStreamObserver == null) {
+            return;
+        }
+
+        if (!awaitReadySafely(spanBatchClientCallStreamObserver)) {
+            metricAggregator.incrementCounter("Supportability/InfiniteTracing/NotReady");
+            return;
+        }
+
+        if (!drainSafely()) {
+            return;
+        }
+
+        V1.SpanBatch.Builder batchBuilder = V1.SpanBatch.newBuilder();
+        for (SpanEvent spanEvent : drained) {
+            batchBuilder.addSpans(spanConverter.convert(spanEvent));
+        }
+        int count = drained.size();
+        drained.clear();
+
+        try {
+            spanBatchClientCallStreamObserver.onNext(batchBuilder.build());
+        } catch (Throwable t) {
+            logger.log(Level.SEVERE, t, "Unable to send span batch!");
+            throw t;
+        }
+
+        metricAggregator.incrementCounter("Supportability/InfiniteTracing/Span/Sent", count);
+        metricAggregator.incrementCounter("Supportability/InfiniteTracing/Span/Batch/Sent");
+    }
+
+    private boolean awaitReadySafely(ClientCallStreamObserver<V1.SpanBatch> streamObserver) {
+        try {
+            return readySignal.awaitReady(streamObserver, WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            logger.log(Level.WARNING, "Thread was interrupted while waiting for the Trace Observer to accept spans.");
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Blocks for the first span, then takes whatever else is already queued without waiting.
+     *
+     * @return true if at least one span was drained
+     */
+    private boolean drainSafely() {
+        SpanEvent first;
+        try {
+            first = queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            logger.log(Level.WARNING, "Thread was interrupted while polling for spans.");
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (first == null) {
+            return false;
+        }
+        drained.add(first);
+        queue.drainTo(drained, batchSize - 1);
+        return true;
+    }
+}
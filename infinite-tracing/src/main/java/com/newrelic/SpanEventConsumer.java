@@ -77,7 +77,8 @@ public class SpanEventConsumer implements Consumer<SpanEvent> {
         private final BlockingQueue<SpanEvent> queue;
 
         private ChannelFactory channelFactory;
-        private StreamObserverFactory streamObserverFactory;
+        private StreamObserverFactory<V1.Span> streamObserverFactory;
+        private StreamObserverFactory<V1.SpanBatch> batchStreamObserverFactory;
 
         public Builder(InfiniteTracingConfig config, MetricAggregator metricAggregator) {
             this.logger = config.getLogger();
@@ -93,11 +94,17 @@ public class SpanEventConsumer implements Consumer<SpanEvent> {
         }
 
         @VisibleForTesting
-        public Builder setStreamObserverFactory(StreamObserverFactory streamObserverFactory) {
+        public Builder setStreamObserverFactory(StreamObserverFactory<V1.Span> streamObserverFactory) {
             this.streamObserverFactory = streamObserverFactory;
             return this;
         }
 
+        @VisibleForTesting
+        public Builder setBatchStreamObserverFactory(StreamObserverFactory<V1.SpanBatch> batchStreamObserverFactory) {
+            this.batchStreamObserverFactory = batchStreamObserverFactory;
+            return this;
+        }
+
         public SpanEventConsumer build() {
             BackoffPolicy backoffPolicy = new DefaultBackoffPolicy();
             ConnectionStatus connectionStatus = new ConnectionStatus(logger);
@@ -114,24 +121,48 @@ public class SpanEventConsumer implements Consumer<SpanEvent> {
                 ? this.channelFactory
                 : new ChannelFactory(config, clientInterceptor, maybeInjectFlakyHeader);
 
-            StreamObserverFactory streamObserverFactory = this.streamObserverFactory != null
+            Supplier<ManagedChannel> channelSupplier = new ChannelSupplier(channelFactory, connectionStatus, logger);
+
+            Runnable spanDeliveryConsumer = config.getUseBatching()
+                    ? buildSpanBatchDelivery(responseObserver, shouldRecreateCall, channelSupplier)
+                    : buildSpanDelivery(responseObserver, shouldRecreateCall, channelSupplier);
+
+            Runnable loopForever = new LoopForever(logger, spanDeliveryConsumer);
+
+            ExecutorService executorService = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Span Event Consumer"));
+
+            return new SpanEventConsumer(queue, metricAggregator, connectionHeaders, loopForever, executorService);
+        }
+
+        private Runnable buildSpanDelivery(ResponseObserver responseObserver, AtomicBoolean shouldRecreateCall,
+                Supplier<ManagedChannel> channelSupplier) {
+            StreamObserverFactory<V1.Span> streamObserverFactory = this.streamObserverFactory != null
                 ? this.streamObserverFactory
-                : new StreamObserverFactory(metricAggregator, responseObserver);
+                : StreamObserverFactory.forSpans(metricAggregator, responseObserver);
 
             Function<ManagedChannel, ClientCallStreamObserver<V1.Span>> channelToStreamObserverConverter =
-                    new ChannelToStreamObserver(streamObserverFactory, shouldRecreateCall);
+                    new ChannelToStreamObserver<>(streamObserverFactory, shouldRecreateCall);
 
-            Supplier<ManagedChannel> channelSupplier = new ChannelSupplier(channelFactory, connectionStatus, logger);
+            Supplier<ClientCallStreamObserver<V1.Span>> streamObserverSupplier = new StreamObserverSupplier<>(channelSupplier, channelToStreamObserverConverter);
 
-            Supplier<ClientCallStreamObserver<V1.Span>> streamObserverSupplier = new StreamObserverSupplier(channelSupplier, channelToStreamObserverConverter);
+            return new SpanDelivery(spanConverter, metricAggregator, logger, queue, streamObserverSupplier);
+        }
 
-            Runnable spanDeliveryConsumer = new SpanDelivery(spanConverter, metricAggregator, logger, queue, streamObserverSupplier);
+        private Runnable buildSpanBatchDelivery(ResponseObserver responseObserver, AtomicBoolean shouldRecreateCall,
+                Supplier<ManagedChannel> channelSupplier) {
+            ReadySignal readySignal = new ReadySignal();
 
-            Runnable loopForever = new LoopForever(logger, spanDeliveryConsumer);
+            StreamObserverFactory<V1.SpanBatch> streamObserverFactory = this.batchStreamObserverFactory != null
+                ? this.batchStreamObserverFactory
+                : StreamObserverFactory.forSpanBatches(metricAggregator, responseObserver, readySignal);
 
-            ExecutorService executorService = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Span Event Consumer"));
+            Function<ManagedChannel, ClientCallStreamObserver<V1.SpanBatch>> channelToStreamObserverConverter =
+                    new ChannelToStreamObserver<>(streamObserverFactory, shouldRecreateCall);
 
-            return new SpanEventConsumer(queue, metricAggregator, connectionHeaders, loopForever, executorService);
+            Supplier<ClientCallStreamObserver<V1.SpanBatch>> streamObserverSupplier = new StreamObserverSupplier<>(channelSupplier,
+                    channelToStreamObserverConverter);
+
+            return new SpanBatchDelivery(spanConverter, metricAggregator, logger, queue, streamObserverSupplier, readySignal, config.getBatchSize());
         }
     }
 
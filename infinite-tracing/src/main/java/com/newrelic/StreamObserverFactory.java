@@ -7,23 +7,57 @@ import io.grpc.ManagedChannel;
 import io.grpc.stub.ClientCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 
-public class StreamObserverFactory {
+/**
+ * Starts the streaming gRPC call that spans are written to.
+ *
+ * @param <T> the message type written to the call, either {@link V1.Span} or {@link V1.SpanBatch}
+ */
+public abstract class StreamObserverFactory<T> {
     private final MetricAggregator aggregator;
-    private final StreamObserver<V1.RecordStatus> responseObserver;
+    protected final StreamObserver<V1.RecordStatus> responseObserver;
 
-    public StreamObserverFactory(
+    protected StreamObserverFactory(
             MetricAggregator aggregator,
             StreamObserver<V1.RecordStatus> responseObserver) {
         this.aggregator = aggregator;
         this.responseObserver = responseObserver;
     }
 
-    public ClientCallStreamObserver<V1.Span> buildStreamObserver(ManagedChannel channel) {
+    /**
+     * Builds a factory for the {@code RecordSpan} call, which accepts one span per message.
+     */
+    public static StreamObserverFactory<V1.Span> forSpans(MetricAggregator aggregator, StreamObserver<V1.RecordStatus> responseObserver) {
+        return new StreamObserverFactory<V1.Span>(aggregator, responseObserver) {
+            @Override
+            protected ClientCallStreamObserver<V1.Span> startCall(IngestServiceGrpc.IngestServiceStub stub) {
+                return (ClientCallStreamObserver<V1.Span>) stub.recordSpan(responseObserver);
+            }
+        };
+    }
+
+    /**
+     * Builds a factory for the {@code RecordSpanBatch} call. The {@link ReadySignal} is notified whenever the call
+     * becomes ready to accept more messages.
+     */
+    public static StreamObserverFactory<V1.SpanBatch> forSpanBatches(MetricAggregator aggregator, StreamObserver<V1.RecordStatus> responseObserver,
+            final ReadySignal readySignal) {
+        return new StreamObserverFactory<V1.SpanBatch>(aggregator, responseObserver) {
+            @Override
+            protected ClientCallStreamObserver<V1.SpanBatch> startCall(IngestServiceGrpc.IngestServiceStub stub) {
+                return (ClientCallStreamObserver<V1.SpanBatch>) stub.recordSpanBatch(
+                        new FlowControlledResponseObserver<V1.SpanBatch>(responseObserver, readySignal));
+            }
+        };
+    }
+
+    public ClientCallStreamObserver<T> buildStreamObserver(ManagedChannel channel) {
         IngestServiceGrpc.IngestServiceStub ingestServiceFutureStub = IngestServiceGrpc.newStub(channel);
-        ClientCallStreamObserver<V1.Span> streamObserver = (ClientCallStreamObserver<V1.Span>) ingestServiceFutureStub.recordSpan(responseObserver);
+        ClientCallStreamObserver<T> streamObserver = startCall(ingestServiceFutureStub);
 
         aggregator.incrementCounter("Supportability/InfiniteTracing/Connect");
         return streamObserver;
     }
 
+    protected abstract ClientCallStreamObserver<T> startCall(IngestServiceGrpc.IngestServiceStub stub);
+
 }
@@ -1,23 +1,22 @@
 package com.newrelic;
 
 import com.newrelic.agent.interfaces.backport.Supplier;
-import com.newrelic.trace.v1.V1;
 import io.grpc.ManagedChannel;
 import io.grpc.stub.ClientCallStreamObserver;
 
-public class StreamObserverSupplier implements Supplier<ClientCallStreamObserver<V1.Span>> {
+public class StreamObserverSupplier<T> implements Supplier<ClientCallStreamObserver<T>> {
 
     private final Supplier<ManagedChannel> channelSupplier;
-    private final Function<ManagedChannel, ClientCallStreamObserver<V1.Span>> channelToStreamObserverConverter;
+    private final Function<ManagedChannel, ClientCallStreamObserver<T>> channelToStreamObserverConverter;
 
     public StreamObserverSupplier(Supplier<ManagedChannel> channelSupplier,
-            Function<ManagedChannel, ClientCallStreamObserver<V1.Span>> channelToStreamObserverConverter) {
+            Function<ManagedChannel, ClientCallStreamObserver<T>> channelToStreamObserverConverter) {
         this.channelSupplier = channelSupplier;
         this.channelToStreamObserverConverter = channelToStreamObserverConverter;
     }
 
     @Override
-    public ClientCallStreamObserver<V1.Span> get() {
+    public ClientCallStreamObserver<T> get() {
         return channelToStreamObserverConverter.apply(channelSupplier.get());
     }
 }
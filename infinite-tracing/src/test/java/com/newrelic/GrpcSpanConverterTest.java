@@ -1,11 +1,13 @@
 package com.newrelic;
 
+import com.newrelic.agent.model.SpanAgentAttribute;
 import com.newrelic.agent.model.SpanEvent;
 import com.newrelic.trace.v1.V1;
 import org.junit.jupiter.api.Test;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -37,6 +39,22 @@ public class GrpcSpanConverterTest {
         assertEquals("abc123", deserialized.getIntrinsicsOrThrow("traceId").getStringValue());
     }
 
+    @Test
+    public void shouldSerializeAgentAndUserAttributes() throws IOException {
+        SpanEvent spanEvent = SpanEvent.builder()
+                .appName("my app")
+                .putIntrinsic("traceId", "abc123")
+                .putAgentAttribute(SpanAgentAttribute.HTTP_METHOD, "GET")
+                .putAgentAttribute("agentLong", 42L)
+                .putAllUserAttributes(Collections.singletonMap("userStr", "user value"))
+                .build();
+
+        V1.Span deserialized = from(spanEvent);
+        assertEquals("GET", deserialized.getAgentAttributesOrThrow("http.method").getStringValue());
+        assertEquals(42, deserialized.getAgentAttributesOrThrow("agentLong").getIntValue());
+        assertEquals("user value", deserialized.getUserAttributesOrThrow("userStr").getStringValue());
+    }
+
     private V1.Span from(SpanEvent spanEvent) throws IOException {
         GrpcSpanConverter target = new GrpcSpanConverter();
         V1.Span result = target.convert(spanEvent);
@@ -0,0 +1,165 @@
+package com.newrelic;
+
+import com.newrelic.agent.interfaces.backport.Supplier;
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.api.agent.Logger;
+import com.newrelic.api.agent.MetricAggregator;
+import com.newrelic.trace.v1.V1;
+import io.grpc.stub.ClientCallStreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class SpanBatchDeliveryTest {
+
+    @BeforeEach
+    public void beforeEach() {
+        MockitoAnnotations.initMocks(this);
+    }
+
+    public BlockingQueue<SpanEvent> incomingQueue = new LinkedBlockingQueue<>();
+    public ReadySignal readySignal = new ReadySignal();
+
+    @Mock
+    public SpanConverter<V1.Span> spanConverter;
+    @Mock
+    public MetricAggregator metricAggregator;
+    @Mock
+    public Logger logger;
+    @Mock
+    public Supplier<ClientCallStreamObserver<V1.SpanBatch>> streamObserverSupplier;
+
+    @SuppressWarnings("unchecked")
+    public ClientCallStreamObserver<V1.SpanBatch> mockStreamObserver() {
+        return (ClientCallStreamObserver<V1.SpanBatch>) mock(ClientCallStreamObserver.class);
+    }
+
+    private SpanBatchDelivery newTarget(int batchSize) {
+        return new SpanBatchDelivery(spanConverter, metricAggregator, logger, incomingQueue, streamObserverSupplier, readySignal, batchSize);
+    }
+
+    @Test
+    public void noCallsIfStreamObserverNull() {
+        SpanBatchDelivery target = newTarget(10);
+        when(streamObserverSupplier.get()).thenReturn(null);
+        incomingQueue.add(SpanEvent.builder().build());
+
+        target.run();
+        verifyNoInteractions(spanConverter, metricAggregator, logger);
+        assertEquals(1, incomingQueue.size());
+    }
+
+    @Test
+    public void returnsIfStreamObserverNotReady() {
+        SpanBatchDelivery target = newTarget(10);
+        incomingQueue.add(SpanEvent.builder().build());
+
+        ClientCallStreamObserver<V1.SpanBatch> mockObserver = mockStreamObserver();
+        when(streamObserverSupplier.get()).thenReturn(mockObserver);
+        when(mockObserver.isReady()).thenReturn(false);
+        target.run();
+
+        verify(metricAggregator).incrementCounter("Supportability/InfiniteTracing/NotReady");
+        verify(mockObserver, never()).onNext(any(V1.SpanBatch.class));
+        verifyNoInteractions(spanConverter, logger);
+        assertEquals(1, incomingQueue.size());
+    }
+
+    @Test
+    public void wakesUpWhenSignalled() throws Exception {
+        final SpanBatchDelivery target = newTarget(10);
+        incomingQueue.add(SpanEvent.builder().build());
+        when(spanConverter.convert(any(SpanEvent.class))).thenReturn(V1.Span.newBuilder().build());
+
+        ClientCallStreamObserver<V1.SpanBatch> mockObserver = mockStreamObserver();
+        when(streamObserverSupplier.get()).thenReturn(mockObserver);
+        when(mockObserver.isReady()).thenReturn(false, false, true);
+
+        Thread signaller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                readySignal.signal();
+            }
+        });
+        signaller.start();
+        target.run();
+        signaller.join();
+
+        verify(mockObserver, times(1)).onNext(any(V1.SpanBatch.class));
+    }
+
+    @Test
+    public void doesNotCallOnNextIfQueueEmpty() {
+        SpanBatchDelivery target = newTarget(10);
+
+        ClientCallStreamObserver<V1.SpanBatch> mockObserver = mockStreamObserver();
+        when(streamObserverSupplier.get()).thenReturn(mockObserver);
+        when(mockObserver.isReady()).thenReturn(true);
+        target.run();
+
+        verify(mockObserver, never()).onNext(any(V1.SpanBatch.class));
+        verifyNoInteractions(spanConverter);
+    }
+
+    @Test
+    public void sendsQueuedSpansAsOneBatchUpToBatchSize() {
+        SpanBatchDelivery target = newTarget(3);
+        for (int i = 0; i < 5; i++) {
+            incomingQueue.add(SpanEvent.builder().build());
+        }
+        when(spanConverter.convert(any(SpanEvent.class))).thenReturn(V1.Span.newBuilder().setTraceId("abc").build());
+
+        ClientCallStreamObserver<V1.SpanBatch> mockObserver = mockStreamObserver();
+        when(streamObserverSupplier.get()).thenReturn(mockObserver);
+        when(mockObserver.isReady()).thenReturn(true);
+        target.run();
+
+        ArgumentCaptor<V1.SpanBatch> captor = ArgumentCaptor.forClass(V1.SpanBatch.class);
+        verify(mockObserver, times(1)).onNext(captor.capture());
+        assertEquals(3, captor.getValue().getSpansCount());
+        assertEquals("abc", captor.getValue().getSpans(0).getTraceId());
+        assertEquals(2, incomingQueue.size());
+        verify(metricAggregator).incrementCounter("Supportability/InfiniteTracing/Span/Sent", 3);
+        verify(metricAggregator).incrementCounter("Supportability/InfiniteTracing/Span/Batch/Sent");
+    }
+
+    @Test
+    public void doesNotIncrementSentIfOnNextThrows() {
+        final SpanBatchDelivery target = newTarget(10);
+        incomingQueue.add(SpanEvent.builder().build());
+        when(spanConverter.convert(any(SpanEvent.class))).thenReturn(V1.Span.newBuilder().build());
+
+        ClientCallStreamObserver<V1.SpanBatch> mockObserver = mockStreamObserver();
+        when(streamObserverSupplier.get()).thenReturn(mockObserver);
+        when(mockObserver.isReady()).thenReturn(true);
+        doThrow(new RuntimeException("~~ oops ~~")).when(mockObserver).onNext(any(V1.SpanBatch.class));
+
+        assertThrows(RuntimeException.class, new Executable() {
+            @Override
+            public void execute() {
+                target.run();
+            }
+        });
+        verify(metricAggregator, never()).incrementCounter(anyString());
+        verify(metricAggregator, never()).incrementCounter(anyString(), anyInt());
+    }
+}
@@ -0,0 +1,144 @@
+package com.newrelic;
+
+import com.newrelic.agent.interfaces.backport.Supplier;
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.api.agent.Logger;
+import com.newrelic.api.agent.MetricAggregator;
+import com.newrelic.trace.v1.IngestServiceGrpc;
+import com.newrelic.trace.v1.V1;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sends span batches through a real gRPC call to an in-process Trace Observer.
+ */
+class SpanBatchServerTest {
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        String serverName = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(serverName)
+                .directExecutor()
+                .addService(ingestService)
+                .build()
+                .start();
+        channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+    }
+
+    @AfterEach
+    public void afterEach() {
+        channel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    private Server server;
+    private ManagedChannel channel;
+    private final RecordingIngestService ingestService = new RecordingIngestService();
+
+    @Mock
+    public MetricAggregator metricAggregator;
+    @Mock
+    public Logger logger;
+    @Mock
+    public StreamObserver<V1.RecordStatus> responseObserver;
+
+    @Test
+    @Timeout(30)
+    public void deliversAllSpansInBatches() throws Exception {
+        ReadySignal readySignal = new ReadySignal();
+        final ClientCallStreamObserver<V1.SpanBatch> streamObserver = StreamObserverFactory.forSpanBatches(metricAggregator, responseObserver, readySignal)
+                .buildStreamObserver(channel);
+
+        BlockingQueue<SpanEvent> queue = new LinkedBlockingQueue<>();
+        for (int i = 0; i < 25; i++) {
+            queue.add(SpanEvent.builder().putIntrinsic("traceId", "trace" + i).appName("app").build());
+        }
+
+        SpanBatchDelivery target = new SpanBatchDelivery(new GrpcSpanConverter(), metricAggregator, logger, queue,
+                new Supplier<ClientCallStreamObserver<V1.SpanBatch>>() {
+                    @Override
+                    public ClientCallStreamObserver<V1.SpanBatch> get() {
+                        return streamObserver;
+                    }
+                }, readySignal, 10);
+
+        while (!queue.isEmpty()) {
+            target.run();
+        }
+        streamObserver.onCompleted();
+
+        assertTrue(ingestService.awaitCompleted());
+        assertEquals(3, ingestService.batchSizes.size());
+        assertEquals(10, (int) ingestService.batchSizes.get(0));
+        assertEquals(10, (int) ingestService.batchSizes.get(1));
+        assertEquals(5, (int) ingestService.batchSizes.get(2));
+        assertEquals(25, ingestService.spans.size());
+        assertEquals("trace0", ingestService.spans.get(0).getTraceId());
+    }
+
+    private static class RecordingIngestService extends IngestServiceGrpc.IngestServiceImplBase {
+        final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<V1.Span> spans = Collections.synchronizedList(new ArrayList<V1.Span>());
+        private final Object completedLock = new Object();
+        private boolean completed;
+
+        @Override
+        public StreamObserver<V1.SpanBatch> recordSpanBatch(final StreamObserver<V1.RecordStatus> responseObserver) {
+            return new StreamObserver<V1.SpanBatch>() {
+                @Override
+                public void onNext(V1.SpanBatch value) {
+                    batchSizes.add(value.getSpansCount());
+                    spans.addAll(value.getSpansList());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    markCompleted();
+                }
+
+                @Override
+                public void onCompleted() {
+                    responseObserver.onNext(V1.RecordStatus.newBuilder().setMessagesSeen(spans.size()).build());
+                    responseObserver.onCompleted();
+                    markCompleted();
+                }
+            };
+        }
+
+        private void markCompleted() {
+            synchronized (completedLock) {
+                completed = true;
+                completedLock.notifyAll();
+            }
+        }
+
+        boolean awaitCompleted() throws InterruptedException {
+            synchronized (completedLock) {
+                while (!completed) {
+                    completedLock.wait();
+                }
+                return completed;
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark;
+
+import com.newrelic.agent.MockCoreService;
+import com.newrelic.agent.MockHarvestService;
+import com.newrelic.agent.MockRPMService;
+import com.newrelic.agent.MockRPMServiceManager;
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.ThreadService;
+import com.newrelic.agent.TransactionService;
+import com.newrelic.agent.config.AgentConfigImpl;
+import com.newrelic.agent.config.ConfigService;
+import com.newrelic.agent.config.ConfigServiceFactory;
+import com.newrelic.agent.errors.ErrorServiceImpl;
+import com.newrelic.agent.normalization.NormalizationServiceImpl;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.sql.SqlTraceServiceImpl;
+import com.newrelic.agent.stats.StatsService;
+import com.newrelic.agent.stats.StatsServiceImpl;
+import com.newrelic.agent.trace.TransactionTraceService;
+import com.newrelic.agent.transport.DataSenderFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wires up the in-process agent services needed to run transactions without a collector. Anything that would send
+ * data goes through {@link NoOpDataSender}.
+ */
+public final class BenchmarkServices {
+
+    public static final String APP_NAME = "Benchmark";
+
+    private static MockServiceManager serviceManager;
+
+    private BenchmarkServices() {
+    }
+
+    public static synchronized MockServiceManager start() throws Exception {
+        if (serviceManager != null) {
+            return serviceManager;
+        }
+        DataSenderFactory.setDataSenderFactory(NoOpDataSender.FACTORY);
+
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AgentConfigImpl.APP_NAME, APP_NAME);
+        settings.put(AgentConfigImpl.HOST, "no-collector.example.com");
+        settings.put("apdex_t", 0.5f);
+
+        MockServiceManager manager = new MockServiceManager();
+        ServiceFactory.setServiceManager(manager);
+        manager.start();
+
+        manager.setThreadService(new ThreadService());
+
+        ConfigService configService = ConfigServiceFactory.createConfigService(AgentConfigImpl.createAgentConfig(settings), settings);
+        manager.setConfigService(configService);
+        manager.setCoreService(new MockCoreService());
+        manager.setHarvestService(new MockHarvestService());
+        manager.setTransactionService(new TransactionService());
+        manager.setTransactionTraceService(new TransactionTraceService());
+        manager.setSqlTraceService(new SqlTraceServiceImpl());
+
+        MockRPMServiceManager rpmServiceManager = new MockRPMServiceManager();
+        manager.setRPMServiceManager(rpmServiceManager);
+        MockRPMService rpmService = new MockRPMService();
+        rpmService.setApplicationName(APP_NAME);
+        rpmService.setErrorService(new ErrorServiceImpl(APP_NAME));
+        rpmServiceManager.setRPMService(rpmService);
+
+        configService.start();
+
+        manager.setNormalizationService(new NormalizationServiceImpl());
+
+        StatsService statsService = new StatsServiceImpl();
+        manager.setStatsService(statsService);
+        statsService.start();
+
+        serviceManager = manager;
+        return manager;
+    }
+
+    public static synchronized void stop() throws Exception {
+        if (serviceManager != null) {
+            serviceManager.stop();
+            serviceManager = null;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark;
+
+import com.newrelic.agent.sql.BoundedConcurrentCache;
+import com.newrelic.agent.sql.CacheValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of recording a slow query the way {@link com.newrelic.agent.sql.SlowQueryAggregatorImpl} does (look up the
+ * query, then aggregate and replace it or add it), for the sharded top-K cache and the previous priority queue and
+ * Guava cache pairing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BoundedConcurrentCacheBenchmark {
+
+    private static final int CAPACITY = 200;
+
+    @Param({ "legacy", "sharded" })
+    public String implementation;
+
+    /**
+     * The number of distinct queries. Anything above {@link #CAPACITY} forces evictions.
+     */
+    @Param({ "150", "2000" })
+    public int distinctQueries;
+
+    private Cache cache;
+    private String[] queries;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        cache = "sharded".equals(implementation) ? new ShardedCache() : new LegacyCache();
+        queries = new String[distinctQueries];
+        for (int i = 0; i < distinctQueries; i++) {
+            queries[i] = "select * from table" + i + " where id = ?";
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addSlowQuerySingleThreaded() {
+        addSlowQuery();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addSlowQueryContended() {
+        addSlowQuery();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Query> harvest() {
+        for (int i = 0; i < CAPACITY; i++) {
+            addSlowQuery();
+        }
+        List<Query> result = cache.asList();
+        cache.clear();
+        return result;
+    }
+
+    private void addSlowQuery() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String sql = queries[random.nextInt(queries.length)];
+        long duration = random.nextLong(1000000L);
+        Query existing = cache.get(sql);
+        if (existing != null) {
+            existing.aggregate(duration);
+            cache.putReplace(sql, existing);
+        } else {
+            cache.putIfAbsent(sql, new Query(sql, duration));
+        }
+    }
+
+    private interface Cache {
+        Query get(String key);
+
+        void putIfAbsent(String key, Query value);
+
+        void putReplace(String key, Query value);
+
+        List<Query> asList();
+
+        void clear();
+    }
+
+    private static final class ShardedCache implements Cache {
+        private final BoundedConcurrentCache<String, Query> delegate = new BoundedConcurrentCache<>(CAPACITY);
+
+        @Override
+        public Query get(String key) {
+            return delegate.get(key);
+        }
+
+        @Override
+        public void putIfAbsent(String key, Query value) {
+            delegate.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void putReplace(String key, Query value) {
+            delegate.putReplace(key, value);
+        }
+
+        @Override
+        public List<Query> asList() {
+            return delegate.asList();
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+    }
+
+    private static final class LegacyCache implements Cache {
+        private final LegacyBoundedConcurrentCache<String, Query> delegate = new LegacyBoundedConcurrentCache<>(CAPACITY);
+
+        @Override
+        public Query get(String key) {
+            return delegate.get(key);
+        }
+
+        @Override
+        public void putIfAbsent(String key, Query value) {
+            delegate.putIfAbsent(key, value);
+        }
+
+        @Override
+        public void putReplace(String key, Query value) {
+            delegate.putReplace(key, value);
+        }
+
+        @Override
+        public List<Query> asList() {
+            return delegate.asList();
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+    }
+
+    /**
+     * Like {@link com.newrelic.agent.sql.SlowQueryInfo}, ordered by max duration and then total duration.
+     */
+    static final class Query implements Comparable<Query>, CacheValue<String> {
+        private final String sql;
+        private final AtomicLong max;
+        private final AtomicLong total;
+
+        Query(String sql, long duration) {
+            this.sql = sql;
+            this.max = new AtomicLong(duration);
+            this.total = new AtomicLong(duration);
+        }
+
+        void aggregate(long duration) {
+            total.addAndGet(duration);
+            long current;
+            while (duration > (current = max.get()) && !max.compareAndSet(current, duration)) {
+            }
+        }
+
+        @Override
+        public int compareTo(Query other) {
+            int compare = Long.compare(max.get(), other.max.get());
+            return compare == 0 ? Long.compare(total.get(), other.total.get()) : compare;
+        }
+
+        @Override
+        public String getKey() {
+            return sql;
+        }
+    }
+}
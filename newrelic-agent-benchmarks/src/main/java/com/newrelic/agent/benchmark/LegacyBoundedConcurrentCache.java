@@ -0,0 +1,87 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.newrelic.agent.sql.CacheValue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * The {@link com.newrelic.agent.sql.BoundedConcurrentCache} implementation that paired a {@link PriorityBlockingQueue}
+ * with a Guava cache, kept as the baseline for {@link BoundedConcurrentCacheBenchmark}.
+ */
+class LegacyBoundedConcurrentCache<K, V extends Comparable<V> & CacheValue<K>> {
+    private final int maxCapacity;
+    private final PriorityBlockingQueue<V> priorityQueue;
+    private final Cache<K, V> cache;
+
+    LegacyBoundedConcurrentCache(int size) {
+        this(size, null);
+    }
+
+    LegacyBoundedConcurrentCache(int size, Comparator<V> comparator) {
+        this.maxCapacity = size;
+        this.priorityQueue = new PriorityBlockingQueue<>(size, comparator);
+        this.cache = CacheBuilder.newBuilder()
+                .concurrencyLevel(16)
+                .build();
+    }
+
+    V get(K sql) {
+        return cache.getIfPresent(sql);
+    }
+
+    V putIfAbsent(K key, V value) {
+        V putValue = cache.asMap().putIfAbsent(key, value);
+        if (putValue != null) {
+            return putValue;
+        }
+        priorityQueue.add(value);
+
+        // replace min if cache gets full
+        while (priorityQueue.size() > maxCapacity) {
+            V val = priorityQueue.poll();
+            K sqlToRemove = val.getKey();
+            cache.invalidate(sqlToRemove);
+        }
+        return null;
+    }
+
+    /**
+     * Inserts and replaces value in the cache. This method should be called whenever a value is modified.
+     * 
+     * @param key key of value to update.
+     */
+    void putReplace(K key, V value) {
+        V valueToRemove = cache.getIfPresent(key);
+        if (valueToRemove != null) {
+            cache.invalidate(key);
+            priorityQueue.remove(valueToRemove);
+        }
+
+        putIfAbsent(key, value);
+    }
+
+    int size() {
+        return priorityQueue.size();
+    }
+
+    void clear() {
+        cache.invalidateAll();
+        priorityQueue.clear();
+    }
+
+    List<V> asList() {
+        return new ArrayList<>(priorityQueue);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark;
+
+import com.newrelic.agent.MetricData;
+import com.newrelic.agent.config.DataSenderConfig;
+import com.newrelic.agent.errors.TracedError;
+import com.newrelic.agent.model.AnalyticsEvent;
+import com.newrelic.agent.model.CustomInsightsEvent;
+import com.newrelic.agent.model.ErrorEvent;
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.agent.profile.ProfileData;
+import com.newrelic.agent.sql.SqlTrace;
+import com.newrelic.agent.trace.TransactionTrace;
+import com.newrelic.agent.transport.DataSender;
+import com.newrelic.agent.transport.DataSenderListener;
+import com.newrelic.agent.transport.IDataSenderFactory;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONStreamAware;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link DataSender} that never touches the network. Payloads are still serialized (into a writer that discards
+ * them) so that harvest benchmarks include the JSON encoding cost.
+ */
+public class NoOpDataSender implements DataSender {
+
+    public static final IDataSenderFactory FACTORY = new IDataSenderFactory() {
+        @Override
+        public DataSender create(DataSenderConfig config) {
+            return new NoOpDataSender();
+        }
+
+        @Override
+        public DataSender create(DataSenderConfig config, DataSenderListener dataSenderListener) {
+            return new NoOpDataSender();
+        }
+    };
+
+    private long charactersWritten;
+
+    /**
+     * @return the number of JSON characters this sender has "sent"
+     */
+    public long getCharactersWritten() {
+        return charactersWritten;
+    }
+
+    @Override
+    public Map<String, Object> connect(Map<String, Object> startupOptions) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("agent_run_id", "benchmark");
+        return response;
+    }
+
+    @Override
+    public List<List<?>> getAgentCommands() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void sendCommandResults(Map<Long, Object> commandResults) {
+    }
+
+    @Override
+    public void sendErrorData(List<TracedError> errors) throws IOException {
+        write(errors);
+    }
+
+    @Override
+    public void sendErrorEvents(int reservoirSize, int eventsSeen, Collection<ErrorEvent> errorEvents) throws IOException {
+        write(errorEvents);
+    }
+
+    @Override
+    public <T extends AnalyticsEvent & JSONStreamAware> void sendAnalyticsEvents(int reservoirSize, int eventsSeen, Collection<T> events)
+            throws IOException {
+        write(events);
+    }
+
+    @Override
+    public void sendCustomAnalyticsEvents(int reservoirSize, int eventsSeen, Collection<? extends CustomInsightsEvent> events)
+            throws IOException {
+        write(events);
+    }
+
+    @Override
+    public void sendSpanEvents(int reservoirSize, int eventsSeen, Collection<SpanEvent> events) throws IOException {
+        write(events);
+    }
+
+    @Override
+    public void sendMetricData(long beginTimeMillis, long endTimeMillis, List<MetricData> metricData) throws IOException {
+        write(metricData);
+    }
+
+    @Override
+    public List<Long> sendProfileData(List<ProfileData> profiles) throws IOException {
+        write(profiles);
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void sendSqlTraceData(List<SqlTrace> sqlTraces) throws IOException {
+        write(sqlTraces);
+    }
+
+    @Override
+    public void sendTransactionTraceData(List<TransactionTrace> traces) throws IOException {
+        write(traces);
+    }
+
+    @Override
+    public void sendModules(List<? extends JSONStreamAware> jarDataToSend) throws IOException {
+        write(jarDataToSend);
+    }
+
+    @Override
+    public void shutdown(long timeMillis) {
+    }
+
+    private void write(Collection<?> data) throws IOException {
+        CountingWriter writer = new CountingWriter();
+        JSONArray.writeJSONString(data instanceof List ? (List<?>) data : new ArrayList<>(data), writer);
+        charactersWritten += writer.count;
+    }
+
+    private static final class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
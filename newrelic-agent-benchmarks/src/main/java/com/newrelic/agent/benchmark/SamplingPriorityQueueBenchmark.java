@@ -0,0 +1,100 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark;
+
+import com.newrelic.agent.interfaces.SamplingPriorityQueue;
+import com.newrelic.agent.model.PriorityAware;
+import com.newrelic.agent.service.analytics.DistributedSamplingPriorityQueue;
+import com.newrelic.agent.service.analytics.StripedSamplingPriorityQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of adding an event to a reservoir from request threads, and of draining it at harvest.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SamplingPriorityQueueBenchmark {
+
+    @Param({ "distributed", "striped" })
+    public String implementation;
+
+    @Param({ "2000" })
+    public int reservoirSize;
+
+    private SamplingPriorityQueue<Event> queue;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        if ("striped".equals(implementation)) {
+            queue = new StripedSamplingPriorityQueue<>("app", "Benchmark", reservoirSize, 0, 10, null);
+        } else {
+            queue = new DistributedSamplingPriorityQueue<>("app", "Benchmark", reservoirSize, 0, 10, null);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean addSingleThreaded() {
+        return queue.add(new Event(ThreadLocalRandom.current().nextFloat()));
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean addContended() {
+        return queue.add(new Event(ThreadLocalRandom.current().nextFloat()));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Event> harvest() {
+        for (int i = 0; i < reservoirSize; i++) {
+            queue.add(new Event(ThreadLocalRandom.current().nextFloat()));
+        }
+        List<Event> events = queue.asList();
+        queue.clear();
+        return events;
+    }
+
+    static final class Event implements PriorityAware {
+        private final float priority;
+
+        Event(float priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public boolean decider() {
+            return true;
+        }
+
+        @Override
+        public float getPriority() {
+            return priority;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark;
+
+import com.newrelic.agent.model.AttributeFilter;
+import com.newrelic.agent.model.SpanCategory;
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.agent.service.analytics.SpanEventFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of building and serializing the span events created for generic and datastore segments.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SpanEventFactoryBenchmark {
+
+    private static final AttributeFilter FILTER = new AttributeFilter.PassEverythingAttributeFilter();
+
+    @Benchmark
+    @Threads(1)
+    public SpanEvent genericSpan() {
+        return generic();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public SpanEvent datastoreSpan() {
+        return datastore();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public SpanEvent datastoreSpanContended() {
+        return datastore();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String serializeDatastoreSpan() throws IOException {
+        StringWriter writer = new StringWriter(512);
+        datastore().writeJSONString(writer);
+        return writer.toString();
+    }
+
+    private SpanEvent generic() {
+        return new SpanEventFactory(BenchmarkServices.APP_NAME, FILTER, SpanEventFactory.DEFAULT_SYSTEM_TIMESTAMP_SUPPLIER)
+                .setGuid("ee8e5ef1a374c0ec")
+                .setTraceId("3221bf09aa0bcf0d3221bf09aa0bcf0d")
+                .setParentId("6d2b4b5b2e2e1d9f")
+                .setTransactionId("b85a2ae2f5e2ccf7")
+                .setSampled(true)
+                .setPriority(1.2f)
+                .setDecider(true)
+                .setName("Java/com.example.Service/handle")
+                .setCategory(SpanCategory.generic)
+                .setDurationInSeconds(0.004f)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    private SpanEvent datastore() {
+        return new SpanEventFactory(BenchmarkServices.APP_NAME, FILTER, SpanEventFactory.DEFAULT_SYSTEM_TIMESTAMP_SUPPLIER)
+                .setGuid("ee8e5ef1a374c0ec")
+                .setTraceId("3221bf09aa0bcf0d3221bf09aa0bcf0d")
+                .setParentId("6d2b4b5b2e2e1d9f")
+                .setTransactionId("b85a2ae2f5e2ccf7")
+                .setSampled(true)
+                .setPriority(1.2f)
+                .setName("Datastore/statement/MySQL/users/select")
+                .setCategory(SpanCategory.datastore)
+                .setDatastoreComponent("MySQL")
+                .setDatabaseName("accounts")
+                .setHostName("db.example.com")
+                .setAddress("db.example.com", "3306")
+                .setDatabaseStatement("select id, name, email from users where id = ?")
+                .setDurationInSeconds(0.012f)
+                .setTimestamp(System.currentTimeMillis())
+                .build();
+    }
+}
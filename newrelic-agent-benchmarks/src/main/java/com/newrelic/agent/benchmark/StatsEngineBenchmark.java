@@ -0,0 +1,86 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark;
+
+import com.newrelic.agent.stats.StatsEngineImpl;
+import com.newrelic.agent.stats.TransactionStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of merging a finished transaction's stats into a harvest {@link StatsEngineImpl}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsEngineBenchmark {
+
+    @State(Scope.Thread)
+    public static class TransactionState {
+
+        @Param({ "10", "100" })
+        public int metricsPerTransaction;
+
+        TransactionStats transactionStats;
+
+        @Setup
+        public void setup() {
+            transactionStats = new TransactionStats();
+            for (int i = 0; i < metricsPerTransaction; i++) {
+                transactionStats.getScopedStats().getOrCreateResponseTimeStats("Java/com.example.Service/method" + i)
+                        .recordResponseTime(1000 + i, 500, TimeUnit.NANOSECONDS);
+                transactionStats.getUnscopedStats().getOrCreateResponseTimeStats("Datastore/statement/MySQL/table" + i + "/select")
+                        .recordResponseTime(2000 + i, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class PrivateEngine {
+        final StatsEngineImpl statsEngine = new StatsEngineImpl();
+    }
+
+    @State(Scope.Benchmark)
+    public static class SharedEngine {
+        final StatsEngineImpl statsEngine = new StatsEngineImpl();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public StatsEngineImpl mergeSingleThreaded(TransactionState tx, PrivateEngine engine) {
+        engine.statsEngine.mergeStatsResolvingScope(tx.transactionStats, "WebTransaction/Servlet/benchmark");
+        return engine.statsEngine;
+    }
+
+    /**
+     * StatsEngineImpl is not thread safe, so concurrent merges go through a lock the same way StatsServiceImpl
+     * serializes access to a single engine.
+     */
+    @Benchmark
+    @Threads(8)
+    public StatsEngineImpl mergeContended(TransactionState tx, SharedEngine engine) {
+        synchronized (engine) {
+            engine.statsEngine.mergeStatsResolvingScope(tx.transactionStats, "WebTransaction/Servlet/benchmark");
+        }
+        return engine.statsEngine;
+    }
+}
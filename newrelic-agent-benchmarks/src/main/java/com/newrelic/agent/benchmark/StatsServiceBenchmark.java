@@ -0,0 +1,89 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark;
+
+import com.newrelic.agent.stats.ShardedStatsServiceImpl;
+import com.newrelic.agent.stats.StatsEngine;
+import com.newrelic.agent.stats.StatsService;
+import com.newrelic.agent.stats.StatsServiceImpl;
+import com.newrelic.agent.stats.StatsWork;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link StatsService#doStatsWork} on the request path for the queue-based and the sharded stats service.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatsServiceBenchmark {
+
+    @Param({ "queue", "sharded" })
+    public String implementation;
+
+    private StatsService statsService;
+
+    private final StatsWork work = new StatsWork() {
+        @Override
+        public void doWork(StatsEngine statsEngine) {
+            statsEngine.getResponseTimeStats("Java/com.example.Service/method").recordResponseTime(1000, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String getAppName() {
+            return BenchmarkServices.APP_NAME;
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkServices.start();
+        statsService = "sharded".equals(implementation) ? new ShardedStatsServiceImpl() : new StatsServiceImpl();
+        statsService.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void harvest() {
+        statsService.getStatsEngineForHarvest(BenchmarkServices.APP_NAME);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        statsService.stop();
+        BenchmarkServices.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void doStatsWorkSingleThreaded() {
+        statsService.doStatsWork(work);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void doStatsWorkContended() {
+        statsService.doStatsWork(work);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.benchmark;
+
+import com.newrelic.agent.Transaction;
+import com.newrelic.agent.TransactionActivity;
+import com.newrelic.agent.tracers.ClassMethodSignature;
+import com.newrelic.agent.tracers.DefaultTracer;
+import com.newrelic.agent.tracers.OtherRootTracer;
+import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
+import org.objectweb.asm.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A complete transaction on the request thread: root tracer, {@code segments} child tracers going through
+ * {@link TransactionActivity#tracerStarted} / {@link DefaultTracer#performFinishWork}, and transaction finish,
+ * which merges the transaction stats into the stats service.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionBenchmark {
+
+    private static final ClassMethodSignature ROOT_SIGNATURE = new ClassMethodSignature("com.example.Controller", "handle", "()V");
+    private static final ClassMethodSignature CHILD_SIGNATURE = new ClassMethodSignature("com.example.Service", "work", "()V");
+
+    @Param({ "10", "1000" })
+    public int segments;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        BenchmarkServices.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkServices.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Transaction transactionSingleThreaded() {
+        return runTransaction(segments);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Transaction transactionContended() {
+        return runTransaction(segments);
+    }
+
+    private static Transaction runTransaction(int segments) {
+        Transaction tx = Transaction.getTransaction();
+        TransactionActivity txa = tx.getTransactionActivity();
+        OtherRootTracer root = new OtherRootTracer(tx, ROOT_SIGNATURE, null, new SimpleMetricNameFormat("OtherTransaction/Benchmark"));
+        txa.tracerStarted(root);
+
+        for (int i = 0; i < segments; i++) {
+            DefaultTracer child = new DefaultTracer(txa, CHILD_SIGNATURE, null, new SimpleMetricNameFormat("Java/com.example.Service/work"),
+                    DefaultTracer.DEFAULT_TRACER_FLAGS);
+            txa.tracerStarted(child);
+            child.finish(Opcodes.RETURN, null);
+        }
+
+        root.finish(Opcodes.RETURN, null);
+        Transaction.clearTransaction();
+        return tx;
+    }
+}
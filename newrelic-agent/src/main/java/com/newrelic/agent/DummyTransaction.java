@@ -851,11 +851,21 @@ public class DummyTransaction extends Transaction {
             return stat;
         }
 
+        @Override
+        public Stats getStats(String metricName, int metricNameId) {
+            return stat;
+        }
+
         @Override
         public ResponseTimeStats getOrCreateResponseTimeStats(String metric) {
             return responseTimeStat;
         }
 
+        @Override
+        public ResponseTimeStats getOrCreateResponseTimeStats(String metric, int metricNameId) {
+            return responseTimeStat;
+        }
+
         @Override
         public void recordEmptyStats(String metricName) {
         }
@@ -865,6 +875,11 @@ public class DummyTransaction extends Transaction {
             return apdexStat;
         }
 
+        @Override
+        public ApdexStats getApdexStats(String metricName, int metricNameId) {
+            return apdexStat;
+        }
+
         @Override
         public void mergeStats(SimpleStatsEngine other) {
         }
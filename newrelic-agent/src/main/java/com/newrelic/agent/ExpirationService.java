@@ -9,10 +9,13 @@ package com.newrelic.agent;
 
 import com.newrelic.agent.service.AbstractService;
 import com.newrelic.agent.util.DefaultThreadFactory;
+import com.newrelic.agent.util.TimingWheel;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class ExpirationService extends AbstractService {
 
@@ -20,6 +23,15 @@ public class ExpirationService extends AbstractService {
 
     private final ExecutorService segmentExpirationExecutor = Executors.newFixedThreadPool(2, new DefaultThreadFactory("New Relic Segment Expiration Handler", true));
 
+    /**
+     * How often the token timing wheel is advanced. Token time outs have a lower bound of 250ms.
+     */
+    static final long TOKEN_TIMING_WHEEL_TICK_MILLIS = 100;
+
+    private final Object tokenTimingWheelLock = new Object();
+    private volatile TimingWheel tokenTimingWheel;
+    private ScheduledExecutorService tokenTimingWheelExecutor;
+
     public ExpirationService() {
         super(ExpirationService.class.getSimpleName());
     }
@@ -32,6 +44,11 @@ public class ExpirationService extends AbstractService {
     protected void doStop() throws Exception {
         tokenExpirationExecutor.shutdownNow();
         segmentExpirationExecutor.shutdownNow();
+        synchronized (tokenTimingWheelLock) {
+            if (tokenTimingWheelExecutor != null) {
+                tokenTimingWheelExecutor.shutdownNow();
+            }
+        }
     }
 
     @Override
@@ -50,4 +67,31 @@ public class ExpirationService extends AbstractService {
     public Future<?> expireToken(Runnable runnable) {
         return tokenExpirationExecutor.submit(runnable);
     }
+
+    /**
+     * The timing wheel that times out tokens when token_timing_wheel is enabled. The thread advancing the wheel is only
+     * started the first time the wheel is used.
+     */
+    public TimingWheel getTokenTimingWheel() {
+        TimingWheel wheel = tokenTimingWheel;
+        if (wheel == null) {
+            synchronized (tokenTimingWheelLock) {
+                wheel = tokenTimingWheel;
+                if (wheel == null) {
+                    wheel = new TimingWheel(TOKEN_TIMING_WHEEL_TICK_MILLIS, TimeUnit.MILLISECONDS);
+                    final TimingWheel advancing = wheel;
+                    tokenTimingWheelExecutor = Executors.newSingleThreadScheduledExecutor(
+                            new DefaultThreadFactory("New Relic Token Timing Wheel", true));
+                    tokenTimingWheelExecutor.scheduleWithFixedDelay(new Runnable() {
+                        @Override
+                        public void run() {
+                            advancing.advance();
+                        }
+                    }, TOKEN_TIMING_WHEEL_TICK_MILLIS, TOKEN_TIMING_WHEEL_TICK_MILLIS, TimeUnit.MILLISECONDS);
+                    tokenTimingWheel = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
 }
@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
@@ -32,23 +33,41 @@ import java.util.logging.Level;
 /**
  * This class is responsible for running the harvest tasks. There is one harvest task per RPM service. A harvest task
  * reports metric data to the server.
+ *
+ * The scheduler threads only hand harvest tasks and harvestables to bounded pools of harvest workers, so the harvests
+ * of different applications run in parallel. A harvest is not handed to the workers again until its last run has
+ * finished. Each harvest listener is called by one harvest at a time, so the harvests of different applications move
+ * through the listeners like a pipeline: while one application reports its metric data, another one can be gathering
+ * its data in the before harvest listeners.
  */
 public class HarvestServiceImpl extends AbstractService implements HarvestService {
 
     public static final String HARVEST_THREAD_NAME = "New Relic Harvest Service";
     public static final String FASTER_HARVEST_THREAD_NAME = "New Relic Faster Harvest Service";
+    public static final String HARVEST_WORKER_THREAD_NAME = "New Relic Harvest Worker";
+    public static final String FASTER_HARVEST_WORKER_THREAD_NAME = "New Relic Faster Harvest Worker";
     private static final long INITIAL_DELAY_IN_MILLISECONDS = TimeUnit.MILLISECONDS.convert(30, TimeUnit.SECONDS);
     private static final long REPORTING_PERIOD_IN_MILLISECONDS = TimeUnit.MILLISECONDS.convert(60, TimeUnit.SECONDS);
     private static final long MIN_HARVEST_INTERVAL_IN_NANOSECONDS = TimeUnit.NANOSECONDS.convert(55, TimeUnit.SECONDS);
     private static final String HARVEST_LIMITS = "harvest_limits";
     private static final String REPORT_PERIOD_MS = "report_period_ms";
+    private static final String HARVEST_THREADS = "harvest_threads";
+    private static final int DEFAULT_HARVEST_THREADS = 4;
 
     /**
      * The main harvest task and all harvestables (faster event harvests) are scheduled on separate threads.
      */
     private final ScheduledExecutorService scheduledHarvestExecutor;
     private final ScheduledExecutorService scheduledFasterHarvestExecutor;
+
+    /**
+     * The workers that run the harvests the scheduler threads hand to them. Each harvest is queued at most once, so the
+     * queues are bounded by the number of harvest tasks and harvestables.
+     */
+    private final ExecutorService harvestExecutor;
+    private final ExecutorService fasterHarvestExecutor;
     private final List<HarvestListener> harvestListeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<HarvestListener, Lock> harvestListenerLocks = new ConcurrentHashMap<>();
     private final Map<IRPMService, HarvestTask> harvestTasks = new HashMap<>();
     private final ConcurrentMap<Harvestable, HarvestableTracker> harvestables = new ConcurrentHashMap<>();
     private long overrideInitialDelay = -1;
@@ -57,6 +76,11 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
         super(HarvestService.class.getSimpleName());
         scheduledHarvestExecutor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory(HARVEST_THREAD_NAME, true));
         scheduledFasterHarvestExecutor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory(FASTER_HARVEST_THREAD_NAME, true));
+        int harvestThreads = Math.max(1, ServiceFactory.getConfigService().getDefaultAgentConfig().getValue(HARVEST_THREADS,
+                DEFAULT_HARVEST_THREADS));
+        harvestExecutor = Executors.newFixedThreadPool(harvestThreads, new DefaultThreadFactory(HARVEST_WORKER_THREAD_NAME, true));
+        fasterHarvestExecutor = Executors.newFixedThreadPool(harvestThreads,
+                new DefaultThreadFactory(FASTER_HARVEST_WORKER_THREAD_NAME, true));
         ServiceFactory.getRPMServiceManager().addConnectionListener(new ConnectionListenerImpl());
     }
 
@@ -183,6 +207,7 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
     @Override
     public void removeHarvestListener(HarvestListener listener) {
         harvestListeners.remove(listener);
+        harvestListenerLocks.remove(listener);
     }
 
     @Override
@@ -196,13 +221,16 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
         }
         scheduledHarvestExecutor.shutdown();
         scheduledFasterHarvestExecutor.shutdown();
+        harvestExecutor.shutdown();
+        fasterHarvestExecutor.shutdown();
     }
 
     /**
      * Schedule a harvest task.
      */
     private ScheduledFuture<?> scheduleHarvestTask(HarvestTask harvestTask) {
-        return scheduledHarvestExecutor.scheduleAtFixedRate(SafeWrappers.safeRunnable(harvestTask), getInitialDelay(),
+        Runnable dispatcher = new HarvestDispatcher(harvestExecutor, harvestTask, harvestTask.rpmService.getApplicationName());
+        return scheduledHarvestExecutor.scheduleAtFixedRate(SafeWrappers.safeRunnable(dispatcher), getInitialDelay(),
                 getReportingPeriod(), TimeUnit.MILLISECONDS);
     }
 
@@ -380,15 +408,22 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
             StatsEngine harvestStatsEngine = ServiceFactory.getStatsService().getStatsEngineForHarvest(appName);
             harvestStatsEngine.mergeStats(lastStatsEngine);
             try {
+                long stageStartTime = System.nanoTime();
                 for (HarvestListener listener : harvestListeners) {
                     notifyListenerBeforeHarvest(appName, harvestStatsEngine, listener);
                 }
+                stageStartTime = recordStage(harvestStatsEngine, MetricNames.SUPPORTABILITY_HARVEST_STAGE_BEFORE_HARVEST,
+                        stageStartTime);
+
                 // RPMService metric harvest only, other harvests are triggered in the before/after harvest listener loops
                 reportHarvest(appName, harvestStatsEngine, rpmService);
+                stageStartTime = recordStage(harvestStatsEngine, MetricNames.SUPPORTABILITY_HARVEST_STAGE_METRIC_DATA,
+                        stageStartTime);
 
                 for (HarvestListener listener : harvestListeners) {
                     notifyListenerAfterHarvest(appName, listener);
                 }
+                recordStage(harvestStatsEngine, MetricNames.SUPPORTABILITY_HARVEST_STAGE_AFTER_HARVEST, stageStartTime);
             } finally {
                 if (harvestStatsEngine.getSize() > MetricIdRegistry.METRIC_LIMIT) {
                     harvestStatsEngine.clear();
@@ -404,6 +439,15 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
                 }
             }
         }
+
+        /**
+         * @return the end time of the stage, which is the start time of the next one
+         */
+        private long recordStage(StatsEngine statsEngine, String metricName, long stageStartTime) {
+            long now = System.nanoTime();
+            statsEngine.getResponseTimeStats(metricName).recordResponseTime(now - stageStartTime, TimeUnit.NANOSECONDS);
+            return now;
+        }
     }
 
     private void reportHarvest(String appName, StatsEngine statsEngine, IRPMService rpmService) {
@@ -420,6 +464,8 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
     }
 
     private void notifyListenerBeforeHarvest(String appName, StatsEngine statsEngine, HarvestListener listener) {
+        Lock lock = getListenerLock(listener);
+        lock.lock();
         try {
             listener.beforeHarvest(appName, statsEngine);
         } catch (Throwable e) {
@@ -429,10 +475,14 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
             } else {
                 getLogger().finer(msg);
             }
+        } finally {
+            lock.unlock();
         }
     }
 
     private void notifyListenerAfterHarvest(String appName, HarvestListener listener) {
+        Lock lock = getListenerLock(listener);
+        lock.lock();
         try {
             listener.afterHarvest(appName);
         } catch (Throwable e) {
@@ -442,6 +492,78 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
             } else {
                 getLogger().finer(msg);
             }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Listeners were written for a single harvest thread, so the harvests of different applications take turns calling
+     * each listener. A separate lock is used so that the listener's own locks are not held for the whole harvest.
+     */
+    private Lock getListenerLock(HarvestListener listener) {
+        Lock lock = harvestListenerLocks.get(listener);
+        if (lock == null) {
+            Lock newLock = new ReentrantLock();
+            lock = harvestListenerLocks.putIfAbsent(listener, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+    /**
+     * Runs on a scheduler thread and hands a harvest to the harvest workers, unless its last run is still queued or
+     * running. A harvest that is still running after a whole reporting period is skipped rather than queued again.
+     */
+    private final class HarvestDispatcher implements Runnable {
+
+        private final ExecutorService executor;
+        private final Runnable harvest;
+        private final String name;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile long dispatchTime;
+
+        private HarvestDispatcher(ExecutorService executor, Runnable harvest, String name) {
+            this.executor = executor;
+            this.harvest = harvest;
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            if (!pending.compareAndSet(false, true)) {
+                getLogger().log(Level.FINE, "Skipping harvest of {0} because the last one has not finished", name);
+                ServiceFactory.getStatsService().doStatsWork(StatsWorks.getIncrementCounterWork(
+                        MetricNames.SUPPORTABILITY_HARVEST_SKIPPED, 1));
+                return;
+            }
+            dispatchTime = System.nanoTime();
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        runHarvest();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the service is stopping
+                pending.set(false);
+            }
+        }
+
+        private void runHarvest() {
+            try {
+                long queuedTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - dispatchTime);
+                ServiceFactory.getStatsService().doStatsWork(StatsWorks.getRecordResponseTimeWork(
+                        MetricNames.SUPPORTABILITY_HARVEST_STAGE_QUEUED, queuedTime));
+                harvest.run();
+            } catch (Throwable t) {
+                getLogger().log(Level.FINER, t, "Unexpected exception during harvest of {0}", name);
+            } finally {
+                pending.set(false);
+            }
         }
     }
 
@@ -465,7 +587,9 @@ public class HarvestServiceImpl extends AbstractService implements HarvestServic
                 }
             };
 
-            tasks.add(scheduledFasterHarvestExecutor.scheduleAtFixedRate(SafeWrappers.safeRunnable(harvestTask), 0 , reportPeriodInMillis, TimeUnit.MILLISECONDS));
+            Runnable dispatcher = new HarvestDispatcher(fasterHarvestExecutor, harvestTask,
+                    harvestable.getAppName() + "/" + harvestable.getEndpointMethodName());
+            tasks.add(scheduledFasterHarvestExecutor.scheduleAtFixedRate(SafeWrappers.safeRunnable(dispatcher), 0 , reportPeriodInMillis, TimeUnit.MILLISECONDS));
         }
 
         public synchronized void stop() {
@@ -208,6 +208,10 @@ public class MetricNames {
 
     public static final String SUPPORTABILITY_HARVEST_SERVICE_RESPONSE_TIME = "Supportability/Harvest";
 
+    public static final String SUPPORTABILITY_STATS_SERVICE_MERGE_TIME = "Supportability/StatsService/Sharded/MergeTime";
+    public static final String SUPPORTABILITY_STATS_SERVICE_MERGED_ENGINES = "Supportability/StatsService/Sharded/MergedEngines";
+    public static final String SUPPORTABILITY_STATS_SERVICE_PARKED_ENGINES = "Supportability/StatsService/Sharded/ParkedEngines";
+
     public static final String SUPPORTABILITY_ERROR_SERVICE_TRANSACTION_ERROR_SENT = "Supportability/Events/TransactionError/Sent";
     public static final String SUPPORTABILITY_ERROR_SERVICE_TRANSACTION_ERROR_SEEN = "Supportability/Events/TransactionError/Seen";
 
@@ -284,6 +288,28 @@ public class MetricNames {
     public static final String SUPPORTABILITY_WEAVE_SKIPPED = "Supportability/WeaveInstrumentation/Skipped/{0}/{1}";
     public static final String SUPPORTABILITY_WEAVE_CUSTOM_SKIPPED = "Supportability/WeaveInstrumentation/Skipped/Custom/{0}/{1}";
     public static final String SUPPORTABILITY_WEAVE_CLASS = "Supportability/WeaveInstrumentation/WeaveClass/{0}/{1}";
+    public static final String SUPPORTABILITY_WEAVE_PRE_FILTER_REJECTED = "Supportability/WeaveInstrumentation/PreFilter/Rejected";
+    public static final String SUPPORTABILITY_WEAVE_PRE_FILTER_PASSED = "Supportability/WeaveInstrumentation/PreFilter/Passed";
+    public static final String SUPPORTABILITY_WEAVE_LOAD_TIME = "Supportability/WeaveInstrumentation/LoadTime";
+    public static final String SUPPORTABILITY_WEAVE_PACKAGE_LOAD_TIME = "Supportability/WeaveInstrumentation/LoadTime/{0}";
+    public static final String SUPPORTABILITY_NORMALIZATION_RULE_MATCHES = "Supportability/Normalization/{0}/Rule/{1}";
+    public static final String SUPPORTABILITY_THREAD_PROFILER_SAMPLE_TIME = "Supportability/ThreadProfiler/SampleTime";
+    public static final String SUPPORTABILITY_THREAD_PROFILER_SAMPLE_CPU_TIME = "Supportability/ThreadProfiler/SampleCpuTime";
+    public static final String SUPPORTABILITY_THREAD_SAMPLER_SAMPLE_TIME = "Supportability/ThreadSampler/SampleTime";
+    public static final String SUPPORTABILITY_THREAD_SAMPLER_SAMPLE_CPU_TIME = "Supportability/ThreadSampler/SampleCpuTime";
+    public static final String SUPPORTABILITY_THREAD_SAMPLER_SAMPLED_THREADS = "Supportability/ThreadSampler/SampledThreads";
+    public static final String SUPPORTABILITY_EXPLAIN_PLAN_CACHE_HITS = "Supportability/ExplainPlan/CacheHits";
+    public static final String SUPPORTABILITY_EXPLAIN_PLAN_DROPPED = "Supportability/ExplainPlan/Dropped";
+    public static final String SUPPORTABILITY_STATEMENT_PARSER_CACHE_HITS = "Supportability/Database/StatementParser/CacheHits";
+    public static final String SUPPORTABILITY_STATEMENT_PARSER_CACHE_MISSES = "Supportability/Database/StatementParser/CacheMisses";
+    public static final String SUPPORTABILITY_CIRCUIT_BREAKER_LEVEL = "Supportability/CircuitBreaker/Level";
+    public static final String SUPPORTABILITY_CIRCUIT_BREAKER_DEGRADED = "Supportability/CircuitBreaker/Degraded/";
+    public static final String SUPPORTABILITY_CIRCUIT_BREAKER_RECOVERED = "Supportability/CircuitBreaker/Recovered/";
+    public static final String SUPPORTABILITY_HARVEST_STAGE_QUEUED = "Supportability/Harvest/Stage/Queued";
+    public static final String SUPPORTABILITY_HARVEST_STAGE_BEFORE_HARVEST = "Supportability/Harvest/Stage/BeforeHarvest";
+    public static final String SUPPORTABILITY_HARVEST_STAGE_METRIC_DATA = "Supportability/Harvest/Stage/MetricData";
+    public static final String SUPPORTABILITY_HARVEST_STAGE_AFTER_HARVEST = "Supportability/Harvest/Stage/AfterHarvest";
+    public static final String SUPPORTABILITY_HARVEST_SKIPPED = "Supportability/Harvest/Skipped";
 
     public static final String SUPPORTABILITY_LOADED_CLASSES_SOURCE_VERSION = "Supportability/LoadedClasses/{0}/{1}/count";
     public static final String SUPPORTABILITY_SOURCE_LANGUAGE_VERSION = "Supportability/SourceLanguage/{0}/{1}";
@@ -372,6 +398,7 @@ public class MetricNames {
     public static final String SUPPORTABILITY_AGENT_ENDPOINT_HTTP_ERROR = "Supportability/Agent/Collector/HTTPError/{0}"; // {response code}
     public static final String SUPPORTABILITY_AGENT_ENDPOINT_ATTEMPTS = "Supportability/Agent/Collector/{0}/Attempts"; // {endpoint method}
     public static final String SUPPORTABILITY_AGENT_ENDPOINT_DURATION = "Supportability/Agent/Collector/{0}/Duration"; // {endpoint method}
+    public static final String SUPPORTABILITY_AGENT_ENDPOINT_SERIALIZATION = "Supportability/Agent/Collector/{0}/Serialization"; // {endpoint method}
     public static final String SUPPORTABILITY_CONNECTION_NEW = "Supportability/Agent/Collector/Connection/New";
     public static final String SUPPORTABILITY_CONNECTION_REUSED = "Supportability/Agent/Collector/Connection/Reused";
 
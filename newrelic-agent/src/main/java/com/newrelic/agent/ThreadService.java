@@ -15,6 +15,7 @@ import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.threads.BasicThreadInfo;
 import com.newrelic.agent.threads.ThreadNameNormalizer;
 import com.newrelic.agent.threads.ThreadNames;
+import com.newrelic.agent.threads.AdaptiveThreadStateSampler;
 import com.newrelic.agent.threads.ThreadStateSampler;
 
 import java.lang.management.ManagementFactory;
@@ -48,8 +49,17 @@ public class ThreadService extends AbstractService implements ThreadNames {
             long sampleDelayInSeconds = config.getValue("thread_sampler.sample_delay_in_seconds", 60);
             long samplePeriodInSeconds = config.getValue("thread_sampler.sample_period_in_seconds", 60);
 
+            // with a cpu budget, each sample covers as many threads as the budget allows instead of all of them
+            long cpuBudgetInMillis = config.getValue("thread_sampler.cpu_budget_in_millis", 0);
+
             if (samplePeriodInSeconds > 0) {
-                ThreadStateSampler threadStateSampler = new ThreadStateSampler(ManagementFactory.getThreadMXBean(), threadNameNormalizer);
+                Runnable threadStateSampler;
+                if (cpuBudgetInMillis > 0) {
+                    threadStateSampler = new AdaptiveThreadStateSampler(ManagementFactory.getThreadMXBean(), threadNameNormalizer,
+                            cpuBudgetInMillis, TimeUnit.MILLISECONDS);
+                } else {
+                    threadStateSampler = new ThreadStateSampler(ManagementFactory.getThreadMXBean(), threadNameNormalizer);
+                }
                 ServiceFactory.getSamplerService().addSampler(threadStateSampler, sampleDelayInSeconds, samplePeriodInSeconds, TimeUnit.SECONDS);
             } else {
                 Agent.LOG.log(Level.FINE, "The thread sampler is disabled because the sample period is {}", samplePeriodInSeconds);
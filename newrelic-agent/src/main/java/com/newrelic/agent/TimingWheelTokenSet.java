@@ -0,0 +1,137 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent;
+
+import com.newrelic.agent.model.TimeoutCause;
+import com.newrelic.agent.util.TimeConversion;
+import com.newrelic.agent.util.TimingWheel;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * A token set whose time outs are tracked by the {@link ExpirationService}'s timing wheel instead of an expiring cache.
+ * Adding, refreshing and removing a token never takes a lock: refreshing a token only records its last access time,
+ * and the wheel checks that time when the token's deadline comes up.
+ *
+ * Note, changes to token behavior here should be made consistent with {@link TimedTokenSet}.
+ */
+public class TimingWheelTokenSet implements TimedSet<TokenImpl> {
+
+    private final AtomicInteger timedOutTokens = new AtomicInteger(0);
+    private final Map<TokenImpl, TimingWheel.Timeout> activeTokens = new ConcurrentHashMap<>();
+    private final long timeOutMilli;
+    private final ExpirationService expirationService;
+
+    public TimingWheelTokenSet(int timeOut, TimeUnit unit, ExpirationService expirationService) {
+        // same lower bound as TimedTokenSet, so that a token can not time out before getToken() even finishes
+        this.timeOutMilli = TimeConversion.convertToMilliWithLowerBound(timeOut, unit, 250L);
+        this.expirationService = expirationService;
+    }
+
+    /**
+     * The number of tokens that were removed due to timing out.
+     */
+    @Override
+    public int timedOutCount() {
+        return timedOutTokens.get();
+    }
+
+    @Override
+    public void put(final TokenImpl token) {
+        TimingWheel.Timeout timeout = expirationService.getTokenTimingWheel().schedule(timeOutMilli, TimeUnit.MILLISECONDS,
+                new TimingWheel.Listener() {
+                    @Override
+                    public void onTimeout(TimingWheel.Timeout timeout) {
+                        // the wheel only fires a timeout that was not cancelled, so a concurrent remove() can not
+                        // also see this token
+                        activeTokens.remove(token, timeout);
+                        onTokenTimeout(token);
+                    }
+                });
+        TimingWheel.Timeout previous = activeTokens.put(token, timeout);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * Removes one token from the set without counting it as timed out.
+     */
+    @Override
+    public boolean remove(TokenImpl token) {
+        TimingWheel.Timeout timeout = activeTokens.remove(token);
+        if (timeout != null && timeout.cancel()) {
+            onTokenRemoved(token);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Removes any and all tokens from the set without counting them as timed out.
+     */
+    @Override
+    public void removeAll() {
+        for (TokenImpl token : activeTokens.keySet()) {
+            remove(token);
+        }
+    }
+
+    /**
+     * Time outs are processed by the expiration service, so there is nothing to clean up here.
+     */
+    @Override
+    public void cleanUp() {
+    }
+
+    @Override
+    public void refresh(TokenImpl token) {
+        TimingWheel.Timeout timeout = activeTokens.get(token);
+        if (timeout != null) {
+            timeout.touch();
+        }
+    }
+
+    private void onTokenTimeout(TokenImpl token) {
+        Transaction tx = token.getTransaction().getTransactionIfExists();
+        try {
+            Agent.LOG.log(Level.FINEST, "Timing out token {0} on transaction {1}", token, tx);
+            timedOutTokens.incrementAndGet();
+            token.setTruncated();
+
+            if (tx != null) {
+                tx.setTimeoutCause(TimeoutCause.TOKEN);
+            }
+        } catch (Exception e) {
+            Agent.LOG.log(Level.FINEST, "Token {0} on transaction {1} threw exception: {2}", token, tx, e);
+        } finally {
+            markExpired(token);
+        }
+    }
+
+    private void onTokenRemoved(TokenImpl token) {
+        Agent.LOG.log(Level.FINEST, "Expiring token {0} on transaction {1}", token, token.getTransaction().getTransactionIfExists());
+        markExpired(token);
+    }
+
+    private void markExpired(final TokenImpl token) {
+        expirationService.expireToken(new Runnable() {
+            @Override
+            public void run() {
+                // As in TimedTokenSet, expiring the token must happen on another thread to prevent a possible deadlock
+                // between the expire code and other tx usages.
+                token.markExpired();
+            }
+        });
+    }
+
+}
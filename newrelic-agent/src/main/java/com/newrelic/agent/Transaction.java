@@ -30,7 +30,6 @@ import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.config.CrossProcessConfig;
 import com.newrelic.agent.config.DistributedTracingConfig;
 import com.newrelic.agent.config.TransactionTracerConfig;
-import com.newrelic.agent.database.CachingDatabaseStatementParser;
 import com.newrelic.agent.database.DatabaseStatementParser;
 import com.newrelic.agent.dispatchers.Dispatcher;
 import com.newrelic.agent.dispatchers.WebRequestDispatcher;
@@ -1739,7 +1738,7 @@ public class Transaction {
     }
 
     private DatabaseStatementParser createDatabaseStatementParser() {
-        return new CachingDatabaseStatementParser(ServiceFactory.getDatabaseService().getDatabaseStatementParser());
+        return ServiceFactory.getDatabaseService().getDatabaseStatementParser();
     }
 
     public BrowserTransactionState getBrowserTransactionState() {
@@ -2178,7 +2177,7 @@ public class Transaction {
                 counts.getToken();
                 TimedSet<TokenImpl> tokenCache = activeTokensCache.get();
                 if (tokenCache == null) {
-                    activeTokensCache.compareAndSet(null, new TimedTokenSet(ASYNC_TIMEOUT_SECONDS(), TimeUnit.SECONDS, ServiceFactory.getExpirationService()));
+                    activeTokensCache.compareAndSet(null, createTokenSet());
                     tokenCache = activeTokensCache.get();
                 }
                 tokenCache.put(token);
@@ -2202,6 +2201,13 @@ public class Transaction {
         return token;
     }
 
+    private TimedSet<TokenImpl> createTokenSet() {
+        if (getAgentConfig().isTokenTimingWheel()) {
+            return new TimingWheelTokenSet(ASYNC_TIMEOUT_SECONDS(), TimeUnit.SECONDS, ServiceFactory.getExpirationService());
+        }
+        return new TimedTokenSet(ASYNC_TIMEOUT_SECONDS(), TimeUnit.SECONDS, ServiceFactory.getExpirationService());
+    }
+
     /**
      * This should only ever be called by the token. Otherwise the flag on the token will not get set correctly
      *
@@ -2277,7 +2283,7 @@ public class Transaction {
      * has to happen inside the transaction class because it requires updates to an async map (runningChildren)
      */
     public Segment startSegment(String category, String segmentName) {
-        if (counts.isOverTracerSegmentLimit() || ServiceFactory.getServiceManager().getCircuitBreakerService().isTripped() || isIgnore()) {
+        if (counts.isOverTracerSegmentLimit() || ServiceFactory.getServiceManager().getCircuitBreakerService().isSegmentCreationStopped() || isIgnore()) {
             return null;
         }
 
@@ -2375,6 +2381,19 @@ public class Transaction {
         return runningChildren.size();
     }
 
+    /**
+     * Add the ids of the threads this transaction's running activities are on. Activities that have not reported a
+     * thread are skipped.
+     */
+    public void addRunningThreadIds(Set<Long> threadIds) {
+        for (TransactionActivity txa : runningChildren.values()) {
+            long threadId = txa.getThreadId();
+            if (threadId != TransactionActivity.NOT_REPORTED) {
+                threadIds.add(threadId);
+            }
+        }
+    }
+
     /**
      * The activity failed to complete normally, typically due to an internal error. Do not use this method to handle
      * errors detected in the instrumented application. All information associated with the activity is lost.
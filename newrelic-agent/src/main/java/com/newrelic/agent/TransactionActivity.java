@@ -29,7 +29,7 @@ import com.newrelic.api.agent.OutboundHeaders;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
 import java.lang.reflect.Method;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -48,7 +48,12 @@ import java.util.logging.Level;
  */
 public class TransactionActivity {
     public static final int NOT_REPORTED = -1;
-    private volatile List<Tracer> tracers;
+    private static final int INITIAL_TRACER_CAPACITY = 16;
+
+    // Segment tracers in the order they were added. Only the first tracerCount entries are used; the array is
+    // doubled when it fills up so that long transactions do not pay for repeated list growth.
+    private volatile Tracer[] tracers;
+    private int tracerCount;
 
     /*
      * This object has a complex life cycle. It is always created by a Transaction as the Transaction comes into
@@ -198,6 +203,7 @@ public class TransactionActivity {
         this.transaction = tx;
         TransactionTraceService ttService = ServiceFactory.getTransactionTraceService();
         tracers = null;
+        tracerCount = 0;
         transactionStats = new TransactionStats();
         transactionCache = new TransactionCache();
         this.threadId = threadId;
@@ -228,6 +234,7 @@ public class TransactionActivity {
             throw new IllegalStateException("the public constructor is only for test purposes.");
         }
         tracers = null;
+        tracerCount = 0;
         transactionStats = null;
         transactionCache = null;
         notInThreadLocal = false;
@@ -270,7 +277,11 @@ public class TransactionActivity {
      * @return the current state of the tracer stack for this activity.
      */
     public List<Tracer> getTracers() {
-        return Collections.unmodifiableList(tracers == null ? Collections.<Tracer>emptyList() : tracers);
+        Tracer[] current = tracers;
+        if (current == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(current).subList(0, Math.min(tracerCount, current.length)));
     }
 
     /**
@@ -465,10 +476,14 @@ public class TransactionActivity {
                 // this means if you have more than one tracer (the root tracer) and you do not have a
                 // transaction yet (async = true), then you will only get metrics and you will not
                 // be in the transaction trace
-                if (tracers == null) {
-                    tracers = new ArrayList<>();
+                Tracer[] current = tracers;
+                if (current == null) {
+                    current = new Tracer[INITIAL_TRACER_CAPACITY];
+                } else if (tracerCount == current.length) {
+                    current = Arrays.copyOf(current, tracerCount << 1);
                 }
-                tracers.add(tracer);
+                current[tracerCount++] = tracer;
+                tracers = current;
             }
         }
     }
@@ -659,7 +674,7 @@ public class TransactionActivity {
 
     void startAsyncTracerLimitCleanup() {
         if (canCreateTransactionSegment()) {
-            int numTracers = tracers != null ? tracers.size() : 0;
+            int numTracers = tracers != null ? tracerCount : 0;
             // add one for the root
             transaction.getTransactionCounts().addTracers(numTracers + 1);
         } else {
@@ -669,9 +684,10 @@ public class TransactionActivity {
              * tracers. They will think they are still transaction segments.
              */
             rootTracer.removeTransactionSegment();
-            // we can drop the current tracer list
-            // we are never going to add another tracer to this and so get rid of the list
-            tracers = Collections.EMPTY_LIST;
+            // we can drop the current tracer array
+            // we are never going to add another tracer to this and so get rid of the array
+            tracers = null;
+            tracerCount = 0;
         }
     }
 
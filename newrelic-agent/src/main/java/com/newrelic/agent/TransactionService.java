@@ -9,6 +9,7 @@ package com.newrelic.agent;
 
 import com.google.common.collect.MapMaker;
 import com.newrelic.agent.attributes.AttributeNames;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.service.AbstractService;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.stats.StatsEngine;
@@ -20,8 +21,10 @@ import com.newrelic.agent.transaction.MergeStatsEngineResolvingScope;
 import com.newrelic.agent.util.DefaultThreadFactory;
 import com.newrelic.agent.util.TimeConversion;
 
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
@@ -42,6 +45,7 @@ import java.util.logging.Level;
 public class TransactionService extends AbstractService {
 
     private static final String TRANSACTION_SERVICE_PROCESSOR_THREAD_NAME = "New Relic Transaction Service Processor";
+    private static final int TRANSACTION_SIZE_ID = MetricNameTable.getInstance().getId(MetricNames.SUPPORTABILITY_TRANSACTION_SIZE);
 
     private final List<TransactionListener> transactionListeners = new CopyOnWriteArrayList<>();
     private final List<ExtendedTransactionListener> extendedTransactionListeners = new CopyOnWriteArrayList<>();
@@ -150,7 +154,7 @@ public class TransactionService extends AbstractService {
         }
 
         boolean sizeLimitExceeded = transactionData.getAgentAttributes().get(AttributeNames.SIZE_LIMIT_PARAMETER_NAME) != null;
-        transactionStats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_TRANSACTION_SIZE).recordDataPoint(transactionData.getTransactionSize());
+        transactionStats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_TRANSACTION_SIZE, TRANSACTION_SIZE_ID).recordDataPoint(transactionData.getTransactionSize());
         if (sizeLimitExceeded) {
             transactionStats.getUnscopedStats().getStats(MetricNames.SUPPORTABILITY_TRANSACTION_SIZE_CLAMP).incrementCallCount();
         }
@@ -279,6 +283,17 @@ public class TransactionService extends AbstractService {
         return updateQueue.size();
     }
 
+    /**
+     * Get the ids of the threads that transactions in progress are running on.
+     */
+    public Set<Long> getTransactionThreadIds() {
+        Set<Long> threadIds = new HashSet<>();
+        for (Transaction transaction : updateQueue.keySet()) {
+            transaction.addRunningThreadIds(threadIds);
+        }
+        return threadIds;
+    }
+
     public int getExpiredTransactionCount() {
         int expiredTransactions = 0;
         for (Transaction transaction : updateQueue.keySet()) {
@@ -0,0 +1,170 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.attributes;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The include and exclude rules of a destination compiled into one character trie, so that a single walk over an
+ * attribute key decides whether the destination accepts it.
+ *
+ * The result is the same as walking the {@link AttributesNode} tries in {@link DefaultDestinationPredicate}: the
+ * mandatory rules are checked first, then the configured rules, then the default rules. Within each of those, the most
+ * specific matching rule wins: an exact rule beats a wildcard rule with the same name, and a longer wildcard beats a
+ * shorter one. When the same rule is both included and excluded, exclude wins. A key that matches no rule is included.
+ */
+final class AttributeDestinationTrie {
+
+    private static final String END_WILDCARD = "*";
+
+    private static final int MANDATORY = 0;
+    private static final int CONFIG = 1;
+    private static final int DEFAULT = 2;
+    private static final int TIERS = 3;
+
+    // what the rules of a tier at a node decide
+    private static final byte NO_RULE = 0;
+    private static final byte INCLUDE = 1;
+    private static final byte EXCLUDE = 2;
+
+    private final Node root;
+
+    /**
+     * The arguments match those of {@link DefaultDestinationPredicate}.
+     */
+    AttributeDestinationTrie(Collection<String> exclude, Collection<String> include,
+            Collection<String> defaultExcludes, Collection<String> mandatoryExcludes) {
+        BuildNode buildRoot = new BuildNode();
+        for (String rule : mandatoryExcludes) {
+            buildRoot.addRule(rule, MANDATORY, false);
+        }
+        for (String rule : exclude) {
+            buildRoot.addRule(rule, CONFIG, false);
+        }
+        for (String rule : include) {
+            buildRoot.addRule(rule, CONFIG, true);
+        }
+        // the default trie is rooted at an include everything rule
+        buildRoot.addRule(END_WILDCARD, DEFAULT, true);
+        for (String rule : defaultExcludes) {
+            buildRoot.addRule(rule, DEFAULT, false);
+        }
+        root = buildRoot.freeze();
+    }
+
+    boolean isIncluded(String key) {
+        if (key == null) {
+            // no rule matches a null key
+            return true;
+        }
+
+        // the decision of each tier so far. Rules deeper in the trie are more specific, so they replace whatever was
+        // decided above them. Kept in locals so a lookup allocates nothing.
+        byte mandatory = NO_RULE, config = NO_RULE, defaults = NO_RULE;
+
+        Node node = root;
+        byte[] rules = node.wildcardRules;
+        int length = key.length();
+        for (int i = 0; ; i++) {
+            if (rules[MANDATORY] != NO_RULE) {
+                mandatory = rules[MANDATORY];
+            }
+            if (rules[CONFIG] != NO_RULE) {
+                config = rules[CONFIG];
+            }
+            if (rules[DEFAULT] != NO_RULE) {
+                defaults = rules[DEFAULT];
+            }
+
+            if (rules == node.exactRules) {
+                break;
+            } else if (i == length) {
+                // the whole key has been consumed, so exact rules ending here match too
+                rules = node.exactRules;
+            } else {
+                node = node.child(key.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                rules = node.wildcardRules;
+            }
+        }
+
+        if (mandatory != NO_RULE) {
+            return mandatory == INCLUDE;
+        }
+        if (config != NO_RULE) {
+            return config == INCLUDE;
+        }
+        return defaults != EXCLUDE;
+    }
+
+    private static final class BuildNode {
+        final Map<Character, BuildNode> children = new TreeMap<>();
+        // the decision of each tier
+        final byte[] wildcardRules = new byte[TIERS];
+        final byte[] exactRules = new byte[TIERS];
+
+        BuildNode child(char c) {
+            BuildNode child = children.get(c);
+            if (child == null) {
+                child = new BuildNode();
+                children.put(c, child);
+            }
+            return child;
+        }
+
+        void addRule(String rule, int tier, boolean include) {
+            boolean wildcard = rule.endsWith(END_WILDCARD);
+            String name = wildcard ? rule.substring(0, rule.length() - 1) : rule;
+            BuildNode node = this;
+            for (int i = 0; i < name.length(); i++) {
+                node = node.child(name.charAt(i));
+            }
+            byte[] rules = wildcard ? node.wildcardRules : node.exactRules;
+            // exclude wins over include for the same rule
+            if (rules[tier] != EXCLUDE) {
+                rules[tier] = include ? INCLUDE : EXCLUDE;
+            }
+        }
+
+        Node freeze() {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, BuildNode> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().freeze();
+                i++;
+            }
+            return new Node(keys, nodes, wildcardRules, exactRules);
+        }
+    }
+
+    private static final class Node {
+        private final char[] keys;
+        private final Node[] children;
+        private final byte[] wildcardRules;
+        private final byte[] exactRules;
+
+        Node(char[] keys, Node[] children, byte[] wildcardRules, byte[] exactRules) {
+            this.keys = keys;
+            this.children = children;
+            this.wildcardRules = wildcardRules;
+            this.exactRules = exactRules;
+        }
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index < 0 ? null : children[index];
+        }
+    }
+}
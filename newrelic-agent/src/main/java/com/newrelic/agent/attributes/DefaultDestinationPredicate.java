@@ -7,15 +7,11 @@
 
 package com.newrelic.agent.attributes;
 
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.newrelic.agent.Agent;
 
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 
 /**
@@ -28,7 +24,6 @@ import java.util.logging.Level;
  */
 public class DefaultDestinationPredicate implements DestinationPredicate {
 
-    private static final long MAX_CACHE_SIZE_BUFFER = 200L;
     /**
      * This is always run first. If we match any, then we are done. High security properties go in here
      */
@@ -43,9 +38,9 @@ public class DefaultDestinationPredicate implements DestinationPredicate {
      */
     private final AttributesNode defaultExcludeTrie;
     /**
-     * Holds recent keys and result values.
+     * The three tries above compiled into one, which is what {@link #apply(String)} uses.
      */
-    private final LoadingCache<String, Boolean> cache;
+    private final AttributeDestinationTrie compiledTrie;
     /**
      * The destination is mainly used for logging.
      */
@@ -58,12 +53,7 @@ public class DefaultDestinationPredicate implements DestinationPredicate {
         configTrie = generateConfigTrie(dest, exclude, include);
         defaultExcludeTrie = generateDefaultTrie(dest, defaultExcludes);
         destination = dest;
-        cache = CacheBuilder.newBuilder().maximumSize(MAX_CACHE_SIZE_BUFFER).build(new CacheLoader<String, Boolean>() {
-            @Override
-            public Boolean load(String key) {
-                return isIncluded(key);
-            }
-        });
+        compiledTrie = new AttributeDestinationTrie(exclude, include, defaultExcludes, mandatoryExclude);
     }
 
     private Boolean isIncluded(String key) {
@@ -93,11 +83,13 @@ public class DefaultDestinationPredicate implements DestinationPredicate {
      */
     @Override
     public boolean apply(String key) {
-        try {
-            return changeToPrimitiveAndLog(key, cache.get(key));
-        } catch (ExecutionException e) {
-            return changeToPrimitiveAndLog(key, isIncluded(key));
+        boolean out = compiledTrie.isIncluded(key);
+        if (Agent.LOG.isFinerEnabled()) {
+            // walk the rule tries as well, they log which rules matched
+            isIncluded(key);
+            logOutput(key, out);
         }
+        return out;
     }
 
     private void logOutput(String key, boolean value) {
@@ -106,13 +98,6 @@ public class DefaultDestinationPredicate implements DestinationPredicate {
         }
     }
 
-    private boolean changeToPrimitiveAndLog(String key, Boolean value) {
-        // if no rules were matched then return true - should not be in here if the service is disabled
-        boolean out = (value == null ? true : value);
-        logOutput(key, out);
-        return out;
-    }
-
     public boolean isPotentialConfigMatch(String key) {
         List<AttributesNode> queue = new LinkedList<>(configTrie.getChildren());
         AttributesNode node;
@@ -17,7 +17,12 @@ import com.newrelic.agent.config.CircuitBreakerConfig;
 import com.newrelic.agent.service.AbstractService;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.stats.StatsEngine;
+import com.newrelic.agent.stats.StatsWorks;
 
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
 import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.util.concurrent.ConcurrentHashMap;
@@ -41,12 +46,37 @@ import java.util.logging.Level;
  * Some of the methods on this class run almost immediately after we enter Java code from transformed bytecode. The
  * current thread cannot be assumed to have a TransactionActivity or a Transaction.<br>
  * <br>
- * The default memory and gc thresholds are set in {@link CircuitBreakerConfig}.
+ * The default memory and gc thresholds are set in {@link CircuitBreakerConfig}.<br>
+ * <br>
+ * In graded mode the breaker does not sample tracers. It checks memory and gc time when the JVM notifies it of a
+ * garbage collection, and at the end of the harvest cycle. Instead of tripping, it degrades the agent one
+ * {@link DegradationLevel} at a time while both thresholds are crossed: first traces, then segments, then everything
+ * but metrics. It recovers one level at a time, once free memory has stayed well above the memory threshold and gc
+ * time well below the gc threshold for a while, so that the agent does not flap between levels.
  */
 public class CircuitBreakerService extends AbstractService implements HarvestListener, AgentConfigListener {
     private static final int TRACER_SAMPLING_RATE = 1000;
+    private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+
+    /**
+     * The graded breaker measures gc time over at least this long, so that one collection does not count as a high
+     * gc time percentage.
+     */
+    private static final long MIN_EVALUATION_INTERVAL_NS = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * Time to see the effect of a degradation before degrading further.
+     */
+    private static final long DEGRADE_INTERVAL_NS = TimeUnit.SECONDS.toNanos(5);
+    /**
+     * Time that memory and gc time have to stay good before the graded breaker recovers a level.
+     */
+    private static final long RECOVERY_INTERVAL_NS = TimeUnit.SECONDS.toNanos(60);
+    /**
+     * Percentage points of free memory above the memory threshold needed to recover.
+     */
+    private static final int RECOVERY_MEMORY_MARGIN = 10;
 
-    private volatile int tripped = 0;
+    private volatile DegradationLevel level = DegradationLevel.NONE;
     private final CircuitBreakerConfig circuitBreakerConfig;
     private volatile GarbageCollectorMXBean oldGenGCBeanCached = null;
     private final ReentrantLock lock = new ReentrantLock();
@@ -57,6 +87,26 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
      * */
     private final ConcurrentMap<String, Boolean> missingData;
 
+    /**
+     * Map of application names to the highest level of the graded breaker since the last harvest of the application.
+     */
+    private final ConcurrentMap<String, DegradationLevel> highestLevels = new ConcurrentHashMap<>();
+
+    // state of the graded breaker, guarded by this
+    private long lastEvaluationNS = System.nanoTime();
+    private long lastEvaluationGCTimeNS;
+    private long lastLevelChangeNS = System.nanoTime() - RECOVERY_INTERVAL_NS;
+    private long goodSinceNS = -1;
+
+    private final NotificationListener gcListener = new NotificationListener() {
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (GC_NOTIFICATION.equals(notification.getType()) && circuitBreakerConfig.isGraded()) {
+                evaluateGCPressure();
+            }
+        }
+    };
+
     /**
      * Only log a CircuitBreaker WARNING level message once.
      */
@@ -99,6 +149,7 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
         }
         ServiceFactory.getConfigService().addIAgentConfigListener(this);
         missingData = new ConcurrentHashMap<>();
+        lastEvaluationGCTimeNS = isEnabled() ? getGCCpuTimeNS() : -1;
     }
 
     @Override
@@ -109,12 +160,34 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
     @Override
     protected void doStart() throws Exception {
         ServiceFactory.getHarvestService().addHarvestListener(this);
+        if (isEnabled()) {
+            // listen even when the breaker is not graded, since graded can be turned on later
+            boolean listening = false;
+            for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (gcBean instanceof NotificationEmitter) {
+                    ((NotificationEmitter) gcBean).addNotificationListener(gcListener, null, null);
+                    listening = true;
+                }
+            }
+            if (!listening && circuitBreakerConfig.isGraded()) {
+                Agent.LOG.log(Level.INFO, "Circuit breaker: no GC notifications. The graded circuit breaker will only be checked at harvest.");
+            }
+        }
     }
 
     @Override
     protected void doStop() throws Exception {
         ServiceFactory.getConfigService().removeIAgentConfigListener(this);
         ServiceFactory.getHarvestService().removeHarvestListener(this);
+        for (GarbageCollectorMXBean gcBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (gcBean instanceof NotificationEmitter) {
+                try {
+                    ((NotificationEmitter) gcBean).removeNotificationListener(gcListener);
+                } catch (ListenerNotFoundException e) {
+                    // the breaker was disabled when it started
+                }
+            }
+        }
     }
 
     @Override
@@ -128,6 +201,13 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
             recordBreakerOffMetrics(statsEngine);
         }
 
+        if (circuitBreakerConfig.isGraded()) {
+            DegradationLevel highestLevel = highestLevels.get(appName);
+            if (highestLevel == null || highestLevel.compareTo(level) < 0) {
+                highestLevel = level;
+            }
+            statsEngine.getStats(MetricNames.SUPPORTABILITY_CIRCUIT_BREAKER_LEVEL).recordDataPoint(highestLevel.ordinal());
+        }
     }
 
     private void recordBreakerOnMetrics(StatsEngine statsEngine, String tripCauseMetric) {
@@ -141,7 +221,11 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
 
     @Override
     public void afterHarvest(String appName) {
-        if (isTripped() && shouldReset()) {
+        if (circuitBreakerConfig.isGraded()) {
+            // garbage collections can stop once memory is good again, so recovery is checked here as well
+            evaluateGCPressure();
+            highestLevels.put(appName, level);
+        } else if (isTripped() && shouldReset()) {
             reset();
         }
         if (!isTripped()) {
@@ -164,7 +248,7 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
         if (elapsedTime <= 0) {
             return false;
         }
-        double percentageFreeMemory = 100 * ((Runtime.getRuntime().freeMemory() + (Runtime.getRuntime().maxMemory() - Runtime.getRuntime().totalMemory())) / (double) Runtime.getRuntime().maxMemory());
+        double percentageFreeMemory = getPercentageFreeMemory();
 
         lastTimestampInNanoseconds.set(currentTimeInNanoseconds);
         lastTotalGCTimeNS.set(lastTotalGCTimeNS.get() + gcCpuTime);
@@ -193,14 +277,37 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
      * @return status of the circuit breaker.
      */
     public boolean isTripped() {
-        if (isEnabled() && tracerSamplerCounter.get().shouldSample() && tripped == 0) {
+        if (level == DegradationLevel.NONE && isEnabled() && !circuitBreakerConfig.isGraded()
+                && tracerSamplerCounter.get().shouldSample()) {
             checkAndTrip();
         }
-        return tripped == 1;
+        return level == DegradationLevel.METRICS_ONLY;
+    }
+
+    /**
+     * Unlike {@link #isTripped()}, this only returns the status and never updates it.
+     *
+     * @return true if span events and transaction traces should not be collected
+     */
+    public boolean isTraceCollectionStopped() {
+        return level != DegradationLevel.NONE;
+    }
+
+    /**
+     * Unlike {@link #isTripped()}, this only returns the status and never updates it.
+     *
+     * @return true if only root tracers should be created
+     */
+    public boolean isSegmentCreationStopped() {
+        return level.compareTo(DegradationLevel.NO_SEGMENTS) >= 0;
+    }
+
+    public DegradationLevel getDegradationLevel() {
+        return level;
     }
 
     private void trip() {
-        tripped = 1;
+        level = DegradationLevel.METRICS_ONLY;
 
         for (String appName : missingData.keySet()) {
             missingData.put(appName, true);
@@ -218,7 +325,7 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
      * Reset circuit breaker;
      */
     public void reset() {
-        tripped = 0;
+        level = DegradationLevel.NONE;
         Agent.LOG.log(Level.FINE, "Circuit breaker reset");
         logWarning.set(true);
     }
@@ -260,6 +367,102 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
         return false;
     }
 
+    private void evaluateGCPressure() {
+        if (isEnabled()) {
+            evaluateGCPressure(System.nanoTime(), getGCCpuTimeNS(), getPercentageFreeMemory());
+        } else {
+            evaluateGCPressure(System.nanoTime(), -1, 100);
+        }
+    }
+
+    /**
+     * Moves the graded breaker at most one level up or down. This method is package private for test purposes.
+     *
+     * @param nowNS the current time in nanoseconds
+     * @param gcCpuTimeNS CPU time of old gen GC collection in nanoseconds, or -1 if the breaker is disabled
+     * @param percentageFreeMemory percentage of the max heap that is free
+     */
+    synchronized void evaluateGCPressure(long nowNS, long gcCpuTimeNS, double percentageFreeMemory) {
+        if (!isEnabled() || lastEvaluationGCTimeNS == -1) {
+            // start measuring gc time from here when the breaker is enabled
+            lastEvaluationNS = nowNS;
+            lastEvaluationGCTimeNS = gcCpuTimeNS;
+            goodSinceNS = -1;
+            changeLevel(DegradationLevel.NONE, nowNS, percentageFreeMemory, 0);
+            return;
+        }
+        long elapsedTime = nowNS - lastEvaluationNS;
+        if (elapsedTime < MIN_EVALUATION_INTERVAL_NS) {
+            return;
+        }
+        double gcCpuTimePercentage = ((gcCpuTimeNS - lastEvaluationGCTimeNS) / (double) elapsedTime) * 100;
+        lastEvaluationNS = nowNS;
+        lastEvaluationGCTimeNS = gcCpuTimeNS;
+
+        int freeMemoryThreshold = circuitBreakerConfig.getMemoryThreshold();
+        int gcCPUThreshold = circuitBreakerConfig.getGcCpuThreshold();
+        Agent.LOG.log(Level.FINEST,
+                "Circuit breaker: level {0} percentage free memory {1}% GC CPU time percentage {2}% (freeMemoryThreshold {3}, gcCPUThreshold {4})",
+                level, percentageFreeMemory, gcCpuTimePercentage, freeMemoryThreshold, gcCPUThreshold);
+
+        if (gcCpuTimePercentage >= gcCPUThreshold && percentageFreeMemory <= freeMemoryThreshold) {
+            goodSinceNS = -1;
+            if (nowNS - lastLevelChangeNS >= DEGRADE_INTERVAL_NS) {
+                changeLevel(level.next(), nowNS, percentageFreeMemory, gcCpuTimePercentage);
+            }
+        } else if (gcCpuTimePercentage < gcCPUThreshold / 2.0
+                && percentageFreeMemory >= freeMemoryThreshold + RECOVERY_MEMORY_MARGIN) {
+            if (goodSinceNS == -1) {
+                goodSinceNS = nowNS;
+            }
+            if (nowNS - goodSinceNS >= RECOVERY_INTERVAL_NS && nowNS - lastLevelChangeNS >= RECOVERY_INTERVAL_NS) {
+                changeLevel(level.previous(), nowNS, percentageFreeMemory, gcCpuTimePercentage);
+            }
+        } else {
+            // between the thresholds the level is kept
+            goodSinceNS = -1;
+        }
+    }
+
+    private void changeLevel(DegradationLevel newLevel, long nowNS, double percentageFreeMemory,
+            double gcCpuTimePercentage) {
+        DegradationLevel oldLevel = level;
+        if (newLevel == oldLevel) {
+            return;
+        }
+        lastLevelChangeNS = nowNS;
+        if (newLevel.compareTo(oldLevel) > 0) {
+            if (newLevel == DegradationLevel.METRICS_ONLY) {
+                trip();
+            } else {
+                level = newLevel;
+            }
+            for (String appName : highestLevels.keySet()) {
+                if (highestLevels.get(appName).compareTo(newLevel) < 0) {
+                    highestLevels.put(appName, newLevel);
+                }
+            }
+            Agent.LOG.log(Level.WARNING,
+                    "Circuit breaker degraded to {0} at memory {1}%  GC CPU time {2}%. The agent collects less transaction data to preserve heap memory.",
+                    newLevel, percentageFreeMemory, gcCpuTimePercentage);
+            recordLevelChange(MetricNames.SUPPORTABILITY_CIRCUIT_BREAKER_DEGRADED, newLevel);
+        } else {
+            level = newLevel;
+            Agent.LOG.log(Level.INFO, "Circuit breaker recovered to {0} at memory {1}%  GC CPU time {2}%", newLevel,
+                    percentageFreeMemory, gcCpuTimePercentage);
+            recordLevelChange(MetricNames.SUPPORTABILITY_CIRCUIT_BREAKER_RECOVERED, newLevel);
+        }
+    }
+
+    private void recordLevelChange(String metricPrefix, DegradationLevel newLevel) {
+        ServiceFactory.getStatsService().doStatsWork(
+                StatsWorks.getIncrementCounterWork(metricPrefix + newLevel.getMetricName(), 1));
+    }
+
+    private double getPercentageFreeMemory() {
+        return 100 * ((Runtime.getRuntime().freeMemory() + (Runtime.getRuntime().maxMemory() - Runtime.getRuntime().totalMemory())) / (double) Runtime.getRuntime().maxMemory());
+    }
+
     /**
      * @return CPU time of old gen GC collection in nanoseconds
      */
@@ -329,19 +532,25 @@ public class CircuitBreakerService extends AbstractService implements HarvestLis
         int newGCCpuThreshold = agentConfig.getCircuitBreakerConfig().getGcCpuThreshold();
         int newMemoryThreshold = agentConfig.getCircuitBreakerConfig().getMemoryThreshold();
         boolean newEnabled = agentConfig.getCircuitBreakerConfig().isEnabled();
+        boolean newGraded = agentConfig.getCircuitBreakerConfig().isGraded();
 
         if (newGCCpuThreshold == circuitBreakerConfig.getGcCpuThreshold()
                 && newMemoryThreshold == circuitBreakerConfig.getMemoryThreshold()
-                && newEnabled == circuitBreakerConfig.isEnabled()) {
+                && newEnabled == circuitBreakerConfig.isEnabled()
+                && newGraded == circuitBreakerConfig.isGraded()) {
             return;
         }
 
         circuitBreakerConfig.updateEnabled(newEnabled);
         circuitBreakerConfig.updateThresholds(newGCCpuThreshold, newMemoryThreshold);
+        if (circuitBreakerConfig.updateGraded(newGraded) && !newGraded && level != DegradationLevel.METRICS_ONLY) {
+            // the sampling breaker only knows tripped and not tripped
+            level = DegradationLevel.NONE;
+        }
         Agent.LOG.log(Level.INFO,
-                "Circuit breaker: updated configuration - enabled {0} GC CPU Threshold {1}% Memory Threshold {2}%.",
-                circuitBreakerConfig.isEnabled(), circuitBreakerConfig.getGcCpuThreshold(),
-                circuitBreakerConfig.getMemoryThreshold());
+                "Circuit breaker: updated configuration - enabled {0} graded {1} GC CPU Threshold {2}% Memory Threshold {3}%.",
+                circuitBreakerConfig.isEnabled(), circuitBreakerConfig.isGraded(),
+                circuitBreakerConfig.getGcCpuThreshold(), circuitBreakerConfig.getMemoryThreshold());
     }
 
     public void addRPMService(RPMService rpmService) {
@@ -0,0 +1,54 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.circuitbreaker;
+
+/**
+ * How much data the agent stops collecting to preserve heap memory. Each level also stops everything the levels before
+ * it stop. See {@link CircuitBreakerService}.
+ */
+public enum DegradationLevel {
+
+    /**
+     * Everything is collected.
+     */
+    NONE("None"),
+
+    /**
+     * Span events and transaction traces are not collected.
+     */
+    NO_TRACES("NoTraces"),
+
+    /**
+     * Only root tracers are created, so transactions have no segments and metrics are only recorded for transactions.
+     */
+    NO_SEGMENTS("NoSegments"),
+
+    /**
+     * No transactions or tracers are created. This is the tripped breaker.
+     */
+    METRICS_ONLY("MetricsOnly");
+
+    private final String metricName;
+
+    DegradationLevel(String metricName) {
+        this.metricName = metricName;
+    }
+
+    public String getMetricName() {
+        return metricName;
+    }
+
+    DegradationLevel next() {
+        return this == METRICS_ONLY ? this : values()[ordinal() + 1];
+    }
+
+    DegradationLevel previous() {
+        return this == NONE ? this : values()[ordinal() - 1];
+    }
+
+}
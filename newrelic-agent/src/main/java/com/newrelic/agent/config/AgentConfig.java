@@ -231,6 +231,18 @@ public interface AgentConfig extends com.newrelic.api.agent.Config, DataSenderCo
      */
     boolean isLogDaily();
 
+    /**
+     * Writes log messages on an agent thread if set to true, so that logging threads do not wait on log I/O. Default
+     * is false.
+     */
+    boolean isLogAsync();
+
+    /**
+     * The number of log messages that can wait for the async log writer. Messages that do not fit are dropped. Default
+     * is 8192.
+     */
+    int getLogAsyncBufferSize();
+
     /**
      * If true send data to the server on exit.
      */
@@ -269,6 +281,14 @@ public interface AgentConfig extends com.newrelic.api.agent.Config, DataSenderCo
 
     boolean getIbmWorkaroundEnabled();
 
+    /**
+     * If true, metrics are recorded into per-thread stats engines that are merged at harvest instead of into a shared
+     * pool of stats engines.
+     *
+     * @return true if sharded stats are enabled, false otherwise
+     */
+    boolean isShardedStats();
+
     /**
      * Get the agent's label configuration.
      *
@@ -303,6 +323,22 @@ public interface AgentConfig extends com.newrelic.api.agent.Config, DataSenderCo
 
     int getTokenTimeoutInSec();
 
+    /**
+     * If true, async tokens are timed out by a timing wheel owned by the expiration service instead of an expiring
+     * cache per transaction.
+     *
+     * @return true if the token timing wheel is enabled, false otherwise
+     */
+    boolean isTokenTimingWheel();
+
+    /**
+     * The number of names each normalizer remembers the result for, so that repeated names skip the rule chain. Zero
+     * disables the cache.
+     *
+     * @return the maximum number of cached names per normalizer
+     */
+    int getNormalizationCacheSize();
+
     boolean openTracingEnabled();
 
     /**
@@ -56,6 +56,8 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final String LANGUAGE = "language";
     public static final String LICENSE_KEY = "license_key";
     public static final String LITE_MODE = "lite_mode";
+    public static final String LOG_ASYNC = "log_async";
+    public static final String LOG_ASYNC_BUFFER_SIZE = "log_async_buffer_size";
     public static final String LOG_DAILY = "log_daily";
     public static final String LOG_FILE_COUNT = "log_file_count";
     public static final String LOG_FILE_NAME = "log_file_name";
@@ -64,6 +66,7 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final String LOG_LIMIT = "log_limit_in_kbytes";
     public static final String MAX_STACK_TRACE_LINES = "max_stack_trace_lines";
     public static final String METRIC_INGEST_URI = "metric_ingest_uri";
+    public static final String NORMALIZATION_CACHE_SIZE = "normalization_cache_size";
     public static final String DEBUG = "newrelic.debug";
     public static final String PLATFORM_INFORMATION_ENABLED = "platform_information_enabled";
     public static final String PORT = "port";
@@ -79,13 +82,16 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final String SEND_DATA_ON_EXIT_THRESHOLD = "send_data_on_exit_threshold";
     public static final String SEND_ENVIRONMENT_INFO = "send_environment_info";
     public static final String SEND_JVM_PROPS = "send_jvm_props";
+    public static final String SHARDED_STATS_PROPERTY = "sharded_stats";
     public static final String SIMPLE_COMPRESSION_PROPERTY = "simple_compression";
+    public static final String STREAMING_PAYLOADS_PROPERTY = "streaming_payloads";
     private static final String REQUEST_TIMEOUT_IN_SECONDS_PROPERTY = "timeout";
     public static final String STARTUP_LOG_LEVEL = "startup_log_level";
     public static final String STARTUP_TIMING = "startup_timing";
     public static final String STDOUT = "STDOUT";
     public static final String SYNC_STARTUP = "sync_startup";
     public static final String THREAD_CPU_TIME_ENABLED = "thread_cpu_time_enabled";
+    public static final String TOKEN_TIMING_WHEEL = "token_timing_wheel";
     public static final String TRACE_DATA_CALLS = "trace_data_calls";
     public static final String TRANSACTION_NAMING_SCHEME = "transaction_naming_scheme";
     public static final String TRANSACTION_SIZE_LIMIT = "transaction_size_limit";
@@ -141,6 +147,8 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final String GENERIC_JDBC_SUPPORT = "generic";
     public static final String DEFAULT_JDBC_SUPPORT = GENERIC_JDBC_SUPPORT;
     public static final String DEFAULT_LANGUAGE = "java";
+    public static final boolean DEFAULT_LOG_ASYNC = false;
+    public static final int DEFAULT_LOG_ASYNC_BUFFER_SIZE = 8192;
     public static final boolean DEFAULT_LOG_DAILY = false;
     public static final int DEFAULT_LOG_FILE_COUNT = 1;
     public static final String DEFAULT_LOG_FILE_NAME = "newrelic_agent.log";
@@ -148,6 +156,7 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final int DEFAULT_LOG_LIMIT = 0;
     public static final int DEFAULT_MAX_STACK_TRACE_LINES = 30;
     public static final String DEFAULT_METRIC_INGEST_URI = "https://metric-api.newrelic.com";
+    public static final int DEFAULT_NORMALIZATION_CACHE_SIZE = 0;
     public static final boolean DEFAULT_PLATFORM_INFORMATION_ENABLED = true;
     public static final int DEFAULT_PORT = 80;
     public static final String DEFAULT_PROXY_HOST = null;
@@ -158,10 +167,13 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     public static final boolean DEFAULT_SEND_DATA_ON_EXIT = false;
     public static final int DEFAULT_SEND_DATA_ON_EXIT_THRESHOLD = 60;
     public static final boolean DEFAULT_SEND_ENVIRONMENT_INFO = true;
+    public static final boolean DEFAULT_SHARDED_STATS_ENABLED = false;
     public static final boolean DEFAULT_SIMPLE_COMPRESSION_ENABLED = false;
+    public static final boolean DEFAULT_STREAMING_PAYLOADS_ENABLED = false;
     public static final int DEFAULT_SSL_PORT = 443;
     public static final boolean DEFAULT_STARTUP_TIMING = true;
     public static final boolean DEFAULT_SYNC_STARTUP = false;
+    public static final boolean DEFAULT_TOKEN_TIMING_WHEEL = false;
     public static final boolean DEFAULT_TRACE_DATA_CALLS = false;
     public static final int DEFAULT_TRANSACTION_SIZE_LIMIT = 2000;
     public static final boolean DEFAULT_TRIM_STATS = true;
@@ -202,6 +214,7 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     private final String logLevel;
     private final int maxStackTraceLines;
     private final String metricIngestUri;
+    private final int normalizationCacheSize;
     private final boolean platformInformationEnabled;
     private final int port;
     private final String proxyHost;
@@ -213,9 +226,12 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
     private final int segmentTimeoutInSec;
     private final String securityPoliciesToken;
     private final boolean sendJvmProps;
+    private final boolean shardedStats;
     private final boolean simpleCompression;
+    private final boolean streamingPayloads;
     private final boolean startupTimingEnabled;
     private final int tokenTimeoutInSec;
+    private final boolean tokenTimingWheel;
     private final TransactionNamingScheme transactionNamingMode;
     private final int transactionSizeLimit;
     private final boolean trimStats;
@@ -273,6 +289,8 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         simpleCompression = getProperty(SIMPLE_COMPRESSION_PROPERTY, DEFAULT_SIMPLE_COMPRESSION_ENABLED);
         compressedContentEncoding = initCompressedContentEncoding();
         putForDataSend = getProperty(PUT_FOR_DATA_SEND_PROPERTY, DEFAULT_PUT_FOR_DATA_SEND_ENABLED);
+        streamingPayloads = getProperty(STREAMING_PAYLOADS_PROPERTY, DEFAULT_STREAMING_PAYLOADS_ENABLED);
+        shardedStats = getProperty(SHARDED_STATS_PROPERTY, DEFAULT_SHARDED_STATS_ENABLED);
         isApdexTSet = getProperty(APDEX_T) != null;
         apdexTInMillis = (long) (getDoubleProperty(APDEX_T, DEFAULT_APDEX_T) * 1000L);
         debug = Boolean.getBoolean(DEBUG);
@@ -307,6 +325,7 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         transactionNamingMode = parseTransactionNamingMode();
         maxStackTraceLines = getProperty(MAX_STACK_TRACE_LINES, DEFAULT_MAX_STACK_TRACE_LINES);
         metricIngestUri = getProperty(METRIC_INGEST_URI, DEFAULT_METRIC_INGEST_URI);
+        normalizationCacheSize = getIntProperty(NORMALIZATION_CACHE_SIZE, DEFAULT_NORMALIZATION_CACHE_SIZE);
         String[] jdbcSupport = getProperty(JDBC_SUPPORT, DEFAULT_JDBC_SUPPORT).split(",");
         this.jdbcSupport = new HashSet<>(Arrays.asList(jdbcSupport));
         genericJdbcSupportEnabled = this.jdbcSupport.contains(GENERIC_JDBC_SUPPORT);
@@ -338,6 +357,7 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         circuitBreakerConfig = initCircuitBreakerConfig();
         segmentTimeoutInSec = initSegmentTimeout();
         tokenTimeoutInSec = initTokenTimeout();
+        tokenTimingWheel = getProperty(TOKEN_TIMING_WHEEL, DEFAULT_TOKEN_TIMING_WHEEL);
         openTracingConfig = initOpenTracingConfig();
         distributedTracingConfig = initDistributedTracing();
         spanEventsConfig = initSpanEventsConfig(distributedTracingConfig.isEnabled());
@@ -859,6 +879,16 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         return tokenTimeoutInSec;
     }
 
+    @Override
+    public boolean isTokenTimingWheel() {
+        return tokenTimingWheel;
+    }
+
+    @Override
+    public int getNormalizationCacheSize() {
+        return normalizationCacheSize;
+    }
+
     @Override
     public int waitForTransactionsInMillis() {
         return waitForTransactionsInMillis;
@@ -1012,6 +1042,16 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         return getIntProperty(LOG_LIMIT, DEFAULT_LOG_LIMIT);
     }
 
+    @Override
+    public boolean isLogAsync() {
+        return getProperty(LOG_ASYNC, DEFAULT_LOG_ASYNC);
+    }
+
+    @Override
+    public int getLogAsyncBufferSize() {
+        return getIntProperty(LOG_ASYNC_BUFFER_SIZE, DEFAULT_LOG_ASYNC_BUFFER_SIZE);
+    }
+
     @Override
     public TransactionTracerConfig getTransactionTracerConfig() {
         return transactionTracerConfig;
@@ -1170,6 +1210,16 @@ public class AgentConfigImpl extends BaseConfig implements AgentConfig {
         return putForDataSend;
     }
 
+    @Override
+    public boolean isStreamingPayloads() {
+        return streamingPayloads;
+    }
+
+    @Override
+    public boolean isShardedStats() {
+        return shardedStats;
+    }
+
     @Override
     public boolean getIbmWorkaroundEnabled() {
         return this.ibmWorkaroundEnabled;
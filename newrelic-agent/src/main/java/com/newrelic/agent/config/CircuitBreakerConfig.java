@@ -22,6 +22,8 @@ public class CircuitBreakerConfig extends BaseConfig {
     public static final int DEFAULT_MEMORY_THRESHOLD = 20;
     public static final String GC_CPU_THRESHOLD = "gc_cpu_threshold";
     public static final int DEFAULT_GC_CPU_THRESHOLD = 10;
+    public static final String GRADED = "graded";
+    public static final Boolean DEFAULT_GRADED = Boolean.FALSE;
 
     public static final String PROPERTY_NAME = "circuitbreaker";
     public static final String PROPERTY_ROOT = "newrelic.config." + PROPERTY_NAME + ".";
@@ -29,12 +31,14 @@ public class CircuitBreakerConfig extends BaseConfig {
     private boolean isEnabled;
     private int memoryThreshold;
     private int gcCpuThreshold;
+    private boolean isGraded;
 
     public CircuitBreakerConfig(Map<String, Object> pProps) {
         super(pProps, PROPERTY_ROOT);
         isEnabled = getProperty(ENABLED, DEFAULT_ENABLED);
         memoryThreshold = getProperty(MEMORY_THRESHOLD, DEFAULT_MEMORY_THRESHOLD);
         gcCpuThreshold = getProperty(GC_CPU_THRESHOLD, DEFAULT_GC_CPU_THRESHOLD);
+        isGraded = getProperty(GRADED, DEFAULT_GRADED);
     }
 
     public boolean isEnabled() {
@@ -49,6 +53,13 @@ public class CircuitBreakerConfig extends BaseConfig {
         return gcCpuThreshold;
     }
 
+    /**
+     * @return true if the breaker degrades the agent in steps on GC notifications, false if it trips on sampled tracers
+     */
+    public boolean isGraded() {
+        return isGraded;
+    }
+
     public boolean updateThresholds(int newGCCpuThreshold, int newMemoryThreshold) {
         if (newGCCpuThreshold >= 0 && newMemoryThreshold >= 0) {
             gcCpuThreshold = newGCCpuThreshold;
@@ -58,6 +69,14 @@ public class CircuitBreakerConfig extends BaseConfig {
         return false;
     }
 
+    public boolean updateGraded(boolean newGraded) {
+        if (isGraded != newGraded) {
+            isGraded = newGraded;
+            return true;
+        }
+        return false;
+    }
+
     public boolean updateEnabled(boolean newEnabled) {
         if (isEnabled != newEnabled) {
             isEnabled = newEnabled;
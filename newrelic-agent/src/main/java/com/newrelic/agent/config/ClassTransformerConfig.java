@@ -84,6 +84,18 @@ public interface ClassTransformerConfig extends Config {
      */
     boolean preMatchWeaveMethods();
 
+    /**
+     * Returns the directory where the agent remembers which classes the weaver left unchanged, so they can skip weave
+     * matching on later starts. The cache is disabled when this is not set.
+     *
+     * The cache is discarded when the agent version, JVM version, agent configuration or weave extensions change. It
+     * assumes that a class whose bytes and location did not change is still not woven, so it should be cleared when a
+     * library is upgraded in a way that changes the hierarchy of classes that were not otherwise modified.
+     *
+     * @return the unwoven class cache directory, or null if the cache is disabled
+     */
+    String getUnwovenClassCacheDir();
+
     /**
      * True means the agent should instrument {@link ClassLoader#checkPackageAccess} to bypass the call to
      * {@link SecurityManager#checkPackageAccess} for weaved classes.
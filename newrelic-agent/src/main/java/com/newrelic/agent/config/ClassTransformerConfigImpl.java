@@ -45,6 +45,7 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     public static final String COMPUTE_FRAMES = "compute_frames";
     public static final String SHUTDOWN_DELAY = "shutdown_delay";
     public static final String GRANT_PACKAGE_ACCESS = "grant_package_access";
+    public static final String UNWOVEN_CLASS_CACHE_DIR = "unwoven_class_cache_dir";
     public static final boolean DEFAULT_COMPUTE_FRAMES = true;
     public static final boolean DEFAULT_ENABLED = true;
     public static final boolean DEFAULT_DISABLED = false;
@@ -90,6 +91,7 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
     private final int maxPreValidatedClassLoaders;
     private final boolean preValidateWeavePackages;
     private final boolean preMatchWeaveMethods;
+    private final String unwovenClassCacheDir;
 
     private final AnnotationMatcher ignoreTransactionAnnotationMatcher;
     private final AnnotationMatcher ignoreApdexAnnotationMatcher;
@@ -116,6 +118,7 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
         maxPreValidatedClassLoaders = getProperty(MAX_PREVALIDATED_CLASSLOADERS, DEFAULT_MAX_PREVALIDATED_CLASSLOADERS);
         preValidateWeavePackages = getProperty(PREVALIDATE_WEAVE_PACKAGES, DEFAULT_PREVALIDATE_WEAVE_PACKAGES);
         preMatchWeaveMethods = getProperty(PREMATCH_WEAVE_METHODS, DEFAULT_PREMATCH_WEAVE_METHODS);
+        unwovenClassCacheDir = getProperty(UNWOVEN_CLASS_CACHE_DIR);
         defaultMethodTracingEnabled = getProperty("default_method_tracing_enabled", true);
 
         this.traceAnnotationMatcher = customTracingEnabled ? initializeTraceAnnotationMatcher(props) : new NoMatchAnnotationMatcher();
@@ -304,6 +307,11 @@ final class ClassTransformerConfigImpl extends BaseConfig implements ClassTransf
         return preMatchWeaveMethods;
     }
 
+    @Override
+    public String getUnwovenClassCacheDir() {
+        return unwovenClassCacheDir;
+    }
+
     public static final String JDBC_STATEMENTS_PROPERTY = "jdbc_statements";
 
     @Override
@@ -59,6 +59,14 @@ public interface DataSenderConfig {
      */
     boolean isPutForDataSend();
 
+    /**
+     * If this is enabled, payloads are serialized and compressed directly into a reusable buffer that is handed to the
+     * http client as is. Serialization stops as soon as the payload grows past max_payload_size_in_bytes.
+     *
+     * @return true if payloads should be streamed into pooled buffers, false (default) otherwise
+     */
+    boolean isStreamingPayloads();
+
     AuditModeConfig getAuditModeConfig();
 
     /**
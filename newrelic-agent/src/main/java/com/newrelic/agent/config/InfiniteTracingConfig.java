@@ -18,6 +18,10 @@ public interface InfiniteTracingConfig {
 
     boolean getUsePlaintext();
 
+    boolean getUseBatching();
+
+    int getSpanEventsBatchSize();
+
     boolean isEnabled();
 
 }
@@ -21,6 +21,8 @@ public class InfiniteTracingConfigImpl extends BaseConfig implements InfiniteTra
     public static final String FLAKY_PERCENTAGE = "_flakyPercentage";
     public static final String USE_PLAINTEXT = "plaintext";
     public static final boolean DEFAULT_USE_PLAINTEXT = false;
+    public static final String USE_BATCHING = "batching";
+    public static final boolean DEFAULT_USE_BATCHING = false;
 
     static final String SYSTEM_PROPERTY_ROOT = AgentConfigImpl.SYSTEM_PROPERTY_ROOT + ROOT + ".";
 
@@ -77,6 +79,16 @@ public class InfiniteTracingConfigImpl extends BaseConfig implements InfiniteTra
         return getProperty(USE_PLAINTEXT, DEFAULT_USE_PLAINTEXT);
     }
 
+    @Override
+    public boolean getUseBatching() {
+        return getProperty(USE_BATCHING, DEFAULT_USE_BATCHING);
+    }
+
+    @Override
+    public int getSpanEventsBatchSize() {
+        return spanEventsConfig.getBatchSize();
+    }
+
     @Override
     public boolean isEnabled() {
         if (!getTraceObserverHost().isEmpty() && autoAppNamingEnabled) {
@@ -13,17 +13,25 @@ public class InfiniteTracingSpanEventsConfig extends BaseConfig {
 
     public static final String ROOT = "span_events";
     public static final String QUEUE_SIZE = "queue_size";
+    public static final String BATCH_SIZE = "batch_size";
 
     public static final int DEFAULT_SPAN_EVENTS_QUEUE_SIZE = 100000;
+    public static final int DEFAULT_SPAN_EVENTS_BATCH_SIZE = 100;
 
     private final int queue_size;
+    private final int batch_size;
 
     public InfiniteTracingSpanEventsConfig(Map<String, Object> props, String parentRoot) {
         super(props, parentRoot + ROOT + ".");
         queue_size = getIntProperty(QUEUE_SIZE, DEFAULT_SPAN_EVENTS_QUEUE_SIZE);
+        batch_size = getIntProperty(BATCH_SIZE, DEFAULT_SPAN_EVENTS_BATCH_SIZE);
     }
 
     public int getQueueSize() {
         return queue_size;
     }
+
+    public int getBatchSize() {
+        return batch_size;
+    }
 }
@@ -14,4 +14,10 @@ public interface ThreadProfilerConfig {
      */
     boolean isEnabled();
 
+    /**
+     * @return true if sampled stack frames are interned into an id table and stacks are stored as arrays of frame ids
+     * until the profile is reported.
+     */
+    boolean isInternFrames();
+
 }
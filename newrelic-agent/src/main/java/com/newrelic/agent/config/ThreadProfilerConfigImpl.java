@@ -14,13 +14,17 @@ final class ThreadProfilerConfigImpl extends BaseConfig implements ThreadProfile
 
     public static final String ENABLED = "enabled";
     public static final boolean DEFAULT_ENABLED = true;
+    public static final String INTERN_FRAMES = "intern_frames";
+    public static final boolean DEFAULT_INTERN_FRAMES = false;
     public static final String SYSTEM_PROPERTY_ROOT = "newrelic.config.thread_profiler.";
 
     private final boolean isEnabled;
+    private final boolean internFrames;
 
     private ThreadProfilerConfigImpl(Map<String, Object> props) {
         super(props, SYSTEM_PROPERTY_ROOT);
         isEnabled = getProperty(ENABLED, DEFAULT_ENABLED);
+        internFrames = getProperty(INTERN_FRAMES, DEFAULT_INTERN_FRAMES);
     }
 
     @Override
@@ -28,6 +32,11 @@ final class ThreadProfilerConfigImpl extends BaseConfig implements ThreadProfile
         return isEnabled;
     }
 
+    @Override
+    public boolean isInternFrames() {
+        return internFrames;
+    }
+
     static ThreadProfilerConfig createThreadProfilerConfig(Map<String, Object> settings) {
         if (settings == null) {
             settings = Collections.emptyMap();
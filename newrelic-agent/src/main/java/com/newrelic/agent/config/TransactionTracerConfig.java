@@ -24,6 +24,14 @@ public interface TransactionTracerConfig {
      */
     String getRecordSql();
 
+    /**
+     * The implementation used when SQL is obfuscated.
+     *
+     * @return either "regex", for the regular expression obfuscator; or "lexer", for the single pass tokenizer. Both
+     * produce the same output.
+     */
+    String getSqlObfuscator();
+
     /**
      * The set of modules that are allowed to send up obfuscated slow query information when high_security
      * mode is enabled. If high_security mode is disabled this setting is ignored.
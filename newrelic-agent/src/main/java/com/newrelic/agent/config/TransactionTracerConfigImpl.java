@@ -40,6 +40,7 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
     public static final String RECORD_SQL = "record_sql";
     @Deprecated
     public static final String SLOW_QUERY_WHITELIST = "slow_query_whitelist";
+    public static final String SQL_OBFUSCATOR = "sql_obfuscator";
     public static final String COLLECT_SLOW_QUERIES_FROM = "collect_slow_queries_from";
     public static final String SEGMENT_LIMIT = "segment_limit";
     public static final String STACK_TRACE_THRESHOLD = "stack_trace_threshold";
@@ -56,6 +57,7 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
     public static final int DEFAULT_MAX_EXPLAIN_PLANS = 20;
     public static final int DEFAULT_MAX_STACK_TRACE = 20;
     public static final String DEFAULT_RECORD_SQL = SqlObfuscator.OBFUSCATED_SETTING;
+    public static final String DEFAULT_SQL_OBFUSCATOR = SqlObfuscator.REGEX_OBFUSCATOR_SETTING;
     public static final int DEFAULT_SEGMENT_LIMIT = 3000;
     public static final double DEFAULT_STACK_TRACE_THRESHOLD = 0.5d; // seconds
     public static final String DEFAULT_TRANSACTION_THRESHOLD = APDEX_F;
@@ -70,6 +72,7 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
     private final boolean isExplainEnabled;
     private final boolean isLogSql;
     private final String recordSql;
+    private final String sqlObfuscator;
     private final Set<String> collectSlowQueriesFromModules;
     private final double explainThreshold;
     private final double explainThresholdInNanos;
@@ -94,6 +97,7 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
         isLogSql = getProperty(LOG_SQL, DEFAULT_LOG_SQL);
         // recordSql must be off or obfuscated if high security is true
         recordSql = initRecordSql(highSecurity).intern(); // some code does an identity equals (==) on this value
+        sqlObfuscator = getProperty(SQL_OBFUSCATOR, DEFAULT_SQL_OBFUSCATOR);
         isExplainEnabled = initExplainEnabled(RecordSql.get(recordSql));
         collectSlowQueriesFromModules = initCollectSlowQueriesFrom(highSecurity);
         explainThreshold = getDoubleProperty(EXPLAIN_THRESHOLD, DEFAULT_EXPLAIN_THRESHOLD) * 1000;
@@ -256,6 +260,11 @@ public final class TransactionTracerConfigImpl extends BaseConfig implements Tra
         return recordSql;
     }
 
+    @Override
+    public String getSqlObfuscator() {
+        return sqlObfuscator;
+    }
+
     @Override
     public Set<String> getCollectSlowQueriesFromModules() {
         return collectSlowQueriesFromModules;
@@ -140,6 +140,8 @@ public class CoreServiceImpl extends AbstractService implements CoreService {
         getLogger().info("JVM is shutting down");
         shutdown();
         getLogger().fine("Agent JVM shutdown hook: done.");
+        // the log writer is a daemon thread, so messages still waiting for it would be lost
+        AgentLogManager.stopAsyncLogging();
     }
 
     private synchronized void shutdown() {
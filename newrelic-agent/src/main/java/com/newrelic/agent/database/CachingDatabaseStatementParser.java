@@ -8,43 +8,39 @@
 package com.newrelic.agent.database;
 
 import java.sql.ResultSetMetaData;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.Set;
 import java.util.logging.Level;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableSet;
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.bridge.datastore.DatabaseVendor;
 
 /**
- * Cache a limited number of parsed database statements. <br>
+ * Cache a limited number of parsed database statements by their shape: the statement with the string and number
+ * literals in its values replaced by "?". Statements built at runtime that only differ in their values share an entry.
+ * The shape is only the cache key, the statement itself is parsed on a miss. <br>
  * This class is thread safe.
  */
 public class CachingDatabaseStatementParser implements DatabaseStatementParser {
 
-    // This class is thread safe post-v3.5.1 of the Agent. See JAVA-651.
+    private static final int MAX_CACHED_STATEMENTS = 1000;
+    private static final String VALUE_PREFIX_CHARS = "=<>!(,+-*/%|";
+    private static final Set<String> VALUE_KEYWORDS = ImmutableSet.of("and", "or", "not", "like", "in", "between",
+            "when", "then", "else", "is", "values", "limit", "offset");
 
     private final DatabaseStatementParser databaseStatementParser;
-    private volatile Cache<String, ParsedDatabaseStatement> statements;
+    private final Cache<String, ParsedDatabaseStatement> statements = CacheBuilder.newBuilder()
+            .maximumSize(MAX_CACHED_STATEMENTS)
+            .recordStats()
+            .build();
 
     public CachingDatabaseStatementParser(DatabaseStatementParser databaseStatementParser) {
         this.databaseStatementParser = databaseStatementParser;
     }
 
-    private Cache<String, ParsedDatabaseStatement> getOrCreateCache() {
-        // The infamous double-check locking pattern, which works correctly post-Java-1.5
-        // so long as the shared instance variable ("statements") is declared volatile.
-        if (null == statements) {
-            synchronized (this) {
-                if (null == statements) {
-                    statements = CacheBuilder.newBuilder().maximumSize(1000).weakKeys().build();
-                }
-            }
-        }
-        return statements;
-    }
-
     /**
      * Get parsed SQL, with caching.
      * 
@@ -53,33 +49,165 @@ public class CachingDatabaseStatementParser implements DatabaseStatementParser {
     @Override
     public ParsedDatabaseStatement getParsedDatabaseStatement(final DatabaseVendor databaseVendor, final String statement,
             final ResultSetMetaData resultSetMetaData) {
-
-        Throwable toLog = null;
+        if (statement == null) {
+            Agent.LOG.log(Level.FINE, "Returning UNPARSEABLE_STATEMENT due to null statement for {0}", resultSetMetaData);
+            return UNPARSEABLE_STATEMENT;
+        }
 
         try {
-            if (statement == null) {
-                Agent.LOG.log(Level.FINE, "Returning UNPARSEABLE_STATEMENT due to null statement for {0}", resultSetMetaData);
-                return UNPARSEABLE_STATEMENT;
-            }
-
-            return getOrCreateCache().get(statement, new Callable<ParsedDatabaseStatement>() {
-                @Override
-                public ParsedDatabaseStatement call() throws Exception {
-                    return databaseStatementParser.getParsedDatabaseStatement(databaseVendor, statement, resultSetMetaData);
-                }
-            });
-        } catch (ExecutionException ee) {
-            toLog = ee;
-            if (ee.getCause() != null) {
-                toLog = ee.getCause();
+            String shape = getStatementShape(statement);
+            ParsedDatabaseStatement parsedStatement = statements.getIfPresent(shape);
+            if (parsedStatement == null) {
+                parsedStatement = databaseStatementParser.getParsedDatabaseStatement(databaseVendor, statement,
+                        resultSetMetaData);
+                statements.put(shape, parsedStatement);
             }
+            return parsedStatement;
         } catch (Exception ex) {
-            toLog = ex;
+            Agent.LOG.log(Level.FINEST, "In cache.get() or its loader:", ex);
         }
 
-        Agent.LOG.log(Level.FINEST, "In cache.get() or its loader:", toLog);
         Agent.LOG.log(Level.FINE, "Returning UNPARSEABLE_STATEMENT for {0}", resultSetMetaData);
         return UNPARSEABLE_STATEMENT;
     }
 
+    /**
+     * The hits and misses of the statement cache since it was created.
+     */
+    public CacheStats getCacheStats() {
+        return statements.stats();
+    }
+
+    /**
+     * Replace the values of a select, insert, update, delete or with statement with "?": the numbers, and the single
+     * quoted strings that follow an operator, a bracket, a comma or a keyword such as "and" or "like". A single quoted
+     * string anywhere else can be a quoted name, which the parser uses as the model. The models of the other
+     * statements can include their values, so they are their own shape, as is a statement with a backslash escaped
+     * quote, since there is no telling where its strings end. Comments are kept since they can hold a parser hint.
+     * Returns the statement itself if it has no values to replace.
+     */
+    static String getStatementShape(String statement) {
+        int length = statement.length();
+        if (!hasValueOperation(statement, length)) {
+            return statement;
+        }
+        StringBuilder shape = null;
+        int copyFrom = 0;
+        int i = 0;
+        while (i < length) {
+            char c = statement.charAt(i);
+            int end = -1;
+            if (c == '\'') {
+                end = scanString(statement, i, length);
+                if (end < 0) {
+                    return statement;
+                }
+                if (!isValuePosition(statement, i)) {
+                    i = end;
+                    continue;
+                }
+            } else if (c >= '0' && c <= '9' && (i == 0 || !isWordChar(statement.charAt(i - 1)))) {
+                end = scanNumber(statement, i, length);
+            }
+            if (end < 0) {
+                i++;
+                continue;
+            }
+            if (shape == null) {
+                shape = new StringBuilder(length);
+            }
+            shape.append(statement, copyFrom, i).append('?');
+            i = end;
+            copyFrom = end;
+        }
+        if (shape == null) {
+            return statement;
+        }
+        return shape.append(statement, copyFrom, length).toString();
+    }
+
+    /**
+     * The statements whose models are names, never values. Comments before the operation are left to the parser.
+     */
+    private static boolean hasValueOperation(String statement, int length) {
+        int start = 0;
+        while (start < length && Character.isWhitespace(statement.charAt(start))) {
+            start++;
+        }
+        return statement.regionMatches(true, start, "select", 0, 6) || statement.regionMatches(true, start, "insert", 0, 6)
+                || statement.regionMatches(true, start, "update", 0, 6) || statement.regionMatches(true, start, "delete", 0, 6)
+                || statement.regionMatches(true, start, "with", 0, 4);
+    }
+
+    /**
+     * A string is a value if it follows an operator, a bracket or a comma, or a keyword that is followed by a value.
+     */
+    private static boolean isValuePosition(String statement, int index) {
+        int end = index;
+        while (end > 0 && Character.isWhitespace(statement.charAt(end - 1))) {
+            end--;
+        }
+        if (end == 0) {
+            return false;
+        }
+        char c = statement.charAt(end - 1);
+        if (VALUE_PREFIX_CHARS.indexOf(c) >= 0) {
+            return true;
+        }
+        int start = end;
+        while (start > 0 && Character.isLetter(statement.charAt(start - 1))) {
+            start--;
+        }
+        return start < end && VALUE_KEYWORDS.contains(statement.substring(start, end).toLowerCase());
+    }
+
+    /**
+     * A string where a doubled quote is an escaped quote. A backslash escaped quote means there is no telling where the
+     * string ends, so -1 is returned. A string with no closing quote runs to the end of the statement.
+     */
+    private static int scanString(String statement, int start, int length) {
+        int i = start + 1;
+        while (i < length) {
+            char c = statement.charAt(i);
+            if (c == '\\' && i + 1 < length && statement.charAt(i + 1) == '\'') {
+                return -1;
+            }
+            if (c == '\'') {
+                if (i + 1 < length && statement.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return length;
+    }
+
+    /**
+     * Digits with an optional fraction. Digits that run into a word, like the start of 2fa, are not a number.
+     */
+    private static int scanNumber(String statement, int start, int length) {
+        int i = skipDigits(statement, start, length);
+        if (i + 1 < length && statement.charAt(i) == '.' && isDigit(statement.charAt(i + 1))) {
+            i = skipDigits(statement, i + 1, length);
+        }
+        return i < length && isWordChar(statement.charAt(i)) ? -1 : i;
+    }
+
+    private static int skipDigits(String statement, int i, int length) {
+        while (i < length && isDigit(statement.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || c == '$' || c == '@' || c == '#' || c == '.' || Character.isLetterOrDigit(c);
+    }
+
 }
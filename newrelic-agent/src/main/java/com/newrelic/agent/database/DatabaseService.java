@@ -7,7 +7,10 @@
 
 package com.newrelic.agent.database;
 
+import com.google.common.cache.CacheStats;
 import com.newrelic.agent.Agent;
+import com.newrelic.agent.HarvestListener;
+import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.bridge.datastore.ConnectionFactory;
 import com.newrelic.agent.bridge.datastore.DatabaseVendor;
 import com.newrelic.agent.config.AgentConfig;
@@ -15,39 +18,57 @@ import com.newrelic.agent.config.AgentConfigListener;
 import com.newrelic.agent.config.TransactionTracerConfig;
 import com.newrelic.agent.service.AbstractService;
 import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsEngine;
 import com.newrelic.agent.tracers.SqlTracer;
 
-import java.sql.Connection;
 import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.logging.Level;
 
-public class DatabaseService extends AbstractService implements AgentConfigListener {
+public class DatabaseService extends AbstractService implements AgentConfigListener, HarvestListener {
 
     private static final SqlObfuscator DEFAULT_SQL_OBFUSCATOR = SqlObfuscator.getDefaultSqlObfuscator();
+    private static final int DEFAULT_EXPLAIN_PLAN_QUEUE_SIZE = 16;
+    private static final int DEFAULT_EXPLAIN_PLAN_TIMEOUT_IN_MILLIS = 5000;
+    private static final int DEFAULT_EXPLAIN_PLAN_CACHE_TTL_IN_SECONDS = 600;
 
     private final ConcurrentMap<String, SqlObfuscator> sqlObfuscators = new ConcurrentHashMap<>();
     private final AtomicReference<SqlObfuscator> defaultSqlObfuscator = new AtomicReference<>();
     private final String defaultAppName;
-    private final DatabaseStatementParser databaseStatementParser;
+    private final CachingDatabaseStatementParser databaseStatementParser;
+    private final ExplainPlanWorker explainPlanWorker;
+    private CacheStats reportedParserCacheStats = new CacheStats(0, 0, 0, 0, 0, 0);
 
     public DatabaseService() {
         super(DatabaseService.class.getSimpleName());
         AgentConfig config = ServiceFactory.getConfigService().getDefaultAgentConfig();
         defaultAppName = config.getApplicationName();
-        databaseStatementParser = new DefaultDatabaseStatementParser();
+        databaseStatementParser = new CachingDatabaseStatementParser(new DefaultDatabaseStatementParser());
+        int explainPlanQueueSize = config.getValue("transaction_tracer.explain_plan_queue_size",
+                DEFAULT_EXPLAIN_PLAN_QUEUE_SIZE);
+        long explainPlanTimeoutInMillis = config.getValue("transaction_tracer.explain_plan_timeout_in_millis",
+                DEFAULT_EXPLAIN_PLAN_TIMEOUT_IN_MILLIS);
+        long explainPlanCacheTtlInSeconds = config.getValue("transaction_tracer.explain_plan_cache_ttl_in_seconds",
+                DEFAULT_EXPLAIN_PLAN_CACHE_TTL_IN_SECONDS);
+        explainPlanWorker = new ExplainPlanWorker(explainPlanQueueSize, explainPlanTimeoutInMillis,
+                explainPlanCacheTtlInSeconds);
     }
 
     @Override
     protected void doStart() {
         ServiceFactory.getConfigService().addIAgentConfigListener(this);
+        ServiceFactory.getHarvestService().addHarvestListener(this);
     }
 
     @Override
     protected void doStop() {
         ServiceFactory.getConfigService().removeIAgentConfigListener(this);
+        ServiceFactory.getHarvestService().removeHarvestListener(this);
+        explainPlanWorker.stop();
     }
 
     @Override
@@ -106,6 +127,9 @@ public class DatabaseService extends AbstractService implements AgentConfigListe
         if (SqlObfuscator.RAW_SETTING.equals(recordSql)) {
             return SqlObfuscator.getNoObfuscationSqlObfuscator();
         }
+        if (SqlObfuscator.LEXER_OBFUSCATOR_SETTING.equals(ttConfig.getSqlObfuscator())) {
+            return SqlObfuscator.getLexingSqlObfuscator();
+        }
         return SqlObfuscator.getDefaultSqlObfuscator();
     }
 
@@ -154,35 +178,52 @@ public class DatabaseService extends AbstractService implements AgentConfigListe
             return;
         }
 
-        runExplainPlan(explainExecutor, connectionFactory);
-    }
-
-    private void runExplainPlan(ExplainPlanExecutor explainExecutor, ConnectionFactory connectionFactory) {
-        Connection connection = null;
-        try {
-            connection = connectionFactory.getConnection();
-            DatabaseVendor vendor = connectionFactory.getDatabaseVendor();
-            explainExecutor.runExplainPlan(this, connection, vendor);
-        } catch (Throwable t) {
-            String msg = MessageFormat.format("An error occurred executing an explain plan: {0}", t);
-            if (Agent.LOG.isLoggable(Level.FINER)) {
-                Agent.LOG.log(Level.FINER, msg, t);
-            } else {
-                Agent.LOG.fine(msg);
-            }
-        } finally {
-            if (connection != null) {
-                try {
-                    connection.close();
-                } catch (Exception e) {
-                    Agent.LOG.log(Level.FINER, "Unable to close connection", e);
-                }
-            }
-        }
+        runExplainPlans(Collections.singletonMap(connectionFactory, Collections.singletonList(explainExecutor)));
+    }
+
+    /**
+     * Queue explain plans on the explain plan worker. The explain plans are stored on their tracers by
+     * {@link ExplainPlanWorker.Batch#await()}, which must be called by the thread that owns the tracers.
+     *
+     * @param explainPlans the explain plans to run, by the connection factory to run them on
+     */
+    public ExplainPlanWorker.Batch submitExplainPlans(Map<ConnectionFactory, List<ExplainPlanExecutor>> explainPlans) {
+        return explainPlanWorker.submit(explainPlans);
+    }
+
+    /**
+     * Run explain plans on the explain plan worker and store the ones that finish in time on their tracers.
+     */
+    public void runExplainPlans(Map<ConnectionFactory, List<ExplainPlanExecutor>> explainPlans) {
+        submitExplainPlans(explainPlans).await();
     }
 
+    /**
+     * The statement parser shared by all transactions. It caches parsed statements by their shape.
+     */
     public DatabaseStatementParser getDatabaseStatementParser() {
         return databaseStatementParser;
     }
 
+    @Override
+    public synchronized void beforeHarvest(String appName, StatsEngine statsEngine) {
+        // the statement cache is shared by all applications, so it is reported with the default application
+        if (appName != null && !appName.equals(defaultAppName)) {
+            return;
+        }
+        CacheStats cacheStats = databaseStatementParser.getCacheStats();
+        CacheStats harvestCacheStats = cacheStats.minus(reportedParserCacheStats);
+        reportedParserCacheStats = cacheStats;
+        if (harvestCacheStats.requestCount() > 0) {
+            statsEngine.getStats(MetricNames.SUPPORTABILITY_STATEMENT_PARSER_CACHE_HITS).incrementCallCount(
+                    (int) harvestCacheStats.hitCount());
+            statsEngine.getStats(MetricNames.SUPPORTABILITY_STATEMENT_PARSER_CACHE_MISSES).incrementCallCount(
+                    (int) harvestCacheStats.missCount());
+        }
+    }
+
+    @Override
+    public void afterHarvest(String appName) {
+    }
+
 }
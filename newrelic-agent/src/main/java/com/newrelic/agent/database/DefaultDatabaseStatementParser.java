@@ -7,6 +7,7 @@
 
 package com.newrelic.agent.database;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.bridge.datastore.DatabaseVendor;
 import org.apache.commons.lang3.StringUtils;
@@ -35,8 +36,18 @@ public class DefaultDatabaseStatementParser implements DatabaseStatementParser {
 
     private final Set<String> knownOperations;
     private final List<StatementFactory> statementFactories;
+    private final StatementClassifier statementClassifier;
 
     public DefaultDatabaseStatementParser() {
+        // @formatter:off
+        DefaultStatementFactory insertFactory = new DefaultStatementFactory(INSERT_OPERATION,
+                Pattern.compile("^\\s*insert(?:\\s+ignore)?(?:\\s+into)?\\s+([^\\s(,;]*).*", PATTERN_SWITCHES), true);
+        DefaultStatementFactory updateFactory = new DefaultStatementFactory("update",
+                Pattern.compile("^\\s*update\\s+([^\\s,;]*).*", PATTERN_SWITCHES), true);
+        DefaultStatementFactory deleteFactory = new DefaultStatementFactory("delete",
+                Pattern.compile("^\\s*delete\\s*?.*?\\s+from\\s+([^\\s,(;]*).*", PATTERN_SWITCHES), true);
+        // @formatter:on
+
         // the ordering of these factories is important
         statementFactories = Arrays.asList(
                 new InnerSelectStatementFactory(),
@@ -47,10 +58,9 @@ public class DefaultDatabaseStatementParser implements DatabaseStatementParser {
                     }
                 },
                 // @formatter:off
-                new DefaultStatementFactory(INSERT_OPERATION, Pattern.compile("^\\s*insert(?:\\s+ignore)?(?:\\s+into)?\\s+([^\\s(,;]*).*", PATTERN_SWITCHES),
-                        true),
-                new DefaultStatementFactory("update", Pattern.compile("^\\s*update\\s+([^\\s,;]*).*", PATTERN_SWITCHES), true),
-                new DefaultStatementFactory("delete", Pattern.compile("^\\s*delete\\s*?.*?\\s+from\\s+([^\\s,(;]*).*", PATTERN_SWITCHES), true),
+                insertFactory,
+                updateFactory,
+                deleteFactory,
                 new DefaultStatementFactory("with", Pattern.compile("^\\s*with\\s+(?:recursive\\s+)?([^\\s,(;]*)", PATTERN_SWITCHES), true),
                 new DDLStatementFactory("create", Pattern.compile("^\\s*create\\s+procedure.*", PATTERN_SWITCHES), "Procedure"),
                 new SelectVariableStatementFactory(),
@@ -68,6 +78,9 @@ public class DefaultDatabaseStatementParser implements DatabaseStatementParser {
         for (StatementFactory factory : statementFactories) {
             knownOperations.add(factory.getOperation());
         }
+
+        statementClassifier = new StatementClassifier(new DefaultStatementFactory(SELECT_OPERATION, SELECT_PATTERN, true),
+                insertFactory, updateFactory, deleteFactory);
     }
 
     @Override
@@ -101,12 +114,16 @@ public class DefaultDatabaseStatementParser implements DatabaseStatementParser {
 
     ParsedDatabaseStatement parseStatement(String statement) {
         try {
-            statement = COMMENT_PATTERN.matcher(statement).replaceAll("");
-            for (StatementFactory factory : statementFactories) {
-                ParsedDatabaseStatement parsedStatement = factory.parseStatement(statement);
-                if (parsedStatement != null) {
-                    return parsedStatement;
-                }
+            if (statement.indexOf("/*") >= 0) {
+                statement = COMMENT_PATTERN.matcher(statement).replaceAll("");
+            }
+            // most statements are plain selects, inserts, updates and deletes, which do not need the regexes
+            ParsedDatabaseStatement parsedStatement = statementClassifier.classify(statement);
+            if (parsedStatement == null) {
+                parsedStatement = parseWithFactories(statement);
+            }
+            if (parsedStatement != null) {
+                return parsedStatement;
             }
             Agent.LOG.log(Level.FINE, "Returning UNPARSEABLE_STATEMENT for statement: {0}", statement);
             return UNPARSEABLE_STATEMENT;
@@ -118,6 +135,27 @@ public class DefaultDatabaseStatementParser implements DatabaseStatementParser {
         }
     }
 
+    /**
+     * Parse a statement without comments with the statement factories only.
+     *
+     * @return the parsed statement, or null if no factory could parse it
+     */
+    @VisibleForTesting
+    ParsedDatabaseStatement parseWithFactories(String statement) {
+        for (StatementFactory factory : statementFactories) {
+            ParsedDatabaseStatement parsedStatement = factory.parseStatement(statement);
+            if (parsedStatement != null) {
+                return parsedStatement;
+            }
+        }
+        return null;
+    }
+
+    @VisibleForTesting
+    StatementClassifier getStatementClassifier() {
+        return statementClassifier;
+    }
+
     static boolean isValidName(String string) {
         return VALID_METRIC_NAME_MATCHER.matcher(string).matches();
     }
@@ -45,17 +45,30 @@ public class DefaultExplainPlanExecutor implements ExplainPlanExecutor {
     @Override
     public void runExplainPlan(DatabaseService databaseService, Connection connection, DatabaseVendor vendor)
             throws SQLException {
+        Object[] explainPlan = getExplainPlan(connection, vendor, 0);
+        if (explainPlan != null) {
+            setExplainPlan(explainPlan);
+        }
+    }
+
+    @Override
+    public String getSql() {
+        return originalSqlStatement;
+    }
+
+    @Override
+    public Object[] getExplainPlan(Connection connection, DatabaseVendor vendor, int queryTimeoutInSeconds)
+            throws SQLException {
         String sql = originalSqlStatement;
         try {
             sql = vendor.getExplainPlanSql(sql);
         } catch (SQLException e) {
-            tracer.setExplainPlan(e.getMessage());
-            return;
+            return new Object[] { e.getMessage() };
         }
 
         if (multipleStatements(sql)){
             Agent.LOG.finer("SQL string may contain multiple statements. Not running explain plan");
-            return;
+            return null;
         }
 
         Agent.LOG.finer("Running explain: " + sql);
@@ -64,6 +77,9 @@ public class DefaultExplainPlanExecutor implements ExplainPlanExecutor {
         Object[] explainPlan = null;
         try {
             statement = createStatement(connection, sql);
+            if (queryTimeoutInSeconds > 0) {
+                statement.setQueryTimeout(queryTimeoutInSeconds);
+            }
             resultSet = executeStatement(statement, sql);
             explainPlan = getExplainPlanFromResultSet(vendor, resultSet, recordSql);
         } catch (Exception e) {
@@ -84,9 +100,12 @@ public class DefaultExplainPlanExecutor implements ExplainPlanExecutor {
                 }
             }
         }
-        if (explainPlan != null) {
-            tracer.setExplainPlan(explainPlan);
-        }
+        return explainPlan;
+    }
+
+    @Override
+    public void setExplainPlan(Object[] explainPlan) {
+        tracer.setExplainPlan(explainPlan);
     }
 
     /**
@@ -49,24 +49,7 @@ class DefaultStatementFactory implements StatementFactory {
 
         Matcher matcher = pattern.matcher(statement);
         if (matcher.find()) {
-            String model = matcher.groupCount() > 0 ? matcher.group(1).trim() : "unknown";
-            if (model.length() == 0) {
-                Agent.LOG.log(Level.FINE, MessageFormat.format(
-                        "Parsed an empty model name for {0} statement : {1}", key, statement));
-                return null;
-            }
-            model = Strings.unquoteDatabaseName(model);
-            // remove brackets from metric name because they are reserved for units suffix
-            model = Strings.removeBrackets(model);
-            // if we aren't generating a metric, don't bother to validate the model name
-            if (generateMetric && !isValidModelName(model)) {
-                if (Agent.LOG.isFineEnabled()) {
-                    Agent.LOG.log(Level.FINE, "Parsed an invalid model name {0} for {1} statement : {2}", model, key, statement);
-                }
-
-                model = "ParseError";
-            }
-            return createParsedDatabaseStatement(model);
+            return parseModel(matcher.groupCount() > 0 ? matcher.group(1).trim() : "unknown", statement);
         }
         if (backupPattern != null) {
             return backupPattern.parseStatement(statement);
@@ -74,6 +57,31 @@ class DefaultStatementFactory implements StatementFactory {
         return null;
     }
 
+    /**
+     * Create the parsed statement for a model name found in the statement.
+     *
+     * @return the parsed statement, or null if the model name is empty
+     */
+    ParsedDatabaseStatement parseModel(String model, String statement) {
+        if (model.length() == 0) {
+            Agent.LOG.log(Level.FINE, MessageFormat.format(
+                    "Parsed an empty model name for {0} statement : {1}", key, statement));
+            return null;
+        }
+        model = Strings.unquoteDatabaseName(model);
+        // remove brackets from metric name because they are reserved for units suffix
+        model = Strings.removeBrackets(model);
+        // if we aren't generating a metric, don't bother to validate the model name
+        if (generateMetric && !isValidModelName(model)) {
+            if (Agent.LOG.isFineEnabled()) {
+                Agent.LOG.log(Level.FINE, "Parsed an invalid model name {0} for {1} statement : {2}", model, key, statement);
+            }
+
+            model = "ParseError";
+        }
+        return createParsedDatabaseStatement(model);
+    }
+
     protected boolean isValidModelName(String name) {
         return DefaultDatabaseStatementParser.isValidName(name);
     }
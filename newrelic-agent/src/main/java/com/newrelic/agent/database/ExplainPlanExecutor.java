@@ -16,4 +16,24 @@ public interface ExplainPlanExecutor {
 
     void runExplainPlan(DatabaseService databaseService, Connection connection, DatabaseVendor vendor)
             throws SQLException;
+
+    /**
+     * The statement to explain, before obfuscation. Used to recognize the same statement from other tracers.
+     */
+    String getSql();
+
+    /**
+     * Run the explain plan without storing it on the tracer, so it can be run away from the thread that owns the
+     * tracer. Hand the result to {@link #setExplainPlan(Object[])} on that thread.
+     *
+     * @param queryTimeoutInSeconds the query timeout of the explain statement, or 0 for no timeout
+     * @return the explain plan, or null if there is no plan for the statement
+     */
+    Object[] getExplainPlan(Connection connection, DatabaseVendor vendor, int queryTimeoutInSeconds)
+            throws SQLException;
+
+    /**
+     * Store an explain plan returned by {@link #getExplainPlan(Connection, DatabaseVendor, int)} on the tracer.
+     */
+    void setExplainPlan(Object[] explainPlan);
 }
\ No newline at end of file
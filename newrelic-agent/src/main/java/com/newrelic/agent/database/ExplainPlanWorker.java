@@ -0,0 +1,287 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.database;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.newrelic.agent.Agent;
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.bridge.datastore.ConnectionFactory;
+import com.newrelic.agent.bridge.datastore.DatabaseVendor;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsWorks;
+import com.newrelic.agent.util.DefaultThreadFactory;
+
+import java.sql.Connection;
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Runs explain plans on a single agent thread, away from the harvest that reports them. Explain plans are submitted in
+ * batches, and the harvest waits for a batch at most until its deadline. Plans finished after that are dropped.
+ *
+ * Within a batch the statements of a connection factory share one connection, which is only opened if a statement
+ * needs to be explained, and a statement is explained once no matter how many tracers ran it. Plans are cached by
+ * connection factory and obfuscated statement, so a statement that is slow every minute is not explained every minute.
+ *
+ * Explain plans are stored on the tracers by the thread that waits for the batch, never by the worker. With a timeout
+ * of 0 there is no worker thread and explain plans run on the waiting thread, without a deadline.
+ */
+public class ExplainPlanWorker {
+
+    private static final String THREAD_NAME = "New Relic Explain Plan Worker";
+    private static final int MAX_CACHED_EXPLAIN_PLANS = 1000;
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutInMillis;
+    private final Cache<ExplainPlanKey, Object[]> cache;
+
+    /**
+     * @param maxQueuedBatches the number of batches that can wait for the worker. Batches that do not fit are dropped.
+     * @param timeoutInMillis how long a harvest waits for its explain plans. This is also the query timeout of the
+     *        explain statements. 0 runs explain plans on the harvest thread.
+     * @param cacheTtlInSeconds how long an explain plan is reused, or 0 to not cache explain plans
+     */
+    public ExplainPlanWorker(int maxQueuedBatches, long timeoutInMillis, long cacheTtlInSeconds) {
+        this.timeoutInMillis = timeoutInMillis;
+        executor = timeoutInMillis > 0 ? new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(maxQueuedBatches), new DefaultThreadFactory(THREAD_NAME, true)) : null;
+        cache = cacheTtlInSeconds > 0 ? CacheBuilder.newBuilder()
+                .maximumSize(MAX_CACHED_EXPLAIN_PLANS)
+                .expireAfterWrite(cacheTtlInSeconds, TimeUnit.SECONDS)
+                .<ExplainPlanKey, Object[]>build() : null;
+    }
+
+    /**
+     * Queue the explain plans of a harvest. The plans are stored on their tracers by {@link Batch#await()}.
+     *
+     * @param explainPlans the explain plans to run, by the connection factory to run them on
+     */
+    public Batch submit(Map<ConnectionFactory, List<ExplainPlanExecutor>> explainPlans) {
+        Batch batch = new Batch(explainPlans, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMillis));
+        if (executor != null) {
+            try {
+                executor.execute(batch);
+            } catch (RejectedExecutionException e) {
+                Agent.LOG.finer("The explain plan queue is full. Dropping a batch of explain plans.");
+                batch.abandon();
+                int dropped = 0;
+                for (List<ExplainPlanExecutor> executors : explainPlans.values()) {
+                    dropped += executors.size();
+                }
+                recordDropped(dropped);
+            }
+        }
+        return batch;
+    }
+
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The explain plans of one harvest.
+     */
+    public class Batch implements Runnable {
+
+        private final Map<ConnectionFactory, List<ExplainPlanExecutor>> explainPlans;
+        private final long deadlineInNanos;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final Map<ExplainPlanExecutor, Object[]> results = new ConcurrentHashMap<>();
+        private volatile boolean abandoned;
+
+        private Batch(Map<ConnectionFactory, List<ExplainPlanExecutor>> explainPlans, long deadlineInNanos) {
+            // the worker can still be reading the map after the harvest has given up on it
+            this.explainPlans = new HashMap<>(explainPlans);
+            this.deadlineInNanos = deadlineInNanos;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // plans of the same statement in this batch, including the ones from the cache
+                Map<ExplainPlanKey, Object[]> batchPlans = new HashMap<>();
+                int cacheHits = 0;
+                for (Entry<ConnectionFactory, List<ExplainPlanExecutor>> entry : explainPlans.entrySet()) {
+                    if (isAbandoned()) {
+                        return;
+                    }
+                    cacheHits += runExplainPlans(entry.getKey(), entry.getValue(), batchPlans);
+                }
+                if (cacheHits > 0) {
+                    ServiceFactory.getStatsService().doStatsWork(
+                            StatsWorks.getIncrementCounterWork(MetricNames.SUPPORTABILITY_EXPLAIN_PLAN_CACHE_HITS, cacheHits));
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private int runExplainPlans(ConnectionFactory connectionFactory, List<ExplainPlanExecutor> executors,
+                Map<ExplainPlanKey, Object[]> batchPlans) {
+            int cacheHits = 0;
+            Connection connection = null;
+            try {
+                DatabaseVendor vendor = connectionFactory.getDatabaseVendor();
+                SqlObfuscator sqlObfuscator = SqlObfuscator.getDefaultSqlObfuscator();
+                for (ExplainPlanExecutor executor : executors) {
+                    if (isAbandoned()) {
+                        break;
+                    }
+                    String sql = executor.getSql();
+                    ExplainPlanKey key = sql == null ? null
+                            : new ExplainPlanKey(connectionFactory, sqlObfuscator.obfuscateSql(sql));
+                    Object[] explainPlan = null;
+                    if (key != null) {
+                        explainPlan = batchPlans.get(key);
+                        if (explainPlan == null && cache != null) {
+                            explainPlan = cache.getIfPresent(key);
+                            if (explainPlan != null) {
+                                cacheHits++;
+                                batchPlans.put(key, explainPlan);
+                            }
+                        }
+                    }
+                    if (explainPlan == null) {
+                        if (connection == null) {
+                            Agent.LOG.finer(MessageFormat.format("Running {0} explain plan(s)", executors.size()));
+                            connection = connectionFactory.getConnection();
+                        }
+                        explainPlan = executor.getExplainPlan(connection, vendor, getQueryTimeoutInSeconds());
+                        if (explainPlan != null && key != null) {
+                            batchPlans.put(key, explainPlan);
+                            if (cache != null) {
+                                cache.put(key, explainPlan);
+                            }
+                        }
+                    }
+                    if (explainPlan != null) {
+                        results.put(executor, explainPlan);
+                    }
+                }
+            } catch (Throwable t) {
+                String msg = MessageFormat.format("An error occurred executing an explain plan: {0}", t);
+                if (Agent.LOG.isLoggable(Level.FINER)) {
+                    Agent.LOG.log(Level.FINER, msg, t);
+                } else {
+                    Agent.LOG.fine(msg);
+                }
+            } finally {
+                if (connection != null) {
+                    try {
+                        connection.close();
+                    } catch (Exception e) {
+                        Agent.LOG.log(Level.FINER, "Unable to close connection", e);
+                    }
+                }
+            }
+            return cacheHits;
+        }
+
+        private int getQueryTimeoutInSeconds() {
+            // the timeout of a statement is in whole seconds, rounded up here because 0 means no timeout
+            return (int) ((timeoutInMillis + 999) / 1000);
+        }
+
+        private boolean isAbandoned() {
+            return abandoned || (executor != null && System.nanoTime() - deadlineInNanos > 0);
+        }
+
+        private void abandon() {
+            abandoned = true;
+            done.countDown();
+        }
+
+        /**
+         * Wait until the explain plans have run or the deadline has passed, then store the finished explain plans on
+         * their tracers. Explain plans that have not finished are dropped.
+         */
+        public void await() {
+            if (executor == null) {
+                run();
+            } else {
+                try {
+                    long remaining = deadlineInNanos - System.nanoTime();
+                    if (remaining > 0) {
+                        done.await(remaining, TimeUnit.NANOSECONDS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            abandoned = true;
+
+            int dropped = 0;
+            for (List<ExplainPlanExecutor> executors : explainPlans.values()) {
+                for (ExplainPlanExecutor executor : executors) {
+                    Object[] explainPlan = results.remove(executor);
+                    if (explainPlan != null) {
+                        executor.setExplainPlan(explainPlan);
+                    } else if (done.getCount() > 0) {
+                        dropped++;
+                    }
+                }
+            }
+            if (dropped > 0) {
+                Agent.LOG.finer(MessageFormat.format("Dropped {0} explain plan(s) that did not finish in {1} ms",
+                        dropped, timeoutInMillis));
+                recordDropped(dropped);
+            }
+        }
+    }
+
+    private static void recordDropped(int dropped) {
+        ServiceFactory.getStatsService().doStatsWork(
+                StatsWorks.getIncrementCounterWork(MetricNames.SUPPORTABILITY_EXPLAIN_PLAN_DROPPED, dropped));
+    }
+
+    /**
+     * A statement on a connection factory. Connection factories are shared by all the connections to a database, so
+     * the same statement on the same connection factory has the same explain plan.
+     */
+    private static final class ExplainPlanKey {
+
+        private final ConnectionFactory connectionFactory;
+        private final String obfuscatedSql;
+
+        ExplainPlanKey(ConnectionFactory connectionFactory, String obfuscatedSql) {
+            this.connectionFactory = connectionFactory;
+            this.obfuscatedSql = obfuscatedSql;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ExplainPlanKey)) {
+                return false;
+            }
+            ExplainPlanKey other = (ExplainPlanKey) obj;
+            return connectionFactory == other.connectionFactory && obfuscatedSql.equals(other.obfuscatedSql);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(connectionFactory) + obfuscatedSql.hashCode();
+        }
+    }
+
+}
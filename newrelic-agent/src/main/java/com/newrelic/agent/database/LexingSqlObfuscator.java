@@ -0,0 +1,446 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.database;
+
+/**
+ * Obfuscates sql by scanning it once, character by character, instead of running the alternation regexes of
+ * {@link SqlObfuscator.DefaultSqlObfuscator}. It replaces exactly what those regexes replace: at each position the
+ * literal kinds are tried in the same order and the first one that matches is replaced with "?". Like the regex
+ * obfuscator, "?" is returned for the whole statement if a quote or comment delimiter is left over afterwards.
+ *
+ * Each literal scanner is a simple loop, so the cost is linear in the length of the statement (UUID candidates look
+ * ahead at most 32 hex digits).
+ */
+final class LexingSqlObfuscator extends SqlObfuscator {
+
+    private static final int UUID_DIGITS = 32;
+
+    /**
+     * The literal kinds each dialect obfuscates, and the delimiters that mean obfuscation failed. Single quotes,
+     * comments and numbers are handled for every dialect.
+     */
+    private enum Dialect {
+        ALL(true, true, true, true, true, true, true, DollarCheck.ANY),
+        MYSQL(true, false, false, false, true, true, true, DollarCheck.NONE),
+        POSTGRES(false, true, false, true, false, true, false, DollarCheck.NOT_PLACEHOLDER),
+        ORACLE(false, false, true, false, false, false, false, DollarCheck.NONE);
+
+        final boolean doubleQuotes;
+        final boolean dollarQuotes;
+        final boolean oracleQuotes;
+        final boolean uuids;
+        final boolean hex;
+        final boolean booleans;
+        final boolean unmatchedDoubleQuote;
+        final DollarCheck unmatchedDollar;
+
+        Dialect(boolean doubleQuotes, boolean dollarQuotes, boolean oracleQuotes, boolean uuids, boolean hex,
+                boolean booleans, boolean unmatchedDoubleQuote, DollarCheck unmatchedDollar) {
+            this.doubleQuotes = doubleQuotes;
+            this.dollarQuotes = dollarQuotes;
+            this.oracleQuotes = oracleQuotes;
+            this.uuids = uuids;
+            this.hex = hex;
+            this.booleans = booleans;
+            this.unmatchedDoubleQuote = unmatchedDoubleQuote;
+            this.unmatchedDollar = unmatchedDollar;
+        }
+
+        static Dialect forName(String dialect) {
+            if ("mysql".equals(dialect)) {
+                return MYSQL;
+            } else if ("postgresql".equals(dialect) || "postgres".equals(dialect)) {
+                return POSTGRES;
+            } else if ("oracle".equals(dialect)) {
+                return ORACLE;
+            }
+            return ALL;
+        }
+    }
+
+    private enum DollarCheck {
+        NONE,
+        ANY,
+        /**
+         * A "$" left in the output is fine if it is followed by "?", which is what $1 style parameters become.
+         */
+        NOT_PLACEHOLDER
+    }
+
+    @Override
+    public String obfuscateSql(String sql) {
+        return obfuscate(sql, Dialect.ALL);
+    }
+
+    @Override
+    public String obfuscateSql(String sql, String dialect) {
+        return obfuscate(sql, Dialect.forName(dialect));
+    }
+
+    @Override
+    public boolean isObfuscating() {
+        return true;
+    }
+
+    private static String obfuscate(String sql, Dialect dialect) {
+        if (sql == null || sql.length() == 0) {
+            return sql;
+        }
+        int length = sql.length();
+        StringBuilder obfuscated = null;
+        int copyFrom = 0;
+        int i = 0;
+        while (i < length) {
+            int end = matchLiteral(sql, i, length, dialect);
+            if (end < 0) {
+                i++;
+                continue;
+            }
+            if (obfuscated == null) {
+                obfuscated = new StringBuilder(length);
+            }
+            obfuscated.append(sql, copyFrom, i).append('?');
+            i = end;
+            copyFrom = end;
+        }
+
+        String result;
+        if (obfuscated == null) {
+            result = sql;
+        } else {
+            obfuscated.append(sql, copyFrom, length);
+            result = obfuscated.toString();
+        }
+        return hasUnmatchedDelimiter(result, dialect) ? "?" : result;
+    }
+
+    /**
+     * @return the end (exclusive) of the literal starting at {@code start}, or -1 if no literal starts there
+     */
+    private static int matchLiteral(String sql, int start, int length, Dialect dialect) {
+        char c = sql.charAt(start);
+        switch (c) {
+            case '\'':
+                return scanQuoted(sql, start, length, '\'');
+            case '"':
+                return dialect.doubleQuotes ? scanQuoted(sql, start, length, '"') : -1;
+            case '$':
+                return dialect.dollarQuotes ? scanDollarQuoted(sql, start, length) : -1;
+            case 'q':
+            case 'Q':
+                return dialect.oracleQuotes ? scanOracleQuoted(sql, start, length) : -1;
+            case '#':
+                return scanToEndOfLine(sql, start + 1, length);
+            case '-':
+                if (start + 1 < length && sql.charAt(start + 1) == '-') {
+                    return scanToEndOfLine(sql, start + 2, length);
+                }
+                return scanNumber(sql, start, length);
+            case '/':
+                if (start + 1 < length && sql.charAt(start + 1) == '*') {
+                    return scanMultilineComment(sql, start, length);
+                }
+                return -1;
+            case '{':
+                return dialect.uuids ? scanUuid(sql, start, length) : -1;
+            default:
+                int end;
+                if (dialect.uuids && isHexDigit(c) && (end = scanUuid(sql, start, length)) >= 0) {
+                    return end;
+                }
+                if (dialect.hex && c == '0' && (end = scanHex(sql, start, length)) >= 0) {
+                    return end;
+                }
+                if (dialect.booleans && (end = scanBoolean(sql, start, length)) >= 0) {
+                    return end;
+                }
+                return scanNumber(sql, start, length);
+        }
+    }
+
+    /**
+     * A quoted string, where a doubled quote is an escaped quote. A backslash escaped quote obfuscates the rest of the
+     * statement, since there is no telling where the string ends.
+     */
+    private static int scanQuoted(String sql, int start, int length, char quote) {
+        int i = start + 1;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\\' && i + 1 < length && sql.charAt(i + 1) == quote) {
+                return length;
+            }
+            if (c == quote) {
+                if (i + 1 < length && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * A postgres dollar quoted string such as $$text$$ or $tag$text$tag$. An unterminated one runs to the end.
+     */
+    private static int scanDollarQuoted(String sql, int start, int length) {
+        if (start + 1 < length && isDigit(sql.charAt(start + 1))) {
+            return -1;
+        }
+        int tagEnd = sql.indexOf('$', start + 1);
+        if (tagEnd < 0) {
+            return -1;
+        }
+        int tagLength = tagEnd + 1 - start;
+        for (int i = tagEnd + 1; i <= length; i++) {
+            if (sql.regionMatches(true, i, sql, start, tagLength)) {
+                return i + tagLength;
+            }
+            if (isEndOfInput(sql, i, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * An oracle alternative quoted string such as q'[text]'. An unterminated one runs to the end.
+     */
+    private static int scanOracleQuoted(String sql, int start, int length) {
+        if (start + 2 >= length || sql.charAt(start + 1) != '\'') {
+            return -1;
+        }
+        char close;
+        switch (sql.charAt(start + 2)) {
+            case '[':
+                close = ']';
+                break;
+            case '{':
+                close = '}';
+                break;
+            case '<':
+                close = '>';
+                break;
+            case '(':
+                close = ')';
+                break;
+            default:
+                return -1;
+        }
+        for (int i = start + 3; i <= length; i++) {
+            if (i + 1 < length && sql.charAt(i) == close && sql.charAt(i + 1) == '\'') {
+                return i + 2;
+            }
+            if (isEndOfInput(sql, i, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A # or -- comment, up to but not including the line break.
+     */
+    private static int scanToEndOfLine(String sql, int from, int length) {
+        for (int i = from; i < length; i++) {
+            char c = sql.charAt(i);
+            if (c == '\r' || c == '\n') {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * A /* comment. A nested opening delimiter obfuscates the rest of the statement.
+     */
+    private static int scanMultilineComment(String sql, int start, int length) {
+        int i = start + 2;
+        while (i < length) {
+            char c = sql.charAt(i);
+            boolean hasNext = i + 1 < length;
+            if (c == '*' && hasNext && sql.charAt(i + 1) == '/') {
+                return i + 2;
+            }
+            if (c == '/') {
+                if (!hasNext) {
+                    return -1;
+                }
+                if (sql.charAt(i + 1) == '*') {
+                    return length;
+                }
+                // a slash is consumed together with the character after it
+                i += 2;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 32 hex digits, optionally separated by dashes and wrapped in braces.
+     */
+    private static int scanUuid(String sql, int start, int length) {
+        int i = start;
+        if (sql.charAt(i) == '{') {
+            i++;
+        }
+        for (int digits = 0; digits < UUID_DIGITS; digits++) {
+            if (i >= length || !isHexDigit(sql.charAt(i))) {
+                return -1;
+            }
+            i++;
+            while (i < length && sql.charAt(i) == '-') {
+                i++;
+            }
+        }
+        if (i < length && sql.charAt(i) == '}') {
+            i++;
+        }
+        return i;
+    }
+
+    private static int scanHex(String sql, int start, int length) {
+        if (start + 2 >= length || Character.toLowerCase(sql.charAt(start + 1)) != 'x' || !isHexDigit(sql.charAt(start + 2))) {
+            return -1;
+        }
+        int i = start + 3;
+        while (i < length && isHexDigit(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int scanBoolean(String sql, int start, int length) {
+        if (!isWordBoundary(sql, start)) {
+            return -1;
+        }
+        int end = matchKeyword(sql, start, length, "true");
+        if (end < 0) {
+            end = matchKeyword(sql, start, length, "false");
+        }
+        if (end < 0) {
+            end = matchKeyword(sql, start, length, "null");
+        }
+        return end;
+    }
+
+    private static int matchKeyword(String sql, int start, int length, String keyword) {
+        int end = start + keyword.length();
+        if (end <= length && sql.regionMatches(true, start, keyword, 0, keyword.length())
+                && (end == length || !isWordChar(sql.charAt(end)))) {
+            return end;
+        }
+        return -1;
+    }
+
+    /**
+     * An optionally negative number with an optional fraction and exponent. Digits may contain underscores. Unless it
+     * starts with a minus sign, the number must not be preceded by a word character.
+     */
+    private static int scanNumber(String sql, int start, int length) {
+        int i = start;
+        if (sql.charAt(i) == '-') {
+            i++;
+            if (i >= length || !isNumberDigit(sql.charAt(i))) {
+                return -1;
+            }
+        } else if (!isNumberDigit(sql.charAt(i)) || !isWordBoundary(sql, i)) {
+            return -1;
+        }
+
+        i = skipNumberDigits(sql, i, length);
+        if (i + 1 < length && sql.charAt(i) == '.' && isNumberDigit(sql.charAt(i + 1))) {
+            i = skipNumberDigits(sql, i + 1, length);
+        }
+        if (i < length && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int exponent = i + 1;
+            if (exponent < length && (sql.charAt(exponent) == '+' || sql.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < length && isNumberDigit(sql.charAt(exponent))) {
+                i = skipNumberDigits(sql, exponent, length);
+            }
+        }
+        return i;
+    }
+
+    private static int skipNumberDigits(String sql, int i, int length) {
+        while (i < length && isNumberDigit(sql.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Same as the regex obfuscator's check for delimiters that survived obfuscation.
+     */
+    private static boolean hasUnmatchedDelimiter(String obfuscated, Dialect dialect) {
+        int length = obfuscated.length();
+        for (int i = 0; i < length; i++) {
+            char c = obfuscated.charAt(i);
+            switch (c) {
+                case '\'':
+                    return true;
+                case '"':
+                    if (dialect.unmatchedDoubleQuote) {
+                        return true;
+                    }
+                    break;
+                case '/':
+                    if (i + 1 < length && obfuscated.charAt(i + 1) == '*') {
+                        return true;
+                    }
+                    break;
+                case '*':
+                    if (i + 1 < length && obfuscated.charAt(i + 1) == '/') {
+                        return true;
+                    }
+                    break;
+                case '$':
+                    if (dialect.unmatchedDollar == DollarCheck.ANY || (dialect.unmatchedDollar == DollarCheck.NOT_PLACEHOLDER
+                            && (i + 1 == length || obfuscated.charAt(i + 1) != '?'))) {
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The regexes use $ without multiline mode, which matches at the end of the input or before a final line feed.
+     */
+    private static boolean isEndOfInput(String sql, int i, int length) {
+        return i == length || (i == length - 1 && sql.charAt(i) == '\n');
+    }
+
+    private static boolean isWordBoundary(String sql, int i) {
+        return i == 0 || !isWordChar(sql.charAt(i - 1));
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberDigit(char c) {
+        return isDigit(c) || c == '_';
+    }
+
+    private static boolean isHexDigit(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+}
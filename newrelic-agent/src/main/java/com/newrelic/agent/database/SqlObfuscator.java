@@ -33,7 +33,10 @@ public abstract class SqlObfuscator {
     public static final String RAW_SETTING = "raw";
     public static final String OFF_SETTING = "off";
 
-    private SqlObfuscator() {
+    public static final String REGEX_OBFUSCATOR_SETTING = "regex";
+    public static final String LEXER_OBFUSCATOR_SETTING = "lexer";
+
+    SqlObfuscator() {
     }
 
     /**
@@ -139,6 +142,14 @@ public abstract class SqlObfuscator {
         return new DefaultSqlObfuscator();
     }
 
+    /**
+     * Returns an obfuscator that produces the same output as {@link #getDefaultSqlObfuscator()} using a single pass
+     * tokenizer instead of regular expressions.
+     */
+    public static SqlObfuscator getLexingSqlObfuscator() {
+        return new LexingSqlObfuscator();
+    }
+
     static SqlObfuscator getNoObfuscationSqlObfuscator() {
         return new SqlObfuscator() {
 
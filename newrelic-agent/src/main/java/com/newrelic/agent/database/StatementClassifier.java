@@ -0,0 +1,220 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.database;
+
+/**
+ * Finds the operation and table of plain select, insert, update and delete statements in a single scan, without
+ * running the statement factories of {@link DefaultDatabaseStatementParser}. It gives the same result as the factories
+ * or no result at all: anything it is not sure about (inner selects, a missing table, other operations) is left to
+ * them.
+ *
+ * Matching follows the factory patterns exactly, including which whitespace counts as whitespace and that keywords
+ * match ASCII letters regardless of case.
+ *
+ * This class is thread safe.
+ */
+class StatementClassifier {
+
+    private final DefaultStatementFactory selectFactory;
+    private final DefaultStatementFactory insertFactory;
+    private final DefaultStatementFactory updateFactory;
+    private final DefaultStatementFactory deleteFactory;
+
+    StatementClassifier(DefaultStatementFactory selectFactory, DefaultStatementFactory insertFactory,
+            DefaultStatementFactory updateFactory, DefaultStatementFactory deleteFactory) {
+        this.selectFactory = selectFactory;
+        this.insertFactory = insertFactory;
+        this.updateFactory = updateFactory;
+        this.deleteFactory = deleteFactory;
+    }
+
+    /**
+     * @param statement a statement without comments
+     * @return the parsed statement, or null if the statement factories have to parse it
+     */
+    ParsedDatabaseStatement classify(String statement) {
+        int start = skipWhitespace(statement, 0);
+        if (matchesKeyword(statement, start, "select")) {
+            return classifySelect(statement, start + 6);
+        } else if (matchesKeyword(statement, start, "insert")) {
+            return classifyInsert(statement, start + 6);
+        } else if (matchesKeyword(statement, start, "update")) {
+            return classifyUpdate(statement, start + 6);
+        } else if (matchesKeyword(statement, start, "delete")) {
+            return classifyDelete(statement, start + 6);
+        }
+        return null;
+    }
+
+    /**
+     * The table follows the first whitespace, "from" and whitespace or bracket. Any "from (select" means the inner
+     * select factory has to find the innermost select.
+     */
+    private ParsedDatabaseStatement classifySelect(String statement, int index) {
+        int length = statement.length();
+        int table = -1;
+        for (int i = index; i + 5 <= length; i++) {
+            if (!isWhitespace(statement.charAt(i)) || !matchesKeyword(statement, i + 1, "from")) {
+                continue;
+            }
+            int afterFrom = i + 5;
+            int next = skipWhitespace(statement, afterFrom);
+            if (next < length && statement.charAt(next) == '('
+                    && matchesKeyword(statement, skipWhitespace(statement, next + 1), "select")) {
+                return null;
+            }
+            if (table < 0 && afterFrom < length && isWhitespaceOrBracket(statement.charAt(afterFrom))) {
+                table = afterFrom;
+                while (table < length && isWhitespaceOrBracket(statement.charAt(table))) {
+                    table++;
+                }
+            }
+        }
+        if (table < 0) {
+            return null;
+        }
+        int end = table;
+        while (end < length && !isSelectTableEnd(statement.charAt(end))) {
+            end++;
+        }
+        return parseModel(selectFactory, statement, table, end);
+    }
+
+    /**
+     * insert [ignore] [into] table, where a keyword only counts if whitespace follows it.
+     */
+    private ParsedDatabaseStatement classifyInsert(String statement, int index) {
+        int length = statement.length();
+        int table = -1;
+        int afterIgnore = skipWhitespaceAndKeyword(statement, index, "ignore");
+        if (afterIgnore >= 0) {
+            int afterInto = skipWhitespaceAndKeyword(statement, afterIgnore, "into");
+            if (afterInto >= 0 && afterInto < length && isWhitespace(statement.charAt(afterInto))) {
+                table = afterInto;
+            } else if (afterIgnore < length && isWhitespace(statement.charAt(afterIgnore))) {
+                table = afterIgnore;
+            }
+        }
+        if (table < 0) {
+            int afterInto = skipWhitespaceAndKeyword(statement, index, "into");
+            if (afterInto >= 0 && afterInto < length && isWhitespace(statement.charAt(afterInto))) {
+                table = afterInto;
+            } else if (index < length && isWhitespace(statement.charAt(index))) {
+                table = index;
+            } else {
+                return null;
+            }
+        }
+        table = skipWhitespace(statement, table);
+        int end = table;
+        while (end < length && !isInsertTableEnd(statement.charAt(end))) {
+            end++;
+        }
+        return parseModel(insertFactory, statement, table, end);
+    }
+
+    private ParsedDatabaseStatement classifyUpdate(String statement, int index) {
+        int length = statement.length();
+        if (index >= length || !isWhitespace(statement.charAt(index))) {
+            return null;
+        }
+        int table = skipWhitespace(statement, index);
+        int end = table;
+        while (end < length && !isUpdateTableEnd(statement.charAt(end))) {
+            end++;
+        }
+        return parseModel(updateFactory, statement, table, end);
+    }
+
+    /**
+     * The table follows the first "from" with whitespace on both sides.
+     */
+    private ParsedDatabaseStatement classifyDelete(String statement, int index) {
+        int length = statement.length();
+        for (int i = index; i + 5 < length; i++) {
+            if (isWhitespace(statement.charAt(i)) && matchesKeyword(statement, i + 1, "from")
+                    && isWhitespace(statement.charAt(i + 5))) {
+                int table = skipWhitespace(statement, i + 5);
+                int end = table;
+                while (end < length && !isDeleteTableEnd(statement.charAt(end))) {
+                    end++;
+                }
+                return parseModel(deleteFactory, statement, table, end);
+            }
+        }
+        return null;
+    }
+
+    private static ParsedDatabaseStatement parseModel(DefaultStatementFactory factory, String statement, int start,
+            int end) {
+        // an empty table is left to the factories, which try the other patterns
+        return start == end ? null : factory.parseModel(statement.substring(start, end), statement);
+    }
+
+    /**
+     * @return the index after the whitespace and keyword, or -1 if they are not there
+     */
+    private static int skipWhitespaceAndKeyword(String statement, int index, String keyword) {
+        if (index >= statement.length() || !isWhitespace(statement.charAt(index))) {
+            return -1;
+        }
+        int start = skipWhitespace(statement, index);
+        return matchesKeyword(statement, start, keyword) ? start + keyword.length() : -1;
+    }
+
+    /**
+     * @param keyword lower case ASCII letters
+     */
+    private static boolean matchesKeyword(String statement, int index, String keyword) {
+        if (index + keyword.length() > statement.length()) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length(); i++) {
+            // setting the 0x20 bit lower cases an ASCII letter, and keeps every other char from matching a letter
+            if ((statement.charAt(index + i) | 0x20) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(String statement, int index) {
+        while (index < statement.length() && isWhitespace(statement.charAt(index))) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Same as \s in a regex.
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isWhitespaceOrBracket(char c) {
+        return c == '[' || isWhitespace(c);
+    }
+
+    private static boolean isSelectTableEnd(char c) {
+        return c == ']' || c == ',' || c == ')' || c == '(' || c == ';' || isWhitespace(c);
+    }
+
+    private static boolean isInsertTableEnd(char c) {
+        return c == '(' || c == ',' || c == ';' || isWhitespace(c);
+    }
+
+    private static boolean isUpdateTableEnd(char c) {
+        return c == ',' || c == ';' || isWhitespace(c);
+    }
+
+    private static boolean isDeleteTableEnd(char c) {
+        return c == ',' || c == '(' || c == ';' || isWhitespace(c);
+    }
+
+}
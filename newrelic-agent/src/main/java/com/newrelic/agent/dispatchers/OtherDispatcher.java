@@ -12,6 +12,7 @@ import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.Transaction;
 import com.newrelic.agent.attributes.AttributeNames;
 import com.newrelic.agent.config.TransactionTracerConfig;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.stats.ApdexStats;
 import com.newrelic.agent.stats.TransactionStats;
 import com.newrelic.agent.tracers.metricname.MetricNameFormat;
@@ -25,6 +26,11 @@ import java.util.logging.Level;
 
 public class OtherDispatcher extends DefaultDispatcher {
 
+    private static final int OTHER_TRANSACTION_ALL_ID = MetricNameTable.getInstance().getId(MetricNames.OTHER_TRANSACTION_ALL);
+    private static final int OTHER_TRANSACTION_TOTAL_TIME_ID = MetricNameTable.getInstance().getId(MetricNames.OTHER_TRANSACTION_TOTAL_TIME);
+    private static final int CPU_OTHER_ID = MetricNameTable.getInstance().getId(MetricNames.CPU_OTHER);
+    private static final int APDEX_OTHER_ID = MetricNameTable.getInstance().getId(MetricNames.APDEX_OTHER);
+
     private final MetricNameFormat uri;
 
     public OtherDispatcher(Transaction transaction, MetricNameFormat uri) {
@@ -63,11 +69,11 @@ public class OtherDispatcher extends DefaultDispatcher {
                     getTransaction().getTransactionTimer().getTotalSumTimeInNanos(), 0, TimeUnit.NANOSECONDS);
         }
 
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.OTHER_TRANSACTION_ALL).recordResponseTime(
+        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.OTHER_TRANSACTION_ALL, OTHER_TRANSACTION_ALL_ID).recordResponseTime(
                 getTransaction().getTransactionTimer().getResponseTimeInNanos(),
                 getTransaction().getTransactionTimer().getResponseTimeInNanos(), TimeUnit.NANOSECONDS);
 
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.OTHER_TRANSACTION_TOTAL_TIME).recordResponseTime(
+        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.OTHER_TRANSACTION_TOTAL_TIME, OTHER_TRANSACTION_TOTAL_TIME_ID).recordResponseTime(
                 getTransaction().getTransactionTimer().getTotalSumTimeInNanos(),
                 getTransaction().getTransactionTimer().getTotalSumTimeInNanos(), TimeUnit.NANOSECONDS);
 
@@ -78,7 +84,7 @@ public class OtherDispatcher extends DefaultDispatcher {
             long val = (Long) cpuTime;
             String cpuMetricName = MetricNames.CPU_PREFIX + transactionName;
             stats.getUnscopedStats().getOrCreateResponseTimeStats(cpuMetricName).recordResponseTimeInNanos(val);
-            stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.CPU_OTHER).recordResponseTimeInNanos(val);
+            stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.CPU_OTHER, CPU_OTHER_ID).recordResponseTimeInNanos(val);
         }
     }
 
@@ -101,7 +107,7 @@ public class OtherDispatcher extends DefaultDispatcher {
         long apdexT = getTransaction().getAgentConfig().getApdexTInMillis(transactionName);
 
         ApdexStats apdexStats = stats.getUnscopedStats().getApdexStats(apdexMetricName);
-        ApdexStats overallApdexStats = stats.getUnscopedStats().getApdexStats(MetricNames.APDEX_OTHER);
+        ApdexStats overallApdexStats = stats.getUnscopedStats().getApdexStats(MetricNames.APDEX_OTHER, APDEX_OTHER_ID);
 
         if (isApdexFrustrating()) {
             apdexStats.recordApdexFrustrated();
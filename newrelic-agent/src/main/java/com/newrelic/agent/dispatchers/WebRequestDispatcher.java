@@ -19,6 +19,7 @@ import com.newrelic.agent.config.AgentConfigImpl;
 import com.newrelic.agent.config.CustomRequestHeaderConfig;
 import com.newrelic.agent.config.HiddenProperties;
 import com.newrelic.agent.config.TransactionTracerConfig;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.servlet.ServletUtils;
 import com.newrelic.agent.stats.ApdexStats;
@@ -41,6 +42,13 @@ import java.util.logging.Level;
 public class WebRequestDispatcher extends DefaultDispatcher implements WebResponse {
 
     private static final String UNKNOWN_URI = "/Unknown";
+    private static final int WEB_TRANSACTION_ID = MetricNameTable.getInstance().getId(MetricNames.WEB_TRANSACTION);
+    private static final int DISPATCHER_ID = MetricNameTable.getInstance().getId(MetricNames.DISPATCHER);
+    private static final int WEB_TRANSACTION_FIRST_BYTE_ID = MetricNameTable.getInstance().getId(MetricNames.WEB_TRANSACTION_FIRST_BYTE);
+    private static final int WEB_TRANSACTION_LAST_BYTE_ID = MetricNameTable.getInstance().getId(MetricNames.WEB_TRANSACTION_LAST_BYTE);
+    private static final int CPU_WEB_ID = MetricNameTable.getInstance().getId(MetricNames.CPU_WEB);
+    private static final int WEB_TRANSACTION_TOTAL_TIME_ID = MetricNameTable.getInstance().getId(MetricNames.WEB_TRANSACTION_TOTAL_TIME);
+    private static final int APDEX_ID = MetricNameTable.getInstance().getId(MetricNames.APDEX);
 
     private static final StatusCodePolicy LAST_STATUS_CODE_POLICY = new StatusCodePolicy() {
         @Override
@@ -370,9 +378,9 @@ public class WebRequestDispatcher extends DefaultDispatcher implements WebRespon
         // frontend represents the logical front of the request, but it is not an actual component, so it has no
         // exclusive time
         stats.getUnscopedStats().getOrCreateResponseTimeStats(frontendMetricName).recordResponseTimeInNanos(frontendTimeInNanos);
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION).recordResponseTimeInNanos(
+        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION, WEB_TRANSACTION_ID).recordResponseTimeInNanos(
                 frontendTimeInNanos);
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.DISPATCHER).recordResponseTimeInNanos(
+        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.DISPATCHER, DISPATCHER_ID).recordResponseTimeInNanos(
                 frontendTimeInNanos);
         if (getStatus() > 0) {
             String metricName = MetricNames.NETWORK_INBOUND_STATUS_CODE + getStatus();
@@ -393,7 +401,7 @@ public class WebRequestDispatcher extends DefaultDispatcher implements WebRespon
                         MetricNames.FIRST_BYTE);
                 stats.getUnscopedStats().getOrCreateResponseTimeStats(firstByteMetricName).recordResponseTimeInNanos(
                         firstByteDurNs);
-                stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION_FIRST_BYTE).recordResponseTimeInNanos(
+                stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION_FIRST_BYTE, WEB_TRANSACTION_FIRST_BYTE_ID).recordResponseTimeInNanos(
                         firstByteDurNs);
             }
 
@@ -404,7 +412,7 @@ public class WebRequestDispatcher extends DefaultDispatcher implements WebRespon
                         MetricNames.LAST_BYTE);
                 stats.getUnscopedStats().getOrCreateResponseTimeStats(lastByteMetricName).recordResponseTimeInNanos(
                         lastByteDurNs);
-                stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION_LAST_BYTE).recordResponseTimeInNanos(
+                stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION_LAST_BYTE, WEB_TRANSACTION_LAST_BYTE_ID).recordResponseTimeInNanos(
                         lastByteDurNs);
             }
 
@@ -413,11 +421,11 @@ public class WebRequestDispatcher extends DefaultDispatcher implements WebRespon
                 long val = (Long) cpuTime;
                 String cpuMetricName = MetricNames.CPU_PREFIX + frontendMetricName;
                 stats.getUnscopedStats().getOrCreateResponseTimeStats(cpuMetricName).recordResponseTimeInNanos(val);
-                stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.CPU_WEB).recordResponseTimeInNanos(val);
+                stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.CPU_WEB, CPU_WEB_ID).recordResponseTimeInNanos(val);
             }
         }
 
-        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION_TOTAL_TIME).recordResponseTimeInNanos(
+        stats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION_TOTAL_TIME, WEB_TRANSACTION_TOTAL_TIME_ID).recordResponseTimeInNanos(
                 getTransaction().getTransactionTimer().getTotalSumTimeInNanos());
     }
 
@@ -440,7 +448,7 @@ public class WebRequestDispatcher extends DefaultDispatcher implements WebRespon
         long apdexT = getTransaction().getAgentConfig().getApdexTInMillis(frontendMetricName);
 
         ApdexStats apdexStats = stats.getUnscopedStats().getApdexStats(frontendApdexMetricName);
-        ApdexStats overallApdexStats = stats.getUnscopedStats().getApdexStats(MetricNames.APDEX);
+        ApdexStats overallApdexStats = stats.getUnscopedStats().getApdexStats(MetricNames.APDEX, APDEX_ID);
         if (isApdexFrustrating()) {
             apdexStats.recordApdexFrustrated();
             overallApdexStats.recordApdexFrustrated();
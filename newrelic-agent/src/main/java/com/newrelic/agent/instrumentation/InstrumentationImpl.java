@@ -16,6 +16,7 @@ import com.newrelic.agent.bridge.AgentBridge;
 import com.newrelic.agent.bridge.ExitTracer;
 import com.newrelic.agent.bridge.Instrumentation;
 import com.newrelic.agent.bridge.NoOpTransaction;
+import com.newrelic.agent.circuitbreaker.CircuitBreakerService;
 import com.newrelic.agent.instrumentation.classmatchers.DefaultClassAndMethodMatcher;
 import com.newrelic.agent.instrumentation.classmatchers.ExactClassMatcher;
 import com.newrelic.agent.instrumentation.classmatchers.HashSafeClassAndMethodMatcher;
@@ -72,7 +73,8 @@ public class InstrumentationImpl implements Instrumentation {
         if (transaction == null) {
             return noticeTracer(signatureId, TracerFlags.getDispatcherFlags(dispatcher), null);
         }
-        if (ServiceFactory.getServiceManager().getCircuitBreakerService().isTripped()) {
+        CircuitBreakerService circuitBreaker = ServiceFactory.getServiceManager().getCircuitBreakerService();
+        if (circuitBreaker.isTripped() || (!dispatcher && transaction.isStarted() && circuitBreaker.isSegmentCreationStopped())) {
             return null;
         }
 
@@ -105,7 +107,8 @@ public class InstrumentationImpl implements Instrumentation {
             if (ServiceFactory.getServiceManager().isStopped()) {
                 return null;
             }
-            if (ServiceFactory.getServiceManager().getCircuitBreakerService().isTripped()) {
+            CircuitBreakerService circuitBreaker = ServiceFactory.getServiceManager().getCircuitBreakerService();
+            if (circuitBreaker.isTripped() || (!TracerFlags.isRoot(flags) && circuitBreaker.isSegmentCreationStopped())) {
                 return null;
             }
 
@@ -215,7 +218,8 @@ public class InstrumentationImpl implements Instrumentation {
             if (ServiceFactory.getServiceManager().isStopped()) {
                 return null;
             }
-            if (ServiceFactory.getServiceManager().getCircuitBreakerService().isTripped()) {
+            CircuitBreakerService circuitBreaker = ServiceFactory.getServiceManager().getCircuitBreakerService();
+            if (circuitBreaker.isTripped() || (!TracerFlags.isRoot(flags) && circuitBreaker.isSegmentCreationStopped())) {
                 return null;
             }
 
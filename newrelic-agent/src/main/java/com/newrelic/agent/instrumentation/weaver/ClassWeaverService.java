@@ -9,6 +9,7 @@ package com.newrelic.agent.instrumentation.weaver;
 
 import com.google.common.collect.Sets;
 import com.newrelic.agent.Agent;
+import com.newrelic.agent.HarvestListener;
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.bridge.AgentBridge;
 import com.newrelic.agent.config.AgentConfig;
@@ -26,6 +27,7 @@ import com.newrelic.agent.instrumentation.weaver.preprocessors.AgentPostprocesso
 import com.newrelic.agent.instrumentation.weaver.preprocessors.AgentPreprocessors;
 import com.newrelic.agent.instrumentation.weaver.preprocessors.TracedWeaveInstrumentationTracker;
 import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsEngine;
 import com.newrelic.agent.stats.StatsWorks;
 import com.newrelic.api.agent.weaver.WeaveIntoAllMethods;
 import com.newrelic.api.agent.weaver.internal.WeavePackageType;
@@ -66,13 +68,17 @@ import java.security.ProtectionDomain;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarInputStream;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
@@ -82,11 +88,11 @@ import static com.newrelic.agent.Agent.LOG;
 /**
  * All interfacing with the weaver is done here.
  */
-public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClassTransformer {
+public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClassTransformer, HarvestListener {
     /**
-     * Determines how many threads to run in parallel when loading instrumentation packages
+     * How many of the slowest weave packages to report load times for at startup
      */
-    private static final int PARTITIONS = 8;
+    private static final int SLOWEST_PACKAGES_REPORTED = 10;
     private static ClassNode EXTENSION_TEMPLATE;
 
     static {
@@ -116,6 +122,17 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
     private final Map<String, String> externalWeavePackages = new ConcurrentHashMap<>();
     private final Instrumentation instrumentation;
 
+    /**
+     * Classes the weaver left unchanged on earlier starts, or null if the unwoven class cache is disabled.
+     */
+    private volatile UnwovenClassCache unwovenClassCache;
+
+    /**
+     * Pre-filter counts already reported, only touched by the harvest thread.
+     */
+    private long reportedPreFilterRejected;
+    private long reportedPreFilterPassed;
+
     public ClassWeaverService(Instrumentation instrumentation) {
         this.instrumentation = instrumentation;
         this.weaveViolationLogger = new WeaveViolationLogger(Agent.LOG);
@@ -134,6 +151,24 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
     public void registerInstrumentation() {
         loadInternalWeavePackages();
         loadExternalWeavePackages(ServiceFactory.getExtensionService().getWeaveExtensions());
+        startUnwovenClassCache();
+    }
+
+    private void startUnwovenClassCache() {
+        String cacheDir = ServiceFactory.getConfigService().getDefaultAgentConfig().getClassTransformerConfig().getUnwovenClassCacheDir();
+        if (cacheDir == null || cacheDir.trim().isEmpty()) {
+            return;
+        }
+        try {
+            String fingerprint = UnwovenClassCache.fingerprint(weavePackageManager.getRegisteredPackages(),
+                    ServiceFactory.getExtensionService().getWeaveExtensions(),
+                    ServiceFactory.getConfigService().getSanitizedLocalSettings());
+            UnwovenClassCache cache = new UnwovenClassCache(new File(cacheDir.trim()), fingerprint);
+            cache.start();
+            unwovenClassCache = cache;
+        } catch (Exception e) {
+            LOG.log(Level.INFO, e, "Unable to start the unwoven class cache in {0}", cacheDir);
+        }
     }
 
     public Runnable createRetransformRunnable(Class<?>[] loadedClasses) {
@@ -225,43 +260,44 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
             LOG.log(Level.FINE, "Loading {0} instrumentation packages", jarFileNames.size());
         }
 
-        int partitions = (jarFileNames.size() < PARTITIONS) ? jarFileNames.size() : PARTITIONS;
+        List<URL> instrumentationUrls = new ArrayList<>(jarFileNames.size());
+        for (String name : jarFileNames) {
+            URL instrumentationUrl = BootstrapAgent.class.getResource('/' + name);
+            if (instrumentationUrl == null) {
+                Agent.LOG.error("Unable to find instrumentation jar: " + name);
+            } else {
+                instrumentationUrls.add(instrumentationUrl);
+            }
+        }
+        loadInternalWeavePackages(instrumentationUrls);
+
+        return matchers;
+    }
+
+    /**
+     * Load and register the given weave package jars on up to one thread per processor.
+     */
+    void loadInternalWeavePackages(Collection<URL> instrumentationUrls) {
+        int threads = Math.min(instrumentationUrls.size(), Runtime.getRuntime().availableProcessors());
+        // Jars are taken from a shared queue rather than split up front, so a thread that lands a slow package does not
+        // hold up the jars behind it.
+        final Queue<URL> pendingJars = new ConcurrentLinkedQueue<>(instrumentationUrls);
+        final Queue<WeavePackageLoadTime> loadTimes = new ConcurrentLinkedQueue<>();
         // Note: An ExecutorService would be better suited for this work but we are
         // specifically not using it here to prevent the ConcurrentCallablePointCut
         // from being loaded too early
-        final CountDownLatch executorCountDown = new CountDownLatch(partitions);
-        List<Set<String>> weavePackagePartitions = partitionInstrumentationJars(jarFileNames, partitions);
+        final CountDownLatch executorCountDown = new CountDownLatch(threads);
+        long startNanos = System.nanoTime();
 
-        for (final Set<String> weavePackageJars : weavePackagePartitions) {
+        for (int i = 0; i < threads; i++) {
 
             Runnable loadWeavePackagesRunnable = new Runnable() {
                 @Override
                 public void run() {
                     try {
-                        for (final String name : weavePackageJars) {
-                            URL instrumentationUrl = BootstrapAgent.class.getResource('/' + name);
-                            if (instrumentationUrl == null) {
-                                Agent.LOG.error("Unable to find instrumentation jar: " + name);
-                            } else {
-                                try (InputStream inputStream = instrumentationUrl.openStream()) {
-                                    WeavePackage internalWeavePackage = createWeavePackage(inputStream, instrumentationUrl.toExternalForm());
-                                    if (null == internalWeavePackage) {
-                                        LOG.log(Level.FINEST, "internal weave package: {0} was null", instrumentationUrl.toExternalForm());
-                                        continue;
-                                    } else if (internalWeavePackage.getPackageViolations().size() > 0) {
-                                        LOG.log(Level.FINER, "skip loading weave package: {0}", internalWeavePackage.getName());
-                                        for (WeaveViolation violation : internalWeavePackage.getPackageViolations()) {
-                                            LOG.log(Level.FINER, "\t violation: {0}", violation);
-                                        }
-                                    } else {
-                                        LOG.log(Level.FINER, "adding weave package: {0}", internalWeavePackage.getName());
-                                        internalWeavePackages.add(internalWeavePackage.getName());
-                                        weavePackageManager.register(internalWeavePackage);
-                                    }
-                                } catch (Throwable t) {
-                                    LOG.log(Level.FINER, t, "unable to load weave package jar {0}", instrumentationUrl);
-                                }
-                            }
+                        URL instrumentationUrl;
+                        while ((instrumentationUrl = pendingJars.poll()) != null) {
+                            loadInternalWeavePackage(instrumentationUrl, loadTimes);
                         }
                     } catch (Throwable t) {
                         LOG.log(Level.FINER, t, "A thread loading weaved packages threw an error");
@@ -271,35 +307,90 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
                 }
             };
 
-            new Thread(loadWeavePackagesRunnable).start();
+            new Thread(loadWeavePackagesRunnable, "New Relic Weave Package Loader " + i).start();
         }
 
         try {
-            // Wait for all partitions to complete
+            // Wait for all loader threads to complete
             executorCountDown.await();
-            LOG.log(Level.FINE, "Loaded {0} internal instrumentation packages", internalWeavePackages.size());
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            LOG.log(Level.FINE, "Loaded {0} internal instrumentation packages in {1}ms using {2} threads",
+                    internalWeavePackages.size(), elapsedMillis, threads);
+            reportLoadTimes(elapsedMillis, new ArrayList<>(loadTimes));
         } catch (InterruptedException e) {
             LOG.log(Level.FINE, e, "Interrupted while waiting for instrumentation packages.");
         }
+    }
 
-        return matchers;
+    private void loadInternalWeavePackage(URL instrumentationUrl, Queue<WeavePackageLoadTime> loadTimes) {
+        try (InputStream inputStream = instrumentationUrl.openStream()) {
+            long startNanos = System.nanoTime();
+            WeavePackage internalWeavePackage = createWeavePackage(inputStream, instrumentationUrl.toExternalForm());
+            long loadNanos = System.nanoTime() - startNanos;
+            if (null == internalWeavePackage) {
+                LOG.log(Level.FINEST, "internal weave package: {0} was null", instrumentationUrl.toExternalForm());
+            } else if (internalWeavePackage.getPackageViolations().size() > 0) {
+                LOG.log(Level.FINER, "skip loading weave package: {0}", internalWeavePackage.getName());
+                for (WeaveViolation violation : internalWeavePackage.getPackageViolations()) {
+                    LOG.log(Level.FINER, "\t violation: {0}", violation);
+                }
+                loadTimes.add(new WeavePackageLoadTime(internalWeavePackage.getName(), loadNanos, 0));
+            } else {
+                LOG.log(Level.FINER, "adding weave package: {0}", internalWeavePackage.getName());
+                internalWeavePackages.add(internalWeavePackage.getName());
+                startNanos = System.nanoTime();
+                weavePackageManager.register(internalWeavePackage);
+                loadTimes.add(new WeavePackageLoadTime(internalWeavePackage.getName(), loadNanos, System.nanoTime() - startNanos));
+            }
+        } catch (Throwable t) {
+            LOG.log(Level.FINER, t, "unable to load weave package jar {0}", instrumentationUrl);
+        }
+    }
+
+    /**
+     * Log how long each weave package took to load and register, slowest first, and record the overall load time and
+     * the slowest packages as supportability metrics.
+     */
+    private void reportLoadTimes(long elapsedMillis, List<WeavePackageLoadTime> loadTimes) {
+        Collections.sort(loadTimes);
+        ServiceFactory.getStatsService().doStatsWork(
+                StatsWorks.getRecordResponseTimeWork(MetricNames.SUPPORTABILITY_WEAVE_LOAD_TIME, elapsedMillis));
+
+        for (int i = 0; i < loadTimes.size(); i++) {
+            WeavePackageLoadTime loadTime = loadTimes.get(i);
+            Level level = i < SLOWEST_PACKAGES_REPORTED ? Level.FINE : Level.FINEST;
+            if (LOG.isLoggable(level)) {
+                LOG.log(level, "Weave package {0} took {1}ms to load and {2}ms to register", loadTime.name,
+                        TimeUnit.NANOSECONDS.toMillis(loadTime.loadNanos), TimeUnit.NANOSECONDS.toMillis(loadTime.registerNanos));
+            }
+            if (i < SLOWEST_PACKAGES_REPORTED) {
+                ServiceFactory.getStatsService().doStatsWork(StatsWorks.getRecordResponseTimeWork(
+                        MessageFormat.format(MetricNames.SUPPORTABILITY_WEAVE_PACKAGE_LOAD_TIME, loadTime.name),
+                        TimeUnit.NANOSECONDS.toMillis(loadTime.totalNanos())));
+            }
+        }
     }
 
-    private List<Set<String>> partitionInstrumentationJars(Collection<String> jarFileNames, int partitions) {
-        List<Set<String>> instrumentationPartitions = new ArrayList<>(partitions);
+    private static final class WeavePackageLoadTime implements Comparable<WeavePackageLoadTime> {
+        private final String name;
+        private final long loadNanos;
+        private final long registerNanos;
 
-        // Initialize each partition with an empty set
-        for (int i = 0; i < partitions; i++) {
-            instrumentationPartitions.add(new HashSet<String>());
+        WeavePackageLoadTime(String name, long loadNanos, long registerNanos) {
+            this.name = name;
+            this.loadNanos = loadNanos;
+            this.registerNanos = registerNanos;
         }
 
-        int index = 0;
-        for (String jarFileName : jarFileNames) {
-            // Attempt to evenly distribute the jarFileNames across the partitions
-            instrumentationPartitions.get(index++ % partitions).add(jarFileName);
+        long totalNanos() {
+            return loadNanos + registerNanos;
         }
 
-        return instrumentationPartitions;
+        @Override
+        public int compareTo(WeavePackageLoadTime other) {
+            // slowest first
+            return Long.compare(other.totalNanos(), totalNanos());
+        }
     }
 
     /**
@@ -383,6 +474,12 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
      */
     public Runnable reloadExternalWeavePackages(Collection<File> newWeaveExtensions,
             Collection<File> removedWeaveExtensions) {
+        UnwovenClassCache cache = unwovenClassCache;
+        if (cache != null) {
+            // the weave packages no longer match the cache's fingerprint
+            unwovenClassCache = null;
+            cache.invalidate();
+        }
         loadExternalWeavePackages(newWeaveExtensions);
 
         Set<String> removedFilePaths = Sets.newHashSetWithExpectedSize(removedWeaveExtensions.size());
@@ -539,7 +636,29 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
             }
         };
         try {
-            return weavePackageManager.weave(loader, getClassCache(loader), className, classfileBuffer,
+            UnwovenClassCache cache = unwovenClassCache;
+            if (cache == null || isRetransforming) {
+                return weavePackageManager.weave(loader, getClassCache(loader), className, classfileBuffer,
+                        classWeavedCallback);
+            }
+
+            String key = cache.key(className, loader, protectionDomain, classfileBuffer);
+            if (key == null) {
+                return weavePackageManager.weave(loader, getClassCache(loader), className, classfileBuffer,
+                        classWeavedCallback);
+            }
+            if (cache.isUnwoven(key)) {
+                return null;
+            }
+            ClassCache classCache = getClassCache(loader);
+            if (!weavePackageManager.isPossibleMatch(className, classfileBuffer, classCache)) {
+                // only record classes ruled out by their own bytes, not by weave packages failing to validate
+                if (UnwovenClassCache.hasSelfContainedHierarchy(loader, protectionDomain, classfileBuffer, classCache)) {
+                    cache.recordUnwoven(key);
+                }
+                return null;
+            }
+            return weavePackageManager.weavePossibleMatch(loader, classCache, className, classfileBuffer,
                     classWeavedCallback);
         } catch (IOException ioe) {
             throw new RuntimeException(ioe);
@@ -610,4 +729,21 @@ public class ClassWeaverService implements ClassMatchVisitorFactory, ContextClas
     public WeavePackageManager getWeavePackageManger() {
         return weavePackageManager;
     }
+
+    @Override
+    public void beforeHarvest(String appName, StatsEngine statsEngine) {
+        if (!ServiceFactory.getConfigService().getDefaultAgentConfig().getApplicationName().equals(appName)) {
+            return;
+        }
+        long rejected = weavePackageManager.getPreFilterRejectedCount();
+        long passed = weavePackageManager.getPreFilterPassedCount();
+        statsEngine.getStats(MetricNames.SUPPORTABILITY_WEAVE_PRE_FILTER_REJECTED).incrementCallCount((int) (rejected - reportedPreFilterRejected));
+        statsEngine.getStats(MetricNames.SUPPORTABILITY_WEAVE_PRE_FILTER_PASSED).incrementCallCount((int) (passed - reportedPreFilterPassed));
+        reportedPreFilterRejected = rejected;
+        reportedPreFilterPassed = passed;
+    }
+
+    @Override
+    public void afterHarvest(String appName) {
+    }
 }
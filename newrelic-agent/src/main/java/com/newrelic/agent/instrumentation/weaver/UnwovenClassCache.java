@@ -0,0 +1,365 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.weaver;
+
+import com.google.common.io.BaseEncoding;
+import com.newrelic.agent.Agent;
+import com.newrelic.agent.util.DefaultThreadFactory;
+import com.newrelic.weave.utils.BootstrapLoader;
+import com.newrelic.weave.utils.ClassFinder;
+import com.newrelic.weave.utils.ClassInformation;
+import com.newrelic.weave.utils.ClassInformationFinder;
+import com.newrelic.weave.utils.ClassLoaderFinder;
+import com.newrelic.weave.weavepackage.WeavePackage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProtectionDomain;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Remembers, across JVM starts, the classes that the weaver looked at and left unchanged so that they can skip weave
+ * matching (and the class hierarchy lookups that come with it) the next time they are loaded.
+ *
+ * Only misses are cached, and only those the weaver's pre-match check rules out: a class that matched a weave package
+ * which then failed to validate may still be woven when it is loaded next to other jars. Woven bytes can not be reused
+ * between JVMs: woven and traced code refers to indexes into agent tables that are built as classes load, and weaving
+ * injects utility and annotation proxy classes into the classloader as a side effect.
+ *
+ * Whether a class is woven also depends on its superclasses and interfaces. Only classes loaded from a jar file whose
+ * supertypes all come from the same jar or from the JDK are cached, and each entry identifies the jar by its location,
+ * size and modification time together with the classloader type, followed by the class name and a CRC32 of the
+ * original class bytes. Upgrading the jar changes the key of every class in it, and the JDK is covered by the JVM
+ * version below. Annotations are matched by the names in the class bytes, and inherited ones come from the supertypes.
+ *
+ * The file is named after a digest of everything else that decides whether a class is woven: the agent and JVM
+ * versions, the agent configuration and the weave packages with their versions. A change to any of these starts a new
+ * file and removes the old one. The file ends with a CRC32 of its contents and is ignored if it does not match.
+ */
+class UnwovenClassCache {
+
+    private static final int MAGIC = 0x4e52550a;
+    private static final int FORMAT_VERSION = 2;
+    private static final String FILE_PREFIX = "unwoven-classes-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final int MAX_ENTRIES = 1000000;
+    private static final long SAVE_INTERVAL_SECONDS = 60;
+    private static final String NOT_A_JAR = "";
+    private static final String JDK_JAR_PREFIX = "jar:" + new File(System.getProperty("java.home")).toURI();
+    private static final String JDK_MODULE_PREFIX = "jrt:/";
+
+    private final File directory;
+    private final File file;
+    private final String fingerprint;
+    private final Set<String> entries = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicInteger unsavedEntries = new AtomicInteger();
+
+    /**
+     * Digests of the jars classes were loaded from, by classloader type and location, or {@link #NOT_A_JAR}.
+     */
+    private final ConcurrentMap<String, String> jarIds = new ConcurrentHashMap<>();
+    private volatile boolean valid = true;
+    private ScheduledExecutorService saveExecutor;
+
+    UnwovenClassCache(File directory, String fingerprint) {
+        this.directory = directory;
+        this.fingerprint = fingerprint;
+        this.file = new File(directory, FILE_PREFIX + fingerprint.substring(0, 16) + FILE_SUFFIX);
+    }
+
+    /**
+     * Create the cache directory if needed, remove files for other fingerprints, load this fingerprint's file, and
+     * start saving new entries in the background.
+     */
+    void start() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Agent.LOG.log(Level.INFO, "Unable to create the unwoven class cache directory {0}", directory);
+            valid = false;
+            return;
+        }
+        removeStaleFiles();
+        load();
+
+        saveExecutor = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("New Relic Unwoven Class Cache", true));
+        saveExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                save();
+            }
+        }, SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    boolean isUnwoven(String key) {
+        return valid && entries.contains(key);
+    }
+
+    void recordUnwoven(String key) {
+        if (valid && entries.size() < MAX_ENTRIES && entries.add(key)) {
+            unsavedEntries.incrementAndGet();
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stop using the cache for the rest of this JVM and delete its file. Called when the weave packages change while
+     * the JVM is running, since the fingerprint no longer describes them.
+     */
+    void invalidate() {
+        valid = false;
+        entries.clear();
+        if (saveExecutor != null) {
+            saveExecutor.shutdownNow();
+        }
+        if (file.exists() && !file.delete()) {
+            Agent.LOG.log(Level.FINE, "Unable to delete unwoven class cache {0}", file);
+        }
+    }
+
+    /**
+     * Write the entries to disk if any were added since the last save. The file is written next to the cache file and
+     * then renamed over it, so readers never see a partial file.
+     */
+    synchronized void save() {
+        if (!valid || unsavedEntries.getAndSet(0) == 0) {
+            return;
+        }
+        File temp = new File(directory, file.getName() + ".tmp");
+        try {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(temp)), new CRC32());
+            try (DataOutputStream out = new DataOutputStream(checked)) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(fingerprint);
+                Object[] keys = entries.toArray();
+                out.writeInt(keys.length);
+                for (Object key : keys) {
+                    out.writeUTF((String) key);
+                }
+                out.writeLong(checked.getChecksum().getValue());
+            }
+            if (!temp.renameTo(file)) {
+                // renameTo does not replace an existing file on every platform
+                if (!file.delete() || !temp.renameTo(file)) {
+                    Agent.LOG.log(Level.FINE, "Unable to replace unwoven class cache {0}", file);
+                    temp.delete();
+                }
+            }
+        } catch (IOException e) {
+            Agent.LOG.log(Level.FINE, e, "Unable to save unwoven class cache {0}", file);
+            temp.delete();
+        }
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        String problem = null;
+        Set<String> loaded = null;
+        try {
+            CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), new CRC32());
+            try (DataInputStream in = new DataInputStream(checked)) {
+                int count;
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !fingerprint.equals(in.readUTF())) {
+                    problem = "unexpected header";
+                } else if ((count = in.readInt()) < 0 || count > MAX_ENTRIES) {
+                    problem = "unexpected entry count " + count;
+                } else {
+                    loaded = new HashSet<>(count);
+                    for (int i = 0; i < count; i++) {
+                        loaded.add(in.readUTF());
+                    }
+                    long expected = checked.getChecksum().getValue();
+                    if (in.readLong() != expected) {
+                        problem = "checksum mismatch";
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Agent.LOG.log(Level.FINEST, e, "Unable to read unwoven class cache {0}", file);
+            problem = "unreadable";
+        }
+
+        if (problem != null) {
+            discard(problem);
+        } else {
+            entries.addAll(loaded);
+            Agent.LOG.log(Level.FINE, "Loaded {0} unwoven classes from {1}", entries.size(), file);
+        }
+    }
+
+    private void discard(String reason) {
+        Agent.LOG.log(Level.INFO, "Discarding unwoven class cache {0}: {1}", file, reason);
+        if (!file.delete()) {
+            Agent.LOG.log(Level.FINE, "Unable to delete unwoven class cache {0}", file);
+        }
+    }
+
+    private void removeStaleFiles() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File candidate : files) {
+            String name = candidate.getName();
+            if (name.startsWith(FILE_PREFIX) && !name.equals(file.getName()) && candidate.delete()) {
+                Agent.LOG.log(Level.FINER, "Removed stale unwoven class cache {0}", candidate);
+            }
+        }
+    }
+
+    /**
+     * The key identifying a class as loaded by a given kind of classloader from a given jar.
+     *
+     * @return the key, or null if the class was not loaded from a jar file and can not be cached
+     */
+    String key(String className, ClassLoader loader, ProtectionDomain protectionDomain, byte[] classBytes) {
+        URL location = getLocation(protectionDomain);
+        if (location == null) {
+            return null;
+        }
+        String loaderName = loader == null ? "bootstrap" : loader.getClass().getName();
+        String jarId = getJarId(loaderName, location);
+        if (jarId.isEmpty()) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(classBytes, 0, classBytes.length);
+        return jarId + ' ' + className + ' ' + Long.toHexString(crc.getValue()) + ' ' + classBytes.length;
+    }
+
+    private String getJarId(String loaderName, URL location) {
+        String jarKey = loaderName + ' ' + location.toExternalForm();
+        String jarId = jarIds.get(jarKey);
+        if (jarId == null) {
+            jarId = NOT_A_JAR;
+            File jar = toFile(location);
+            if (jar != null && jar.isFile()) {
+                String stamp = jarKey + ' ' + jar.length() + ' ' + jar.lastModified();
+                jarId = BaseEncoding.base64().omitPadding().encode(sha1().digest(stamp.getBytes(StandardCharsets.UTF_8)));
+            }
+            jarIds.putIfAbsent(jarKey, jarId);
+        }
+        return jarId;
+    }
+
+    /**
+     * Whether every superclass and interface of a class, direct or inherited, comes from the class's own jar or from the
+     * JDK. Only such classes can be cached, since the key only covers the class's own jar. The hierarchy is read through
+     * the class cache, so supertypes it already holds are not read again.
+     */
+    static boolean hasSelfContainedHierarchy(ClassLoader loader, ProtectionDomain protectionDomain, byte[] classBytes,
+            ClassInformationFinder classInformationFinder) {
+        URL location = getLocation(protectionDomain);
+        if (location == null) {
+            return false;
+        }
+        String jarPrefix = "jar:" + location.toExternalForm() + "!/";
+        ClassFinder classFinder = loader == null ? BootstrapLoader.get() : new ClassLoaderFinder(loader);
+        try {
+            ClassInformation classInformation = ClassInformation.fromClassBytes(classBytes);
+            Set<String> supertypes = new HashSet<>(classInformation.getAllSuperNames(classInformationFinder));
+            supertypes.addAll(classInformation.getAllInterfaces(classInformationFinder));
+            for (String supertype : supertypes) {
+                URL resource = classFinder.findResource(supertype);
+                if (resource == null) {
+                    return false;
+                }
+                String url = resource.toExternalForm();
+                if (!url.startsWith(jarPrefix) && !url.startsWith(JDK_JAR_PREFIX) && !url.startsWith(JDK_MODULE_PREFIX)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static URL getLocation(ProtectionDomain protectionDomain) {
+        CodeSource codeSource = protectionDomain == null ? null : protectionDomain.getCodeSource();
+        return codeSource == null ? null : codeSource.getLocation();
+    }
+
+    private static File toFile(URL location) {
+        if (!"file".equals(location.getProtocol())) {
+            return null;
+        }
+        try {
+            return new File(location.toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * A digest of everything besides the class itself that decides whether the weaver changes a class.
+     */
+    static String fingerprint(Collection<WeavePackage> weavePackages, Collection<File> weaveExtensions,
+            Map<String, Object> agentConfig) {
+        StringBuilder builder = new StringBuilder();
+        builder.append(Agent.getVersion()).append('\n');
+        builder.append(System.getProperty("java.vendor")).append(' ').append(System.getProperty("java.version")).append('\n');
+
+        Set<String> packages = new TreeSet<>();
+        for (WeavePackage weavePackage : weavePackages) {
+            packages.add(weavePackage.getName() + ':' + weavePackage.getVersion());
+        }
+        builder.append(packages).append('\n');
+
+        Set<String> extensions = new TreeSet<>();
+        for (File extension : weaveExtensions) {
+            extensions.add(extension.getAbsolutePath() + ':' + extension.length() + ':' + extension.lastModified());
+        }
+        builder.append(extensions).append('\n');
+
+        // only the digest is written to disk, so the license key and other settings never are
+        builder.append(new TreeMap<>(agentConfig));
+
+        return BaseEncoding.base16().lowerCase().encode(sha1().digest(builder.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
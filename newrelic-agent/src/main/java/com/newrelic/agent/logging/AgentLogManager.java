@@ -38,6 +38,10 @@ public class AgentLogManager {
         INSTANCE.configureLogger(agentConfig);
     }
 
+    public static void stopAsyncLogging() {
+        INSTANCE.stopAsyncLogging();
+    }
+
     public static void addConsoleHandler() {
         INSTANCE.addConsoleHandler();
     }
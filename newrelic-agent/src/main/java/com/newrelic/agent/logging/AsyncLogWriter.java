@@ -0,0 +1,270 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.logging;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.message.SimpleMessage;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes agent log messages on a single thread, so that the threads logging them never wait on the appenders.
+ *
+ * Messages go into a bounded ring of preallocated entries. A logging thread claims an entry with a compare and set,
+ * fills it with the pattern, the parameters and its own thread and time, and publishes it. It does not format the
+ * message or take a lock. The writer thread formats messages in the order they were published and passes them to the
+ * appenders as if the logging thread had logged them. Since parameters are formatted later, a parameter that changes
+ * after it was logged is logged with its new value.
+ *
+ * When the ring is full the message is dropped and counted. The writer logs how many messages were dropped.
+ */
+class AsyncLogWriter implements Runnable {
+
+    private static final String THREAD_NAME = "New Relic Log Writer";
+    private static final String FQCN = Log4jLogger.class.getName();
+    private static final int MIN_BUFFER_SIZE = 64;
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long DROPPED_REPORT_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    /**
+     * Logs the number of dropped messages.
+     */
+    private final Logger logger;
+    private final Entry[] entries;
+    private final int mask;
+
+    /**
+     * The sequence of each entry. An entry can be claimed for sequence s when its sequence is s, and read when its
+     * sequence is s + 1. Reading it moves its sequence to the next time around the ring.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * The next sequence a logging thread can claim.
+     */
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * The next sequence the writer reads. Only used by the writer thread.
+     */
+    private long next;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private long reportedDropped;
+    private long lastDroppedReportNanos = System.nanoTime() - DROPPED_REPORT_INTERVAL_NANOS;
+
+    private final Thread thread;
+    private volatile boolean idle;
+    private volatile boolean stopped;
+
+    /**
+     * @param bufferSize the number of messages that can wait for the writer, rounded up to a power of two
+     * @param logger the logger to log the number of dropped messages to
+     */
+    AsyncLogWriter(int bufferSize, Logger logger) {
+        this.logger = logger;
+        int size = Integer.highestOneBit(Math.max(MIN_BUFFER_SIZE, bufferSize) - 1) << 1;
+        entries = new Entry[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry();
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+        // logging is configured before the thread service a DefaultThreadFactory registers its threads with
+        thread = new Thread(this, THREAD_NAME);
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Write the messages that are waiting and stop the writer thread. Messages written after this are dropped.
+     */
+    void stop() {
+        stopped = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queue a message. The caller has already checked that the level is enabled.
+     *
+     * @param logger the logger of the message
+     * @param pattern the message, or a pattern to format the parameters with
+     * @param parts the parameters of the pattern, or null if the pattern is the message
+     * @param parameterized true for a {@link ParameterizedMessage} pattern, false for a {@link MessageFormat} pattern
+     * @return false if the message was dropped
+     */
+    boolean write(Logger logger, Log4jLevel level, String pattern, Object[] parts, boolean parameterized,
+            Throwable thrown) {
+        long sequence;
+        int index;
+        while (true) {
+            sequence = claimed.get();
+            index = (int) sequence & mask;
+            long available = sequences.get(index);
+            if (available == sequence) {
+                if (claimed.compareAndSet(sequence, sequence + 1)) {
+                    break;
+                }
+            } else if (available < sequence) {
+                // the writer has not read this entry from the last time around the ring
+                dropped.incrementAndGet();
+                return false;
+            }
+            // another thread claimed the entry first
+        }
+
+        Thread currentThread = Thread.currentThread();
+        Entry entry = entries[index];
+        entry.logger = logger;
+        entry.level = level;
+        entry.pattern = pattern;
+        entry.parts = parts;
+        entry.parameterized = parameterized;
+        entry.thrown = thrown;
+        entry.timeMillis = System.currentTimeMillis();
+        entry.threadId = currentThread.getId();
+        entry.threadName = currentThread.getName();
+        entry.threadPriority = currentThread.getPriority();
+        sequences.lazySet(index, sequence + 1);
+
+        if (idle) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            if (drain()) {
+                continue;
+            }
+            reportDropped();
+            if (stopped) {
+                return;
+            }
+            idle = true;
+            // a message published before the flag was set does not unpark this thread
+            if (!isAvailable()) {
+                LockSupport.parkNanos(this, MAX_IDLE_NANOS);
+            }
+            idle = false;
+        }
+    }
+
+    /**
+     * @return true if any message was written
+     */
+    private boolean drain() {
+        boolean written = false;
+        while (isAvailable()) {
+            int index = (int) next & mask;
+            Entry entry = entries[index];
+            try {
+                entry.write();
+            } catch (Throwable t) {
+                // a failing toString of a parameter must not stop the writer
+            } finally {
+                entry.clear();
+                sequences.lazySet(index, next + entries.length);
+                next++;
+            }
+            written = true;
+        }
+        return written;
+    }
+
+    private boolean isAvailable() {
+        return sequences.get((int) next & mask) == next + 1;
+    }
+
+    private void reportDropped() {
+        long droppedNow = dropped.get();
+        long now = System.nanoTime();
+        if (droppedNow != reportedDropped && (stopped || now - lastDroppedReportNanos >= DROPPED_REPORT_INTERVAL_NANOS)) {
+            logger.warn(Log4jMarkers.WARN_MARKER, MessageFormat.format(
+                    "Dropped {0} log message(s) because the async log buffer of {1} messages was full",
+                    droppedNow - reportedDropped, entries.length));
+            reportedDropped = droppedNow;
+            lastDroppedReportNanos = now;
+        }
+    }
+
+    /**
+     * A message waiting for the writer.
+     */
+    private static final class Entry {
+
+        Logger logger;
+        Log4jLevel level;
+        String pattern;
+        Object[] parts;
+        boolean parameterized;
+        Throwable thrown;
+        long timeMillis;
+        long threadId;
+        String threadName;
+        int threadPriority;
+
+        void write() {
+            Message message = parameterized
+                    ? new ParameterizedMessage(pattern, parts)
+                    : new SimpleMessage(Log4jLogger.getMessage(pattern, parts));
+            if (logger instanceof org.apache.logging.log4j.core.Logger) {
+                LogEvent event = Log4jLogEvent.newBuilder()
+                        .setLoggerName(logger.getName())
+                        .setLoggerFqcn(FQCN)
+                        .setMarker(level.getMarker())
+                        .setLevel(level.getLog4jLevel())
+                        .setMessage(message)
+                        .setThrown(thrown)
+                        .setTimeMillis(timeMillis)
+                        .setThreadId(threadId)
+                        .setThreadName(threadName)
+                        .setThreadPriority(threadPriority)
+                        .build();
+                // the level was checked by the logging thread, the logger config only runs the filters and appenders
+                ((org.apache.logging.log4j.core.Logger) logger).get().log(event);
+            } else {
+                logger.log(level.getLog4jLevel(), level.getMarker(), message, thrown);
+            }
+        }
+
+        void clear() {
+            logger = null;
+            level = null;
+            pattern = null;
+            parts = null;
+            thrown = null;
+            threadName = null;
+        }
+    }
+
+}
@@ -17,6 +17,12 @@ public interface IAgentLogManager {
 
     void configureLogger(AgentConfig agentConfig);
 
+    /**
+     * Writes the messages waiting for the async log writer, if there is one, and logs on the calling threads from now
+     * on.
+     */
+    void stopAsyncLogging();
+
     void addConsoleHandler();
 
     void setLogLevel(String level);
@@ -197,6 +197,13 @@ class Log4jLogManager implements IAgentLogManager {
         configureLogLevel(pAgentConfig);
         configureConsoleHandler(pAgentConfig);
         configureFileHandler(pAgentConfig);
+        configureAsyncLogging(pAgentConfig);
+    }
+
+    private void configureAsyncLogging(AgentConfig agentConfig) {
+        if (agentConfig.isLogAsync()) {
+            rootLogger.startAsyncLogging(agentConfig.getLogAsyncBufferSize());
+        }
     }
 
     private void configureFileHandler(AgentConfig agentConfig) {
@@ -274,6 +281,11 @@ class Log4jLogManager implements IAgentLogManager {
         }
     }
 
+    @Override
+    public void stopAsyncLogging() {
+        Log4jLogger.stopAsyncLogging();
+    }
+
     @Override
     public void addConsoleHandler() {
         rootLogger.addConsoleAppender();
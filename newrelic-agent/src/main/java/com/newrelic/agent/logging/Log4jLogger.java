@@ -48,6 +48,11 @@ class Log4jLogger implements IAgentLogger {
     private final Logger logger;
     private final Map<String, IAgentLogger> childLoggers = new ConcurrentHashMap<>();
 
+    /**
+     * Writes the messages of all the agent loggers when async logging is on, null when it is off.
+     */
+    private static volatile AsyncLogWriter asyncLogWriter;
+
     /**
      * Creates this Log4jLogger.
      *
@@ -68,52 +73,72 @@ class Log4jLogger implements IAgentLogger {
 
     @Override
     public void severe(String pMessage) {
-        logger.error(Log4jMarkers.ERROR_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.SEVERE, pMessage)) {
+            logger.error(Log4jMarkers.ERROR_MARKER, pMessage);
+        }
     }
 
     @Override
     public void error(String pMessage) {
-        logger.error(Log4jMarkers.ERROR_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.ERROR, pMessage)) {
+            logger.error(Log4jMarkers.ERROR_MARKER, pMessage);
+        }
     }
 
     @Override
     public void warning(String pMessage) {
-        logger.warn(Log4jMarkers.WARN_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.WARNING, pMessage)) {
+            logger.warn(Log4jMarkers.WARN_MARKER, pMessage);
+        }
     }
 
     @Override
     public void info(String pMessage) {
-        logger.info(Log4jMarkers.INFO_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.INFO, pMessage)) {
+            logger.info(Log4jMarkers.INFO_MARKER, pMessage);
+        }
     }
 
     @Override
     public void config(String pMessage) {
-        logger.info(Log4jMarkers.INFO_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.CONFIG, pMessage)) {
+            logger.info(Log4jMarkers.INFO_MARKER, pMessage);
+        }
     }
 
     @Override
     public void fine(String pMessage) {
-        logger.debug(Log4jMarkers.FINE_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.FINE, pMessage)) {
+            logger.debug(Log4jMarkers.FINE_MARKER, pMessage);
+        }
     }
 
     @Override
     public void finer(String pMessage) {
-        logger.debug(Log4jMarkers.FINER_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.FINER, pMessage)) {
+            logger.debug(Log4jMarkers.FINER_MARKER, pMessage);
+        }
     }
 
     @Override
     public void finest(String pMessage) {
-        logger.trace(Log4jMarkers.FINEST_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.FINEST, pMessage)) {
+            logger.trace(Log4jMarkers.FINEST_MARKER, pMessage);
+        }
     }
 
     @Override
     public void debug(String pMessage) {
-        logger.debug(Log4jMarkers.DEBUG_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.DEBUG, pMessage)) {
+            logger.debug(Log4jMarkers.DEBUG_MARKER, pMessage);
+        }
     }
 
     @Override
     public void trace(String pMessage) {
-        logger.trace(Log4jMarkers.TRACE_MARKER, pMessage);
+        if (!logAsync(Log4jLevel.TRACE, pMessage)) {
+            logger.trace(Log4jMarkers.TRACE_MARKER, pMessage);
+        }
     }
 
     @Override
@@ -151,6 +176,11 @@ class Log4jLogger implements IAgentLogger {
     public void log(Level pLevel, final String pMessage, final Throwable pThrowable) {
         if (isLoggable(pLevel)) {
             final Log4jLevel level = Log4jLevel.getLevel(pLevel);
+            AsyncLogWriter writer = asyncLogWriter;
+            if (writer != null) {
+                writer.write(logger, level, pMessage, null, false, pThrowable);
+                return;
+            }
             AccessController.doPrivileged(new PrivilegedAction<Void>() {
                 @Override
                 public Void run() {
@@ -164,14 +194,24 @@ class Log4jLogger implements IAgentLogger {
     @Override
     public void log(Level pLevel, String pMessage) {
         Log4jLevel level = Log4jLevel.getLevel(pLevel);
-        logger.log(level.getLog4jLevel(), level.getMarker(), pMessage);
+        AsyncLogWriter writer = asyncLogWriter;
+        if (writer == null) {
+            logger.log(level.getLog4jLevel(), level.getMarker(), pMessage);
+        } else if (isLoggable(pLevel)) {
+            writer.write(logger, level, pMessage, null, false, null);
+        }
     }
 
     @Override
     public void log(Level pLevel, String pMessage, Object[] pArgs, Throwable pThrowable) {
         Log4jLevel level = Log4jLevel.getLevel(pLevel);
-        Message message = new ParameterizedMessage(pMessage, pArgs);
-        logger.log(level.getLog4jLevel(), level.getMarker(), message, pThrowable);
+        AsyncLogWriter writer = asyncLogWriter;
+        if (writer == null) {
+            Message message = new ParameterizedMessage(pMessage, pArgs);
+            logger.log(level.getLog4jLevel(), level.getMarker(), message, pThrowable);
+        } else if (isLoggable(pLevel)) {
+            writer.write(logger, level, pMessage, pArgs, true, pThrowable);
+        }
     }
 
     @Override
@@ -278,6 +318,34 @@ class Log4jLogger implements IAgentLogger {
         ctx.updateLoggers();
     }
 
+    /**
+     * Writes the messages of all the agent loggers on an agent thread from now on.
+     *
+     * @param bufferSize the number of messages that can wait for the writer thread
+     */
+    public void startAsyncLogging(int bufferSize) {
+        synchronized (Log4jLogger.class) {
+            if (asyncLogWriter == null) {
+                AsyncLogWriter writer = new AsyncLogWriter(bufferSize, logger);
+                writer.start();
+                asyncLogWriter = writer;
+            }
+        }
+    }
+
+    /**
+     * Writes the messages that are waiting for the writer thread and goes back to logging on the calling threads.
+     */
+    public static void stopAsyncLogging() {
+        synchronized (Log4jLogger.class) {
+            AsyncLogWriter writer = asyncLogWriter;
+            if (writer != null) {
+                asyncLogWriter = null;
+                writer.stop();
+            }
+        }
+    }
+
     /**
      * Creates a log4j logger.
      *
@@ -292,42 +360,42 @@ class Log4jLogger implements IAgentLogger {
     @Override
     public void log(Level level, String pattern, Object[] msg) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, msg));
+            logMessage(level, null, pattern, msg);
         }
     }
 
     @Override
     public void log(Level level, String pattern, Object part1) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1));
+            logMessage(level, null, pattern, part1);
         }
     }
 
     @Override
     public void log(Level level, String pattern, Object part1, Object part2) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2));
+            logMessage(level, null, pattern, part1, part2);
         }
     }
 
     @Override
     public void log(Level level, String pattern, Object part1, Object part2, Object part3) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3));
+            logMessage(level, null, pattern, part1, part2, part3);
         }
     }
 
     @Override
     public void log(Level level, String pattern, Object part1, Object part2, Object part3, Object part4) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3, part4));
+            logMessage(level, null, pattern, part1, part2, part3, part4);
         }
     }
 
     @Override
     public void log(Level level, String pattern, Object part1, Object part2, Object part3, Object part4, Object part5) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3, part4, part5));
+            logMessage(level, null, pattern, part1, part2, part3, part4, part5);
         }
     }
 
@@ -335,7 +403,7 @@ class Log4jLogger implements IAgentLogger {
     public void log(Level level, String pattern, Object part1, Object part2, Object part3, Object part4, Object part5,
             Object part6) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3, part4, part5, part6));
+            logMessage(level, null, pattern, part1, part2, part3, part4, part5, part6);
         }
     }
 
@@ -343,7 +411,7 @@ class Log4jLogger implements IAgentLogger {
     public void log(Level level, String pattern, Object part1, Object part2, Object part3, Object part4, Object part5,
             Object part6, Object part7) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3, part4, part5, part6, part7));
+            logMessage(level, null, pattern, part1, part2, part3, part4, part5, part6, part7);
         }
     }
 
@@ -352,49 +420,49 @@ class Log4jLogger implements IAgentLogger {
             Object part6, Object part7, Object... otherParts) {
         if (isLoggable(level)) {
             Object[] parts = merge(otherParts, part1, part2, part3, part4, part5, part6, part7);
-            log(level, getMessage(pattern, parts));
+            logMessage(level, null, pattern, parts);
         }
     }
 
     @Override
     public void log(Level level, Throwable t, String pattern, Object[] msg) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, msg), t);
+            logMessage(level, t, pattern, msg);
         }
     }
 
     @Override
     public void log(Level level, Throwable t, String pattern) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern), t);
+            logMessage(level, t, pattern);
         }
     }
 
     @Override
     public void log(Level level, Throwable t, String pattern, Object part1) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1), t);
+            logMessage(level, t, pattern, part1);
         }
     }
 
     @Override
     public void log(Level level, Throwable t, String pattern, Object part1, Object part2) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2), t);
+            logMessage(level, t, pattern, part1, part2);
         }
     }
 
     @Override
     public void log(Level level, Throwable t, String pattern, Object part1, Object part2, Object part3) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3), t);
+            logMessage(level, t, pattern, part1, part2, part3);
         }
     }
 
     @Override
     public void log(Level level, Throwable t, String pattern, Object part1, Object part2, Object part3, Object part4) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3, part4), t);
+            logMessage(level, t, pattern, part1, part2, part3, part4);
         }
     }
 
@@ -402,7 +470,7 @@ class Log4jLogger implements IAgentLogger {
     public void log(Level level, Throwable t, String pattern, Object part1, Object part2, Object part3, Object part4,
             Object part5) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3, part4, part5), t);
+            logMessage(level, t, pattern, part1, part2, part3, part4, part5);
         }
     }
 
@@ -410,7 +478,7 @@ class Log4jLogger implements IAgentLogger {
     public void log(Level level, Throwable t, String pattern, Object part1, Object part2, Object part3, Object part4,
             Object part5, Object part6) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3, part4, part5, part6), t);
+            logMessage(level, t, pattern, part1, part2, part3, part4, part5, part6);
         }
     }
 
@@ -418,7 +486,7 @@ class Log4jLogger implements IAgentLogger {
     public void log(Level level, Throwable t, String pattern, Object part1, Object part2, Object part3, Object part4,
             Object part5, Object part6, Object part7) {
         if (isLoggable(level)) {
-            log(level, getMessage(pattern, part1, part2, part3, part4, part5, part6, part7), t);
+            logMessage(level, t, pattern, part1, part2, part3, part4, part5, part6, part7);
         }
     }
 
@@ -427,17 +495,47 @@ class Log4jLogger implements IAgentLogger {
             Object part5, Object part6, Object part7, Object... otherParts) {
         if (isLoggable(level)) {
             Object[] parts = merge(otherParts, part1, part2, part3, part4, part5, part6, part7);
+            logMessage(level, t, pattern, parts);
+        }
+    }
+
+    /**
+     * Logs a message of a level that is loggable. With async logging the message is formatted by the writer thread.
+     */
+    private void logMessage(Level level, Throwable t, String pattern, Object... parts) {
+        AsyncLogWriter writer = asyncLogWriter;
+        if (writer != null) {
+            writer.write(logger, Log4jLevel.getLevel(level), pattern, parts, false, t);
+        } else if (t == null) {
+            log(level, getMessage(pattern, parts));
+        } else {
             log(level, getMessage(pattern, parts), t);
         }
     }
 
-    private String getMessage(String pattern, Object... parts) {
+    /**
+     * Hands a message to the async log writer if async logging is on.
+     *
+     * @return false if async logging is off and the caller has to log the message
+     */
+    private boolean logAsync(Log4jLevel level, String pMessage) {
+        AsyncLogWriter writer = asyncLogWriter;
+        if (writer == null) {
+            return false;
+        }
+        if (isLoggable(level.getJavaLevel())) {
+            writer.write(logger, level, pMessage, null, false, null);
+        }
+        return true;
+    }
+
+    static String getMessage(String pattern, Object... parts) {
         return (parts == null || parts.length == 0 || pattern == null)
                 ? pattern
                 : MessageFormat.format(pattern, formatValues(parts));
     }
 
-    private Object[] formatValues(Object[] parts) {
+    private static Object[] formatValues(Object[] parts) {
         Object[] strings = new Object[parts.length];
         for (int i = 0; i < parts.length; i++) {
             strings[i] = formatValue(parts[i]);
@@ -445,7 +543,7 @@ class Log4jLogger implements IAgentLogger {
         return strings;
     }
 
-    private Object formatValue(Object obj) {
+    private static Object formatValue(Object obj) {
         if (obj instanceof Class) {
             return ((Class<?>) obj).getName();
         } else if (obj instanceof Throwable) {
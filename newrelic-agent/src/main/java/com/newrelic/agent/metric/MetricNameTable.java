@@ -0,0 +1,103 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.metric;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A process-wide table that interns metric names into small, dense int ids. Stats engines key their stats by these ids
+ * so that merging and harvesting compare ints instead of hashing and comparing strings.
+ *
+ * Ids are never reused. Once the table holds {@link #LIMIT} names, {@link #getId(String)} returns {@link #NO_ID} and
+ * callers fall back to keying by name. Like {@link MetricIdRegistry#METRIC_LIMIT}, the limit can be changed with a
+ * system property.
+ *
+ * This class is thread-safe.
+ */
+public final class MetricNameTable {
+
+    public static final int NO_ID = -1;
+
+    public static final int LIMIT;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    static {
+        String property = System.getProperty("newrelic.metric_name_table_limit");
+        LIMIT = ((null != property) ? Integer.parseInt(property) : 200000);
+    }
+
+    private static final MetricNameTable INSTANCE = new MetricNameTable(LIMIT);
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>(INITIAL_CAPACITY);
+    private final int limit;
+
+    // guarded by this for writes. An id is only published through ids after its name has been stored here.
+    private volatile String[] names = new String[INITIAL_CAPACITY];
+    private int size;
+
+    MetricNameTable(int limit) {
+        this.limit = limit;
+    }
+
+    public static MetricNameTable getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the id of a metric name, assigning a new id if the name has not been seen before.
+     *
+     * @return the id, or {@link #NO_ID} if the table is full
+     */
+    public int getId(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        return addName(name);
+    }
+
+    /**
+     * Get the id of a metric name without assigning one.
+     *
+     * @return the id, or {@link #NO_ID} if the name has not been interned
+     */
+    public int findId(String name) {
+        Integer id = ids.get(name);
+        return id == null ? NO_ID : id;
+    }
+
+    public String getName(int id) {
+        return names[id];
+    }
+
+    public int getSize() {
+        return ids.size();
+    }
+
+    private synchronized int addName(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (size >= limit) {
+            return NO_ID;
+        }
+        int newId = size++;
+        String[] names = this.names;
+        if (newId == names.length) {
+            names = Arrays.copyOf(names, names.length << 1);
+        }
+        names[newId] = name;
+        this.names = names;
+        ids.put(name, newId);
+        return newId;
+    }
+}
@@ -8,6 +8,7 @@
 package com.newrelic.agent.normalization;
 
 import java.text.MessageFormat;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -24,6 +25,7 @@ public class NormalizationRule {
     private static final Pattern SEGMENT_SEPARATOR_PATTERN = Pattern.compile(MetricNames.SEGMENT_DELIMITER_STRING);
     private static final Pattern BACKREFERENCE_PATTERN = Pattern.compile("\\\\(\\d)"); // search for \1, \2 etc.
     private static final String BACKREFERENCE_REPLACEMENT = "\\$$1"; // replace \1 with $1, \2 with $2 etc.
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
 
     private final Pattern pattern;
     private final boolean ignore;
@@ -33,6 +35,9 @@ public class NormalizationRule {
     private final boolean replaceAll;
     private final String replaceRegex;
     private final ReplacementFormatter formatter;
+    private final char[] requiredLiteral;
+    private final boolean anchored;
+    private final AtomicLong matchCount = new AtomicLong();
 
     public NormalizationRule(String matchExp, String replacement, boolean ignore, int order, boolean terminateChain,
             boolean eachSegment, boolean replaceAll) throws PatternSyntaxException {
@@ -42,6 +47,9 @@ public class NormalizationRule {
         this.eachSegment = eachSegment;
         this.replaceAll = replaceAll;
         this.pattern = Pattern.compile(matchExp, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+        this.requiredLiteral = getRequiredLiteral(matchExp);
+        // segments are matched one at a time, so a match anchored to a segment need not be at the start of the name
+        this.anchored = !eachSegment && requiredLiteral.length > 0 && matchExp.startsWith("^");
 
         // replace back references (\1 etc) in the replacement pattern with Java-style
         // back references ($1 etc).
@@ -64,9 +72,104 @@ public class NormalizationRule {
     }
 
     public RuleResult normalize(String name) {
+        if (!mayMatch(name)) {
+            return RuleResult.getNoMatch();
+        }
         return formatter.getRuleResult(name);
     }
 
+    /**
+     * Count a match of this rule. Called by the normalizer each time the rule changes or ignores a name.
+     */
+    void recordMatch() {
+        matchCount.incrementAndGet();
+    }
+
+    /**
+     * @return the number of matches recorded since the last call
+     */
+    public long getAndResetMatchCount() {
+        return matchCount.getAndSet(0);
+    }
+
+    /**
+     * A cheap check against the literal text every match of the pattern must contain. A false result means the
+     * pattern can not match the name; a true result means the pattern has to be run.
+     */
+    boolean mayMatch(String name) {
+        char[] literal = requiredLiteral;
+        if (literal.length == 0) {
+            return true;
+        }
+        if (anchored) {
+            return regionMatches(name, 0, literal);
+        }
+        int last = name.length() - literal.length;
+        for (int i = 0; i <= last; i++) {
+            if (regionMatches(name, i, literal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(String name, int offset, char[] literal) {
+        if (offset + literal.length > name.length()) {
+            return false;
+        }
+        for (int i = 0; i < literal.length; i++) {
+            if (toLowerCase(name.charAt(offset + i)) != literal[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * CASE_INSENSITIVE without UNICODE_CASE only folds US-ASCII, so this does the same.
+     */
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * Extract the run of literal ASCII characters at the start of the expression, after an optional ^. Every match of
+     * the expression contains that run. Returns an empty array when no such run can be found safely, for instance when
+     * the expression contains an alternation.
+     */
+    static char[] getRequiredLiteral(String matchExp) {
+        if (matchExp.indexOf('|') >= 0) {
+            return new char[0];
+        }
+        StringBuilder literal = new StringBuilder();
+        int i = matchExp.startsWith("^") ? 1 : 0;
+        while (i < matchExp.length()) {
+            char c = matchExp.charAt(i);
+            int next = i + 1;
+            if (c == '\\') {
+                if (next >= matchExp.length()) {
+                    break;
+                }
+                c = matchExp.charAt(next++);
+                // an escaped letter or digit is a character class, a back reference or a quote, so stop there
+                if (c >= 0x80 || Character.isLetterOrDigit(c)) {
+                    break;
+                }
+            } else if (c >= 0x80 || REGEX_METACHARACTERS.indexOf(c) >= 0) {
+                break;
+            }
+            if (next < matchExp.length() && "?*{".indexOf(matchExp.charAt(next)) >= 0) {
+                // this character is optional
+                break;
+            }
+            literal.append(toLowerCase(c));
+            i = next;
+        }
+        char[] chars = new char[literal.length()];
+        literal.getChars(0, chars.length, chars, 0);
+        return chars;
+    }
+
     public boolean isIgnore() {
         return ignore;
     }
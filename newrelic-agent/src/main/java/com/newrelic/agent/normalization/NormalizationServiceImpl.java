@@ -9,11 +9,15 @@ package com.newrelic.agent.normalization;
 
 import com.newrelic.agent.ConnectionListener;
 import com.newrelic.agent.IRPMService;
+import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.config.BaseConfig;
+import com.newrelic.agent.harvest.HarvestListener;
 import com.newrelic.agent.service.AbstractService;
 import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsEngine;
 
+import java.text.MessageFormat;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -22,7 +26,8 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class NormalizationServiceImpl extends AbstractService implements NormalizationService, ConnectionListener {
+public class NormalizationServiceImpl extends AbstractService implements NormalizationService, ConnectionListener,
+        HarvestListener {
 
     private static final Pattern PARAMETER_DELIMITER_PATTERN = Pattern.compile("(.*?)(\\?|#|;).*", Pattern.DOTALL);
     private static final List<NormalizationRule> EMPTY_RULES = Collections.emptyList();
@@ -41,20 +46,22 @@ public class NormalizationServiceImpl extends AbstractService implements Normali
         AgentConfig defaultAgentConfig = ServiceFactory.getConfigService().getDefaultAgentConfig();
         defaultAppName = defaultAgentConfig.getApplicationName();
         autoAppNamingEnabled = defaultAgentConfig.isAutoAppNamingEnabled();
-        defaultUrlNormalizer = createUrlNormalizer(defaultAppName, EMPTY_RULES);
+        defaultUrlNormalizer = createUrlNormalizer(defaultAppName, EMPTY_RULES, 0);
         defaultTransactionNormalizer = createTransactionNormalizer(defaultAppName, EMPTY_RULES,
-                Collections.<TransactionSegmentTerms> emptyList());
-        defaultMetricNormalizer = createMetricNormalizer(defaultAppName, EMPTY_RULES);
+                Collections.<TransactionSegmentTerms> emptyList(), 0);
+        defaultMetricNormalizer = createMetricNormalizer(defaultAppName, EMPTY_RULES, 0);
         ServiceFactory.getRPMServiceManager().addConnectionListener(this);
     }
 
     @Override
     protected void doStart() throws Exception {
+        ServiceFactory.getHarvestService().addHarvestListener(this);
     }
 
     @Override
     protected void doStop() throws Exception {
         ServiceFactory.getRPMServiceManager().removeConnectionListener(this);
+        ServiceFactory.getHarvestService().removeHarvestListener(this);
     }
 
     @Override
@@ -107,13 +114,14 @@ public class NormalizationServiceImpl extends AbstractService implements Normali
                 agentConfig.getNormalizationRuleConfig().getTransactionSegmentRules()
         );
 
-        Normalizer normalizer = createUrlNormalizer(appName, urlRules);
+        int cacheSize = agentConfig.getNormalizationCacheSize();
+        Normalizer normalizer = createUrlNormalizer(appName, urlRules, cacheSize);
         replaceUrlNormalizer(appName, normalizer);
 
-        normalizer = createTransactionNormalizer(appName, transactionNameRules, transactionSegmentTermRules);
+        normalizer = createTransactionNormalizer(appName, transactionNameRules, transactionSegmentTermRules, cacheSize);
         replaceTransactionNormalizer(appName, normalizer);
 
-        normalizer = createMetricNormalizer(appName, metricNameRules);
+        normalizer = createMetricNormalizer(appName, metricNameRules, cacheSize);
         replaceMetricNormalizer(appName, normalizer);
     }
 
@@ -122,12 +130,37 @@ public class NormalizationServiceImpl extends AbstractService implements Normali
         // do nothing
     }
 
+    @Override
+    public void beforeHarvest(String appName, StatsEngine statsEngine) {
+        recordRuleMatches("Url", findUrlNormalizer(appName), statsEngine);
+        recordRuleMatches("Transaction", findTransactionNormalizer(appName), statsEngine);
+        recordRuleMatches("Metric", findMetricNormalizer(appName), statsEngine);
+    }
+
+    @Override
+    public void afterHarvest(String appName) {
+    }
+
+    private void recordRuleMatches(String type, Normalizer normalizer, StatsEngine statsEngine) {
+        if (normalizer == null) {
+            return;
+        }
+        for (NormalizationRule rule : normalizer.getRules()) {
+            long matches = rule.getAndResetMatchCount();
+            if (matches > 0) {
+                String metricName = MessageFormat.format(MetricNames.SUPPORTABILITY_NORMALIZATION_RULE_MATCHES, type,
+                        String.valueOf(rule.getOrder()));
+                statsEngine.getStats(metricName).incrementCallCount((int) matches);
+            }
+        }
+    }
+
     private Normalizer getOrCreateUrlNormalizer(String appName) {
         Normalizer normalizer = findUrlNormalizer(appName);
         if (normalizer != null) {
             return normalizer;
         }
-        normalizer = createUrlNormalizer(appName, EMPTY_RULES);
+        normalizer = createUrlNormalizer(appName, EMPTY_RULES, 0);
         Normalizer oldNormalizer = urlNormalizers.putIfAbsent(appName, normalizer);
         return oldNormalizer == null ? normalizer : oldNormalizer;
     }
@@ -154,7 +187,7 @@ public class NormalizationServiceImpl extends AbstractService implements Normali
             return normalizer;
         }
         normalizer = createTransactionNormalizer(appName, EMPTY_RULES,
-                Collections.<TransactionSegmentTerms> emptyList());
+                Collections.<TransactionSegmentTerms> emptyList(), 0);
         Normalizer oldNormalizer = transactionNormalizers.putIfAbsent(appName, normalizer);
         return oldNormalizer == null ? normalizer : oldNormalizer;
     }
@@ -180,7 +213,7 @@ public class NormalizationServiceImpl extends AbstractService implements Normali
         if (normalizer != null) {
             return normalizer;
         }
-        normalizer = createMetricNormalizer(appName, EMPTY_RULES);
+        normalizer = createMetricNormalizer(appName, EMPTY_RULES, 0);
         Normalizer oldNormalizer = metricNormalizers.putIfAbsent(appName, normalizer);
         return oldNormalizer == null ? normalizer : oldNormalizer;
     }
@@ -201,17 +234,18 @@ public class NormalizationServiceImpl extends AbstractService implements Normali
         }
     }
 
-    private Normalizer createUrlNormalizer(String appName, List<NormalizationRule> urlRules) {
-        return NormalizerFactory.createUrlNormalizer(appName, urlRules);
+    private Normalizer createUrlNormalizer(String appName, List<NormalizationRule> urlRules, int cacheSize) {
+        return NormalizerFactory.createUrlNormalizer(appName, urlRules, cacheSize);
     }
 
     private Normalizer createTransactionNormalizer(String appName, List<NormalizationRule> metricNameRules,
-            List<TransactionSegmentTerms> transactionSegmentTermRules) {
-        return NormalizerFactory.createTransactionNormalizer(appName, metricNameRules, transactionSegmentTermRules);
+            List<TransactionSegmentTerms> transactionSegmentTermRules, int cacheSize) {
+        return NormalizerFactory.createTransactionNormalizer(appName, metricNameRules, transactionSegmentTermRules,
+                cacheSize);
     }
 
-    private Normalizer createMetricNormalizer(String appName, List<NormalizationRule> metricNameRules) {
-        return NormalizerFactory.createMetricNormalizer(appName, metricNameRules);
+    private Normalizer createMetricNormalizer(String appName, List<NormalizationRule> metricNameRules, int cacheSize) {
+        return NormalizerFactory.createMetricNormalizer(appName, metricNameRules, cacheSize);
     }
 
 }
@@ -17,14 +17,23 @@ import com.newrelic.agent.MetricNames;
 public class NormalizerFactory {
 
     public static Normalizer createUrlNormalizer(String appName, List<NormalizationRule> urlRules) {
-        return new UrlNormalizer(new NormalizerImpl(appName, urlRules));
+        return createUrlNormalizer(appName, urlRules, 0);
+    }
+
+    public static Normalizer createUrlNormalizer(String appName, List<NormalizationRule> urlRules, int cacheSize) {
+        return new UrlNormalizer(new NormalizerImpl(appName, urlRules, cacheSize));
     }
 
     public static Normalizer createTransactionNormalizer(String appName, List<NormalizationRule> transactionNameRules,
             List<TransactionSegmentTerms> transactionSegmentTermRules) {
+        return createTransactionNormalizer(appName, transactionNameRules, transactionSegmentTermRules, 0);
+    }
+
+    public static Normalizer createTransactionNormalizer(String appName, List<NormalizationRule> transactionNameRules,
+            List<TransactionSegmentTerms> transactionSegmentTermRules, int cacheSize) {
 
         // ordering is important here. We want to first apply the old transaction name rules
-        Normalizer normalizer = new NormalizerImpl(appName, transactionNameRules);
+        Normalizer normalizer = new NormalizerImpl(appName, transactionNameRules, cacheSize);
 
         // then apply the segment term rules if there are any
         if (!transactionSegmentTermRules.isEmpty()) {
@@ -101,7 +110,12 @@ public class NormalizerFactory {
     }
 
     public static Normalizer createMetricNormalizer(String appName, List<NormalizationRule> metricNameRules) {
-        return new NormalizerImpl(appName, metricNameRules);
+        return createMetricNormalizer(appName, metricNameRules, 0);
+    }
+
+    public static Normalizer createMetricNormalizer(String appName, List<NormalizationRule> metricNameRules,
+            int cacheSize) {
+        return new NormalizerImpl(appName, metricNameRules, cacheSize);
     }
 
     private static class UrlNormalizer implements Normalizer {
@@ -8,25 +8,44 @@
 package com.newrelic.agent.normalization;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.logging.Level;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.newrelic.agent.Agent;
 
 /**
  * A class for applying renaming rules.
  * 
+ * When created with a cache size, the result for each name is remembered so that names seen before skip the rule
+ * chain. The rules a cached name matched still have their matches counted.
+ * 
  * This class is thread-safe.
  */
 public class NormalizerImpl implements Normalizer {
 
+    private static final NormalizationRule[] NO_RULES = new NormalizationRule[0];
+
     private final List<NormalizationRule> rules;
     private final String appName;
+    private final Cache<String, CachedResult> cache;
 
     public NormalizerImpl(String appName, List<NormalizationRule> rules) {
+        this(appName, rules, 0);
+    }
+
+    public NormalizerImpl(String appName, List<NormalizationRule> rules, int cacheSize) {
         this.appName = appName;
         this.rules = Collections.unmodifiableList(rules);
+        // there is nothing to save when there are no rules
+        if (cacheSize > 0 && !rules.isEmpty()) {
+            this.cache = CacheBuilder.newBuilder().maximumSize(cacheSize).concurrencyLevel(16).build();
+        } else {
+            this.cache = null;
+        }
     }
 
     @Override
@@ -35,13 +54,40 @@ public class NormalizerImpl implements Normalizer {
         if (name == null) {
             return null;
         }
+        if (cache == null) {
+            return normalize(name, null);
+        }
 
+        CachedResult result = cache.getIfPresent(name);
+        if (result == null) {
+            List<NormalizationRule> matched = new ArrayList<>(2);
+            result = new CachedResult(normalize(name, matched), matched.toArray(NO_RULES));
+            cache.put(name, result);
+        } else {
+            for (NormalizationRule rule : result.matchedRules) {
+                rule.recordMatch();
+            }
+        }
+        return result.normalizedName;
+    }
+
+    /**
+     * Run the rule chain.
+     * 
+     * @param matched if not null, the rules that match are added to it
+     * @return the normalized name, or null if the name is ignored
+     */
+    private String normalize(String name, List<NormalizationRule> matched) {
         String normalizedName = name;
         for (NormalizationRule rule : rules) {
             RuleResult result = rule.normalize(normalizedName);
             if (!result.isMatch()) {
                 continue;
             }
+            rule.recordMatch();
+            if (matched != null) {
+                matched.add(rule);
+            }
             if (rule.isIgnore()) {
                 if (Agent.LOG.isLoggable(Level.FINER)) {
                     String msg = MessageFormat.format("Ignoring \"{0}\" for \"{1}\" because it matched rule \"{2}\"",
@@ -71,4 +117,15 @@ public class NormalizerImpl implements Normalizer {
         return rules;
     }
 
+    private static final class CachedResult {
+        // null if the name is ignored
+        private final String normalizedName;
+        private final NormalizationRule[] matchedRules;
+
+        CachedResult(String normalizedName, NormalizationRule[] matchedRules) {
+            this.normalizedName = normalizedName;
+            this.matchedRules = matchedRules;
+        }
+    }
+
 }
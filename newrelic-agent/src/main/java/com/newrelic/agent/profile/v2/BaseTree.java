@@ -38,7 +38,7 @@ public abstract class BaseTree<S extends ProfileSegment> implements JSONStreamAw
         return result;
     }
 
-    private S add(ProfiledMethod method, S parent) {
+    protected final S add(ProfiledMethod method, S parent) {
         S result;
         if (parent == null) {
             result = rootSegments.get(method);
@@ -0,0 +1,63 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.profile.v2;
+
+import com.newrelic.agent.util.StackTraces;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns the stack frames of a profile. Each distinct frame gets an id, which is its index in the table, so sampled
+ * stacks can be kept as arrays of ids. Whether a frame is an agent frame is worked out once, when it is interned.
+ *
+ * This class is not thread-safe. It is only used by the sampling thread and when the profile ends.
+ */
+class FrameTable {
+
+    private final Map<StackTraceElement, Integer> ids = new HashMap<>();
+    private final List<StackTraceElement> frames = new ArrayList<>();
+    private boolean[] agentFrames = new boolean[64];
+
+    /**
+     * Returns the id of the frame, adding it to the table the first time it is seen.
+     */
+    int intern(StackTraceElement frame) {
+        Integer id = ids.get(frame);
+        if (id != null) {
+            return id;
+        }
+        int newId = frames.size();
+        frames.add(frame);
+        ids.put(frame, newId);
+        if (newId == agentFrames.length) {
+            agentFrames = Arrays.copyOf(agentFrames, newId * 2);
+        }
+        agentFrames[newId] = StackTraces.isAgentFrame(frame);
+        return newId;
+    }
+
+    StackTraceElement getFrame(int id) {
+        return frames.get(id);
+    }
+
+    /**
+     * @see StackTraces#isAgentFrame(StackTraceElement)
+     */
+    boolean isAgentFrame(int id) {
+        return agentFrames[id];
+    }
+
+    int size() {
+        return frames.size();
+    }
+
+}
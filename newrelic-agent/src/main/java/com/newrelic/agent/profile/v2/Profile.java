@@ -102,14 +102,34 @@ public class Profile implements IProfile {
     private final TransactionProfileSession transactionProfileSession;
     private final String sessionId;
 
+    /*
+     * When frames are interned, samples are kept as frame ids in a trie per normalized thread name and only copied into
+     * the profile trees when the profile ends.
+     */
+    private final boolean internFrames;
+    private final FrameTable frameTable = new FrameTable();
+    private final Map<String, StackTrie> stackTries = new HashMap<>();
+    private int[] frameIds = new int[MAX_STACK_DEPTH];
+
     public Profile(ProfilerParameters parameters, String sessionId, ThreadNameNormalizer threadNameNormalizer) {
-        this(parameters, sessionId, threadNameNormalizer, ManagementFactory.getThreadMXBean());
+        this(parameters, sessionId, threadNameNormalizer, false);
+    }
+
+    public Profile(ProfilerParameters parameters, String sessionId, ThreadNameNormalizer threadNameNormalizer, boolean internFrames) {
+        this(parameters, sessionId, threadNameNormalizer, ManagementFactory.getThreadMXBean(), internFrames);
     }
 
     // Package-private for testing
     Profile(ProfilerParameters parameters, String sessionId, ThreadNameNormalizer threadNameNormalizer, ThreadMXBean threadMXBean) {
+        this(parameters, sessionId, threadNameNormalizer, threadMXBean, false);
+    }
+
+    // Package-private for testing
+    Profile(ProfilerParameters parameters, String sessionId, ThreadNameNormalizer threadNameNormalizer, ThreadMXBean threadMXBean,
+            boolean internFrames) {
         this.profilerParameters = parameters;
         this.sessionId = sessionId;
+        this.internFrames = internFrames;
 
         this.threadNameNormalizer = threadNameNormalizer;
         profiledMethodFactory = new ProfiledMethodFactory(this);
@@ -172,6 +192,8 @@ public class Profile implements IProfile {
     public void end() {
         endTimeMillis = System.currentTimeMillis();
 
+        addStackTries();
+
         Map<Long, Long> endThreadCpuTimes = getThreadCpuTimes();
 
         for (Entry<Long, Long> entry : endThreadCpuTimes.entrySet()) {
@@ -424,6 +446,10 @@ public class Profile implements IProfile {
         if (stackTrace.length < 2) {
             return;
         }
+        if (internFrames) {
+            addInternedStackTrace(threadInfo, stackTrace, runnable, type);
+            return;
+        }
         
         // make sure this thread is in our start time cache
         startThreadCpuTimes.getUnchecked(threadInfo.getId());
@@ -447,6 +473,57 @@ public class Profile implements IProfile {
         profileTree.addStackTrace(result, runnable);
     }
 
+    private void addInternedStackTrace(BasicThreadInfo threadInfo, StackTraceElement[] stackTrace, boolean runnable, ThreadType type) {
+        // make sure this thread is in our start time cache
+        startThreadCpuTimes.getUnchecked(threadInfo.getId());
+
+        incrementThreadCounts(runnable);
+
+        if (frameIds.length < stackTrace.length) {
+            frameIds = new int[stackTrace.length];
+        }
+        // the stack traces we get start with the leaves, not the roots. flip them, and scrub them the same way
+        // StackTraces.scrub does: stop at the first agent frame from the root
+        boolean scrub = shouldScrubStack(type);
+        int length = 0;
+        for (int i = stackTrace.length - 1; i >= 0; i--) {
+            int frameId = frameTable.intern(stackTrace[i]);
+            if (scrub && frameTable.isAgentFrame(frameId)) {
+                break;
+            }
+            frameIds[length++] = frameId;
+        }
+
+        String normalizedThreadName = threadNameNormalizer.getNormalizedThreadName(threadInfo);
+        threadIdToProfileTrees.put(threadInfo.getId(), getProfileTree(normalizedThreadName));
+        StackTrie stackTrie = stackTries.get(normalizedThreadName);
+        if (stackTrie == null) {
+            stackTrie = new StackTrie();
+            stackTries.put(normalizedThreadName, stackTrie);
+        }
+        stackTrie.add(frameIds, length, runnable);
+    }
+
+    /**
+     * Copy the interned samples into the profile trees, resolving each distinct frame to a {@link ProfiledMethod} once.
+     */
+    private void addStackTries() {
+        if (stackTries.isEmpty()) {
+            return;
+        }
+        ProfiledMethod[] methods = new ProfiledMethod[frameTable.size()];
+        for (int id = 0; id < methods.length; id++) {
+            methods[id] = profiledMethodFactory.getProfiledMethod(frameTable.getFrame(id));
+        }
+        int nodeCount = 0;
+        for (Entry<String, StackTrie> entry : stackTries.entrySet()) {
+            getProfileTree(entry.getKey()).addStackTrie(entry.getValue(), methods);
+            nodeCount += entry.getValue().size();
+        }
+        Agent.LOG.fine(MessageFormat.format("Profile interned {0} distinct frames in {1} stack nodes", methods.length, nodeCount));
+        stackTries.clear();
+    }
+
     /**
      * A class to sort profile segments in order of lowest runnable call count (first) and highest depth in the stack
      * (second).
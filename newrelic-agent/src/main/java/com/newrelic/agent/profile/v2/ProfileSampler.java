@@ -8,9 +8,11 @@
 package com.newrelic.agent.profile.v2;
 
 import com.newrelic.agent.Agent;
+import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.profile.RunnableThreadRules;
 import com.newrelic.agent.profile.ThreadType;
 import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.RecordResponseTimeMetric;
 import com.newrelic.agent.util.StackTraces;
 
 import java.lang.management.ManagementFactory;
@@ -20,6 +22,7 @@ import java.text.MessageFormat;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Sample stack traces for the profiles in a profiling session.
@@ -34,6 +37,12 @@ public class ProfileSampler {
     
     private final RunnableThreadRules runnableThreadRules = new RunnableThreadRules();
 
+    // the cost of sampling, reported when the session ends. only updated by the sampling thread.
+    private volatile int sampleCount;
+    private volatile int sampledThreadCount;
+    private volatile long sampleTimeNanos;
+    private volatile long sampleCpuTimeNanos;
+
     public ProfileSampler() {
     }
 
@@ -41,10 +50,55 @@ public class ProfileSampler {
         if (profiles.isEmpty()) {
             return;
         }
+        long startNanos = System.nanoTime();
+        long startCpuNanos = getCurrentThreadCpuTime();
+        int threadCount = 0;
         for (IProfile profile : profiles) {
             profile.beforeSampling();
-            addThreadInfos(profile, getAllThreadInfos());
+            ThreadInfo[] threadInfos = profile.getProfilerParameters().isOnlyRequestThreads()
+                    ? getTransactionThreadInfos() : getAllThreadInfos();
+            threadCount += threadInfos.length;
+            addThreadInfos(profile, threadInfos);
+        }
+        long cpuTimeNanos = startCpuNanos < 0 ? -1 : getCurrentThreadCpuTime() - startCpuNanos;
+        recordSample(System.nanoTime() - startNanos, cpuTimeNanos, threadCount);
+    }
+
+    private void recordSample(long timeNanos, long cpuTimeNanos, int threadCount) {
+        sampleCount++;
+        sampledThreadCount += threadCount;
+        sampleTimeNanos += timeNanos;
+        ServiceFactory.getStatsService().doStatsWork(new RecordResponseTimeMetric(timeNanos,
+                MetricNames.SUPPORTABILITY_THREAD_PROFILER_SAMPLE_TIME, TimeUnit.NANOSECONDS));
+        if (cpuTimeNanos >= 0) {
+            sampleCpuTimeNanos += cpuTimeNanos;
+            ServiceFactory.getStatsService().doStatsWork(new RecordResponseTimeMetric(cpuTimeNanos,
+                    MetricNames.SUPPORTABILITY_THREAD_PROFILER_SAMPLE_CPU_TIME, TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * @return a description of the time spent sampling so far
+     */
+    public String getOverhead() {
+        return MessageFormat.format("{0} samples of {1} threads took {2} ms ({3} ms CPU)", sampleCount,
+                sampledThreadCount, TimeUnit.NANOSECONDS.toMillis(sampleTimeNanos),
+                TimeUnit.NANOSECONDS.toMillis(sampleCpuTimeNanos));
+    }
+
+    /**
+     * @return the CPU time of the sampling thread, or -1 if it is not available
+     */
+    private long getCurrentThreadCpuTime() {
+        try {
+            ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+            if (threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()) {
+                return threadMXBean.getCurrentThreadCpuTime();
+            }
+        } catch (SecurityException e) {
+            Agent.LOG.finer(MessageFormat.format("An error occurred getting the thread cpu time: {0}", e));
         }
+        return -1;
     }
 
     private void addThreadInfos(IProfile profiler, ThreadInfo[] threadInfos) {
@@ -87,6 +141,18 @@ public class ProfileSampler {
         return getThreadInfos(threadIds);
     }
 
+    /**
+     * Get the threads that transactions are running on, for profiles that only sample request threads.
+     */
+    private ThreadInfo[] getTransactionThreadInfos() {
+        Set<Long> ids = ServiceFactory.getTransactionService().getTransactionThreadIds();
+        ids.remove(Thread.currentThread().getId());
+        if (ids.isEmpty()) {
+            return EMPTY_THREAD_INFO_ARRAY;
+        }
+        return getThreadInfos(convertToLongArray(ids));
+    }
+
     private long[] convertToLongArray(Set<Long> ids) {
         long[] arr = new long[ids.size()];
         int i = 0;
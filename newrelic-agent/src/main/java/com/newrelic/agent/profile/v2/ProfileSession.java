@@ -45,7 +45,8 @@ public class ProfileSession {
     }
 
     private IProfile createProfile(ProfilerParameters profilerParameters) {
-        return new Profile(profilerParameters, sessionId, ServiceFactory.getThreadService().getThreadNameNormalizer());
+        boolean internFrames = ServiceFactory.getConfigService().getDefaultAgentConfig().getThreadProfilerConfig().isInternFrames();
+        return new Profile(profilerParameters, sessionId, ServiceFactory.getThreadService().getThreadNameNormalizer(), internFrames);
     }
 
     void start() {
@@ -122,6 +123,7 @@ public class ProfileSession {
             profile.end();
             profile.markInstrumentedMethods();
             getLogger().info(MessageFormat.format("Profiler finished with {0} samples", profile.getSampleCount()));
+            getLogger().info(MessageFormat.format("Profiler sampling overhead: {0}", profileSampler.getOverhead()));
         } catch (Throwable e) {
             getLogger().log(Level.SEVERE, "Error finishing profile - no profiles will be sent", e);
             return;
@@ -51,6 +51,28 @@ public class ProfileTree extends BaseTree<SimpleProfileSegment> {
         }
     }
 
+    /**
+     * Add the stacks in a trie.
+     *
+     * @param methods the methods of the trie's frame ids, null where a frame has no method
+     */
+    void addStackTrie(StackTrie stackTrie, ProfiledMethod[] methods) {
+        SimpleProfileSegment[] segments = new SimpleProfileSegment[stackTrie.size()];
+        // parents come before their children
+        for (int node = 0; node < stackTrie.size(); node++) {
+            int parentNode = stackTrie.getParent(node);
+            SimpleProfileSegment parent = parentNode == StackTrie.NO_PARENT ? null : segments[parentNode];
+            ProfiledMethod method = methods[stackTrie.getFrameId(node)];
+            if (method == null) {
+                segments[node] = parent;
+                continue;
+            }
+            SimpleProfileSegment segment = add(method, parent);
+            segment.addCallCounts(stackTrie.getRunnableCount(node), stackTrie.getNonrunnableCount(node));
+            segments[node] = segment;
+        }
+    }
+
     @Override
     protected Map<String, Object> getExtraData() {
         if (reportCpuTime) {
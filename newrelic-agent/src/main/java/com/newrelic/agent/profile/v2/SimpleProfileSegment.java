@@ -75,6 +75,14 @@ public class SimpleProfileSegment extends ProfileSegment {
         }
     }
 
+    /**
+     * Add calls counted elsewhere, such as in a {@link StackTrie}.
+     */
+    void addCallCounts(int runnableCalls, int nonrunnableCalls) {
+        runnableCallCount += runnableCalls;
+        nonrunnableCallCount += nonrunnableCalls;
+    }
+
     /**
      * Get the number of profile segments from this segment down
      * 
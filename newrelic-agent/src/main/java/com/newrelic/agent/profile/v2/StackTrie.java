@@ -0,0 +1,140 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.profile.v2;
+
+import java.util.Arrays;
+
+/**
+ * The sampled stacks of a thread grouping, as a trie of frame ids from a {@link FrameTable}. A node is an index into
+ * parallel int arrays, and the children of all nodes are found through one open addressing table keyed by the parent
+ * node and the frame id. Adding a stack does not allocate unless the trie grows.
+ *
+ * A node is always created after its parent, so walking the nodes in order visits parents before their children.
+ *
+ * This class is not thread-safe.
+ */
+class StackTrie {
+
+    /**
+     * The parent of the root nodes.
+     */
+    static final int NO_PARENT = -1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size;
+    private int[] frameIds = new int[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] runnableCounts = new int[INITIAL_CAPACITY];
+    private int[] nonrunnableCounts = new int[INITIAL_CAPACITY];
+
+    // the child table: the key is the parent node + 1 in the high bits and the frame id in the low bits. the value is
+    // the child node + 1, so 0 marks an empty slot. kept at most half full.
+    private long[] childKeys = new long[INITIAL_CAPACITY * 2];
+    private int[] childNodes = new int[INITIAL_CAPACITY * 2];
+
+    /**
+     * Add a stack to the trie, counting a call on every node along its path.
+     *
+     * @param frames the frame ids of the stack, root first
+     * @param length the number of frames to use
+     * @param runnable whether the thread was runnable
+     */
+    void add(int[] frames, int length, boolean runnable) {
+        int node = NO_PARENT;
+        for (int i = 0; i < length; i++) {
+            node = getOrAddChild(node, frames[i]);
+            if (runnable) {
+                runnableCounts[node]++;
+            } else {
+                nonrunnableCounts[node]++;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getFrameId(int node) {
+        return frameIds[node];
+    }
+
+    /**
+     * @return the parent node, or {@link #NO_PARENT} for a root node
+     */
+    int getParent(int node) {
+        return parents[node];
+    }
+
+    int getRunnableCount(int node) {
+        return runnableCounts[node];
+    }
+
+    int getNonrunnableCount(int node) {
+        return nonrunnableCounts[node];
+    }
+
+    private int getOrAddChild(int parent, int frameId) {
+        long key = ((long) (parent + 1) << 32) | (frameId & 0xFFFFFFFFL);
+        int mask = childKeys.length - 1;
+        int slot = hash(key) & mask;
+        while (childNodes[slot] != 0) {
+            if (childKeys[slot] == key) {
+                return childNodes[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int node = newNode(parent, frameId);
+        childKeys[slot] = key;
+        childNodes[slot] = node + 1;
+        if (size * 2 > childKeys.length) {
+            rehash(childKeys.length * 2);
+        }
+        return node;
+    }
+
+    private int newNode(int parent, int frameId) {
+        if (size == frameIds.length) {
+            int capacity = size * 2;
+            frameIds = Arrays.copyOf(frameIds, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            runnableCounts = Arrays.copyOf(runnableCounts, capacity);
+            nonrunnableCounts = Arrays.copyOf(nonrunnableCounts, capacity);
+        }
+        frameIds[size] = frameId;
+        parents[size] = parent;
+        return size++;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = childKeys;
+        int[] oldNodes = childNodes;
+        childKeys = new long[capacity];
+        childNodes = new int[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldNodes[i] != 0) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (childNodes[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                childKeys[slot] = oldKeys[i];
+                childNodes[slot] = oldNodes[i];
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        // spread the bits so nodes with close ids do not collide
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+}
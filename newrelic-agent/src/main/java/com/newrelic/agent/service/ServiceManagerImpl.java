@@ -72,6 +72,7 @@ import com.newrelic.agent.sql.SqlTraceService;
 import com.newrelic.agent.sql.SqlTraceServiceImpl;
 import com.newrelic.agent.stats.StatsEngine;
 import com.newrelic.agent.stats.StatsService;
+import com.newrelic.agent.stats.ShardedStatsServiceImpl;
 import com.newrelic.agent.stats.StatsServiceImpl;
 import com.newrelic.agent.stats.StatsWork;
 import com.newrelic.agent.trace.TransactionTraceService;
@@ -212,7 +213,7 @@ public class ServiceManagerImpl extends AbstractService implements ServiceManage
 
         boolean realAgent = coreService.getInstrumentation() != null;
 
-        statsService = new StatsServiceImpl();
+        statsService = configService.getDefaultAgentConfig().isShardedStats() ? new ShardedStatsServiceImpl() : new StatsServiceImpl();
         replayStartupStatsWork();
 
         utilizationService = new UtilizationService();
@@ -264,6 +265,9 @@ public class ServiceManagerImpl extends AbstractService implements ServiceManage
         // Register harvest listeners that started before harvest service was created.
         harvestService.addHarvestListener(extensionService);
         harvestService.addHarvestListener(jarCollectorHarvestListener);
+        if (classTransformerService.getContextManager() != null) {
+            harvestService.addHarvestListener(classTransformerService.getContextManager().getClassWeaverService());
+        }
 
         asyncTxService.start();
         threadService.start();
@@ -311,6 +315,7 @@ public class ServiceManagerImpl extends AbstractService implements ServiceManage
         com.newrelic.agent.config.InfiniteTracingConfig config = configService.getDefaultAgentConfig().getInfiniteTracingConfig();
         Double flakyPercentage = configService.getDefaultAgentConfig().getInfiniteTracingConfig().getFlakyPercentage();
         boolean usePlaintext = configService.getDefaultAgentConfig().getInfiniteTracingConfig().getUsePlaintext();
+        boolean useBatching = configService.getDefaultAgentConfig().getInfiniteTracingConfig().getUseBatching();
 
         InfiniteTracingConfig infiniteTracingConfig = InfiniteTracingConfig.builder()
                 .maxQueueSize(config.getSpanEventsQueueSize())
@@ -320,6 +325,8 @@ public class ServiceManagerImpl extends AbstractService implements ServiceManage
                 .licenseKey(configService.getDefaultAgentConfig().getLicenseKey())
                 .flakyPercentage(flakyPercentage)
                 .usePlaintext(usePlaintext)
+                .useBatching(useBatching)
+                .batchSize(config.getSpanEventsBatchSize())
                 .build();
 
         return InfiniteTracing.initialize(infiniteTracingConfig, NewRelic.getAgent().getMetricAggregator());
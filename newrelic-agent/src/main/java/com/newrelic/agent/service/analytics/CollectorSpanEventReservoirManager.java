@@ -43,6 +43,9 @@ public class CollectorSpanEventReservoirManager implements ReservoirManager<Span
         String appName = configService.getDefaultAgentConfig().getApplicationName();
         SpanEventsConfig spanEventsConfig = configService.getDefaultAgentConfig().getSpanEventsConfig();
         int target = spanEventsConfig.getTargetSamplesStored();
+        if (spanEventsConfig.isStripedReservoir()) {
+            return new StripedSamplingPriorityQueue<>(appName, "Span Event Service", maxSamplesStored, decidedLast, target, SPAN_EVENT_COMPARATOR);
+        }
         return new DistributedSamplingPriorityQueue<>(appName, "Span Event Service", maxSamplesStored, decidedLast, target, SPAN_EVENT_COMPARATOR);
     }
 
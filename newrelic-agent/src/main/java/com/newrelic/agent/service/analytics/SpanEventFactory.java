@@ -13,9 +13,11 @@ import com.newrelic.agent.config.AgentConfig;
 import com.newrelic.agent.database.SqlObfuscator;
 import com.newrelic.agent.interfaces.backport.Supplier;
 import com.newrelic.agent.model.AttributeFilter;
+import com.newrelic.agent.model.SpanAgentAttribute;
 import com.newrelic.agent.model.SpanCategory;
 import com.newrelic.agent.model.SpanError;
 import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.agent.model.SpanIntrinsic;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.util.ExternalsUtil;
 import com.newrelic.api.agent.DatastoreParameters;
@@ -54,8 +56,8 @@ public class SpanEventFactory {
 
     public SpanEventFactory(String appName, AttributeFilter filter, Supplier<Long> timestampSupplier) {
         this.filter = filter;
-        builder.putIntrinsic("type", SPAN);
-        builder.putIntrinsic("category", SpanCategory.generic.name());
+        builder.putIntrinsic(SpanIntrinsic.TYPE, SPAN);
+        builder.putIntrinsic(SpanIntrinsic.CATEGORY, SpanCategory.generic.name());
         this.appName = appName;
         this.timestampSupplier = timestampSupplier;
         builder.appName(appName);
@@ -67,42 +69,42 @@ public class SpanEventFactory {
 
     public SpanEventFactory setPriority(float priority) {
         builder.priority(priority);
-        builder.putIntrinsic("priority", priority);
+        builder.putIntrinsic(SpanIntrinsic.PRIORITY, priority);
         return this;
     }
 
     public SpanEventFactory setParentType(String parentType) {
-        builder.putIntrinsic("parent.type", parentType);
+        builder.putIntrinsic(SpanIntrinsic.PARENT_TYPE, parentType);
         return this;
     }
 
     public SpanEventFactory setParentId(String parentId) {
-        builder.putIntrinsic("parentId", parentId);
+        builder.putIntrinsic(SpanIntrinsic.PARENT_ID, parentId);
         return this;
     }
 
     public SpanEventFactory setGuid(String guid) {
-        builder.putIntrinsic("guid", guid);
+        builder.putIntrinsic(SpanIntrinsic.GUID, guid);
         return this;
     }
 
     public SpanEventFactory setTraceId(String traceId) {
-        builder.putIntrinsic("traceId", traceId);
+        builder.putIntrinsic(SpanIntrinsic.TRACE_ID, traceId);
         return this;
     }
 
     public SpanEventFactory setSampled(boolean sampled) {
-        builder.putIntrinsic("sampled", sampled);
+        builder.putIntrinsic(SpanIntrinsic.SAMPLED, sampled);
         return this;
     }
 
     public SpanEventFactory setDurationInSeconds(float duration) {
-        builder.putIntrinsic("duration", duration);
+        builder.putIntrinsic(SpanIntrinsic.DURATION, duration);
         return this;
     }
 
     public SpanEventFactory setName(String name) {
-        builder.putIntrinsic("name", name);
+        builder.putIntrinsic(SpanIntrinsic.NAME, name);
         return this;
     }
 
@@ -143,25 +145,25 @@ public class SpanEventFactory {
     }
 
     public SpanEventFactory setTransactionId(String rootId) {
-        builder.putIntrinsic("transactionId", rootId);
+        builder.putIntrinsic(SpanIntrinsic.TRANSACTION_ID, rootId);
         return this;
     }
 
     public SpanEventFactory setTimestamp(long startTime) {
-        builder.putIntrinsic("timestamp", startTime);
+        builder.putIntrinsic(SpanIntrinsic.TIMESTAMP, startTime);
         return this;
     }
 
     public SpanEventFactory setCategory(SpanCategory category) {
         if (category != null) {
-            builder.putIntrinsic("category", category.name());
+            builder.putIntrinsic(SpanIntrinsic.CATEGORY, category.name());
         }
         return this;
     }
 
     public SpanEventFactory setKindFromUserAttributes() {
         Object spanKind = builder.getSpanKindFromUserAttributes();
-        builder.putIntrinsic("span.kind", spanKind);
+        builder.putIntrinsic(SpanIntrinsic.SPAN_KIND, spanKind);
         return this;
     }
 
@@ -171,43 +173,43 @@ public class SpanEventFactory {
             return this;
         }
 
-        if (filter.shouldIncludeAgentAttribute(appName, "http.url")) {
+        if (filter.shouldIncludeAgentAttribute(appName, SpanAgentAttribute.HTTP_URL.getKey())) {
             final URI sanitizedURI = ExternalsUtil.sanitizeURI(uri);
             if (sanitizedURI != null) {
-                builder.putAgentAttribute("http.url", sanitizedURI.toString());
+                builder.putAgentAttribute(SpanAgentAttribute.HTTP_URL, sanitizedURI.toString());
             }
         }
         return this;
     }
 
     public SpanEventFactory setHttpMethod(String method) {
-        if (filter.shouldIncludeAgentAttribute(appName, "http.method")) {
-            builder.putAgentAttribute("http.method", method);
+        if (filter.shouldIncludeAgentAttribute(appName, SpanAgentAttribute.HTTP_METHOD.getKey())) {
+            builder.putAgentAttribute(SpanAgentAttribute.HTTP_METHOD, method);
         }
         return this;
     }
 
     // http parameter
     public SpanEventFactory setHttpComponent(String component) {
-        builder.putIntrinsic("component", component);
+        builder.putIntrinsic(SpanIntrinsic.COMPONENT, component);
         return this;
     }
 
     // datastore parameter
     public SpanEventFactory setDatabaseName(String databaseName) {
-        builder.putIntrinsic("db.instance", databaseName);
+        builder.putIntrinsic(SpanIntrinsic.DB_INSTANCE, databaseName);
         return this;
     }
 
     // datastore parameter
     public SpanEventFactory setDatastoreComponent(String component) {
-        builder.putIntrinsic("component", component);
+        builder.putIntrinsic(SpanIntrinsic.COMPONENT, component);
         return this;
     }
 
     // datastore parameter
     public SpanEventFactory setHostName(String host) {
-        builder.putIntrinsic("peer.hostname", host);
+        builder.putIntrinsic(SpanIntrinsic.PEER_HOSTNAME, host);
         return this;
     }
 
@@ -215,7 +217,7 @@ public class SpanEventFactory {
     public SpanEventFactory setAddress(String hostName, String portPathOrId) {
         if (portPathOrId != null && hostName != null) {
             String address = MessageFormat.format("{0}:{1}", hostName, portPathOrId);
-            builder.putIntrinsic("peer.address", address);
+            builder.putIntrinsic(SpanIntrinsic.PEER_ADDRESS, address);
         }
         return this;
     }
@@ -223,14 +225,14 @@ public class SpanEventFactory {
     // datastore parameter
     public SpanEventFactory setDatabaseStatement(String query) {
         if (query != null) {
-            builder.putIntrinsic("db.statement", truncateWithEllipsis(query, DB_STATEMENT_TRUNCATE_LENGTH));
+            builder.putIntrinsic(SpanIntrinsic.DB_STATEMENT, truncateWithEllipsis(query, DB_STATEMENT_TRUNCATE_LENGTH));
         }
         return this;
     }
 
     // datastore parameter
     private SpanEventFactory setDatabaseCollection(String collection) {
-        builder.putIntrinsic("db.collection", collection);
+        builder.putIntrinsic(SpanIntrinsic.DB_COLLECTION, collection);
         return this;
     }
 
@@ -248,24 +250,24 @@ public class SpanEventFactory {
     }
 
     private void setErrorClass(Class<?> throwableClass, Integer errorStatus) {
-        if (filter.shouldIncludeAgentAttribute(appName, "error.class")) {
+        if (filter.shouldIncludeAgentAttribute(appName, SpanAgentAttribute.ERROR_CLASS.getKey())) {
             if (throwableClass != null) {
-                builder.putAgentAttribute("error.class", throwableClass.getName());
+                builder.putAgentAttribute(SpanAgentAttribute.ERROR_CLASS, throwableClass.getName());
             } else if (errorStatus != null) {
-                builder.putAgentAttribute("error.class", errorStatus.toString());
+                builder.putAgentAttribute(SpanAgentAttribute.ERROR_CLASS, errorStatus.toString());
             }
         }
     }
 
     private void setErrorMessage(String message) {
-        if (filter.shouldIncludeAgentAttribute(appName, "error.message") && message != null && message.length() > 0) {
-            builder.putAgentAttribute("error.message", message);
+        if (filter.shouldIncludeAgentAttribute(appName, SpanAgentAttribute.ERROR_MESSAGE.getKey()) && message != null && message.length() > 0) {
+            builder.putAgentAttribute(SpanAgentAttribute.ERROR_MESSAGE, message);
         }
     }
 
     private void setExpectedError(boolean expectedError) {
-        if (filter.shouldIncludeAgentAttribute(appName, "error.expected") && expectedError) {
-            builder.putAgentAttribute("error.expected", true);
+        if (filter.shouldIncludeAgentAttribute(appName, SpanAgentAttribute.ERROR_EXPECTED.getKey()) && expectedError) {
+            builder.putAgentAttribute(SpanAgentAttribute.ERROR_EXPECTED, true);
         }
     }
 
@@ -278,19 +280,19 @@ public class SpanEventFactory {
 
     public SpanEventFactory setIsRootSpanEvent(boolean isRoot) {
         if (isRoot) {
-            builder.putIntrinsic("nr.entryPoint", true);
+            builder.putIntrinsic(SpanIntrinsic.ENTRY_POINT, true);
         }
         return this;
     }
 
     public SpanEventFactory setTrustedParent(String closestParent) {
-        builder.putIntrinsic("trustedParentId", closestParent);
+        builder.putIntrinsic(SpanIntrinsic.TRUSTED_PARENT_ID, closestParent);
         return this;
     }
 
     public SpanEventFactory setTracingVendors(Set<String> stateVendorKeys) {
         if (stateVendorKeys != null && !stateVendorKeys.isEmpty()) {
-            builder.putIntrinsic("tracingVendors", TRACE_STATE_VENDOR_JOINER.join(stateVendorKeys));
+            builder.putIntrinsic(SpanIntrinsic.TRACING_VENDORS, TRACE_STATE_VENDOR_JOINER.join(stateVendorKeys));
         }
         return this;
     }
@@ -67,7 +67,8 @@ public class SpanEventsServiceImpl extends AbstractService implements AgentConfi
     @Override
     public void dispatcherTransactionFinished(TransactionData transactionData, TransactionStats transactionStats) {
         // If this transaction is sampled and span events are enabled we should generate all of the transaction segment events
-        if (isSpanEventsEnabled() && spanEventCreationDecider.shouldCreateSpans(transactionData)) {
+        if (isSpanEventsEnabled() && spanEventCreationDecider.shouldCreateSpans(transactionData)
+                && !ServiceFactory.getServiceManager().getCircuitBreakerService().isTraceCollectionStopped()) {
             // This is where all Transaction Segment Spans gets created. To only send specific types of Span Events, handle that here.
             Tracer rootTracer = transactionData.getRootTracer();
             storeSafely(transactionData, rootTracer, true, transactionStats);
@@ -0,0 +1,366 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import com.google.common.collect.MinMaxPriorityQueue;
+import com.newrelic.agent.interfaces.SamplingPriorityQueue;
+import com.newrelic.agent.model.PriorityAware;
+import com.newrelic.agent.tracing.DistributedTraceUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link SamplingPriorityQueue} that spreads writes over several independent reservoirs ("stripes") so that request
+ * threads adding events do not all contend on a single monitor. The reservoir size is divided between the stripes, so
+ * together they never hold more than {@code reservoirSize} elements.
+ *
+ * Every stripe publishes its best element and, once full, its worst element in volatile fields. Writers use these to
+ * reject elements that no stripe would keep without taking a lock, to fill stripes that still have room, and otherwise
+ * to evict from the stripe holding the lowest priority element. With a single writer this keeps exactly the elements
+ * a {@link DistributedSamplingPriorityQueue} of the same size would have kept; concurrent writers that find the
+ * preferred stripe locked fall over to another stripe that would accept the element. {@link #getMinPriority()} and
+ * {@link #peek()} never lock. {@link #asList()} and {@link #poll()} lock the stripes and are intended for the harvest
+ * thread.
+ */
+public class StripedSamplingPriorityQueue<E extends PriorityAware> implements SamplingPriorityQueue<E> {
+
+    private static final int MAX_STRIPES = 64;
+
+    private final String appName;
+    private final String serviceName;
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+    private final AtomicInteger numberOfTries = new AtomicInteger();
+    private final AtomicInteger recorded = new AtomicInteger();
+    // the number of times the decider was used on an event on this application. That meaning, the number of
+    // events that started on this application that did not accept a payload.
+    private final AtomicInteger decided = new AtomicInteger();
+
+    private final int decidedLast;
+    private final int target;
+    private final Comparator<E> comparator;
+    private final int maximumSize;
+
+    public StripedSamplingPriorityQueue(String appName, String serviceName, int reservoirSize, int decidedLast, int target,
+            Comparator<E> comparator) {
+        this(appName, serviceName, reservoirSize, decidedLast, target, comparator, Runtime.getRuntime().availableProcessors());
+    }
+
+    @SuppressWarnings("unchecked")
+    public StripedSamplingPriorityQueue(String appName, String serviceName, int reservoirSize, int decidedLast, int target,
+            Comparator<E> comparator, int concurrencyLevel) {
+        this.appName = appName;
+        this.serviceName = serviceName;
+        this.comparator = comparator == null ? new Comparator<E>() {
+            @Override
+            public int compare(E left, E right) {
+                return Float.compare(right.getPriority(), left.getPriority());
+            }
+        } : comparator;
+        this.decidedLast = decidedLast;
+        this.target = target;
+        this.maximumSize = Math.max(0, reservoirSize);
+
+        int stripeCount = reservoirSize <= 0 ? 0 : stripeCount(concurrencyLevel, reservoirSize);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            // the first reservoirSize % stripeCount stripes take one extra element each
+            int capacity = reservoirSize / stripeCount + (i < reservoirSize % stripeCount ? 1 : 0);
+            stripes[i] = new Stripe<>(capacity, this.comparator);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    /**
+     * Round the requested concurrency up to a power of two so the home stripe can be picked with a mask, without
+     * creating more stripes than there are elements to keep.
+     */
+    private static int stripeCount(int concurrencyLevel, int reservoirSize) {
+        int requested = Math.min(Math.min(Math.max(1, concurrencyLevel), MAX_STRIPES), reservoirSize);
+        int count = 1;
+        while (count < requested) {
+            count <<= 1;
+        }
+        return count > reservoirSize ? count >> 1 : count;
+    }
+
+    @Override
+    public void retryAll(SamplingPriorityQueue<E> source) {
+        for (E element : source.asList()) {
+            add(element);
+        }
+    }
+
+    @Override
+    public boolean isFull() {
+        return size() == maximumSize;
+    }
+
+    /**
+     * The priority an element has to beat to be kept once the reservoir is full: the lowest priority held by any stripe,
+     * or 0 while some stripe still has room. Read from the stripes' published elements without locking.
+     */
+    @Override
+    public float getMinPriority() {
+        E lowest = null;
+        for (Stripe<E> stripe : stripes) {
+            E worst = stripe.worst;
+            if (worst == null) {
+                return 0.0f;
+            }
+            if (lowest == null || comparator.compare(worst, lowest) > 0) {
+                lowest = worst;
+            }
+        }
+        return lowest == null ? 0.0f : lowest.getPriority();
+    }
+
+    @Override
+    public int getNumberOfTries() {
+        return numberOfTries.get();
+    }
+
+    @Override
+    public void incrementNumberOfTries() {
+        numberOfTries.incrementAndGet();
+    }
+
+    @Override
+    public boolean add(E element) {
+        incrementNumberOfTries();
+        if (stripes.length == 0) {
+            return false;
+        }
+
+        boolean added = offer(element);
+        if (added && element.decider()) {
+            decided.incrementAndGet();
+            if (DistributedTraceUtil.isSampledPriority(element.getPriority())) {
+                recorded.incrementAndGet();
+            }
+        }
+        return added;
+    }
+
+    private boolean offer(E element) {
+        int home = (int) Thread.currentThread().getId() & stripeMask;
+        Stripe<E> target = null;
+        E targetWorst = null;
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe<E> stripe = stripes[(home + i) & stripeMask];
+            E worst = stripe.worst;
+            if (worst == null) {
+                // this stripe still has room
+                target = stripe;
+                break;
+            }
+            if (comparator.compare(element, worst) < 0 && (targetWorst == null || comparator.compare(worst, targetWorst) > 0)) {
+                target = stripe;
+                targetWorst = worst;
+            }
+        }
+        if (target == null) {
+            // every stripe is full of elements at least as good as this one
+            return false;
+        }
+
+        if (!target.lock.tryLock()) {
+            Stripe<E> fallback = findUnlockedStripeAccepting(element, home);
+            if (fallback != null) {
+                target = fallback;
+            } else {
+                target.lock.lock();
+            }
+        }
+        try {
+            return target.offer(element);
+        } finally {
+            target.lock.unlock();
+        }
+    }
+
+    /**
+     * Find another stripe that would keep the element and whose lock is free. The returned stripe is locked.
+     */
+    private Stripe<E> findUnlockedStripeAccepting(E element, int home) {
+        for (int i = 0; i < stripes.length; i++) {
+            Stripe<E> stripe = stripes[(home + i) & stripeMask];
+            E worst = stripe.worst;
+            if ((worst == null || comparator.compare(element, worst) < 0) && stripe.lock.tryLock()) {
+                return stripe;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public E peek() {
+        E best = null;
+        for (Stripe<E> stripe : stripes) {
+            E head = stripe.best;
+            if (head != null && (best == null || comparator.compare(head, best) < 0)) {
+                best = head;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public E poll() {
+        lockAll();
+        try {
+            Stripe<E> bestStripe = null;
+            E best = null;
+            for (Stripe<E> stripe : stripes) {
+                E head = stripe.queue.peek();
+                if (head != null && (best == null || comparator.compare(head, best) < 0)) {
+                    best = head;
+                    bestStripe = stripe;
+                }
+            }
+            return bestStripe == null ? null : bestStripe.poll();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * Merge every stripe into a single list, sorted by the comparator and truncated to the reservoir size.
+     */
+    @Override
+    public List<E> asList() {
+        List<E> elements = new ArrayList<>();
+        for (Stripe<E> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                elements.addAll(stripe.queue);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        Collections.sort(elements, this.comparator);
+        if (elements.size() > maximumSize) {
+            return new ArrayList<>(elements.subList(0, maximumSize));
+        }
+        return elements;
+    }
+
+    @Override
+    public String getAppName() {
+        return appName;
+    }
+
+    @Override
+    public String getServiceName() {
+        return serviceName;
+    }
+
+    @Override
+    public int getSampled() {
+        return recorded.get();
+    }
+
+    @Override
+    public int getDecided() {
+        return decided.get();
+    }
+
+    @Override
+    public int getTarget() {
+        return target;
+    }
+
+    @Override
+    public int getDecidedLast() {
+        return decidedLast;
+    }
+
+    /**
+     * The number of elements {@link #asList()} would return. Stripe sizes are read without locking, so the result may
+     * lag concurrent writers slightly.
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe<E> stripe : stripes) {
+            size += stripe.size;
+        }
+        return Math.min(size, maximumSize);
+    }
+
+    @Override
+    public void clear() {
+        for (Stripe<E> stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private void lockAll() {
+        for (Stripe<E> stripe : stripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    /**
+     * A bounded reservoir guarded by its own lock. {@code size}, the best element and, once the stripe is full, the
+     * worst element are published after every change so that the request path can read them without the lock.
+     */
+    private static final class Stripe<E> {
+        final ReentrantLock lock = new ReentrantLock();
+        final MinMaxPriorityQueue<E> queue;
+        final int capacity;
+        volatile int size;
+        volatile E best;
+        volatile E worst;
+
+        Stripe(int capacity, Comparator<E> comparator) {
+            this.capacity = capacity;
+            this.queue = MinMaxPriorityQueue.orderedBy(comparator).maximumSize(capacity).create();
+        }
+
+        boolean offer(E element) {
+            boolean added = queue.offer(element);
+            publish();
+            return added;
+        }
+
+        E poll() {
+            E element = queue.poll();
+            publish();
+            return element;
+        }
+
+        void clear() {
+            queue.clear();
+            publish();
+        }
+
+        private void publish() {
+            int currentSize = queue.size();
+            size = currentSize;
+            best = queue.peekFirst();
+            worst = currentSize >= capacity ? queue.peekLast() : null;
+        }
+    }
+}
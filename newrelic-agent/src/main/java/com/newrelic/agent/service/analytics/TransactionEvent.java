@@ -11,29 +11,55 @@ import com.google.common.annotations.VisibleForTesting;
 import com.newrelic.agent.config.DistributedTracingConfig;
 import com.newrelic.agent.model.AnalyticsEvent;
 import com.newrelic.agent.model.ApdexPerfZone;
+import com.newrelic.agent.model.CollectorJsonAware;
+import com.newrelic.agent.model.CollectorJsonWriter;
 import com.newrelic.agent.model.PathHashes;
 import com.newrelic.agent.model.SyntheticsIds;
 import com.newrelic.agent.model.TimeoutCause;
 import com.newrelic.agent.model.TransactionTiming;
 import com.newrelic.agent.service.ServiceFactory;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONStreamAware;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
-public class TransactionEvent extends AnalyticsEvent implements JSONStreamAware {
+public class TransactionEvent extends AnalyticsEvent implements CollectorJsonAware {
 
     static final float UNASSIGNED_FLOAT = Float.NEGATIVE_INFINITY;
     static final int UNASSIGNED_INT = Integer.MIN_VALUE;
 
     static final String TYPE = "Transaction";
 
+    private static final CollectorJsonWriter.Key TYPE_KEY = CollectorJsonWriter.key("type");
+    private static final CollectorJsonWriter.Key TIMESTAMP_KEY = CollectorJsonWriter.key("timestamp");
+    private static final CollectorJsonWriter.Key NAME_KEY = CollectorJsonWriter.key("name");
+    private static final CollectorJsonWriter.Key DURATION_KEY = CollectorJsonWriter.key("duration");
+    private static final CollectorJsonWriter.Key ERROR_KEY = CollectorJsonWriter.key("error");
+    private static final CollectorJsonWriter.Key TOTAL_TIME_KEY = CollectorJsonWriter.key("totalTime");
+    private static final CollectorJsonWriter.Key PRIORITY_KEY = CollectorJsonWriter.key("priority");
+    private static final CollectorJsonWriter.Key TIME_TO_FIRST_BYTE_KEY = CollectorJsonWriter.key("timeToFirstByte");
+    private static final CollectorJsonWriter.Key TIME_TO_LAST_BYTE_KEY = CollectorJsonWriter.key("timeToLastByte");
+    private static final CollectorJsonWriter.Key APDEX_PERF_ZONE_KEY = CollectorJsonWriter.key("apdexPerfZone");
+    private static final CollectorJsonWriter.Key TRIP_ID_KEY = CollectorJsonWriter.key("nr.tripId");
+    private static final CollectorJsonWriter.Key GUID_KEY = CollectorJsonWriter.key("nr.guid");
+    private static final CollectorJsonWriter.Key PATH_HASH_KEY = CollectorJsonWriter.key("nr.pathHash");
+    private static final CollectorJsonWriter.Key REFERRING_PATH_HASH_KEY = CollectorJsonWriter.key("nr.referringPathHash");
+    private static final CollectorJsonWriter.Key ALTERNATE_PATH_HASHES_KEY = CollectorJsonWriter.key("nr.alternatePathHashes");
+    private static final CollectorJsonWriter.Key REFERRING_TRANSACTION_GUID_KEY = CollectorJsonWriter.key("nr.referringTransactionGuid");
+    private static final CollectorJsonWriter.Key SYNTHETICS_RESOURCE_ID_KEY = CollectorJsonWriter.key("nr.syntheticsResourceId");
+    private static final CollectorJsonWriter.Key SYNTHETICS_MONITOR_ID_KEY = CollectorJsonWriter.key("nr.syntheticsMonitorId");
+    private static final CollectorJsonWriter.Key SYNTHETICS_JOB_ID_KEY = CollectorJsonWriter.key("nr.syntheticsJobId");
+    private static final CollectorJsonWriter.Key PORT_KEY = CollectorJsonWriter.key("port");
+    private static final CollectorJsonWriter.Key QUEUE_DURATION_KEY = CollectorJsonWriter.key("queueDuration");
+    private static final CollectorJsonWriter.Key EXTERNAL_DURATION_KEY = CollectorJsonWriter.key("externalDuration");
+    private static final CollectorJsonWriter.Key EXTERNAL_CALL_COUNT_KEY = CollectorJsonWriter.key("externalCallCount");
+    private static final CollectorJsonWriter.Key DATABASE_DURATION_KEY = CollectorJsonWriter.key("databaseDuration");
+    private static final CollectorJsonWriter.Key DATABASE_CALL_COUNT_KEY = CollectorJsonWriter.key("databaseCallCount");
+    private static final CollectorJsonWriter.Key GC_CUMULATIVE_KEY = CollectorJsonWriter.key("gcCumulative");
+    private static final CollectorJsonWriter.Key TIMEOUT_CAUSE_KEY = CollectorJsonWriter.key("nr.timeoutCause");
+
     private final String appName;
     private final String guid;
     private final String referrerGuid;
@@ -190,101 +216,130 @@ public class TransactionEvent extends AnalyticsEvent implements JSONStreamAware
      * "agent_param1": "value", "agent_param2": value }
      */
 
-    @SuppressWarnings("unchecked")
     @Override
     public void writeJSONString(Writer out) throws IOException {
-        JSONObject obj = new JSONObject();
-        obj.put("type", getType());
-        obj.put("timestamp", getTimestamp());
-        obj.put("name", name);
-        obj.put("duration", timing.getDuration());
-        obj.put("error", error);
-        obj.put("totalTime", timing.getTotalTime());
-        obj.put("priority", getPriority());
-
-        if (timing.getTimeToFirstByte() != UNASSIGNED_FLOAT) {
-            obj.put("timeToFirstByte", timing.getTimeToFirstByte());
+        writeJSONString(new CollectorJsonWriter(out));
+    }
+
+    @Override
+    public void writeJSONString(CollectorJsonWriter writer) throws IOException {
+        writer.beginArray().beginObject();
+        if (name(writer, TYPE_KEY)) {
+            writer.value(getType());
         }
-        if (timing.getTimeToLastByte() != UNASSIGNED_FLOAT) {
-            obj.put("timeToLastByte", timing.getTimeToLastByte());
+        if (name(writer, TIMESTAMP_KEY)) {
+            writer.value(getTimestamp());
         }
-        if (apdexPerfZone != null) {
-            obj.put("apdexPerfZone", apdexPerfZone.getZone());
+        if (name(writer, NAME_KEY)) {
+            writer.value(name);
+        }
+        if (name(writer, DURATION_KEY)) {
+            writer.value(timing.getDuration());
+        }
+        if (name(writer, ERROR_KEY)) {
+            writer.value(error);
+        }
+        if (name(writer, TOTAL_TIME_KEY)) {
+            writer.value(timing.getTotalTime());
+        }
+        if (name(writer, PRIORITY_KEY)) {
+            writer.value(getPriority());
+        }
+
+        if (timing.getTimeToFirstByte() != UNASSIGNED_FLOAT && name(writer, TIME_TO_FIRST_BYTE_KEY)) {
+            writer.value(timing.getTimeToFirstByte());
+        }
+        if (timing.getTimeToLastByte() != UNASSIGNED_FLOAT && name(writer, TIME_TO_LAST_BYTE_KEY)) {
+            writer.value(timing.getTimeToLastByte());
+        }
+        if (apdexPerfZone != null && name(writer, APDEX_PERF_ZONE_KEY)) {
+            writer.value(apdexPerfZone.getZone());
         }
 
         DistributedTracingConfig distributedTracingConfig = ServiceFactory.getConfigService().getDefaultAgentConfig().getDistributedTracingConfig();
         if (!distributedTracingConfig.isEnabled()) {
-            if (tripId != null) {
-                obj.put("nr.tripId", tripId); // prefixed to be hidden by Insights
+            if (tripId != null && name(writer, TRIP_ID_KEY)) {
+                writer.value(tripId); // prefixed to be hidden by Insights
             }
-            if (guid != null) {
-                obj.put("nr.guid", guid); // prefixed to be hidden by Insights
+            if (guid != null && name(writer, GUID_KEY)) {
+                writer.value(guid); // prefixed to be hidden by Insights
             }
-            if (getPathHash() != null) {
+            if (getPathHash() != null && name(writer, PATH_HASH_KEY)) {
                 // properly handles leading 0's
-                obj.put("nr.pathHash", String.format("%08x", getPathHash())); // prefixed to be hidden by Insights
+                writer.value(String.format("%08x", getPathHash())); // prefixed to be hidden by Insights
             }
-            if (getReferringPathHash() != null) {
+            if (getReferringPathHash() != null && name(writer, REFERRING_PATH_HASH_KEY)) {
                 // properly handles leading 0's
-                obj.put("nr.referringPathHash", String.format("%08x", getReferringPathHash()));
+                writer.value(String.format("%08x", getReferringPathHash()));
             }
-            if (getAlternatePathHashes() != null) {
-                obj.put("nr.alternatePathHashes", getAlternatePathHashes()); // prefixed to be hidden by Insights
+            if (getAlternatePathHashes() != null && name(writer, ALTERNATE_PATH_HASHES_KEY)) {
+                writer.value(getAlternatePathHashes()); // prefixed to be hidden by Insights
             }
-            if (referrerGuid != null) {
-                obj.put("nr.referringTransactionGuid", referrerGuid); // prefixed to be hidden by Insights
+            if (referrerGuid != null && name(writer, REFERRING_TRANSACTION_GUID_KEY)) {
+                writer.value(referrerGuid); // prefixed to be hidden by Insights
             }
         }
-        if (this.syntheticsIds.getResourceId() != null) {
-            obj.put("nr.syntheticsResourceId", this.syntheticsIds.getResourceId());
+        if (this.syntheticsIds.getResourceId() != null && name(writer, SYNTHETICS_RESOURCE_ID_KEY)) {
+            writer.value(this.syntheticsIds.getResourceId());
         }
-        if (this.syntheticsIds.getMonitorId() != null) {
-            obj.put("nr.syntheticsMonitorId", this.syntheticsIds.getMonitorId());
+        if (this.syntheticsIds.getMonitorId() != null && name(writer, SYNTHETICS_MONITOR_ID_KEY)) {
+            writer.value(this.syntheticsIds.getMonitorId());
         }
-        if (this.syntheticsIds.getJobId() != null) {
-            obj.put("nr.syntheticsJobId", this.syntheticsIds.getJobId());
+        if (this.syntheticsIds.getJobId() != null && name(writer, SYNTHETICS_JOB_ID_KEY)) {
+            writer.value(this.syntheticsIds.getJobId());
         }
-        if (port != UNASSIGNED_INT) {
-            obj.put("port", port);
+        if (port != UNASSIGNED_INT && name(writer, PORT_KEY)) {
+            writer.value(port);
         }
-        if (timing.getQueueDuration() != UNASSIGNED_FLOAT) {
-            obj.put("queueDuration", timing.getQueueDuration());
+        if (timing.getQueueDuration() != UNASSIGNED_FLOAT && name(writer, QUEUE_DURATION_KEY)) {
+            writer.value(timing.getQueueDuration());
         }
-        if (getExternalDuration() != UNASSIGNED_FLOAT) {
-            obj.put("externalDuration", getExternalDuration());
+        if (getExternalDuration() != UNASSIGNED_FLOAT && name(writer, EXTERNAL_DURATION_KEY)) {
+            writer.value(getExternalDuration());
         }
-        if (getExternalCallCount() > 0) {
-            obj.put("externalCallCount", getExternalCallCount());
+        if (getExternalCallCount() > 0 && name(writer, EXTERNAL_CALL_COUNT_KEY)) {
+            writer.value(getExternalCallCount());
         }
-        if (getDatabaseDuration() != UNASSIGNED_FLOAT) {
-            obj.put("databaseDuration", getDatabaseDuration());
+        if (getDatabaseDuration() != UNASSIGNED_FLOAT && name(writer, DATABASE_DURATION_KEY)) {
+            writer.value(getDatabaseDuration());
         }
-        if (getDatabaseCallCount() > 0) {
-            obj.put("databaseCallCount", getDatabaseCallCount());
+        if (getDatabaseCallCount() > 0 && name(writer, DATABASE_CALL_COUNT_KEY)) {
+            writer.value(getDatabaseCallCount());
         }
-        if (timing.getGcCumulative() != UNASSIGNED_FLOAT) {
-            obj.put("gcCumulative", timing.getGcCumulative());
+        if (timing.getGcCumulative() != UNASSIGNED_FLOAT && name(writer, GC_CUMULATIVE_KEY)) {
+            writer.value(timing.getGcCumulative());
         }
-        if (timeoutCause != null) {
-            obj.put("nr.timeoutCause", timeoutCause.cause);
+        if (timeoutCause != null && name(writer, TIMEOUT_CAUSE_KEY)) {
+            writer.value(timeoutCause.cause);
         }
 
-        if (distributedTraceIntrinsics != null && !distributedTraceIntrinsics.isEmpty()) {
-            obj.putAll(distributedTraceIntrinsics);
+        if (distributedTraceIntrinsics != null) {
+            writer.members(distributedTraceIntrinsics);
         }
+        writer.endObject();
 
         Map<String, ?> filteredUserAtts = getUserFilteredMap(getMutableUserAttributes());
         Map<String, ?> filteredAgentAtts = getFilteredMap(agentAttributes);
-        if (filteredAgentAtts.isEmpty()) {
-            if (filteredUserAtts.isEmpty()) {
-                JSONArray.writeJSONString(Collections.singletonList(obj), out);
-            } else {
-                JSONArray.writeJSONString(Arrays.asList(obj, filteredUserAtts), out);
-            }
-        } else {
-            JSONArray.writeJSONString(Arrays.asList(obj, filteredUserAtts, filteredAgentAtts), out);
+        if (!filteredAgentAtts.isEmpty()) {
+            writer.value(filteredUserAtts).value(filteredAgentAtts);
+        } else if (!filteredUserAtts.isEmpty()) {
+            writer.value(filteredUserAtts);
         }
+        writer.endArray();
     }
+
+    /**
+     * Write the name of an intrinsic unless the distributed trace intrinsics have one of the same name, which is
+     * written instead.
+     */
+    private boolean name(CollectorJsonWriter writer, CollectorJsonWriter.Key key) throws IOException {
+        if (distributedTraceIntrinsics != null && distributedTraceIntrinsics.containsKey(key.getName())) {
+            return false;
+        }
+        writer.name(key);
+        return true;
+    }
+
     private Map<String, ?> getFilteredMap(Map<String, ?> input) {
         return ServiceFactory.getAttributesService().filterTransactionEventAttributes(appName, input);
     }
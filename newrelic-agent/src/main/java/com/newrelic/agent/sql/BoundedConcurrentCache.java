@@ -7,90 +7,263 @@
 
 package com.newrelic.agent.sql;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * 
+ *
  * Bounded concurrent cache that stores key value pairs (K,V).
- * 
- * When the cache reaches its maximum capacity, any new item added replaces the largest item in the cache.
- * 
+ *
+ * When the cache reaches its maximum capacity, any new item added replaces the smallest item in the cache.
+ *
  * To update a value in the cache, call <tt>putReplace</tt>.
- * 
+ *
+ * Keys are spread over shards, each a small map guarded by its own lock that also remembers its smallest value. When
+ * the cache is full, an insert compares against the shard minimums without locking and evicts from the shard holding
+ * the smallest one. Values may grow after they were inserted (see {@link SlowQueryInfo#aggregate}), so the minimums
+ * are approximate until the value is replaced.
+ *
  * This cache is thread-safe, but the behavior is not 100% deterministic and may end up returning slightly less
- * than the size limit in order to boost performance. However, it will never return a list that is over the limit. 
- * 
+ * than the size limit in order to boost performance. However, it will never return a list that is over the limit.
+ *
  * @param <K> Key type
  * @param <V> Value type
  */
 public class BoundedConcurrentCache<K, V extends Comparable<V> & CacheValue<K>> {
+
+    private static final int MAX_SHARDS = 16;
+
     private final int maxCapacity;
-    private final PriorityBlockingQueue<V> priorityQueue;
-    private final Cache<K, V> cache;
+    private final Comparator<V> comparator;
+    private final Shard<K, V>[] shards;
+    private final int shardMask;
+    private final AtomicInteger size = new AtomicInteger();
 
     public BoundedConcurrentCache(int size) {
         this(size, null);
     }
 
+    @SuppressWarnings("unchecked")
     public BoundedConcurrentCache(int size, Comparator<V> comparator) {
         this.maxCapacity = size;
-        this.priorityQueue = new PriorityBlockingQueue<>(size, comparator);
-        this.cache = CacheBuilder.newBuilder()
-                .concurrencyLevel(16)
-                .build();
+        this.comparator = comparator;
+        int shardCount = shardCount(size);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard<>();
+        }
+        this.shardMask = shardCount - 1;
+    }
+
+    /**
+     * A power of two no larger than {@link #MAX_SHARDS} that leaves several entries per shard.
+     */
+    private static int shardCount(int size) {
+        int count = 1;
+        while (count < MAX_SHARDS && count * 8 <= size) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    private Shard<K, V> shardFor(K key) {
+        int h = key.hashCode();
+        return shards[(h ^ (h >>> 16)) & shardMask];
     }
 
     public V get(K sql) {
-        return cache.getIfPresent(sql);
+        Shard<K, V> shard = shardFor(sql);
+        shard.lock.lock();
+        try {
+            return shard.map.get(sql);
+        } finally {
+            shard.lock.unlock();
+        }
     }
 
     public V putIfAbsent(K key, V value) {
-        V putValue = cache.asMap().putIfAbsent(key, value);
-        if (putValue != null) {
-            return putValue;
+        if (maxCapacity <= 0) {
+            return null;
+        }
+        Shard<K, V> shard = shardFor(key);
+        while (true) {
+            shard.lock.lock();
+            try {
+                V existing = shard.map.get(key);
+                if (existing != null) {
+                    return existing;
+                }
+                if (reserveSlot()) {
+                    shard.put(key, value, this);
+                    return null;
+                }
+            } finally {
+                shard.lock.unlock();
+            }
+
+            // full: make room by evicting the smallest value, unless the new value is the smallest
+            if (!evictSmallerThan(value)) {
+                return null;
+            }
+        }
+    }
+
+    private boolean reserveSlot() {
+        int current;
+        do {
+            current = size.get();
+            if (current >= maxCapacity) {
+                return false;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Evict the minimum of the shard whose minimum is smallest, if it is smaller than {@code value}.
+     *
+     * @return true if an entry was evicted or the cache is no longer full
+     */
+    private boolean evictSmallerThan(V value) {
+        Shard<K, V> victim = null;
+        V victimMin = null;
+        for (Shard<K, V> shard : shards) {
+            V min = shard.minValue;
+            if (min != null && (victimMin == null || compare(min, victimMin) < 0)) {
+                victim = shard;
+                victimMin = min;
+            }
+        }
+        if (victim == null) {
+            // every shard was emptied concurrently
+            return true;
         }
-        priorityQueue.add(value);
 
-        // replace min if cache gets full
-        while (priorityQueue.size() > maxCapacity) {
-            V val = priorityQueue.poll();
-            K sqlToRemove = val.getKey();
-            cache.invalidate(sqlToRemove);
+        victim.lock.lock();
+        try {
+            if (victim.minValue == null) {
+                return true;
+            }
+            if (compare(victim.minValue, value) >= 0) {
+                return false;
+            }
+            victim.removeMin(this);
+            size.decrementAndGet();
+            return true;
+        } finally {
+            victim.lock.unlock();
         }
-        return null;
     }
 
     /**
      * Inserts and replaces value in the cache. This method should be called whenever a value is modified.
-     * 
+     *
      * @param key key of value to update.
      */
     public void putReplace(K key, V value) {
-        V valueToRemove = cache.getIfPresent(key);
-        if (valueToRemove != null) {
-            cache.invalidate(key);
-            priorityQueue.remove(valueToRemove);
+        Shard<K, V> shard = shardFor(key);
+        shard.lock.lock();
+        try {
+            if (shard.map.containsKey(key)) {
+                shard.replace(key, value, this);
+                return;
+            }
+        } finally {
+            shard.lock.unlock();
         }
 
         putIfAbsent(key, value);
     }
 
     public int size() {
-        return priorityQueue.size();
+        return size.get();
     }
 
     public void clear() {
-        cache.invalidateAll();
-        priorityQueue.clear();
+        for (Shard<K, V> shard : shards) {
+            shard.lock.lock();
+            try {
+                size.addAndGet(-shard.map.size());
+                shard.clear();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
     }
 
     public List<V> asList() {
-        return new ArrayList<>(priorityQueue);
+        List<V> values = new ArrayList<>(size.get());
+        for (Shard<K, V> shard : shards) {
+            shard.lock.lock();
+            try {
+                values.addAll(shard.map.values());
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        return values;
+    }
+
+    private int compare(V left, V right) {
+        return comparator == null ? left.compareTo(right) : comparator.compare(left, right);
+    }
+
+    /**
+     * A map and its smallest entry. {@code minValue} is written under the lock and read without it by inserts looking
+     * for a shard to evict from.
+     */
+    private static final class Shard<K, V extends Comparable<V> & CacheValue<K>> {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<K, V> map = new HashMap<>();
+        K minKey;
+        volatile V minValue;
+
+        void put(K key, V value, BoundedConcurrentCache<K, V> cache) {
+            map.put(key, value);
+            if (minValue == null || cache.compare(value, minValue) < 0) {
+                minKey = key;
+                minValue = value;
+            }
+        }
+
+        void replace(K key, V value, BoundedConcurrentCache<K, V> cache) {
+            map.put(key, value);
+            if (key.equals(minKey)) {
+                // the replaced value may no longer be the smallest
+                recomputeMin(cache);
+            } else if (cache.compare(value, minValue) < 0) {
+                minKey = key;
+                minValue = value;
+            }
+        }
+
+        void removeMin(BoundedConcurrentCache<K, V> cache) {
+            map.remove(minKey);
+            recomputeMin(cache);
+        }
+
+        private void recomputeMin(BoundedConcurrentCache<K, V> cache) {
+            K newMinKey = null;
+            V newMinValue = null;
+            for (Map.Entry<K, V> entry : map.entrySet()) {
+                if (newMinValue == null || cache.compare(entry.getValue(), newMinValue) < 0) {
+                    newMinKey = entry.getKey();
+                    newMinValue = entry.getValue();
+                }
+            }
+            minKey = newMinKey;
+            minValue = newMinValue;
+        }
+
+        void clear() {
+            map.clear();
+            minKey = null;
+            minValue = null;
+        }
     }
 }
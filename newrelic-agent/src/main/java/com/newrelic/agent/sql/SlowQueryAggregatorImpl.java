@@ -9,10 +9,17 @@ package com.newrelic.agent.sql;
 
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.TransactionData;
+import com.newrelic.agent.bridge.datastore.ConnectionFactory;
+import com.newrelic.agent.database.ExplainPlanExecutor;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.tracers.SqlTracer;
+import com.newrelic.agent.tracers.Tracer;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -63,6 +70,7 @@ public class SlowQueryAggregatorImpl implements SlowQueryAggregator {
 
     private List<SqlTrace> createSqlTraces(List<SlowQueryInfo> slowQueries) {
         List<SlowQueryInfo> topSlowQueries = getTopSlowQueries(slowQueries);
+        runExplainPlans(topSlowQueries);
         List<SqlTrace> results = new ArrayList<>(topSlowQueries.size());
         for (SlowQueryInfo slowQuery : topSlowQueries) {
             // TransactionData is required in order to send up a slow query trace
@@ -73,6 +81,35 @@ public class SlowQueryAggregatorImpl implements SlowQueryAggregator {
         return results;
     }
 
+    /**
+     * Run the explain plans of the slow queries as one batch, so queries on the same database share a connection and
+     * the harvest waits for them at most once.
+     */
+    private void runExplainPlans(List<SlowQueryInfo> slowQueries) {
+        Map<ConnectionFactory, List<ExplainPlanExecutor>> explainPlans = new HashMap<>();
+        for (SlowQueryInfo slowQuery : slowQueries) {
+            Tracer tracer = slowQuery.getTracer();
+            if (slowQuery.getTransactionData() == null || !(tracer instanceof SqlTracer)) {
+                continue;
+            }
+            SqlTracer sqlTracer = (SqlTracer) tracer;
+            ExplainPlanExecutor explainExecutor = sqlTracer.getExplainPlanExecutor();
+            ConnectionFactory connectionFactory = sqlTracer.getConnectionFactory();
+            if (explainExecutor == null || connectionFactory == null || sqlTracer.hasExplainPlan()) {
+                continue;
+            }
+            List<ExplainPlanExecutor> executors = explainPlans.get(connectionFactory);
+            if (executors == null) {
+                executors = new ArrayList<>();
+                explainPlans.put(connectionFactory, executors);
+            }
+            executors.add(explainExecutor);
+        }
+        if (!explainPlans.isEmpty()) {
+            ServiceFactory.getDatabaseService().runExplainPlans(explainPlans);
+        }
+    }
+
     private List<SlowQueryInfo> getTopSlowQueries(List<SlowQueryInfo> slowQueries) {
         if (slowQueries.size() <= SLOW_QUERY_LIMIT_PER_REPORTING_PERIOD) {
             return slowQueries;
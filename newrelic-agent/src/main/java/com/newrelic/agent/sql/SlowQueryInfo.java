@@ -16,7 +16,6 @@ import com.newrelic.agent.config.DatastoreConfig;
 import com.newrelic.agent.config.DistributedTracingConfig;
 import com.newrelic.agent.config.SqlTraceConfig;
 import com.newrelic.agent.config.TransactionTracerConfig;
-import com.newrelic.agent.database.DatabaseService;
 import com.newrelic.agent.database.DatastoreMetrics;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.trace.TransactionSegment;
@@ -130,12 +129,11 @@ public class SlowQueryInfo implements Comparable<SlowQueryInfo>, CacheValue<Stri
         replaceTracer(other.getTransactionData(), other.getTracer());
     }
 
+    /**
+     * The explain plan of the slow query must already have run, see
+     * {@link SlowQueryAggregatorImpl#getAndClearSlowQueries()}.
+     */
     public SqlTrace asSqlTrace() {
-        Tracer tracer = getTracer();
-        if (tracer instanceof SqlTracer) {
-            DatabaseService dbService = ServiceFactory.getDatabaseService();
-            dbService.runExplainPlan((SqlTracer) tracer);
-        }
         return new SqlTraceImpl(this);
     }
 
@@ -0,0 +1,189 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.stats;
+
+import com.newrelic.agent.Agent;
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.service.AbstractService;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.StatsServiceMetricAggregator;
+import com.newrelic.api.agent.MetricAggregator;
+
+import java.text.MessageFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link StatsService} that records metric data into a fixed set of stats engine shards instead of a shared queue
+ * of stats engines guarded by a lock.
+ *
+ * A thread doing stats work takes the engine out of its home shard with a single atomic swap, works on it without any
+ * synchronization and puts it back. An empty shard means another thread holds its engine, in which case the next
+ * shard is tried. The harvest thread swaps a fresh engine into every shard and merges the old ones, so recording
+ * never waits on the harvest.
+ *
+ * An engine that cannot be put back, because its shard was harvested while the work was in progress or because every
+ * shard was busy, is parked and merged at the next harvest.
+ *
+ * This class is thread-safe.
+ */
+public class ShardedStatsServiceImpl extends AbstractService implements StatsService {
+
+    private static final int MAX_SHARDS = 256;
+
+    private final MetricAggregator metricAggregator = new StatsServiceMetricAggregator(this);
+
+    private final ConcurrentMap<String, StatsShards> statsShards = new ConcurrentHashMap<>();
+    private final StatsShards defaultStatsShards;
+    private final String defaultAppName;
+    private final int shardCount;
+
+    public ShardedStatsServiceImpl() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public ShardedStatsServiceImpl(int concurrencyLevel) {
+        super(StatsService.class.getSimpleName());
+        defaultAppName = ServiceFactory.getConfigService().getDefaultAgentConfig().getApplicationName();
+        shardCount = shardCount(concurrencyLevel);
+        defaultStatsShards = new StatsShards(shardCount);
+    }
+
+    /**
+     * Round the requested concurrency up to a power of two so the home shard can be picked with a mask.
+     */
+    private static int shardCount(int concurrencyLevel) {
+        int requested = Math.min(Math.max(1, concurrencyLevel), MAX_SHARDS);
+        int count = 1;
+        while (count < requested) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    protected void doStart() {
+        // do nothing
+    }
+
+    @Override
+    protected void doStop() {
+        // do nothing
+    }
+
+    @Override
+    public void doStatsWork(StatsWork work) {
+        getOrCreateStatsShards(work.getAppName()).doStatsWork(work);
+    }
+
+    @Override
+    public StatsEngine getStatsEngineForHarvest(String appName) {
+        return getOrCreateStatsShards(appName).getStatsEngineForHarvest();
+    }
+
+    @Override
+    public MetricAggregator getMetricAggregator() {
+        return metricAggregator;
+    }
+
+    private StatsShards getOrCreateStatsShards(String appName) {
+        if (appName == null || appName.equals(defaultAppName)) {
+            return defaultStatsShards;
+        }
+        StatsShards shards = statsShards.get(appName);
+        if (shards != null) {
+            return shards;
+        }
+        shards = new StatsShards(shardCount);
+        StatsShards oldShards = statsShards.putIfAbsent(appName, shards);
+        return oldShards == null ? shards : oldShards;
+    }
+
+    private static class StatsShards {
+
+        private final AtomicReferenceArray<StatsEngine> shards;
+        private final int mask;
+
+        // engines that could not be returned to their shard; merged at the next harvest
+        private final ConcurrentLinkedQueue<StatsEngine> parked = new ConcurrentLinkedQueue<>();
+
+        private StatsShards(int shardCount) {
+            shards = new AtomicReferenceArray<>(shardCount);
+            for (int i = 0; i < shardCount; i++) {
+                shards.set(i, new StatsEngineImpl());
+            }
+            mask = shardCount - 1;
+        }
+
+        public void doStatsWork(StatsWork work) {
+            int home = (int) Thread.currentThread().getId() & mask;
+            int index = -1;
+            StatsEngine statsEngine = null;
+            for (int i = 0; i <= mask; i++) {
+                int candidate = (home + i) & mask;
+                statsEngine = shards.getAndSet(candidate, null);
+                if (statsEngine != null) {
+                    index = candidate;
+                    break;
+                }
+            }
+            if (statsEngine == null) {
+                // every shard is busy
+                statsEngine = new StatsEngineImpl();
+            }
+
+            try {
+                work.doWork(statsEngine);
+            } catch (Exception e) {
+                String msg = MessageFormat.format("Exception doing stats work: {0}", e);
+                Agent.LOG.warning(msg);
+            } finally {
+                if (index == -1 || !shards.compareAndSet(index, null, statsEngine)) {
+                    parked.offer(statsEngine);
+                }
+            }
+        }
+
+        public StatsEngine getStatsEngineForHarvest() {
+            long startTime = System.nanoTime();
+            StatsEngine harvestStatsEngine = new StatsEngineImpl();
+
+            int mergedCount = 0;
+            for (int i = 0; i < shards.length(); i++) {
+                StatsEngine statsEngine = shards.getAndSet(i, new StatsEngineImpl());
+                if (statsEngine != null) {
+                    harvestStatsEngine.mergeStats(statsEngine);
+                    mergedCount++;
+                }
+            }
+
+            int parkedCount = 0;
+            StatsEngine statsEngine;
+            while ((statsEngine = parked.poll()) != null) {
+                harvestStatsEngine.mergeStats(statsEngine);
+                parkedCount++;
+            }
+
+            harvestStatsEngine.getResponseTimeStats(MetricNames.SUPPORTABILITY_STATS_SERVICE_MERGE_TIME)
+                    .recordResponseTimeInNanos(System.nanoTime() - startTime);
+            harvestStatsEngine.getStats(MetricNames.SUPPORTABILITY_STATS_SERVICE_MERGED_ENGINES).recordDataPoint(mergedCount + parkedCount);
+            if (parkedCount > 0) {
+                harvestStatsEngine.getStats(MetricNames.SUPPORTABILITY_STATS_SERVICE_PARKED_ENGINES).incrementCallCount(parkedCount);
+            }
+            return harvestStatsEngine;
+        }
+    }
+
+}
@@ -7,56 +7,86 @@
 
 package com.newrelic.agent.stats;
 
+import com.newrelic.agent.Agent;
 import com.newrelic.agent.MetricData;
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.database.DatastoreMetrics;
 import com.newrelic.agent.metric.MetricName;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.normalization.Normalizer;
 import com.newrelic.agent.service.ServiceFactory;
 
 import java.text.MessageFormat;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 /**
  * A class for recording metric stats.
  *
+ * Stats are keyed by the id the metric name has in the {@link MetricNameTable}, so merging engines and building metric
+ * data at harvest works on int keys. Names that do not fit in the table are kept in a map keyed by name.
+ *
  * This class is thread-safe.
  */
 public class SimpleStatsEngine {
 
     private static final float SCOPED_METRIC_THRESHOLD = 0.02f;
+    private static final Object MERGE_TIE_LOCK = new Object();
 
     public static final int DEFAULT_CAPACITY = StatsEngineImpl.DEFAULT_SCOPED_CAPACITY;
 
-    private final Map<String, StatsBase> stats;
+    private final MetricNameTable metricNameTable = MetricNameTable.getInstance();
+
+    // guarded by this
+    private final StatsTable stats;
+    // metrics whose names could not be interned; guarded by this and created on first use
+    private Map<String, StatsBase> overflowStats;
+
+    private final Map<String, StatsBase> statsMapView = new StatsMapView();
 
     public SimpleStatsEngine() {
         this(DEFAULT_CAPACITY);
     }
 
     public SimpleStatsEngine(int capacity) {
-        stats = new ConcurrentHashMap<>(capacity);
+        stats = new StatsTable(capacity);
     }
 
+    /**
+     * A live view of the stats keyed by metric name. Lookups through the view intern nothing and allocate nothing, but
+     * iterating it resolves every id back to its name, so prefer the methods on this class on hot paths.
+     */
     public Map<String, StatsBase> getStatsMap() {
-        return stats;
+        return statsMapView;
     }
 
     public Stats getStats(String metricName) {
         if (metricName == null) {
             throw new RuntimeException("Cannot get a stat for a null metric");
         }
-        StatsBase s = stats.get(metricName);
-        if (s == null) {
-            s = new StatsImpl();
-            stats.put(metricName, s);
+        return getStats(metricName, metricNameTable.getId(metricName));
+    }
+
+    /**
+     * Get the stats for a metric whose {@link MetricNameTable} id the caller has already resolved, which saves looking
+     * the name up on every call. Use this where the name is a constant or is cached along with its id.
+     *
+     * @param metricNameId the id {@link MetricNameTable#getId(String)} returned for {@code metricName}
+     */
+    public Stats getStats(String metricName, int metricNameId) {
+        if (metricName == null) {
+            throw new RuntimeException("Cannot get a stat for a null metric");
         }
+        StatsBase s = getOrCreate(metricName, metricNameId, StatsType.STATS);
         if (s instanceof Stats) {
             return (Stats) s;
         } else {
@@ -69,11 +99,18 @@ public class SimpleStatsEngine {
         if (metric == null) {
             throw new RuntimeException("Cannot get a stat for a null metric");
         }
-        StatsBase s = stats.get(metric);
-        if (s == null) {
-            s = new ResponseTimeStatsImpl();
-            stats.put(metric, s);
+        return getOrCreateResponseTimeStats(metric, metricNameTable.getId(metric));
+    }
+
+    /**
+     * @param metricNameId the id {@link MetricNameTable#getId(String)} returned for {@code metric}
+     * @see #getStats(String, int)
+     */
+    public ResponseTimeStats getOrCreateResponseTimeStats(String metric, int metricNameId) {
+        if (metric == null) {
+            throw new RuntimeException("Cannot get a stat for a null metric");
         }
+        StatsBase s = getOrCreate(metric, metricNameId, StatsType.RESPONSE_TIME);
         if (s instanceof ResponseTimeStats) {
             return (ResponseTimeStats) s;
         } else {
@@ -86,18 +123,25 @@ public class SimpleStatsEngine {
         if (metricName == null) {
             throw new RuntimeException("Cannot record a stat for a null metric");
         }
-        stats.put(metricName, AbstractStats.EMPTY_STATS);
+        put(metricName, AbstractStats.EMPTY_STATS);
     }
 
     public ApdexStats getApdexStats(String metricName) {
         if (metricName == null) {
             throw new RuntimeException("Cannot get a stat for a null metric");
         }
-        StatsBase s = stats.get(metricName);
-        if (s == null) {
-            s = new ApdexStatsImpl();
-            stats.put(metricName, s);
+        return getApdexStats(metricName, metricNameTable.getId(metricName));
+    }
+
+    /**
+     * @param metricNameId the id {@link MetricNameTable#getId(String)} returned for {@code metricName}
+     * @see #getStats(String, int)
+     */
+    public ApdexStats getApdexStats(String metricName, int metricNameId) {
+        if (metricName == null) {
+            throw new RuntimeException("Cannot get a stat for a null metric");
         }
+        StatsBase s = getOrCreate(metricName, metricNameId, StatsType.APDEX);
         if (s instanceof ApdexStats) {
             return (ApdexStats) s;
         } else {
@@ -106,24 +150,124 @@ public class SimpleStatsEngine {
         }
     }
 
+    private synchronized StatsBase getOrCreate(String metricName, int id, StatsType type) {
+        if (id == MetricNameTable.NO_ID) {
+            Map<String, StatsBase> overflow = getOverflowStats();
+            StatsBase s = overflow.get(metricName);
+            if (s == null) {
+                s = type.create();
+                overflow.put(metricName, s);
+            }
+            return s;
+        }
+        StatsBase s = stats.get(id);
+        if (s == null) {
+            s = type.create();
+            stats.put(id, s);
+        }
+        return s;
+    }
+
+    private synchronized StatsBase get(String metricName) {
+        int id = metricNameTable.findId(metricName);
+        if (id != MetricNameTable.NO_ID) {
+            StatsBase s = stats.get(id);
+            if (s != null) {
+                return s;
+            }
+        }
+        return overflowStats == null ? null : overflowStats.get(metricName);
+    }
+
+    private synchronized StatsBase put(String metricName, StatsBase value) {
+        int id = metricNameTable.getId(metricName);
+        if (id == MetricNameTable.NO_ID) {
+            return getOverflowStats().put(metricName, value);
+        }
+        return stats.put(id, value);
+    }
+
+    private synchronized StatsBase remove(String metricName) {
+        int id = metricNameTable.findId(metricName);
+        if (id != MetricNameTable.NO_ID) {
+            StatsBase removed = stats.remove(id);
+            if (removed != null) {
+                return removed;
+            }
+        }
+        return overflowStats == null ? null : overflowStats.remove(metricName);
+    }
+
+    private Map<String, StatsBase> getOverflowStats() {
+        if (overflowStats == null) {
+            overflowStats = new HashMap<>();
+        }
+        return overflowStats;
+    }
+
     public void mergeStats(SimpleStatsEngine other) {
-        for (Entry<String, StatsBase> entry : other.stats.entrySet()) {
-            StatsBase ourStats = stats.get(entry.getKey());
-            StatsBase otherStats = entry.getValue();
-            if (ourStats == null) {
-                stats.put(entry.getKey(), otherStats);
-            } else {
-                ourStats.merge(otherStats);
+        if (other == this) {
+            return;
+        }
+        // take both locks in a consistent order so that two engines merging into each other cannot deadlock
+        int thisHash = System.identityHashCode(this);
+        int otherHash = System.identityHashCode(other);
+        if (thisHash < otherHash) {
+            synchronized (this) {
+                synchronized (other) {
+                    mergeStatsUnderLock(other);
+                }
+            }
+        } else if (thisHash > otherHash) {
+            synchronized (other) {
+                synchronized (this) {
+                    mergeStatsUnderLock(other);
+                }
+            }
+        } else {
+            synchronized (MERGE_TIE_LOCK) {
+                synchronized (this) {
+                    synchronized (other) {
+                        mergeStatsUnderLock(other);
+                    }
+                }
+            }
+        }
+    }
+
+    private void mergeStatsUnderLock(SimpleStatsEngine other) {
+        StatsTable otherStats = other.stats;
+        for (int slot = 0; slot < otherStats.capacity(); slot++) {
+            int id = otherStats.idAt(slot);
+            if (id != StatsTable.EMPTY) {
+                StatsBase ourStats = stats.get(id);
+                if (ourStats == null) {
+                    stats.put(id, otherStats.valueAt(slot));
+                } else {
+                    ourStats.merge(otherStats.valueAt(slot));
+                }
+            }
+        }
+        if (other.overflowStats != null) {
+            Map<String, StatsBase> overflow = getOverflowStats();
+            for (Entry<String, StatsBase> entry : other.overflowStats.entrySet()) {
+                StatsBase ourStats = overflow.get(entry.getKey());
+                if (ourStats == null) {
+                    overflow.put(entry.getKey(), entry.getValue());
+                } else {
+                    ourStats.merge(entry.getValue());
+                }
             }
         }
     }
 
-    public void clear() {
+    public synchronized void clear() {
         stats.clear();
+        overflowStats = null;
     }
 
-    public int getSize() {
-        return stats.size();
+    public synchronized int getSize() {
+        return stats.size() + (overflowStats == null ? 0 : overflowStats.size());
     }
 
     /**
@@ -133,25 +277,83 @@ public class SimpleStatsEngine {
      * @param scope The scope. This should be EMPTY_SCOPE if these are unscoped metrics.
      * @return The list of metric data generated from the internal stats object.
      */
-    public List<MetricData> getMetricData(Normalizer metricNormalizer, String scope) {
-        List<MetricData> result = new ArrayList<>(stats.size() + 1); // +1 for Java/other
+    public synchronized List<MetricData> getMetricData(Normalizer metricNormalizer, String scope) {
         boolean isTrimStats = ServiceFactory.getConfigService().getDefaultAgentConfig().isTrimStats();
 
         if (isTrimStats && !scope.equals(MetricName.EMPTY_SCOPE)) {
             trimStats();
         }
 
-        for (Entry<String, StatsBase> entry : stats.entrySet()) {
-            MetricName metricName = MetricName.create(entry.getKey(), scope);
-            MetricData metricData = createMetricData(metricName, entry.getValue(), metricNormalizer);
-            if (metricData != null) {
-                result.add(metricData);
+        List<MetricData> result = new ArrayList<>(getSize() + 1); // +1 for Java/other
+        for (int slot = 0; slot < stats.capacity(); slot++) {
+            int id = stats.idAt(slot);
+            if (id != StatsTable.EMPTY) {
+                MetricName metricName = MetricName.create(metricNameTable.getName(id), scope);
+                MetricData metricData = createMetricData(metricName, stats.valueAt(slot), metricNormalizer);
+                if (metricData != null) {
+                    result.add(metricData);
+                }
+            }
+        }
+        if (overflowStats != null) {
+            for (Entry<String, StatsBase> entry : overflowStats.entrySet()) {
+                MetricName metricName = MetricName.create(entry.getKey(), scope);
+                MetricData metricData = createMetricData(metricName, entry.getValue(), metricNormalizer);
+                if (metricData != null) {
+                    result.add(metricData);
+                }
             }
         }
 
         return result;
     }
 
+    /**
+     * Merge a clone of every stats object into {@code target}, keyed by metric name id. Used to build the unscoped
+     * rollups of scoped metrics without going through metric names.
+     *
+     * @param overflowTarget receives clones of the stats whose names are not in the {@link MetricNameTable}
+     */
+    synchronized void mergeClonesInto(StatsTable target, Map<String, StatsBase> overflowTarget) {
+        for (int slot = 0; slot < stats.capacity(); slot++) {
+            int id = stats.idAt(slot);
+            if (id != StatsTable.EMPTY) {
+                StatsBase value = stats.valueAt(slot);
+                StatsBase existing = target.get(id);
+                if (existing != null) {
+                    existing.merge(value);
+                } else {
+                    StatsBase clone = cloneStats(metricNameTable.getName(id), value);
+                    if (clone != null) {
+                        target.put(id, clone);
+                    }
+                }
+            }
+        }
+        if (overflowStats != null) {
+            for (Entry<String, StatsBase> entry : overflowStats.entrySet()) {
+                StatsBase existing = overflowTarget.get(entry.getKey());
+                if (existing != null) {
+                    existing.merge(entry.getValue());
+                } else {
+                    StatsBase clone = cloneStats(entry.getKey(), entry.getValue());
+                    if (clone != null) {
+                        overflowTarget.put(entry.getKey(), clone);
+                    }
+                }
+            }
+        }
+    }
+
+    private static StatsBase cloneStats(String metricName, StatsBase stats) {
+        try {
+            return (StatsBase) stats.clone();
+        } catch (CloneNotSupportedException e) {
+            Agent.LOG.log(Level.INFO, "Unscoped metric not created because stats base could not be cloned for " + metricName);
+            return null;
+        }
+    }
+
     protected static MetricData createMetricData(MetricName metricName, StatsBase statsBase, Normalizer metricNormalizer) {
         if (!statsBase.hasData()) {
             return null;
@@ -172,29 +374,57 @@ public class SimpleStatsEngine {
 
     private void trimStats() {
         float totalTime = 0;
-        for (StatsBase statsBase : stats.values()) {
-            ResponseTimeStats stats = (ResponseTimeStats) statsBase;
-            totalTime += stats.getTotalExclusiveTime();
+        for (int slot = 0; slot < stats.capacity(); slot++) {
+            if (stats.idAt(slot) != StatsTable.EMPTY) {
+                totalTime += ((ResponseTimeStats) stats.valueAt(slot)).getTotalExclusiveTime();
+            }
+        }
+        if (overflowStats != null) {
+            for (StatsBase statsBase : overflowStats.values()) {
+                totalTime += ((ResponseTimeStats) statsBase).getTotalExclusiveTime();
+            }
         }
 
         ResponseTimeStatsImpl other = null;
         float threshold = totalTime * SCOPED_METRIC_THRESHOLD;
-        Set<String> remove = new HashSet<>();
-        for (Entry<String, StatsBase> entry : stats.entrySet()) {
-            ResponseTimeStatsImpl statsObj = (ResponseTimeStatsImpl) entry.getValue();
-            if (statsObj.getTotalExclusiveTime() < threshold && trimmableMetric(entry.getKey())) {
+        int[] removeIds = new int[stats.size()];
+        int removeCount = 0;
+        for (int slot = 0; slot < stats.capacity(); slot++) {
+            int id = stats.idAt(slot);
+            if (id == StatsTable.EMPTY) {
+                continue;
+            }
+            ResponseTimeStatsImpl statsObj = (ResponseTimeStatsImpl) stats.valueAt(slot);
+            if (statsObj.getTotalExclusiveTime() < threshold && trimmableMetric(metricNameTable.getName(id))) {
                 if (other == null) {
                     other = statsObj;
                 } else {
                     other.merge(statsObj);
                 }
-                remove.add(entry.getKey());
+                removeIds[removeCount++] = id;
+            }
+        }
+        Set<String> removeNames = new HashSet<>();
+        if (overflowStats != null) {
+            for (Entry<String, StatsBase> entry : overflowStats.entrySet()) {
+                ResponseTimeStatsImpl statsObj = (ResponseTimeStatsImpl) entry.getValue();
+                if (statsObj.getTotalExclusiveTime() < threshold && trimmableMetric(entry.getKey())) {
+                    if (other == null) {
+                        other = statsObj;
+                    } else {
+                        other.merge(statsObj);
+                    }
+                    removeNames.add(entry.getKey());
+                }
             }
         }
         if (other != null) {
-            stats.put(MetricNames.JAVA_OTHER, other);
-            for (String name : remove) {
-                stats.remove(name);
+            put(MetricNames.JAVA_OTHER, other);
+            for (int i = 0; i < removeCount; i++) {
+                stats.remove(removeIds[i]);
+            }
+            for (String name : removeNames) {
+                overflowStats.remove(name);
             }
         }
     }
@@ -207,7 +437,138 @@ public class SimpleStatsEngine {
 
     @Override
     public String toString() {
-        return "SimpleStatsEngine [stats=" + stats + "]";
+        return "SimpleStatsEngine [stats=" + new HashMap<>(statsMapView) + "]";
+    }
+
+    private enum StatsType {
+        STATS {
+            @Override
+            StatsBase create() {
+                return new StatsImpl();
+            }
+        },
+        RESPONSE_TIME {
+            @Override
+            StatsBase create() {
+                return new ResponseTimeStatsImpl();
+            }
+        },
+        APDEX {
+            @Override
+            StatsBase create() {
+                return new ApdexStatsImpl();
+            }
+        };
+
+        abstract StatsBase create();
+    }
+
+    /**
+     * Presents the id-keyed stats as a map keyed by metric name.
+     */
+    private final class StatsMapView extends AbstractMap<String, StatsBase> {
+
+        @Override
+        public StatsBase get(Object key) {
+            return key instanceof String ? SimpleStatsEngine.this.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public StatsBase put(String key, StatsBase value) {
+            return SimpleStatsEngine.this.put(key, value);
+        }
+
+        @Override
+        public StatsBase remove(Object key) {
+            return key instanceof String ? SimpleStatsEngine.this.remove((String) key) : null;
+        }
+
+        @Override
+        public int size() {
+            return getSize();
+        }
+
+        @Override
+        public void clear() {
+            SimpleStatsEngine.this.clear();
+        }
+
+        @Override
+        public Set<Entry<String, StatsBase>> entrySet() {
+            return new AbstractSet<Entry<String, StatsBase>>() {
+                @Override
+                public Iterator<Entry<String, StatsBase>> iterator() {
+                    final Iterator<Entry<String, StatsBase>> delegate = snapshot().iterator();
+                    return new Iterator<Entry<String, StatsBase>>() {
+                        private Entry<String, StatsBase> last;
+
+                        @Override
+                        public boolean hasNext() {
+                            return delegate.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, StatsBase> next() {
+                            last = delegate.next();
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            SimpleStatsEngine.this.remove(last.getKey());
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return getSize();
+                }
+            };
+        }
+
+        /**
+         * Iteration works on a copy so that it never observes the table while it is being resized.
+         */
+        private List<Entry<String, StatsBase>> snapshot() {
+            synchronized (SimpleStatsEngine.this) {
+                List<Entry<String, StatsBase>> entries = new ArrayList<>(getSize());
+                for (int slot = 0; slot < stats.capacity(); slot++) {
+                    int id = stats.idAt(slot);
+                    if (id != StatsTable.EMPTY) {
+                        entries.add(new StatsEntry(metricNameTable.getName(id), stats.valueAt(slot)));
+                    }
+                }
+                if (overflowStats != null) {
+                    for (Entry<String, StatsBase> entry : overflowStats.entrySet()) {
+                        entries.add(new StatsEntry(entry.getKey(), entry.getValue()));
+                    }
+                }
+                return entries;
+            }
+        }
+    }
+
+    private final class StatsEntry extends AbstractMap.SimpleEntry<String, StatsBase> {
+
+        StatsEntry(String key, StatsBase value) {
+            super(key, value);
+        }
+
+        @Override
+        public StatsBase setValue(StatsBase value) {
+            put(getKey(), value);
+            return super.setValue(value);
+        }
     }
 
 }
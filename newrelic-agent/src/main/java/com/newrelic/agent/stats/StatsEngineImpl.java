@@ -10,6 +10,7 @@ package com.newrelic.agent.stats;
 import com.newrelic.agent.Agent;
 import com.newrelic.agent.MetricData;
 import com.newrelic.agent.metric.MetricName;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.normalization.Normalizer;
 
 import java.util.ArrayList;
@@ -139,9 +140,9 @@ public class StatsEngineImpl implements StatsEngine {
      */
     @Override
     public int getSize() {
-        int size = unscopedStats.getStatsMap().size();
+        int size = unscopedStats.getSize();
         for (SimpleStatsEngine engine : scopedStats.values()) {
-            size += engine.getStatsMap().size();
+            size += engine.getSize();
         }
         return size;
     }
@@ -181,18 +182,99 @@ public class StatsEngineImpl implements StatsEngine {
 
     @Override
     public List<MetricData> getMetricData(Normalizer metricNormalizer) {
-        List<MetricData> result = new ArrayList<>(unscopedStats.getStatsMap().size() + (scopedStats.size() * DEFAULT_SCOPED_CAPACITY * DOUBLE));
+        List<MetricData> result = new ArrayList<>(unscopedStats.getSize() + (scopedStats.size() * DEFAULT_SCOPED_CAPACITY * DOUBLE));
         for (Entry<String, SimpleStatsEngine> entry : scopedStats.entrySet()) {
             result.addAll(entry.getValue().getMetricData(metricNormalizer, entry.getKey()));
         }
         // add the unscoped to match the scoped
-        result.addAll(createUnscopedCopies(metricNormalizer, result));
+        result.addAll(createUnscopedCopies(metricNormalizer));
         // add the other unscoped metrics
         result.addAll(unscopedStats.getMetricData(metricNormalizer, MetricName.EMPTY_SCOPE));
 
         return result;
     }
 
+    /**
+     * Roll the scoped metrics of every scope up into unscoped metrics. The rollup is keyed by metric name id, so only
+     * metrics that the normalizer renames need to be combined by name.
+     */
+    private List<MetricData> createUnscopedCopies(Normalizer metricNormalizer) {
+        int scopedCount = 0;
+        for (SimpleStatsEngine engine : scopedStats.values()) {
+            scopedCount += engine.getSize();
+        }
+        StatsTable rollup = new StatsTable(scopedCount);
+        Map<String, StatsBase> overflowRollup = new HashMap<>();
+        for (SimpleStatsEngine engine : scopedStats.values()) {
+            engine.mergeClonesInto(rollup, overflowRollup);
+        }
+
+        MetricNameTable metricNameTable = MetricNameTable.getInstance();
+        List<MetricData> results = new ArrayList<>(rollup.size() + overflowRollup.size());
+        // metrics kept under their own name, by id, so that renamed metrics can be merged into them
+        StatsTable unchanged = new StatsTable(rollup.size());
+        Map<String, StatsBase> renamed = null;
+        for (int slot = 0; slot < rollup.capacity(); slot++) {
+            int id = rollup.idAt(slot);
+            if (id == StatsTable.EMPTY) {
+                continue;
+            }
+            StatsBase stats = rollup.valueAt(slot);
+            if (!stats.hasData()) {
+                continue;
+            }
+            String name = metricNameTable.getName(id);
+            String normalized = metricNormalizer.normalize(name);
+            if (normalized == null) {
+                continue;
+            }
+            if (normalized.equals(name)) {
+                unchanged.put(id, stats);
+                results.add(MetricData.create(MetricName.create(name), stats));
+            } else {
+                if (renamed == null) {
+                    renamed = new HashMap<>();
+                }
+                mergeByName(renamed, normalized, stats);
+            }
+        }
+        for (Entry<String, StatsBase> entry : overflowRollup.entrySet()) {
+            StatsBase stats = entry.getValue();
+            if (!stats.hasData()) {
+                continue;
+            }
+            String normalized = metricNormalizer.normalize(entry.getKey());
+            if (normalized != null) {
+                if (renamed == null) {
+                    renamed = new HashMap<>();
+                }
+                mergeByName(renamed, normalized, stats);
+            }
+        }
+
+        if (renamed != null) {
+            for (Entry<String, StatsBase> entry : renamed.entrySet()) {
+                int id = metricNameTable.findId(entry.getKey());
+                StatsBase existing = id == MetricNameTable.NO_ID ? null : unchanged.get(id);
+                if (existing != null) {
+                    existing.merge(entry.getValue());
+                } else {
+                    results.add(MetricData.create(MetricName.create(entry.getKey()), entry.getValue()));
+                }
+            }
+        }
+        return results;
+    }
+
+    private static void mergeByName(Map<String, StatsBase> statsByName, String name, StatsBase stats) {
+        StatsBase existing = statsByName.get(name);
+        if (existing == null) {
+            statsByName.put(name, stats);
+        } else {
+            existing.merge(stats);
+        }
+    }
+
     public static List<MetricData> createUnscopedCopies(Normalizer metricNormalizer, final List<MetricData> scopedMetrics) {
         // we do not want to fill up more than 75 percent of the hash map
         // add two to ensure that we are under 75 percent
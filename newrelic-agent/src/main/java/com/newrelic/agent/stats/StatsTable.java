@@ -0,0 +1,176 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.stats;
+
+import com.newrelic.agent.metric.MetricNameTable;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table from {@link MetricNameTable} ids to stats, stored in parallel primitive and object
+ * arrays with linear probing. Iterate with {@link #capacity()}, {@link #idAt(int)} and {@link #valueAt(int)}; slots
+ * whose id is {@link #EMPTY} are unused.
+ *
+ * This class is not thread-safe.
+ */
+final class StatsTable {
+
+    static final int EMPTY = -1;
+
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] ids;
+    private StatsBase[] values;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    StatsTable(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * A power of two that keeps the table at most half full.
+     */
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2 && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        Arrays.fill(ids, EMPTY);
+        values = new StatsBase[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity >> 1;
+    }
+
+    private static int hash(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    StatsBase get(int id) {
+        int index = hash(id) & mask;
+        int current;
+        while ((current = ids[index]) != EMPTY) {
+            if (current == id) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    boolean containsId(int id) {
+        return get(id) != null;
+    }
+
+    /**
+     * @return the previous value for the id, or null
+     */
+    StatsBase put(int id, StatsBase value) {
+        int index = hash(id) & mask;
+        int current;
+        while ((current = ids[index]) != EMPTY) {
+            if (current == id) {
+                StatsBase previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        ids[index] = id;
+        values[index] = value;
+        if (++size > resizeThreshold) {
+            rehash(ids.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * @return the removed value, or null if the id was not present
+     */
+    StatsBase remove(int id) {
+        int index = hash(id) & mask;
+        int current;
+        while ((current = ids[index]) != EMPTY) {
+            if (current == id) {
+                StatsBase previous = values[index];
+                deleteSlot(index);
+                size--;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    /**
+     * Backward-shift deletion so that lookups never need tombstones.
+     */
+    private void deleteSlot(int index) {
+        int gap = index;
+        int next = (gap + 1) & mask;
+        int current;
+        while ((current = ids[next]) != EMPTY) {
+            int home = hash(current) & mask;
+            // move the entry into the gap unless its home slot lies cyclically within (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                ids[gap] = current;
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        ids[gap] = EMPTY;
+        values[gap] = null;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldIds = ids;
+        StatsBase[] oldValues = values;
+        allocate(newCapacity);
+        for (int i = 0; i < oldIds.length; i++) {
+            int id = oldIds[i];
+            if (id != EMPTY) {
+                int index = hash(id) & mask;
+                while (ids[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                ids[index] = id;
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return ids.length;
+    }
+
+    int idAt(int slot) {
+        return ids[slot];
+    }
+
+    StatsBase valueAt(int slot) {
+        return values[slot];
+    }
+
+    void clear() {
+        Arrays.fill(ids, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+}
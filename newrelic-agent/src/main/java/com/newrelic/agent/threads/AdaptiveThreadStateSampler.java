@@ -0,0 +1,362 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.threads;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import com.newrelic.agent.Agent;
+import com.newrelic.agent.IRPMService;
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.MergeStatsEngine;
+import com.newrelic.agent.stats.StatsEngine;
+import com.newrelic.agent.stats.StatsEngineImpl;
+import com.newrelic.agent.stats.StatsImpl;
+
+/**
+ * Reports the same metrics as the {@link ThreadStateSampler}, for JVMs with too many threads to sample all of them
+ * every time. Each run samples a rotating subset of the threads, sized to keep the sampler's own CPU time within a
+ * budget. The samples are aggregated by normalized thread name in arrays and merged into the stats service as one
+ * stats engine.
+ *
+ * The cpu, blocked and waited times and counts accumulate. A thread's delta covers the time since that thread was last
+ * sampled, so as the subset rotates through the threads the deltas add up to the totals for all of them. The thread
+ * state counts are a snapshot of the subset, so they are scaled up to the number of threads.
+ *
+ * This class is not thread-safe. It is run by the sampler service.
+ */
+public class AdaptiveThreadStateSampler implements Runnable {
+
+    static final int MIN_THREADS_PER_SAMPLE = 100;
+
+    private static final Thread.State[] STATES = Thread.State.values();
+
+    // the accumulating values tracked for each thread
+    private static final int CPU_TIME = 0;
+    private static final int USER_TIME = 1;
+    private static final int SYSTEM_TIME = 2;
+    private static final int WAITED_TIME = 3;
+    private static final int BLOCKED_TIME = 4;
+    private static final int WAITED_COUNT = 5;
+    private static final int BLOCKED_COUNT = 6;
+    private static final int VALUE_COUNT = 7;
+
+    private final ThreadMXBean threadMXBean;
+    private final ThreadNameNormalizer threadNameNormalizer;
+    private final long cpuBudgetNanos;
+    private final boolean isAutoAppNamingEnabled;
+
+    private final Map<Long, ThreadTracker> threads = new HashMap<>();
+    private final Map<String, Integer> poolIndexes = new HashMap<>();
+    private final List<String> poolNames = new ArrayList<>();
+
+    // the aggregates of the current run. pool * STATES.length + state and pool * VALUE_COUNT + value
+    private int[] stateCounts = new int[0];
+    private int[] valueCounts = new int[0];
+    private long[] valueTotals = new long[0];
+    private long[] valueMins = new long[0];
+    private long[] valueMaxes = new long[0];
+    private double[] valueSquares = new double[0];
+
+    private int threadsPerSample = MIN_THREADS_PER_SAMPLE;
+    private double costPerThreadNanos;
+    private long lastSampledThreadId = -1;
+
+    public AdaptiveThreadStateSampler(ThreadMXBean threadMXBean, ThreadNameNormalizer nameNormalizer, long cpuBudget,
+            TimeUnit timeUnit) {
+        this.threadMXBean = threadMXBean;
+        this.threadNameNormalizer = nameNormalizer;
+        this.cpuBudgetNanos = timeUnit.toNanos(cpuBudget);
+        this.isAutoAppNamingEnabled = ServiceFactory.getConfigService().getDefaultAgentConfig().isAutoAppNamingEnabled();
+    }
+
+    @Override
+    public void run() {
+        long startNanos = System.nanoTime();
+        long startCpuNanos = getCurrentThreadCpuTime();
+
+        long[] allThreadIds = threadMXBean.getAllThreadIds();
+        Arrays.sort(allThreadIds);
+        removeTerminatedThreads(allThreadIds);
+        long[] threadIds = nextThreadIds(allThreadIds);
+        if (threadIds.length == 0) {
+            return;
+        }
+
+        ThreadInfo[] threadInfos = threadMXBean.getThreadInfo(threadIds, 0);
+        long[] cpuTimes = null;
+        long[] userTimes = null;
+        if (threadMXBean.isThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()) {
+            cpuTimes = getThreadCpuTimes(threadIds);
+            userTimes = getThreadUserTimes(threadIds);
+        }
+        boolean contentionMonitoring = threadMXBean.isThreadContentionMonitoringEnabled();
+
+        clearAggregates();
+        int sampledThreads = 0;
+        for (int i = 0; i < threadInfos.length; i++) {
+            ThreadInfo thread = threadInfos[i];
+            // a thread may terminate after getting its tid but before getting its thread info
+            if (thread == null) {
+                continue;
+            }
+            try {
+                ThreadTracker tracker = getTracker(thread);
+                stateCounts[tracker.pool * STATES.length + thread.getThreadState().ordinal()]++;
+                if (cpuTimes != null) {
+                    long totalCpuTime = cpuTimes[i];
+                    long userCpuTime = userTimes[i];
+                    accumulate(tracker, CPU_TIME, totalCpuTime);
+                    accumulate(tracker, USER_TIME, userCpuTime);
+                    accumulate(tracker, SYSTEM_TIME, totalCpuTime == -1 || userCpuTime == -1 ? -1 : totalCpuTime - userCpuTime);
+                }
+                if (contentionMonitoring) {
+                    accumulate(tracker, WAITED_TIME, thread.getWaitedTime());
+                    accumulate(tracker, BLOCKED_TIME, thread.getBlockedTime());
+                }
+                accumulate(tracker, BLOCKED_COUNT, thread.getBlockedCount());
+                accumulate(tracker, WAITED_COUNT, thread.getWaitedCount());
+                sampledThreads++;
+            } catch (Exception e) {
+                Agent.LOG.log(Level.FINEST, e, e.getMessage());
+            }
+        }
+
+        StatsEngine statsEngine = new StatsEngineImpl();
+        recordAggregates(statsEngine, sampledThreads == 0 ? 0 : (double) allThreadIds.length / sampledThreads);
+
+        long sampleNanos = System.nanoTime() - startNanos;
+        long sampleCpuNanos = startCpuNanos < 0 ? -1 : getCurrentThreadCpuTime() - startCpuNanos;
+        adjustThreadsPerSample(sampleCpuNanos < 0 ? sampleNanos : sampleCpuNanos, sampledThreads);
+
+        statsEngine.getResponseTimeStats(MetricNames.SUPPORTABILITY_THREAD_SAMPLER_SAMPLE_TIME).recordResponseTimeInNanos(sampleNanos);
+        if (sampleCpuNanos >= 0) {
+            statsEngine.getResponseTimeStats(MetricNames.SUPPORTABILITY_THREAD_SAMPLER_SAMPLE_CPU_TIME).recordResponseTimeInNanos(sampleCpuNanos);
+        }
+        statsEngine.getStats(MetricNames.SUPPORTABILITY_THREAD_SAMPLER_SAMPLED_THREADS).recordDataPoint(sampledThreads);
+        mergeStats(statsEngine);
+    }
+
+    int getThreadsPerSample() {
+        return threadsPerSample;
+    }
+
+    /**
+     * The next threads in the rotation: the ones after the last thread sampled, wrapping around to the lowest id.
+     */
+    private long[] nextThreadIds(long[] allThreadIds) {
+        int threadCount = Math.min(allThreadIds.length, threadsPerSample);
+        long[] threadIds = new long[threadCount];
+        if (threadCount == 0) {
+            return threadIds;
+        }
+        int start = Arrays.binarySearch(allThreadIds, lastSampledThreadId);
+        // the index of the first id after the last thread sampled, whether or not that thread is still alive
+        start = start < 0 ? -start - 1 : start + 1;
+        for (int i = 0; i < threadCount; i++) {
+            threadIds[i] = allThreadIds[(start + i) % allThreadIds.length];
+        }
+        lastSampledThreadId = threadIds[threadCount - 1];
+        return threadIds;
+    }
+
+    private void removeTerminatedThreads(long[] allThreadIds) {
+        Iterator<Long> iterator = threads.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (Arrays.binarySearch(allThreadIds, iterator.next()) < 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Size the next sample so it costs about the budget, based on the average cost of a thread so far.
+     */
+    private void adjustThreadsPerSample(long costNanos, int sampledThreads) {
+        // a cost of 0 is below the timer's resolution and says nothing about the cost per thread
+        if (sampledThreads == 0 || costNanos <= 0) {
+            return;
+        }
+        double cost = (double) costNanos / sampledThreads;
+        costPerThreadNanos = costPerThreadNanos == 0 ? cost : (costPerThreadNanos + cost) / 2;
+        threadsPerSample = (int) Math.max(MIN_THREADS_PER_SAMPLE, Math.min(Integer.MAX_VALUE, cpuBudgetNanos / costPerThreadNanos));
+    }
+
+    private ThreadTracker getTracker(ThreadInfo thread) {
+        ThreadTracker tracker = threads.get(thread.getThreadId());
+        if (tracker == null) {
+            tracker = new ThreadTracker();
+            threads.put(thread.getThreadId(), tracker);
+        }
+        // normalizing is the expensive part of a sample, so only do it when the thread is renamed
+        if (!thread.getThreadName().equals(tracker.threadName)) {
+            tracker.threadName = thread.getThreadName();
+            tracker.pool = getPoolIndex(threadNameNormalizer.getNormalizedThreadName(new BasicThreadInfo(thread)));
+        }
+        return tracker;
+    }
+
+    private int getPoolIndex(String normalizedThreadName) {
+        Integer index = poolIndexes.get(normalizedThreadName);
+        if (index != null) {
+            return index;
+        }
+        int newIndex = poolNames.size();
+        poolNames.add(normalizedThreadName);
+        poolIndexes.put(normalizedThreadName, newIndex);
+        int poolCount = poolNames.size();
+        stateCounts = Arrays.copyOf(stateCounts, poolCount * STATES.length);
+        valueCounts = Arrays.copyOf(valueCounts, poolCount * VALUE_COUNT);
+        valueTotals = Arrays.copyOf(valueTotals, poolCount * VALUE_COUNT);
+        valueMins = Arrays.copyOf(valueMins, poolCount * VALUE_COUNT);
+        valueMaxes = Arrays.copyOf(valueMaxes, poolCount * VALUE_COUNT);
+        valueSquares = Arrays.copyOf(valueSquares, poolCount * VALUE_COUNT);
+        return newIndex;
+    }
+
+    private void accumulate(ThreadTracker tracker, int value, long current) {
+        long last = tracker.lastValues[value];
+        tracker.lastValues[value] = current;
+        if (current == -1 || last == -1) {
+            return;
+        }
+        long delta = Math.max(current - last, 0);
+        int slot = tracker.pool * VALUE_COUNT + value;
+        if (valueCounts[slot] == 0 || delta < valueMins[slot]) {
+            valueMins[slot] = delta;
+        }
+        valueMaxes[slot] = Math.max(valueMaxes[slot], delta);
+        valueTotals[slot] += delta;
+        valueSquares[slot] += (double) delta * delta;
+        valueCounts[slot]++;
+    }
+
+    private void clearAggregates() {
+        Arrays.fill(stateCounts, 0);
+        Arrays.fill(valueCounts, 0);
+        Arrays.fill(valueTotals, 0);
+        Arrays.fill(valueMins, 0);
+        Arrays.fill(valueMaxes, 0);
+        Arrays.fill(valueSquares, 0);
+    }
+
+    private void recordAggregates(StatsEngine statsEngine, double scale) {
+        int[] summaryStateCounts = new int[STATES.length];
+        for (int pool = 0; pool < poolNames.size(); pool++) {
+            String name = poolNames.get(pool);
+            for (int state = 0; state < STATES.length; state++) {
+                int count = (int) Math.round(stateCounts[pool * STATES.length + state] * scale);
+                if (count > 0) {
+                    recordCount(statsEngine, "Threads/State/" + name + "/" + STATES[state].toString() + "/Count", count);
+                    summaryStateCounts[state] += count;
+                }
+            }
+            int slot = pool * VALUE_COUNT;
+            recordTime(statsEngine, "Threads/TotalTime/" + name + "/CpuTime", slot + CPU_TIME, TimeUnit.NANOSECONDS);
+            recordTime(statsEngine, "Threads/Time/CPU/" + name + "/UserTime", slot + USER_TIME, TimeUnit.NANOSECONDS);
+            recordTime(statsEngine, "Threads/Time/CPU/" + name + "/SystemTime", slot + SYSTEM_TIME, TimeUnit.NANOSECONDS);
+            recordTime(statsEngine, "Threads/Time/State/" + name + "/WaitedTime", slot + WAITED_TIME, TimeUnit.MILLISECONDS);
+            recordTime(statsEngine, "Threads/Time/State/" + name + "/BlockedTime", slot + BLOCKED_TIME, TimeUnit.MILLISECONDS);
+            recordValues(statsEngine, "Threads/Count/" + name + "/BlockedCount", slot + BLOCKED_COUNT);
+            recordValues(statsEngine, "Threads/Count/" + name + "/WaitedCount", slot + WAITED_COUNT);
+        }
+        for (int state = 0; state < STATES.length; state++) {
+            if (summaryStateCounts[state] > 0) {
+                recordCount(statsEngine, "Threads/SummaryState/" + STATES[state].toString() + "/Count", summaryStateCounts[state]);
+            }
+        }
+    }
+
+    /**
+     * The same stats as recording a data point of 1 count times.
+     */
+    private void recordCount(StatsEngine statsEngine, String name, int count) {
+        statsEngine.getStats(name).merge(new StatsImpl(count, count, 1, 1, count));
+    }
+
+    private void recordTime(StatsEngine statsEngine, String name, int slot, TimeUnit timeUnit) {
+        if (valueCounts[slot] > 0) {
+            // the stats engine is new, so each metric is only recorded once
+            statsEngine.getResponseTimeStats(name).recordResponseTime(valueCounts[slot], valueTotals[slot],
+                    valueMins[slot], valueMaxes[slot], timeUnit);
+        }
+    }
+
+    private void recordValues(StatsEngine statsEngine, String name, int slot) {
+        if (valueCounts[slot] > 0) {
+            statsEngine.getStats(name).merge(new StatsImpl(valueCounts[slot], valueTotals[slot], valueMins[slot],
+                    valueMaxes[slot], valueSquares[slot]));
+        }
+    }
+
+    private void mergeStats(StatsEngine statsEngine) {
+        if (!isAutoAppNamingEnabled) {
+            ServiceFactory.getStatsService().doStatsWork(new MergeStatsEngine(null, statsEngine));
+        } else {
+            List<IRPMService> rpmServices = ServiceFactory.getRPMServiceManager().getRPMServices();
+            for (IRPMService rpmService : rpmServices) {
+                ServiceFactory.getStatsService().doStatsWork(new MergeStatsEngine(rpmService.getApplicationName(), statsEngine));
+            }
+        }
+    }
+
+    /**
+     * Read the cpu times of all of the threads in one call when the JVM supports it.
+     */
+    private long[] getThreadCpuTimes(long[] threadIds) {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadCpuTime(threadIds);
+        }
+        long[] cpuTimes = new long[threadIds.length];
+        for (int i = 0; i < threadIds.length; i++) {
+            cpuTimes[i] = threadMXBean.getThreadCpuTime(threadIds[i]);
+        }
+        return cpuTimes;
+    }
+
+    private long[] getThreadUserTimes(long[] threadIds) {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadUserTime(threadIds);
+        }
+        long[] userTimes = new long[threadIds.length];
+        for (int i = 0; i < threadIds.length; i++) {
+            userTimes[i] = threadMXBean.getThreadUserTime(threadIds[i]);
+        }
+        return userTimes;
+    }
+
+    /**
+     * @return the CPU time of the sampling thread, or -1 if it is not available
+     */
+    private long getCurrentThreadCpuTime() {
+        if (threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled()) {
+            return threadMXBean.getCurrentThreadCpuTime();
+        }
+        return -1;
+    }
+
+    private static final class ThreadTracker {
+        private String threadName;
+        private int pool;
+        private final long[] lastValues = new long[VALUE_COUNT];
+
+        private ThreadTracker() {
+            Arrays.fill(lastValues, -1);
+        }
+    }
+
+}
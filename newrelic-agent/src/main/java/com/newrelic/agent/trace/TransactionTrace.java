@@ -8,16 +8,14 @@
 package com.newrelic.agent.trace;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.newrelic.agent.Agent;
 import com.newrelic.agent.TransactionData;
 import com.newrelic.agent.attributes.AttributeNames;
 import com.newrelic.agent.attributes.AttributesUtils;
 import com.newrelic.agent.bridge.datastore.ConnectionFactory;
-import com.newrelic.agent.bridge.datastore.DatabaseVendor;
 import com.newrelic.agent.config.AgentConfigImpl;
 import com.newrelic.agent.config.TransactionTracerConfig;
-import com.newrelic.agent.database.DatabaseService;
 import com.newrelic.agent.database.ExplainPlanExecutor;
+import com.newrelic.agent.database.ExplainPlanWorker;
 import com.newrelic.agent.database.SqlObfuscator;
 import com.newrelic.agent.service.ServiceFactory;
 import com.newrelic.agent.tracers.SqlTracer;
@@ -29,7 +27,6 @@ import org.json.simple.JSONStreamAware;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.sql.Connection;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -39,8 +36,6 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.logging.Level;
 import java.util.zip.Deflater;
 
 public class TransactionTrace implements Comparable<TransactionTrace>, JSONStreamAware {
@@ -50,6 +45,7 @@ public class TransactionTrace implements Comparable<TransactionTrace>, JSONStrea
     private final TransactionSegment rootSegment;
     private final List<TransactionSegment> sqlSegments;
     private final Map<ConnectionFactory, List<ExplainPlanExecutor>> sqlTracers;
+    private ExplainPlanWorker.Batch explainPlans;
     private final long duration;
     private final long startTime;
     private String requestUri;
@@ -111,6 +107,11 @@ public class TransactionTrace implements Comparable<TransactionTrace>, JSONStrea
         children.clear();
         children = null;
         this.syntheticsResourceId = null;
+
+        // traces are created at harvest time. start the explain plans now so they run while the trace waits to be sent.
+        if (!sqlTracers.isEmpty()) {
+            explainPlans = ServiceFactory.getDatabaseService().submitExplainPlans(sqlTracers);
+        }
     }
 
     private static Map<String, Object> getIntrinsics(TransactionData transactionData) {
@@ -237,36 +238,9 @@ public class TransactionTrace implements Comparable<TransactionTrace>, JSONStrea
     }
 
     private void runExplainPlans() {
-        if (!sqlTracers.isEmpty()) {
-            DatabaseService dbService = ServiceFactory.getDatabaseService();
-            for (Entry<ConnectionFactory, List<ExplainPlanExecutor>> entry : sqlTracers.entrySet()) {
-                Agent.LOG.finer(MessageFormat.format("Running {0} explain plan(s)", entry.getValue().size()));
-                Connection connection = null;
-                try {
-                    connection = entry.getKey().getConnection();
-                    DatabaseVendor vendor = entry.getKey().getDatabaseVendor();
-                    for (ExplainPlanExecutor explainExecutor : entry.getValue()) {
-                        if (explainExecutor != null) {
-                            explainExecutor.runExplainPlan(dbService, connection, vendor);
-                        }
-                    }
-                } catch (Throwable t) {
-                    String msg = MessageFormat.format("An error occurred executing an explain plan: {0}", t.toString());
-                    if (Agent.LOG.isLoggable(Level.FINER)) {
-                        Agent.LOG.log(Level.FINER, msg, t);
-                    } else {
-                        Agent.LOG.fine(msg);
-                    }
-                } finally {
-                    if (connection != null) {
-                        try {
-                            connection.close();
-                        } catch (Exception e) {
-                            Agent.LOG.log(Level.FINER, "Unable to close connection", e);
-                        }
-                    }
-                }
-            }
+        if (explainPlans != null) {
+            explainPlans.await();
+            explainPlans = null;
             sqlTracers.clear();
         }
     }
@@ -260,7 +260,8 @@ public class TransactionTraceService extends AbstractService implements HarvestL
 
     @Override
     public void dispatcherTransactionFinished(TransactionData transactionData, TransactionStats transactionStats) {
-        if (!transactionData.getTransactionTracerConfig().isEnabled()) {
+        if (!transactionData.getTransactionTracerConfig().isEnabled()
+                || ServiceFactory.getServiceManager().getCircuitBreakerService().isTraceCollectionStopped()) {
             return;
         }
         noticeTransaction(transactionData);
@@ -9,6 +9,7 @@ package com.newrelic.agent.tracers;
 
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.Transaction;
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.stats.TransactionStats;
 import com.newrelic.agent.tracers.metricname.MetricNameFormat;
 import com.newrelic.agent.util.Strings;
@@ -19,6 +20,9 @@ import java.util.concurrent.TimeUnit;
 public abstract class AbstractExternalComponentTracer extends DefaultTracer implements IgnoreChildSocketCalls {
 
     private static final String UNKNOWN_HOST = "UnknownHost";
+    private static final int EXTERNAL_ALL_ID = MetricNameTable.getInstance().getId(MetricNames.EXTERNAL_ALL);
+    private static final int WEB_TRANSACTION_EXTERNAL_ALL_ID = MetricNameTable.getInstance().getId(MetricNames.WEB_TRANSACTION_EXTERNAL_ALL);
+    private static final int OTHER_TRANSACTION_EXTERNAL_ALL_ID = MetricNameTable.getInstance().getId(MetricNames.OTHER_TRANSACTION_EXTERNAL_ALL);
     private String host;
 
     public AbstractExternalComponentTracer(Transaction transaction, ClassMethodSignature sig, Object object,
@@ -65,14 +69,17 @@ public abstract class AbstractExternalComponentTracer extends DefaultTracer impl
         super.doRecordMetrics(transactionStats);
 
         // create a single roll up metric of all external calls
-        transactionStats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.EXTERNAL_ALL).recordResponseTime(
+        transactionStats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.EXTERNAL_ALL, EXTERNAL_ALL_ID).recordResponseTime(
                 getExclusiveDuration(), TimeUnit.NANOSECONDS);
         // create a roll up metric for either all external calls from web transactions, or all external calls
         // from other (background) transactions
-        transactionStats.getUnscopedStats().getOrCreateResponseTimeStats(
-                (getTransaction().isWebTransaction() ? MetricNames.WEB_TRANSACTION_EXTERNAL_ALL
-                        : MetricNames.OTHER_TRANSACTION_EXTERNAL_ALL)).recordResponseTime(getExclusiveDuration(),
-                TimeUnit.NANOSECONDS);
+        if (getTransaction().isWebTransaction()) {
+            transactionStats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.WEB_TRANSACTION_EXTERNAL_ALL,
+                    WEB_TRANSACTION_EXTERNAL_ALL_ID).recordResponseTime(getExclusiveDuration(), TimeUnit.NANOSECONDS);
+        } else {
+            transactionStats.getUnscopedStats().getOrCreateResponseTimeStats(MetricNames.OTHER_TRANSACTION_EXTERNAL_ALL,
+                    OTHER_TRANSACTION_EXTERNAL_ALL_ID).recordResponseTime(getExclusiveDuration(), TimeUnit.NANOSECONDS);
+        }
         // create a roll up of external calls by host
         String hostRollupMetricName = Strings.join('/', MetricNames.EXTERNAL_PATH, getHost(), "all");
         transactionStats.getUnscopedStats().getOrCreateResponseTimeStats(hostRollupMetricName).recordResponseTime(
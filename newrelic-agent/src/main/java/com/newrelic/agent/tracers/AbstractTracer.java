@@ -31,7 +31,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
 
 /**
@@ -40,6 +40,10 @@ import java.util.logging.Level;
 public abstract class AbstractTracer implements Tracer, AttributeHolder {
 
     static final int INITIAL_PARAMETER_MAP_SIZE = 5;
+    private static final AtomicReferenceFieldUpdater<AbstractTracer, TracedException> TRACER_ERROR_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractTracer.class, TracedException.class, "tracerError");
+    private static final AtomicReferenceFieldUpdater<AbstractTracer, Long> FINISH_TIME_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(AbstractTracer.class, Long.class, "finishTime");
     protected static String ATTRIBUTE_TYPE = "custom";
 
     private final TransactionActivity transactionActivity;
@@ -52,11 +56,12 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
     // doesn't need to be thread safe since this flag affects the decision to registerAsync
     private Boolean trackChildThreads = null;
     private Boolean trackCallBackRunnable = false;
-    private AtomicReference<TracedException> tracerError = new AtomicReference<>(TracedException.NO_EXCEPTION);
+    // Updated through field updaters rather than AtomicReference wrappers to save two allocations per tracer
+    private volatile TracedException tracerError = TracedException.NO_EXCEPTION;
 
     private final long startTimeInMillis;
-    AtomicReference<Long> finishTime = new AtomicReference<>(null);
-    private final String ATTRIBUTE_API_METHOD_NAME = "TracedMethod.addCustomAttributes";
+    volatile Long finishTime = null;
+    private static final String ATTRIBUTE_API_METHOD_NAME = "TracedMethod.addCustomAttributes";
 
     // Tracers MUST NOT store references to the Transaction. Why: tracers are stored in the TransactionActivity,
     // and Activities can be reparented from one Transaction to another by the public APIs that support async.
@@ -81,6 +86,15 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
         this.attributeValidator = attributeValidator;
     }
 
+    /**
+     * Create a tracer on the current thread whose attribute validator is only created if custom attributes are added.
+     *
+     * @param txa the activity for the current thread. The value is allowed to be null.
+     */
+    protected AbstractTracer(TransactionActivity txa) {
+        this(txa, null);
+    }
+
     /**
      * Get the transaction that currently owns the activity that owns this tracer.
      *
@@ -273,7 +287,7 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
 
     @Override
     public void markFinishTime() {
-        finishTime.compareAndSet(null, System.nanoTime());
+        FINISH_TIME_UPDATER.compareAndSet(this, null, System.nanoTime());
     }
 
     @Override
@@ -288,22 +302,22 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
 
     @Override
     public void setNoticedError(Throwable throwable) {
-        tracerError.compareAndSet(TracedException.NO_EXCEPTION, new TracedException(TransactionErrorPriority.API, throwable));
+        TRACER_ERROR_UPDATER.compareAndSet(this, TracedException.NO_EXCEPTION, new TracedException(TransactionErrorPriority.API, throwable));
     }
 
     @Override
     public void setThrownException(Throwable throwable) {
-        tracerError.compareAndSet(TracedException.NO_EXCEPTION, new TracedException(TransactionErrorPriority.TRACER, throwable));
+        TRACER_ERROR_UPDATER.compareAndSet(this, TracedException.NO_EXCEPTION, new TracedException(TransactionErrorPriority.TRACER, throwable));
     }
 
     @Override
     public boolean wasExceptionSetByAPI() {
-        return tracerError.get().getPriority() == TransactionErrorPriority.API;
+        return tracerError.getPriority() == TransactionErrorPriority.API;
     }
 
     @Override
     public Throwable getException() {
-        return tracerError.get().getException();
+        return tracerError.getException();
     }
 
     @Override
@@ -334,6 +348,9 @@ public abstract class AbstractTracer implements Tracer, AttributeHolder {
     }
 
     private void setAttributeIfValid(String key, Object value) {
+        if (attributeValidator == null) {
+            attributeValidator = new AttributeValidator(ATTRIBUTE_TYPE);
+        }
         Object verifiedValue = attributeValidator.verifyParameterAndReturnValue(
                 key, value, ATTRIBUTE_API_METHOD_NAME);
         if (verifiedValue != null) {
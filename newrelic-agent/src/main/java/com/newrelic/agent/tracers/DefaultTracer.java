@@ -11,7 +11,6 @@ import com.newrelic.agent.Agent;
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.Transaction;
 import com.newrelic.agent.TransactionActivity;
-import com.newrelic.agent.attributes.AttributeValidator;
 import com.newrelic.agent.bridge.external.ExternalMetrics;
 import com.newrelic.agent.config.DatastoreConfig;
 import com.newrelic.agent.config.TransactionTracerConfig;
@@ -22,6 +21,7 @@ import com.newrelic.agent.stats.ResponseTimeStats;
 import com.newrelic.agent.stats.TransactionStats;
 import com.newrelic.agent.trace.TransactionGuidFactory;
 import com.newrelic.agent.trace.TransactionSegment;
+import com.newrelic.agent.tracers.metricname.InternedMetricNameFormat;
 import com.newrelic.agent.tracers.metricname.MetricNameFormat;
 import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
 import com.newrelic.agent.util.ExternalsUtil;
@@ -32,6 +32,7 @@ import org.objectweb.asm.Opcodes;
 import java.net.URI;
 import java.text.MessageFormat;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.logging.Level;
 
 /**
@@ -56,13 +57,16 @@ public class DefaultTracer extends AbstractTracer {
 
     private static final String COMPONENT_PARAMETER_NAME = "component";
     private static final String HTTP_METHOD_PARAMETER_NAME = "http.method";
+    private static final AtomicReferenceFieldUpdater<DefaultTracer, String> GUID_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(DefaultTracer.class, String.class, "guid");
 
     private final long startTime;
     private final long timestamp;
     private long duration;
     private long exclusiveDuration;
     private Tracer parentTracer;
-    private String guid;
+    // generated on first use; most tracers never become span events or notice errors
+    private volatile String guid;
 
     private final ClassMethodSignature classMethodSignature;
     private Object invocationTarget;
@@ -120,7 +124,7 @@ public class DefaultTracer extends AbstractTracer {
      */
     public DefaultTracer(TransactionActivity txa, ClassMethodSignature sig, Object object,
                          MetricNameFormat metricNameFormatter, int tracerFlags, long pStartTime) {
-        super(txa, new AttributeValidator(ATTRIBUTE_TYPE));
+        super(txa);
         metricNameFormat = metricNameFormatter;
         classMethodSignature = sig;
         startTime = pStartTime;
@@ -133,7 +137,6 @@ public class DefaultTracer extends AbstractTracer {
         }
 
         this.tracerFlags = (byte) tracerFlags;
-        this.guid = TransactionGuidFactory.generate16CharGuid();
     }
 
     public DefaultTracer(TransactionActivity txa, ClassMethodSignature sig, Object object,
@@ -157,7 +160,12 @@ public class DefaultTracer extends AbstractTracer {
 
     @Override
     public String getGuid() {
-        return guid;
+        String current = guid;
+        if (current == null) {
+            GUID_UPDATER.compareAndSet(this, null, TransactionGuidFactory.generate16CharGuid());
+            current = guid;
+        }
+        return current;
     }
 
     @Override
@@ -219,7 +227,8 @@ public class DefaultTracer extends AbstractTracer {
             return;
         }
 
-        performFinishWork(finishTime.get() == null ? System.nanoTime() : finishTime.get(), opcode, returnValue);
+        Long markedFinishTime = finishTime;
+        performFinishWork(markedFinishTime == null ? System.nanoTime() : markedFinishTime, opcode, returnValue);
     }
 
     // this is public for testing - do not call directly unless testing
@@ -439,10 +448,14 @@ public class DefaultTracer extends AbstractTracer {
             return;
         }
         if (isMetricProducer()) {
-            String metricName = getMetricName();
+            MetricNameFormat format = metricNameFormat;
+            String metricName = format == null ? null : format.getMetricName();
             if (metricName != null) {
-                // record the scoped metrics
-                ResponseTimeStats stats = transactionStats.getScopedStats().getOrCreateResponseTimeStats(metricName);
+                // record the scoped metrics. Cached formats know the id of their name, which saves a lookup.
+                ResponseTimeStats stats = format instanceof InternedMetricNameFormat
+                        ? transactionStats.getScopedStats().getOrCreateResponseTimeStats(metricName,
+                                ((InternedMetricNameFormat) format).getMetricNameId())
+                        : transactionStats.getScopedStats().getOrCreateResponseTimeStats(metricName);
                 stats.recordResponseTimeInNanos(getDuration(), getExclusiveDuration());
 
                 // there is now an unscoped metric for every scoped metric
@@ -7,6 +7,7 @@
 
 package com.newrelic.agent.tracers.metricname;
 
+import com.newrelic.agent.metric.MetricNameTable;
 import com.newrelic.agent.tracers.ClassMethodSignature;
 import com.newrelic.agent.util.Strings;
 
@@ -14,9 +15,12 @@ import com.newrelic.agent.util.Strings;
  * Modifying this class may affect performance because we create a lot of instances of this class. Be careful when
  * making changes.
  */
-public class ClassMethodMetricNameFormat extends AbstractMetricNameFormat {
+public class ClassMethodMetricNameFormat extends AbstractMetricNameFormat implements InternedMetricNameFormat {
 
     private String metricName;
+    // the metric name id plus one, resolved on first use so that 0 means not resolved yet. Racing threads only repeat
+    // the lookup, which returns the same id.
+    private int metricNameIdPlusOne;
     private final ClassMethodSignature signature;
     private final String className;
     private final String prefix;
@@ -49,6 +53,16 @@ public class ClassMethodMetricNameFormat extends AbstractMetricNameFormat {
         return metricName;
     }
 
+    @Override
+    public int getMetricNameId() {
+        int idPlusOne = metricNameIdPlusOne;
+        if (idPlusOne == 0) {
+            idPlusOne = MetricNameTable.getInstance().getId(getMetricName()) + 1;
+            metricNameIdPlusOne = idPlusOne;
+        }
+        return idPlusOne - 1;
+    }
+
     public static String getMetricName(ClassMethodSignature sig, Object object) {
         return getMetricName(sig, object, "Java");
     }
@@ -0,0 +1,23 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.tracers.metricname;
+
+import com.newrelic.agent.metric.MetricNameTable;
+
+/**
+ * A {@link MetricNameFormat} that remembers the {@link MetricNameTable} id of its metric name. Formats are cached per
+ * traced method, so tracers using one can record their stats by id instead of looking the name up every time.
+ */
+public interface InternedMetricNameFormat extends MetricNameFormat {
+
+    /**
+     * @return the id of {@link #getMetricName()}, or {@link MetricNameTable#NO_ID} if the name is null or the table is
+     * full
+     */
+    int getMetricNameId();
+}
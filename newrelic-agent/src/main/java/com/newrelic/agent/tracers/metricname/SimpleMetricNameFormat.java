@@ -7,11 +7,16 @@
 
 package com.newrelic.agent.tracers.metricname;
 
-public class SimpleMetricNameFormat implements MetricNameFormat {
+import com.newrelic.agent.metric.MetricNameTable;
+
+public class SimpleMetricNameFormat implements InternedMetricNameFormat {
 
     private final String metricName;
     private final String transactionSegmentName;
     private final String transactionSegmentUri;
+    // the metric name id plus one, resolved on first use so that 0 means not resolved yet. Racing threads only repeat
+    // the lookup, which returns the same id.
+    private int metricNameIdPlusOne;
 
     public SimpleMetricNameFormat(String metricName) {
         this(metricName, metricName, null);
@@ -32,6 +37,16 @@ public class SimpleMetricNameFormat implements MetricNameFormat {
         return metricName;
     }
 
+    @Override
+    public final int getMetricNameId() {
+        int idPlusOne = metricNameIdPlusOne;
+        if (idPlusOne == 0) {
+            idPlusOne = (metricName == null ? MetricNameTable.NO_ID : MetricNameTable.getInstance().getId(metricName)) + 1;
+            metricNameIdPlusOne = idPlusOne;
+        }
+        return idPlusOne - 1;
+    }
+
     @Override
     public String getTransactionSegmentName() {
         return transactionSegmentName;
@@ -7,21 +7,13 @@
 
 package com.newrelic.agent.tracing;
 
-import com.google.common.base.Charsets;
 import com.newrelic.agent.MetricNames;
 import com.newrelic.agent.logging.IAgentLogger;
 import com.newrelic.api.agent.MetricAggregator;
-import org.apache.commons.codec.binary.Base64;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 
 import java.util.logging.Level;
 
-import static com.newrelic.agent.tracing.DistributedTraceUtil.*;
-
 public class DistributedTracePayloadParser {
-    private static final Base64 base64 = new Base64();
 
     private final MetricAggregator metricAggregator;
     private final DistributedTraceService distributedTraceService;
@@ -53,17 +45,15 @@ public class DistributedTracePayloadParser {
             char firstChar = payload.charAt(0);
             if (firstChar != '{') {
                 // This must be base64 encoded, decode it
-                payload = new String(base64.decode(payload), Charsets.UTF_8);
+                payload = DistributedTracePayloadReader.decodeBase64(payload);
             }
         }
 
-        JSONParser parser = new JSONParser();
         try {
-            JSONObject object = (JSONObject) parser.parse(payload);
+            DistributedTracePayloadReader reader = DistributedTracePayloadReader.read(payload);
 
             // ignore payload if major version is higher than our own
-            JSONArray version = (JSONArray) object.get(VERSION);
-            final Long majorVersion = (Long) version.get(0);
+            final long majorVersion = reader.getMajorVersion();
             int majorSupportedVersion = distributedTraceService.getMajorSupportedCatVersion();
             if (majorVersion > majorSupportedVersion) {
                 logger.log(Level.FINER,
@@ -73,13 +63,13 @@ public class DistributedTracePayloadParser {
                 return null;
             }
 
-            JSONObject data = (JSONObject) object.get(DATA);
+            reader.checkData();
 
             // ignore payload if accountId isn't trusted
-            String payloadAccountId = (String) data.get(ACCOUNT_ID);
+            String payloadAccountId = reader.getAccountId();
 
             // ignore payload if isn't trusted
-            String payloadTrustKey = (String) data.get(TRUSTED_ACCOUNT_KEY);
+            String payloadTrustKey = reader.getTrustKey();
             String trustKey = distributedTraceService.getTrustKey();
 
             //the agent obtains the trustKey from the connect payload
@@ -90,12 +80,12 @@ public class DistributedTracePayloadParser {
             }
 
             if (payloadAccountId == null) {
-                logger.log(Level.FINER, "Invalid payload {0}. Payload missing accountId.", data);
+                logger.log(Level.FINER, "Invalid payload {0}. Payload missing accountId.", payload);
                 metricAggregator.incrementCounter(MetricNames.SUPPORTABILITY_ACCEPT_PAYLOAD_IGNORED_PARSE_EXCEPTION);
                 return null;
             }
 
-            String applicationId = (String) data.get(APPLICATION_ID);
+            String applicationId = reader.getApplicationId();
             if (applicationId == null) {
                 logger.log(Level.FINER, "Incoming distributed trace payload is missing application id");
                 metricAggregator.incrementCounter(MetricNames.SUPPORTABILITY_ACCEPT_PAYLOAD_IGNORED_PARSE_EXCEPTION);
@@ -112,29 +102,29 @@ public class DistributedTracePayloadParser {
                 return null;
             }
 
-            long timestamp = (Long) data.get(TIMESTAMP);
+            long timestamp = reader.getTimestamp();
             if (timestamp <= 0) {
-                logger.log(Level.FINER, "Invalid payload {0}. Payload missing keys.", data);
+                logger.log(Level.FINER, "Invalid payload {0}. Payload missing keys.", payload);
                 metricAggregator.incrementCounter(MetricNames.SUPPORTABILITY_ACCEPT_PAYLOAD_IGNORED_PARSE_EXCEPTION);
                 return null;
             }
 
-            String parentType = (String) data.get(PARENT_TYPE);
+            String parentType = reader.getParentType();
             if (parentType == null) {
                 logger.log(Level.FINER, "Incoming distributed trace payload is missing type");
                 metricAggregator.incrementCounter(MetricNames.SUPPORTABILITY_ACCEPT_PAYLOAD_IGNORED_PARSE_EXCEPTION);
                 return null;
             }
 
-            String traceId = (String) data.get(TRACE_ID);
+            String traceId = reader.getTraceId();
             if (traceId == null) {
                 logger.log(Level.FINER, "Incoming distributed trace payload is missing traceId");
                 metricAggregator.incrementCounter(MetricNames.SUPPORTABILITY_ACCEPT_PAYLOAD_IGNORED_PARSE_EXCEPTION);
                 return null;
             }
 
-            String guid = (String) data.get(GUID);
-            String txnId = (String) data.get(TX);
+            String guid = reader.getGuid();
+            String txnId = reader.getTxnId();
             if (guid == null && txnId == null) {
                 // caller has span events disabled and there's no transaction?
                 // they must be using txn-less api, but no spans?
@@ -143,9 +133,8 @@ public class DistributedTracePayloadParser {
                 return null;
             }
 
-            Number priorityNumber = (Number) data.get(PRIORITY);
-            Float priority = priorityNumber != null ? priorityNumber.floatValue() : null;
-            Sampled sampled = Sampled.parse(data.get(SAMPLED));
+            Float priority = reader.getPriority();
+            Sampled sampled = reader.getSampled();
 
             DistributedTracePayloadImpl distributedTracePayload = new DistributedTracePayloadImpl(timestamp,
                     parentType, payloadAccountId, payloadTrustKey, applicationId, guid, traceId, txnId, priority, sampled);
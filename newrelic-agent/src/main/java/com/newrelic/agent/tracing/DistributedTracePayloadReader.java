@@ -0,0 +1,648 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.tracing;
+
+import com.google.common.base.Charsets;
+
+import java.util.Arrays;
+
+import static com.newrelic.agent.tracing.DistributedTraceUtil.ACCOUNT_ID;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.APPLICATION_ID;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.DATA;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.GUID;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.PARENT_TYPE;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.PRIORITY;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.SAMPLED;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.TIMESTAMP;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.TRACE_ID;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.TRUSTED_ACCOUNT_KEY;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.TX;
+import static com.newrelic.agent.tracing.DistributedTraceUtil.VERSION;
+
+/**
+ * Reads the fields of a newrelic distributed trace payload in one pass over the JSON text, without building a
+ * JSONObject. Only the values the payload parser uses are kept, and strings are only created for those.
+ *
+ * The grammar accepted is the one json-simple accepts: commas between members and elements are optional. A value of
+ * the wrong type is remembered rather than rejected, and the getter for it throws the same exception the cast in
+ * {@link DistributedTracePayloadParser} used to, so that the checks there still run in the same order.
+ *
+ * Only the top level object, the version array and the data object are read recursively. Other objects and arrays are
+ * skipped with an explicit stack, so deeply nested input cannot overflow the request thread's stack.
+ *
+ * This class is not thread-safe. Use one instance per payload.
+ */
+final class DistributedTracePayloadReader {
+
+    // what the reader is inside of
+    private static final int SKIP = 0;
+    private static final int TOP_LEVEL = 1;
+    private static final int VERSION_ARRAY = 2;
+    private static final int DATA_OBJECT = 3;
+
+    // the members the reader keeps
+    private static final int OTHER_FIELD = 0;
+    private static final int VERSION_FIELD = 1;
+    private static final int DATA_FIELD = 2;
+    private static final int PARENT_TYPE_FIELD = 3;
+    private static final int ACCOUNT_ID_FIELD = 4;
+    private static final int TRUSTED_ACCOUNT_KEY_FIELD = 5;
+    private static final int APPLICATION_ID_FIELD = 6;
+    private static final int TIMESTAMP_FIELD = 7;
+    private static final int GUID_FIELD = 8;
+    private static final int TRACE_ID_FIELD = 9;
+    private static final int TX_FIELD = 10;
+    private static final int PRIORITY_FIELD = 11;
+    private static final int SAMPLED_FIELD = 12;
+
+    private static final String[] DATA_FIELD_NAMES = new String[SAMPLED_FIELD + 1];
+
+    static {
+        DATA_FIELD_NAMES[PARENT_TYPE_FIELD] = PARENT_TYPE;
+        DATA_FIELD_NAMES[ACCOUNT_ID_FIELD] = ACCOUNT_ID;
+        DATA_FIELD_NAMES[TRUSTED_ACCOUNT_KEY_FIELD] = TRUSTED_ACCOUNT_KEY;
+        DATA_FIELD_NAMES[APPLICATION_ID_FIELD] = APPLICATION_ID;
+        DATA_FIELD_NAMES[TIMESTAMP_FIELD] = TIMESTAMP;
+        DATA_FIELD_NAMES[GUID_FIELD] = GUID;
+        DATA_FIELD_NAMES[TRACE_ID_FIELD] = TRACE_ID;
+        DATA_FIELD_NAMES[TX_FIELD] = TX;
+        DATA_FIELD_NAMES[PRIORITY_FIELD] = PRIORITY;
+        DATA_FIELD_NAMES[SAMPLED_FIELD] = SAMPLED;
+    }
+
+    // the kinds of value a member can have
+    private static final int ABSENT = 0; // missing or null
+    private static final int INTEGER = 1;
+    private static final int DECIMAL = 2;
+    private static final int STRING = 3;
+    private static final int TRUE = 4;
+    private static final int FALSE = 5;
+    private static final int OBJECT = 6;
+    private static final int ARRAY = 7;
+
+    private static final byte[] BASE64_DECODE_TABLE = new byte[128];
+
+    static {
+        for (int i = 0; i < BASE64_DECODE_TABLE.length; i++) {
+            BASE64_DECODE_TABLE[i] = -1;
+        }
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) {
+            BASE64_DECODE_TABLE[alphabet.charAt(i)] = (byte) i;
+        }
+        // the URL safe alphabet is accepted too
+        BASE64_DECODE_TABLE['-'] = 62;
+        BASE64_DECODE_TABLE['_'] = 63;
+    }
+
+    private final String json;
+    private int position;
+
+    // state of the value just read
+    private int valueKind;
+    private int valueStart;
+    private int valueEnd;
+    private boolean valueEscaped;
+    private long integerValue;
+
+    private boolean validVersion;
+    private long majorVersion;
+    private int dataKind = ABSENT;
+    private final int[] dataKinds = new int[SAMPLED_FIELD + 1];
+    private final String[] dataStrings = new String[SAMPLED_FIELD + 1];
+    private long timestamp;
+    private float priority;
+
+    private DistributedTracePayloadReader(String json) {
+        this.json = json;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the payload is not a JSON object
+     * @throws NumberFormatException if an integer in the payload does not fit in a long
+     */
+    static DistributedTracePayloadReader read(String json) {
+        DistributedTracePayloadReader reader = new DistributedTracePayloadReader(json);
+        if (reader.nextToken() != '{') {
+            throw reader.error("Expected an object");
+        }
+        reader.position++;
+        reader.readObject(TOP_LEVEL);
+        if (reader.nextToken() != -1) {
+            throw reader.error("Unexpected token");
+        }
+        return reader;
+    }
+
+    /**
+     * Decode base64 text the way commons-codec does: characters outside of the alphabet are skipped, decoding stops
+     * at the first pad character and a trailing partial group is decoded as far as it goes.
+     */
+    static String decodeBase64(String encoded) {
+        byte[] decoded = new byte[encoded.length() * 3 / 4 + 2];
+        int length = 0;
+        int bits = 0;
+        int count = 0;
+        for (int i = 0; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            if (c == '=') {
+                break;
+            }
+            int value = c < BASE64_DECODE_TABLE.length ? BASE64_DECODE_TABLE[c] : -1;
+            if (value < 0) {
+                continue;
+            }
+            bits = (bits << 6) | value;
+            if (++count == 4) {
+                decoded[length++] = (byte) (bits >> 16);
+                decoded[length++] = (byte) (bits >> 8);
+                decoded[length++] = (byte) bits;
+                bits = 0;
+                count = 0;
+            }
+        }
+        if (count == 2) {
+            decoded[length++] = (byte) (bits >> 4);
+        } else if (count == 3) {
+            decoded[length++] = (byte) (bits >> 10);
+            decoded[length++] = (byte) (bits >> 2);
+        }
+        return new String(decoded, 0, length, Charsets.UTF_8);
+    }
+
+    /**
+     * @throws RuntimeException if the version is missing, is not an array or does not start with an integer
+     */
+    long getMajorVersion() {
+        if (!validVersion) {
+            throw new IllegalStateException("Missing payload version");
+        }
+        return majorVersion;
+    }
+
+    /**
+     * @throws RuntimeException if the data is missing or is not an object
+     */
+    void checkData() {
+        if (dataKind != OBJECT) {
+            throw new IllegalStateException("Missing payload data");
+        }
+    }
+
+    String getParentType() {
+        return getString(PARENT_TYPE_FIELD);
+    }
+
+    String getAccountId() {
+        return getString(ACCOUNT_ID_FIELD);
+    }
+
+    String getTrustKey() {
+        return getString(TRUSTED_ACCOUNT_KEY_FIELD);
+    }
+
+    String getApplicationId() {
+        return getString(APPLICATION_ID_FIELD);
+    }
+
+    String getGuid() {
+        return getString(GUID_FIELD);
+    }
+
+    String getTraceId() {
+        return getString(TRACE_ID_FIELD);
+    }
+
+    String getTxnId() {
+        return getString(TX_FIELD);
+    }
+
+    /**
+     * @throws RuntimeException if the timestamp is missing or is not an integer
+     */
+    long getTimestamp() {
+        if (dataKinds[TIMESTAMP_FIELD] == ABSENT) {
+            throw new NullPointerException("Missing timestamp");
+        }
+        if (dataKinds[TIMESTAMP_FIELD] != INTEGER) {
+            throw new ClassCastException("Timestamp is not an integer");
+        }
+        return timestamp;
+    }
+
+    /**
+     * @return the priority, or null if it is missing
+     * @throws ClassCastException if the priority is not a number
+     */
+    Float getPriority() {
+        int kind = dataKinds[PRIORITY_FIELD];
+        if (kind == ABSENT) {
+            return null;
+        }
+        if (kind != INTEGER && kind != DECIMAL) {
+            throw new ClassCastException("Priority is not a number");
+        }
+        return priority;
+    }
+
+    Sampled getSampled() {
+        switch (dataKinds[SAMPLED_FIELD]) {
+            case TRUE:
+                return Sampled.SAMPLED_YES;
+            case FALSE:
+                return Sampled.SAMPLED_NO;
+            case STRING:
+                return Sampled.parse(dataStrings[SAMPLED_FIELD]);
+            default:
+                return Sampled.UNKNOWN;
+        }
+    }
+
+    private String getString(int field) {
+        int kind = dataKinds[field];
+        if (kind != ABSENT && kind != STRING) {
+            throw new ClassCastException(DATA_FIELD_NAMES[field] + " is not a string");
+        }
+        return dataStrings[field];
+    }
+
+    /**
+     * Read the members of an object. The opening brace has been consumed.
+     */
+    private void readObject(int context) {
+        while (true) {
+            int token = nextToken();
+            if (token == ',') {
+                position++;
+            } else if (token == '}') {
+                position++;
+                return;
+            } else if (token == '"') {
+                readString();
+                int field = fieldFor(context);
+                readColon();
+                readValue(context, field);
+            } else {
+                throw error("Expected a member name");
+            }
+        }
+    }
+
+    /**
+     * Read the elements of an array. The opening bracket has been consumed.
+     */
+    private void readArray(int context) {
+        boolean first = true;
+        while (true) {
+            int token = nextToken();
+            if (token == ',') {
+                position++;
+            } else if (token == ']') {
+                position++;
+                return;
+            } else if (token == ':' || token == '}') {
+                throw error("Expected an array element");
+            } else {
+                readValue(first ? context : SKIP, OTHER_FIELD);
+                first = false;
+            }
+        }
+    }
+
+    /**
+     * Read a value and keep it if it is one the parser uses.
+     */
+    private void readValue(int context, int field) {
+        int token = nextToken();
+        if (token == '{') {
+            position++;
+            if (context == TOP_LEVEL && field == DATA_FIELD) {
+                // a repeated member replaces the earlier one
+                for (int i = 0; i < dataKinds.length; i++) {
+                    dataKinds[i] = ABSENT;
+                    dataStrings[i] = null;
+                }
+                dataKind = OBJECT;
+                readObject(DATA_OBJECT);
+                return;
+            }
+            skipNested('{');
+            valueKind = OBJECT;
+        } else if (token == '[') {
+            position++;
+            if (context == TOP_LEVEL && field == VERSION_FIELD) {
+                // the version is valid if the first element is an integer
+                validVersion = false;
+                readArray(VERSION_ARRAY);
+                return;
+            }
+            skipNested('[');
+            valueKind = ARRAY;
+        } else {
+            readScalar(token);
+        }
+        keepValue(context, field);
+    }
+
+    /**
+     * Read a string, number, boolean or null.
+     */
+    private void readScalar(int token) {
+        if (token == '"') {
+            readString();
+        } else if (token == '-' || (token >= '0' && token <= '9')) {
+            readNumber();
+        } else if (json.startsWith("true", position)) {
+            position += 4;
+            valueKind = TRUE;
+        } else if (json.startsWith("false", position)) {
+            position += 5;
+            valueKind = FALSE;
+        } else if (json.startsWith("null", position)) {
+            position += 4;
+            valueKind = ABSENT;
+        } else {
+            throw error("Expected a value");
+        }
+    }
+
+    /**
+     * Skip an object or array the reader does not keep, checking it the same way {@link #readObject(int)} and
+     * {@link #readArray(int)} would. The opening character has been consumed.
+     */
+    private void skipNested(char first) {
+        char[] open = new char[16];
+        int depth = 0;
+        open[depth++] = first;
+        while (depth > 0) {
+            int token = nextToken();
+            if (token == ',') {
+                position++;
+                continue;
+            }
+            if (open[depth - 1] == '{') {
+                if (token == '}') {
+                    position++;
+                    depth--;
+                    continue;
+                }
+                if (token != '"') {
+                    throw error("Expected a member name");
+                }
+                readString();
+                readColon();
+                token = nextToken();
+            } else {
+                if (token == ']') {
+                    position++;
+                    depth--;
+                    continue;
+                }
+                if (token == ':' || token == '}') {
+                    throw error("Expected an array element");
+                }
+            }
+            if (token == '{' || token == '[') {
+                position++;
+                if (depth == open.length) {
+                    open = Arrays.copyOf(open, depth << 1);
+                }
+                open[depth++] = (char) token;
+            } else {
+                readScalar(token);
+            }
+        }
+    }
+
+    /**
+     * Read the single colon between a member name and its value.
+     */
+    private void readColon() {
+        if (nextToken() != ':') {
+            throw error("Expected ':'");
+        }
+        position++;
+    }
+
+    private void keepValue(int context, int field) {
+        if (context == VERSION_ARRAY) {
+            validVersion = valueKind == INTEGER;
+            majorVersion = integerValue;
+        } else if (context == TOP_LEVEL) {
+            if (field == VERSION_FIELD) {
+                validVersion = false;
+            } else if (field == DATA_FIELD) {
+                dataKind = valueKind;
+            }
+        } else if (context == DATA_OBJECT && field != OTHER_FIELD) {
+            dataKinds[field] = valueKind;
+            dataStrings[field] = valueKind == STRING ? stringValue() : null;
+            if (field == TIMESTAMP_FIELD) {
+                timestamp = integerValue;
+            } else if (field == PRIORITY_FIELD && valueKind == INTEGER) {
+                priority = (float) integerValue;
+            } else if (field == PRIORITY_FIELD && valueKind == DECIMAL) {
+                priority = (float) Double.parseDouble(json.substring(valueStart, valueEnd));
+            }
+        }
+    }
+
+    /**
+     * @return the member the string just read names, if the reader keeps it
+     */
+    private int fieldFor(int context) {
+        if (context == TOP_LEVEL) {
+            if (stringEquals(VERSION)) {
+                return VERSION_FIELD;
+            } else if (stringEquals(DATA)) {
+                return DATA_FIELD;
+            }
+        } else if (context == DATA_OBJECT) {
+            for (int field = PARENT_TYPE_FIELD; field < DATA_FIELD_NAMES.length; field++) {
+                if (stringEquals(DATA_FIELD_NAMES[field])) {
+                    return field;
+                }
+            }
+        }
+        return OTHER_FIELD;
+    }
+
+    private boolean stringEquals(String value) {
+        if (valueEscaped) {
+            return value.equals(stringValue());
+        }
+        return valueEnd - valueStart == value.length() && json.startsWith(value, valueStart);
+    }
+
+    /**
+     * Read a string. Escapes are checked but only decoded if the value is kept.
+     */
+    private void readString() {
+        valueKind = STRING;
+        valueEscaped = false;
+        valueStart = ++position;
+        while (true) {
+            if (position >= json.length()) {
+                throw error("Unterminated string");
+            }
+            char c = json.charAt(position);
+            if (c == '"') {
+                valueEnd = position++;
+                return;
+            }
+            if (c == '\\') {
+                valueEscaped = true;
+                position += escapeLength(position);
+            } else {
+                position++;
+            }
+        }
+    }
+
+    /**
+     * @return the length of the escape sequence at the given backslash
+     */
+    private int escapeLength(int backslash) {
+        if (backslash + 1 >= json.length()) {
+            throw error("Unterminated string");
+        }
+        switch (json.charAt(backslash + 1)) {
+            case '"':
+            case '\\':
+            case '/':
+            case 'b':
+            case 'f':
+            case 'n':
+            case 'r':
+            case 't':
+                return 2;
+            case 'u':
+                if (backslash + 6 > json.length()) {
+                    throw error("Invalid unicode escape");
+                }
+                for (int i = backslash + 2; i < backslash + 6; i++) {
+                    char c = json.charAt(i);
+                    if (!isDigit(c) && (c < 'a' || c > 'f') && (c < 'A' || c > 'F')) {
+                        throw error("Invalid unicode escape");
+                    }
+                }
+                return 6;
+            default:
+                throw error("Invalid escape");
+        }
+    }
+
+    private String stringValue() {
+        if (!valueEscaped) {
+            return json.substring(valueStart, valueEnd);
+        }
+        StringBuilder value = new StringBuilder(valueEnd - valueStart);
+        int i = valueStart;
+        while (i < valueEnd) {
+            char c = json.charAt(i);
+            if (c != '\\') {
+                value.append(c);
+                i++;
+                continue;
+            }
+            char escaped = json.charAt(i + 1);
+            switch (escaped) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    value.append((char) Integer.parseInt(json.substring(i + 2, i + 6), 16));
+                    i += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+            i += 2;
+        }
+        return value.toString();
+    }
+
+    /**
+     * Read a number: an optional minus sign and digits, then an optional fraction and exponent. A number with only the
+     * first part is an integer and must fit in a long.
+     */
+    private void readNumber() {
+        valueStart = position;
+        if (json.charAt(position) == '-') {
+            position++;
+        }
+        int digitsStart = position;
+        skipDigits();
+        if (position == digitsStart) {
+            throw error("Expected a digit");
+        }
+        valueKind = INTEGER;
+        if (position + 1 < json.length() && json.charAt(position) == '.' && isDigit(json.charAt(position + 1))) {
+            position++;
+            skipDigits();
+            valueKind = DECIMAL;
+        }
+        if (position < json.length() && (json.charAt(position) == 'e' || json.charAt(position) == 'E')) {
+            int exponent = position + 1;
+            if (exponent < json.length() && (json.charAt(exponent) == '+' || json.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < json.length() && isDigit(json.charAt(exponent))) {
+                position = exponent;
+                skipDigits();
+                valueKind = DECIMAL;
+            }
+        }
+        valueEnd = position;
+        if (valueKind == INTEGER) {
+            integerValue = W3CTraceStateSupport.parseLong(json, valueStart, valueEnd, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+    }
+
+    private void skipDigits() {
+        while (position < json.length() && isDigit(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Skip whitespace.
+     *
+     * @return the next character, or -1 at the end of the text
+     */
+    private int nextToken() {
+        while (position < json.length()) {
+            char c = json.charAt(position);
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+            position++;
+        }
+        return -1;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position);
+    }
+}
@@ -14,6 +14,13 @@ import java.util.List;
 
 public class W3CTraceParentParser {
 
+    private static final char DELIMITER = W3CTraceParentHeader.W3C_TRACE_PARENT_DELIMITER.charAt(0);
+    private static final String INVALID_VERSION = "ff";
+    private static final int VERSION_00_LENGTH = 55;
+    private static final int TRACE_ID_LENGTH = 32;
+    private static final int PARENT_ID_LENGTH = 16;
+    private static final int FLAGS_LENGTH = 2;
+
     static W3CTraceParent parseHeaders(List<String> traceParentHeaders) {
         if (traceParentHeaders.size() != 1) {
             ServiceFactory.getStatsService().getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_PARENT_HEADER_COUNT);
@@ -24,25 +31,30 @@ public class W3CTraceParentParser {
         return parseHeader(traceParentHeader);
     }
 
+    /**
+     * Parse a traceparent header in place. The fields are found by index and checked character by character, so the
+     * only strings created are the ones kept by the returned {@link W3CTraceParent}. The rules are the same as
+     * {@link W3CTraceParentValidator}.
+     */
     static W3CTraceParent parseHeader(String traceParentHeader) {
-        String[] traceParentFields = traceParentHeader.split(W3CTraceParentHeader.W3C_TRACE_PARENT_DELIMITER);
-        if (traceParentFields.length < 4) {
+        int versionEnd = traceParentHeader.indexOf(DELIMITER);
+        int traceIdEnd = versionEnd < 0 ? -1 : traceParentHeader.indexOf(DELIMITER, versionEnd + 1);
+        int parentIdEnd = traceIdEnd < 0 ? -1 : traceParentHeader.indexOf(DELIMITER, traceIdEnd + 1);
+        if (parentIdEnd < 0 || onlyDelimiters(traceParentHeader, parentIdEnd + 1)) {
             ServiceFactory.getStatsService().getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_PARENT_FIELD_COUNT);
             // We do not support any version that has less than 4 fields
             return null;
         }
+        int flagsEnd = traceParentHeader.indexOf(DELIMITER, parentIdEnd + 1);
+        if (flagsEnd < 0) {
+            flagsEnd = traceParentHeader.length();
+        }
 
-        String version = traceParentFields[0];
-        String traceId = traceParentFields[1];
-        String parentId = traceParentFields[2];
-        String unparsedFlags = traceParentFields[3];
-
-        boolean valid = W3CTraceParentValidator.forHeader(traceParentHeader)
-                .version(version)
-                .traceId(traceId)
-                .parentId(parentId)
-                .flags(unparsedFlags)
-                .isValid();
+        boolean valid = isValidVersion(traceParentHeader, versionEnd)
+                && isValidId(traceParentHeader, versionEnd + 1, traceIdEnd, TRACE_ID_LENGTH)
+                && isValidId(traceParentHeader, traceIdEnd + 1, parentIdEnd, PARENT_ID_LENGTH)
+                && flagsEnd - parentIdEnd - 1 == FLAGS_LENGTH
+                && isHexadecimal(traceParentHeader, parentIdEnd + 1, flagsEnd);
 
         if (!valid) {
             ServiceFactory.getStatsService().getMetricAggregator().incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_PARENT_INVALID);
@@ -50,7 +62,72 @@ public class W3CTraceParentParser {
             return null;
         }
 
-        int flags = Integer.parseInt(unparsedFlags, 16);
+        String version = traceParentHeader.startsWith(W3CTraceParentHeader.W3C_VERSION) ? W3CTraceParentHeader.W3C_VERSION
+                : traceParentHeader.substring(0, versionEnd);
+        String traceId = traceParentHeader.substring(versionEnd + 1, traceIdEnd);
+        String parentId = traceParentHeader.substring(traceIdEnd + 1, parentIdEnd);
+        int flags = (hexValue(traceParentHeader.charAt(parentIdEnd + 1)) << 4) | hexValue(traceParentHeader.charAt(parentIdEnd + 2));
         return new W3CTraceParent(version, traceId, parentId, flags);
     }
+
+    /**
+     * Version can only be 2 hexadecimal characters, `ff` is not allowed and if it matches our expected version the
+     * length must be 55 characters
+     */
+    private static boolean isValidVersion(String header, int versionEnd) {
+        if (versionEnd != 2 || Character.digit(header.charAt(0), 16) == -1 || Character.digit(header.charAt(1), 16) == -1) {
+            return false;
+        }
+        if (header.startsWith(INVALID_VERSION)) {
+            return false;
+        }
+        return !header.startsWith(W3CTraceParentHeader.W3C_VERSION) || header.length() == VERSION_00_LENGTH;
+    }
+
+    /**
+     * Ids must have the given length, must be hexadecimal and must not be all zeros
+     */
+    private static boolean isValidId(String header, int start, int end, int length) {
+        if (end - start != length || !isHexadecimal(header, start, end)) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (header.charAt(i) != '0') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHexadecimal(String header, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (hexValue(header.charAt(i)) == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /**
+     * String.split drops trailing empty fields, so a header that ends in delimiters has fewer fields than delimiters.
+     */
+    private static boolean onlyDelimiters(String header, int start) {
+        for (int i = start; i < header.length(); i++) {
+            if (header.charAt(i) != DELIMITER) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -19,35 +19,36 @@ import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Pattern;
 
-import static com.newrelic.agent.tracing.W3CTraceStateHeader.MULTI_TENANT_VENDOR_STATE_KEY;
 import static com.newrelic.agent.tracing.W3CTraceStateHeader.NR_TRACE_STATE_DELIMITER;
 import static com.newrelic.agent.tracing.W3CTraceStateHeader.NR_VENDOR;
 import static com.newrelic.agent.tracing.W3CTraceStateHeader.VENDOR_STATE_KEY_VALUE_DELIMITER;
 
 public class W3CTraceStateSupport {
     // Reference: https://w3c.github.io/trace-context/#key
-    private static final String SINGLE_TENANT_VENDOR_STATE_KEY = "[a-z][_0-9a-z\\-*/]{0,255}";
-
-    private static final String VENDOR_STATE_KEY = "(" + SINGLE_TENANT_VENDOR_STATE_KEY + "|" + MULTI_TENANT_VENDOR_STATE_KEY + ")";
+    private static final int MAX_SINGLE_TENANT_KEY_LENGTH = 256;
+    private static final int MAX_TENANT_ID_LENGTH = 241;
+    private static final int MAX_VENDOR_ID_LENGTH = 14;
+    private static final char MULTI_TENANT_DELIMITER = '@';
 
     // Reference: https://w3c.github.io/trace-context/#value
-    private static final String VENDOR_STATE_VALUE = "[\\x20-\\x2b\\x2d-\\x3c\\x3e-\\x7e]{0,255}[\\x21-\\x2b\\x2d-\\x3c\\x3e-\\x7e]";
+    private static final int MAX_VENDOR_VALUE_LENGTH = 256;
 
-    private static final Pattern VENDOR_STATE_PATTERN = Pattern.compile(
-            "^"
-                    + VENDOR_STATE_KEY
-                    + VENDOR_STATE_KEY_VALUE_DELIMITER
-                    + VENDOR_STATE_VALUE
-                    + "$"
-    );
+    private static final char VENDOR_DELIMITER = ',';
+    private static final char VENDOR_KEY_DELIMITER = VENDOR_STATE_KEY_VALUE_DELIMITER.charAt(0);
+    private static final char NR_FIELD_DELIMITER = NR_TRACE_STATE_DELIMITER.charAt(0);
+    private static final int NR_FIELD_COUNT = 9;
 
     static final int NR_HEADER_VERSION_INT = 0;
     public static final String W3C_TRACE_STATE_VENDOR_DELIMITER = ",";
     private static final int MAX_VENDOR_STATE_SIZE = 31;
     private static final int LONG_VENDOR_STATE_SIZE = 128;
 
+    /**
+     * Parse tracestate headers. Each header is scanned in place: vendor entries are checked character by character,
+     * and the fields of our own entry are found by index, so apart from the vendor states that are kept, the only
+     * strings created are the field values stored in the returned {@link W3CTraceState}.
+     */
     static W3CTraceState parseHeaders(List<String> traceStateHeaders) {
         if (traceStateHeaders == null || traceStateHeaders.isEmpty()) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_STATE_HEADER_COUNT);
@@ -55,113 +56,216 @@ public class W3CTraceStateSupport {
         }
 
         String agentTrustKey = ServiceFactory.getDistributedTraceService().getTrustKey();
-        VendorStateResult vendorStateResult = flattenVendorStatesAndExtractNrState(traceStateHeaders, agentTrustKey);
+        String nrPrefix = agentTrustKey + NR_VENDOR;
 
-        List<String> vendorStates = vendorStateResult.getVendorStates();
+        // the last entry for our trust key wins, the rest are propagated as other vendors' states
+        List<String> vendorStates = new ArrayList<>();
+        String nrHeader = null;
+        int nrStart = 0;
+        int nrEnd = 0;
+        for (String header : traceStateHeaders) {
+            int length = header.length();
+            int entryStart = 0;
+            while (entryStart <= length) {
+                int entryEnd = header.indexOf(VENDOR_DELIMITER, entryStart);
+                if (entryEnd < 0) {
+                    entryEnd = length;
+                }
+                // trim the entry the same way String.trim does
+                int start = entryStart;
+                int end = entryEnd;
+                while (start < end && header.charAt(start) <= ' ') {
+                    start++;
+                }
+                while (end > start && header.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                if (start < end) {
+                    if (header.startsWith(nrPrefix, start) && end - start >= nrPrefix.length()) {
+                        nrHeader = header;
+                        nrStart = start;
+                        nrEnd = end;
+                    } else {
+                        vendorStates.add(header.substring(start, end));
+                    }
+                }
+                entryStart = entryEnd + 1;
+            }
+        }
 
-        String nrState = vendorStateResult.getNrState();
-        W3CTraceState traceState = new W3CTraceState(traceStateHeaders, vendorStates);
+        if (!areValidVendorStates(vendorStates)) {
+            vendorStates = Collections.emptyList();
+        }
 
-        if (nrState == null) {
+        if (nrHeader == null) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_NO_NR_ENTRY);
             // could not find matching NR state in the trace state header, propagate other vendor states
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
-        String[] trustKeyAndFields = nrState.split(NR_VENDOR);
-        if (trustKeyAndFields.length != 2) {
-            // NR state header must have a key and a value separated by an "=" and the key ending in "@nr"
+        // NR state must have a key and a value separated by an "=" and the key ending in "@nr". A value ending in
+        // "@nr=" is not split off, the same as String.split dropping trailing empty strings.
+        int fieldsStart = nrStart + nrPrefix.length();
+        int fieldsEnd = nrEnd;
+        while (fieldsEnd - fieldsStart >= NR_VENDOR.length() && nrHeader.startsWith(NR_VENDOR, fieldsEnd - NR_VENDOR.length())) {
+            fieldsEnd -= NR_VENDOR.length();
+        }
+        int nestedVendor = nrHeader.indexOf(NR_VENDOR, fieldsStart);
+        if (fieldsStart == fieldsEnd || (nestedVendor >= 0 && nestedVendor + NR_VENDOR.length() <= fieldsEnd)) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_NR_ENTRY);
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
-        String trustKey = trustKeyAndFields[0];
-        boolean isTrustedAccountKey = agentTrustKey.equals(trustKey);
-        if (!isTrustedAccountKey) {
-            // not a trusted account
-            NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_UNTRUSTED_ACCOUNT);
-            return traceState;
+        // NR state header requires 9 or more fields. fieldBounds[i] is the index of the delimiter before field i.
+        int[] fieldBounds = new int[NR_FIELD_COUNT + 1];
+        fieldBounds[0] = fieldsStart - 1;
+        int fieldCount = 1;
+        while (fieldCount < NR_FIELD_COUNT) {
+            int delimiter = nrHeader.indexOf(NR_FIELD_DELIMITER, fieldBounds[fieldCount - 1] + 1);
+            if (delimiter < 0 || delimiter >= fieldsEnd) {
+                break;
+            }
+            fieldBounds[fieldCount++] = delimiter;
         }
-
-        String[] traceFields = trustKeyAndFields[1].split(NR_TRACE_STATE_DELIMITER, 10);
-        if (traceFields.length < 9) {
+        if (fieldCount < NR_FIELD_COUNT) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_NR_ENTRY);
-            // NR state header requires 9 or more fields
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
+        int timestampEnd = nrHeader.indexOf(NR_FIELD_DELIMITER, fieldBounds[NR_FIELD_COUNT - 1] + 1);
+        fieldBounds[NR_FIELD_COUNT] = timestampEnd < 0 || timestampEnd >= fieldsEnd ? fieldsEnd : timestampEnd;
 
-        if (traceFields[0].isEmpty()) {
+        if (isEmptyField(fieldBounds, 0)) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_NR_ENTRY);
             // version cannot be empty
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
-        int version = Integer.parseInt(traceFields[0]);
+        int version = (int) parseLong(nrHeader, fieldStart(fieldBounds, 0), fieldBounds[1], Integer.MIN_VALUE, Integer.MAX_VALUE);
         if (version < NR_HEADER_VERSION_INT) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_NR_ENTRY);
             // unsupported NR version
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
-        if (traceFields[1].isEmpty()) {
+        if (isEmptyField(fieldBounds, 1)) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_NR_ENTRY);
             // must provide parent type
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
-        ParentType parentType = ParentType.getParentTypeFromValue(Integer.parseInt(traceFields[1]));
+        ParentType parentType = ParentType.getParentTypeFromValue(
+                (int) parseLong(nrHeader, fieldStart(fieldBounds, 1), fieldBounds[2], Integer.MIN_VALUE, Integer.MAX_VALUE));
         if (parentType == null || parentType.value < ParentType.App.value || parentType.value > ParentType.Mobile.value) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_NR_ENTRY);
             // the provided parentType value was not one of the values we support
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
-        String accountId = traceFields[2];
-        if (accountId.isEmpty()) {
+        if (isEmptyField(fieldBounds, 2)) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_NR_ENTRY);
             // must provide account id
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
-        String applicationId = traceFields[3];
-        if (applicationId.isEmpty()) {
+        if (isEmptyField(fieldBounds, 3)) {
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_NR_ENTRY);
             // must provide account id
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
         // need extra tests
-        Sampled sampled = Sampled.parse(traceFields[6]);
+        Sampled sampled = parseSampled(nrHeader, fieldStart(fieldBounds, 6), fieldBounds[7]);
 
         Float priority;
         try {
-            priority = !traceFields[7].isEmpty() ? Float.parseFloat(traceFields[7]) : null;
+            priority = !isEmptyField(fieldBounds, 7) ? Float.parseFloat(field(nrHeader, fieldBounds, 7)) : null;
         } catch (NumberFormatException ignored) {
             priority = null;
         }
 
-        String guid = traceFields[4];
-        String txnId = !traceFields[5].isEmpty() ? traceFields[5] : null;
-        String unparsedTimestamp = traceFields[8];
-        if (unparsedTimestamp.isEmpty()) {
+        if (isEmptyField(fieldBounds, 8)) {
             // must provide timestamp
             NewRelic.incrementCounter(MetricNames.SUPPORTABILITY_TRACE_CONTEXT_INVALID_NR_ENTRY);
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
         long timestamp;
         try {
-            timestamp = Long.parseLong(unparsedTimestamp);
+            timestamp = parseLong(nrHeader, fieldStart(fieldBounds, 8), fieldBounds[9], Long.MIN_VALUE, Long.MAX_VALUE);
             // if timestamp is in the future, discard ?
         } catch (NumberFormatException ignored) {
-            return traceState;
+            return new W3CTraceState(traceStateHeaders, vendorStates);
         }
 
-        return new W3CTraceState(traceStateHeaders, vendorStates, true, version, trustKey, parentType, accountId, applicationId,
+        String accountId = field(nrHeader, fieldBounds, 2);
+        String applicationId = field(nrHeader, fieldBounds, 3);
+        String guid = field(nrHeader, fieldBounds, 4);
+        String txnId = !isEmptyField(fieldBounds, 5) ? field(nrHeader, fieldBounds, 5) : null;
+        return new W3CTraceState(traceStateHeaders, vendorStates, true, version, agentTrustKey, parentType, accountId, applicationId,
                 guid, txnId, sampled, priority, timestamp);
 
     }
 
+    private static int fieldStart(int[] fieldBounds, int field) {
+        return fieldBounds[field] + 1;
+    }
+
+    private static boolean isEmptyField(int[] fieldBounds, int field) {
+        return fieldBounds[field + 1] == fieldStart(fieldBounds, field);
+    }
+
+    private static String field(String header, int[] fieldBounds, int field) {
+        return header.substring(fieldStart(fieldBounds, field), fieldBounds[field + 1]);
+    }
+
+    /**
+     * The same as {@link Sampled#parse(Object)} for a region of a string.
+     */
+    private static Sampled parseSampled(String header, int start, int end) {
+        if (end - start == 1 && header.charAt(start) == '1') {
+            return Sampled.SAMPLED_YES;
+        }
+        if (end - start == 1 && header.charAt(start) == '0') {
+            return Sampled.SAMPLED_NO;
+        }
+        return Sampled.UNKNOWN;
+    }
+
+    /**
+     * Parse a region of a string the same way as {@link Long#parseLong(String)}, checking the result against the given
+     * bounds so that it also stands in for {@link Integer#parseInt(String)}.
+     */
+    static long parseLong(String value, int start, int end, long min, long max) {
+        if (start >= end) {
+            throw new NumberFormatException("Empty number");
+        }
+        boolean negative = false;
+        int i = start;
+        char first = value.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++i == end) {
+                throw new NumberFormatException("No digits: " + value.substring(start, end));
+            }
+        }
+        // accumulate negatively so that the minimum value does not overflow
+        long limit = negative ? min : -max;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(value.charAt(i), 10);
+            if (digit < 0 || result < multiplyLimit) {
+                throw new NumberFormatException("Invalid number: " + value.substring(start, end));
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("Invalid number: " + value.substring(start, end));
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
     static List<String> truncateVendorStates(List<String> vendorStates) {
         if (vendorStates.size() <= MAX_VENDOR_STATE_SIZE) {
             return vendorStates;
@@ -197,35 +301,6 @@ public class W3CTraceStateSupport {
         return MAX_VENDOR_STATE_SIZE - (vendorStates.size() - numberOfLongStates);
     }
 
-    private static VendorStateResult flattenVendorStatesAndExtractNrState(List<String> traceStateHeaders, String agentTrustKey) {
-        List<String> vendorStates = new LinkedList<>();
-        String nrState = null;
-        for (String header : traceStateHeaders) {
-            String[] splitVendors = header.split(W3C_TRACE_STATE_VENDOR_DELIMITER);
-            for (String vendor : splitVendors) {
-                String trimmedVendor = vendor.trim();
-                if (trimmedVendor.isEmpty()) {
-                    continue;
-                }
-                if (trimmedVendor.contains(NR_VENDOR)) {
-                    // Pull out and remove the NR vendor state from the list of states if the trust key matches
-                    if (trimmedVendor.startsWith(agentTrustKey + NR_VENDOR)) {
-                        nrState = trimmedVendor;
-                        continue;
-                    }
-                }
-                vendorStates.add(trimmedVendor);
-            }
-        }
-
-        List<String> vendorKeys = vendorStatesToVendorKeys(vendorStates);
-        if (containsDuplicates(vendorKeys) || anyVendorStateIsInvalid(vendorStates)) {
-            return new VendorStateResult(Collections.<String>emptyList(), nrState);
-        }
-
-        return new VendorStateResult(vendorStates, nrState);
-    }
-
     static String concatenateVendorStates(List<String> vendorStates) {
         return Joiner.on(W3C_TRACE_STATE_VENDOR_DELIMITER).join(vendorStates);
     }
@@ -255,11 +330,97 @@ public class W3CTraceStateSupport {
 
     private static boolean anyVendorStateIsInvalid(List<String> vendorStates) {
         for (String vendorState : vendorStates) {
-            if (!VENDOR_STATE_PATTERN.matcher(vendorState).matches()) {
+            if (!isValidVendorState(vendorState)) {
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * @return true if every vendor state is well formed and no two have the same key
+     */
+    private static boolean areValidVendorStates(List<String> vendorStates) {
+        int size = vendorStates.size();
+        if (anyVendorStateIsInvalid(vendorStates)) {
+            return false;
+        }
+        if (size > MAX_VENDOR_STATE_SIZE) {
+            List<String> vendorKeys = vendorStatesToVendorKeys(vendorStates);
+            return !containsDuplicates(vendorKeys);
+        }
+        // few enough to compare the keys in place. Valid states all have a key delimiter.
+        for (int i = 0; i < size; i++) {
+            String state = vendorStates.get(i);
+            int keyLength = state.indexOf(VENDOR_KEY_DELIMITER);
+            for (int j = i + 1; j < size; j++) {
+                String other = vendorStates.get(j);
+                if (other.indexOf(VENDOR_KEY_DELIMITER) == keyLength && state.regionMatches(0, other, 0, keyLength)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check a vendor state against https://w3c.github.io/trace-context/#key and
+     * https://w3c.github.io/trace-context/#value: a key, an "=" and a value.
+     */
+    static boolean isValidVendorState(String vendorState) {
+        int delimiter = vendorState.indexOf(VENDOR_KEY_DELIMITER);
+        return delimiter > 0 && isValidVendorKey(vendorState, delimiter) && isValidVendorValue(vendorState, delimiter + 1);
+    }
+
+    private static boolean isValidVendorKey(String vendorState, int end) {
+        int tenantDelimiter = vendorState.lastIndexOf(MULTI_TENANT_DELIMITER, end - 1);
+        if (tenantDelimiter < 0) {
+            // single tenant: [a-z][_0-9a-z\-*\/]{0,255}
+            return end <= MAX_SINGLE_TENANT_KEY_LENGTH && isLowerCaseLetter(vendorState.charAt(0))
+                    && areKeyCharacters(vendorState, 1, end);
+        }
+        // multi tenant: [a-z0-9][_0-9a-z\-*\/]{0,240}@[a-z][_0-9a-z\-*\/]{0,13}
+        char first = vendorState.charAt(0);
+        int vendorStart = tenantDelimiter + 1;
+        return tenantDelimiter > 0 && tenantDelimiter <= MAX_TENANT_ID_LENGTH && (isLowerCaseLetter(first) || isDigit(first))
+                && areKeyCharacters(vendorState, 1, tenantDelimiter)
+                && vendorStart < end && end - vendorStart <= MAX_VENDOR_ID_LENGTH && isLowerCaseLetter(vendorState.charAt(vendorStart))
+                && areKeyCharacters(vendorState, vendorStart + 1, end);
+    }
+
+    private static boolean areKeyCharacters(String value, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (!isLowerCaseLetter(c) && !isDigit(c) && c != '_' && c != '-' && c != '*' && c != '/') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Up to 256 printable ASCII characters other than "," and "=", not ending in a space.
+     */
+    private static boolean isValidVendorValue(String vendorState, int start) {
+        int end = vendorState.length();
+        if (start == end || end - start > MAX_VENDOR_VALUE_LENGTH || vendorState.charAt(end - 1) == ' ') {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = vendorState.charAt(i);
+            if (c < ' ' || c > '~' || c == VENDOR_DELIMITER || c == VENDOR_KEY_DELIMITER) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLowerCaseLetter(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
 }
@@ -0,0 +1,52 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import com.newrelic.agent.model.CollectorJsonWriter;
+import org.json.simple.JSONStreamAware;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+/*
+ * The parameters of the event endpoints: [runId, {"reservoir_size":n, "events_seen":n}, [event, ...]]. All of the
+ * events are written with one CollectorJsonWriter.
+ */
+final class AnalyticEventsPayload implements JSONStreamAware {
+
+    private static final CollectorJsonWriter.Key RESERVOIR_SIZE = CollectorJsonWriter.key("reservoir_size");
+    private static final CollectorJsonWriter.Key EVENTS_SEEN = CollectorJsonWriter.key("events_seen");
+
+    private final Object runId;
+    private final int reservoirSize;
+    private final int eventsSeen;
+    private final Collection<? extends JSONStreamAware> events;
+
+    AnalyticEventsPayload(Object runId, int reservoirSize, int eventsSeen, Collection<? extends JSONStreamAware> events) {
+        this.runId = runId;
+        this.reservoirSize = reservoirSize;
+        this.eventsSeen = eventsSeen;
+        this.events = events;
+    }
+
+    @Override
+    public void writeJSONString(Writer out) throws IOException {
+        CollectorJsonWriter writer = new CollectorJsonWriter(out);
+        writer.beginArray();
+        writer.value(runId);
+        writer.beginObject().name(RESERVOIR_SIZE).value(reservoirSize).name(EVENTS_SEEN).value(eventsSeen).endObject();
+        writer.beginArray();
+        for (JSONStreamAware event : events) {
+            writer.value(event);
+        }
+        writer.endArray();
+        writer.endArray();
+    }
+
+}
@@ -49,12 +49,16 @@ import java.nio.charset.StandardCharsets;
 import java.rmi.UnexpectedException;
 import java.security.NoSuchAlgorithmException;
 import java.text.MessageFormat;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
@@ -90,6 +94,8 @@ public class DataSenderImpl implements DataSender {
     // the block of env vars we send up to rpm
     private static final String ENV_METADATA = "metadata";
     private static final int DEFAULT_MAX_PAYLOAD_SIZE_IN_BYTES = 1000000;
+    // payloads are sent one at a time per harvest thread, so a couple of buffers covers the regular and faster harvests
+    private static final int MAX_POOLED_PAYLOAD_BUFFERS = 2;
 
     // As of P17 these are the only agent endpoints that actually contain data in the response payload for a successful request
     private static final Set<String> METHODS_WITH_RESPONSE_BODY = ImmutableSet.of(
@@ -114,6 +120,8 @@ public class DataSenderImpl implements DataSender {
     private final DataSenderListener dataSenderListener;
     private final String compressedEncoding;
     private final boolean putForDataSend;
+    private final boolean streamingPayloads;
+    private final Queue<PayloadBuffer> payloadBufferPool = new ConcurrentLinkedQueue<>();
     private Map<String, Boolean> policiesJson;
     private volatile int maxPayloadSizeInBytes = DEFAULT_MAX_PAYLOAD_SIZE_IN_BYTES;
     private volatile Map<String, String> requestMetadata;
@@ -139,6 +147,7 @@ public class DataSenderImpl implements DataSender {
         this.dataSenderListener = dataSenderListener;
         this.compressedEncoding = config.getCompressedContentEncoding();
         this.putForDataSend = config.isPutForDataSend();
+        this.streamingPayloads = config.isStreamingPayloads();
 
         this.metadata = new HashMap<>();
         Map<String, String> env = System.getenv();
@@ -342,16 +351,7 @@ public class DataSenderImpl implements DataSender {
         if (runId == NO_AGENT_RUN_ID || events.isEmpty()) {
             return;
         }
-        InitialSizedJsonArray params = new InitialSizedJsonArray(3);
-        params.add(runId);
-
-        JSONObject metadata = new JSONObject();
-        metadata.put("reservoir_size", reservoirSize);
-        metadata.put("events_seen", eventsSeen);
-        params.add(metadata);
-
-        params.add(events);
-        invokeRunId(method, encoding, runId, params);
+        invokeRunId(method, encoding, runId, new AnalyticEventsPayload(runId, reservoirSize, eventsSeen, events));
     }
 
     @Override
@@ -470,6 +470,7 @@ public class DataSenderImpl implements DataSender {
         } finally {
             setAgentRunId(NO_AGENT_RUN_ID);
             this.httpClientWrapper.shutdown();
+            releasePayloadBuffers();
         }
     }
 
@@ -529,23 +530,93 @@ public class DataSenderImpl implements DataSender {
      * matched/parsed has been deprecated.
      */
     private ReadResult connectAndSend(String host, String method, String encoding, String uri, JSONStreamAware params) throws Exception {
+        if (streamingPayloads) {
+            return connectAndSendStreaming(host, method, encoding, uri, params);
+        }
+
+        long serializationStartTime = System.nanoTime();
         byte[] data = writeData(encoding, params);
+        recordSerializationTime(method, serializationStartTime);
 
         /*
          * We don't enforce max_payload_size_in_bytes for error_data (aka error traces). Instead we halve the
          * payload and try again. See RPMService sendErrorData
          */
         if (data.length > maxPayloadSizeInBytes && !method.equals(CollectorMethods.ERROR_DATA)) {
-            ServiceFactory.getStatsService().doStatsWork(StatsWorks.getIncrementCounterWork(
-                    MessageFormat.format(MetricNames.SUPPORTABILITY_PAYLOAD_SIZE_EXCEEDS_MAX, method), 1));
-            String msg = MessageFormat.format("Payload of size {0} exceeded maximum size {1} for {2} method ",
-                    data.length, maxPayloadSizeInBytes, method);
-            logger.log(Level.WARNING, msg);
-            throw new MaxPayloadException(msg);
+            throw payloadTooBig(method, data.length);
+        }
+
+        return sendData(host, method, encoding, uri, params, data, data.length);
+    }
+
+    /*
+     * Serialize and compress straight into a pooled buffer, giving up as soon as the payload crosses
+     * max_payload_size_in_bytes, and hand that buffer to the http client without copying it.
+     */
+    private ReadResult connectAndSendStreaming(String host, String method, String encoding, String uri, JSONStreamAware params)
+            throws Exception {
+        PayloadBuffer buffer = acquirePayloadBuffer();
+        try {
+            // error_data is exempt from max_payload_size_in_bytes, see connectAndSend
+            int limit = method.equals(CollectorMethods.ERROR_DATA) ? Integer.MAX_VALUE : maxPayloadSizeInBytes;
+            long serializationStartTime = System.nanoTime();
+            try {
+                buffer.write(encoding, params, limit);
+            } catch (PayloadBuffer.PayloadLimitExceededException e) {
+                throw payloadTooBig(method, e.getSize());
+            }
+            recordSerializationTime(method, serializationStartTime);
+            return sendData(host, method, encoding, uri, params, buffer.array(), buffer.size());
+        } finally {
+            releasePayloadBuffer(buffer);
+        }
+    }
+
+    /**
+     * Serialization and compression are timed apart from the request, see {@link TimingEventHandler}.
+     */
+    private void recordSerializationTime(String method, long startTime) {
+        long serializationTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        ServiceFactory.getStatsService().doStatsWork(StatsWorks.getRecordResponseTimeWork(
+                MessageFormat.format(MetricNames.SUPPORTABILITY_AGENT_ENDPOINT_SERIALIZATION, method), serializationTime));
+    }
+
+    private MaxPayloadException payloadTooBig(String method, int size) {
+        ServiceFactory.getStatsService().doStatsWork(StatsWorks.getIncrementCounterWork(
+                MessageFormat.format(MetricNames.SUPPORTABILITY_PAYLOAD_SIZE_EXCEEDS_MAX, method), 1));
+        String msg = MessageFormat.format("Payload of size {0} exceeded maximum size {1} for {2} method ",
+                size, maxPayloadSizeInBytes, method);
+        logger.log(Level.WARNING, msg);
+        return new MaxPayloadException(msg);
+    }
+
+    private PayloadBuffer acquirePayloadBuffer() {
+        PayloadBuffer buffer = payloadBufferPool.poll();
+        return buffer == null ? new PayloadBuffer(COMPRESSION_LEVEL) : buffer;
+    }
+
+    private void releasePayloadBuffer(PayloadBuffer buffer) {
+        if (buffer.isRetainable() && payloadBufferPool.size() < MAX_POOLED_PAYLOAD_BUFFERS) {
+            payloadBufferPool.offer(buffer);
+        } else {
+            buffer.end();
+        }
+    }
+
+    private void releasePayloadBuffers() {
+        PayloadBuffer buffer;
+        while ((buffer = payloadBufferPool.poll()) != null) {
+            buffer.end();
         }
+    }
 
+    /**
+     * Send the first {@code dataLength} bytes of {@code data}.
+     */
+    private ReadResult sendData(String host, String method, String encoding, String uri, JSONStreamAware params, byte[] data, int dataLength)
+            throws Exception {
         final URL url = new URL(PROTOCOL, host, port, uri);
-        HttpClientWrapper.Request request = createRequest(method, encoding, url, data);
+        HttpClientWrapper.Request request = createRequest(method, encoding, url, data, dataLength);
 
         httpClientWrapper.captureSupportabilityMetrics(ServiceFactory.getStatsService(), host);
 
@@ -562,7 +633,7 @@ public class DataSenderImpl implements DataSender {
                 MessageFormat.format(MetricNames.SUPPORTABILITY_HTTP_CODE, result.getStatusCode()), 1));
 
         if (result.getStatusCode() != HttpResponseCode.OK && result.getStatusCode() != HttpResponseCode.ACCEPTED) {
-            throwExceptionFromStatusCode(method, result, data, request);
+            throwExceptionFromStatusCode(method, result, dataLength, request);
         }
 
         // received successful 2xx response
@@ -571,13 +642,13 @@ public class DataSenderImpl implements DataSender {
         }
 
         if (dataSenderListener != null) {
-            dataSenderListener.dataSent(method, encoding, uri, data);
+            dataSenderListener.dataSent(method, encoding, uri, dataLength == data.length ? data : Arrays.copyOf(data, dataLength));
         }
 
         return result;
     }
 
-    private void throwExceptionFromStatusCode(String method, ReadResult result, byte[] data, HttpClientWrapper.Request request)
+    private void throwExceptionFromStatusCode(String method, ReadResult result, int dataLength, HttpClientWrapper.Request request)
             throws HttpError, LicenseException, ForceRestartException, ForceDisconnectException {
         // Comply with spec and send supportability metric only for error responses
         ServiceFactory.getStatsService().doStatsWork(StatsWorks.getIncrementCounterWork(
@@ -591,9 +662,9 @@ public class DataSenderImpl implements DataSender {
                 // agent receives a 407 response due to a misconfigured proxy (not from NR backend), throw exception
                 final String authField = result.getProxyAuthenticateHeader();
                 if (authField != null) {
-                    throw new HttpError("Proxy Authentication Mechanism Failed: " + authField, result.getStatusCode(), data.length);
+                    throw new HttpError("Proxy Authentication Mechanism Failed: " + authField, result.getStatusCode(), dataLength);
                 } else {
-                    throw new HttpError("Proxy Authentication Mechanism Failed: " + "null Proxy-Authenticate header", result.getStatusCode(), data.length);
+                    throw new HttpError("Proxy Authentication Mechanism Failed: " + "null Proxy-Authenticate header", result.getStatusCode(), dataLength);
                 }
             case HttpResponseCode.UNAUTHORIZED:
                 // received 401 Unauthorized, throw exception instead of parsing LicenseException from 200 response body
@@ -607,7 +678,7 @@ public class DataSenderImpl implements DataSender {
             default:
                 // response is bad (neither 200 nor 202), throw generic HttpError exception
                 logger.log(Level.FINER, "Connection http status code: {0}", result.getStatusCode());
-                throw HttpError.create(result.getStatusCode(), request.getURL().getHost(), data.length);
+                throw HttpError.create(result.getStatusCode(), request.getURL().getHost(), dataLength);
         }
     }
 
@@ -667,7 +738,7 @@ public class DataSenderImpl implements DataSender {
         }
     }
 
-    private HttpClientWrapper.Request createRequest(String method, String encoding, URL url, byte[] data) {
+    private HttpClientWrapper.Request createRequest(String method, String encoding, URL url, byte[] data, int dataLength) {
         final boolean isConnectOrPreconnect = method.equals(CollectorMethods.CONNECT) || method.equals(CollectorMethods.PRECONNECT);
         final Map<String, String> requestMetadata = (this.requestMetadata != null && !isConnectOrPreconnect)
                 ? this.requestMetadata
@@ -677,7 +748,7 @@ public class DataSenderImpl implements DataSender {
                 .setURL(url)
                 .setVerb(putForDataSend ? HttpClientWrapper.Verb.PUT : HttpClientWrapper.Verb.POST)
                 .setEncoding(encoding)
-                .setData(data)
+                .setData(data, dataLength)
                 .setRequestMetadata(requestMetadata);
     }
 
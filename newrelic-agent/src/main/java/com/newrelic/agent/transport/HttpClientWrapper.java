@@ -74,10 +74,22 @@ public interface HttpClientWrapper {
         }
 
         public Request setData(byte[] data) {
+            return setData(data, data.length);
+        }
+
+        /**
+         * Only the first {@code dataLength} bytes of {@code data} are sent. This lets a pooled buffer be sent as is.
+         */
+        public Request setData(byte[] data, int dataLength) {
             this.data = data;
+            this.dataLength = dataLength;
             return this;
         }
 
+        public int getDataLength() {
+            return dataLength;
+        }
+
         public Map<String, String> getRequestMetadata() {
             return requestMetadata;
         }
@@ -91,6 +103,7 @@ public interface HttpClientWrapper {
         private Verb verb;
         private String encoding;
         private byte[] data;
+        private int dataLength;
         private Map<String, String> requestMetadata;
     }
 }
@@ -0,0 +1,187 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import org.json.simple.JSONStreamAware;
+import org.json.simple.JSONValue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A reusable output buffer that a collector payload is serialized and compressed into. The buffer and its
+ * {@link Deflater}s are kept between payloads, so a harvest does not allocate a fresh byte array, compressor and
+ * copy of the compressed bytes for every request.
+ *
+ * Writes beyond the configured limit fail with {@link PayloadLimitExceededException} so that serialization of an
+ * oversized payload stops as soon as the limit is crossed instead of after the whole payload has been built.
+ *
+ * This class is not thread-safe. Callers take a buffer from {@link DataSenderImpl}'s pool for the duration of a
+ * single request.
+ */
+final class PayloadBuffer extends OutputStream {
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    /**
+     * Buffers that grew beyond this are not returned to the pool so that one large harvest does not pin memory.
+     */
+    static final int MAX_RETAINED_CAPACITY = 4 * 1024 * 1024;
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final byte[] GZIP_HEADER = new byte[] {
+            (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+    };
+
+    private final int compressionLevel;
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int count;
+    private int limit = Integer.MAX_VALUE;
+    private Deflater deflater;
+    private Deflater gzipDeflater;
+    private final CRC32 crc = new CRC32();
+
+    PayloadBuffer(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * Serialize {@code params} into this buffer using the given content encoding. Any previous content is discarded.
+     *
+     * @param encoding {@link DataSenderImpl#DEFLATE_ENCODING}, {@link DataSenderImpl#GZIP_ENCODING} or identity
+     * @param params the payload
+     * @param limit the maximum number of (compressed) bytes the payload may take
+     * @throws PayloadLimitExceededException if the payload is larger than {@code limit}
+     */
+    void write(String encoding, JSONStreamAware params, int limit) throws IOException {
+        reset(limit);
+        if (DataSenderImpl.DEFLATE_ENCODING.equals(encoding)) {
+            if (deflater == null) {
+                deflater = new Deflater(compressionLevel);
+            }
+            deflater.reset();
+            DeflaterOutputStream out = new DeflaterOutputStream(this, deflater);
+            writeJson(params, out);
+            out.finish();
+        } else if (DataSenderImpl.GZIP_ENCODING.equals(encoding)) {
+            if (gzipDeflater == null) {
+                gzipDeflater = new Deflater(compressionLevel, true);
+            }
+            gzipDeflater.reset();
+            crc.reset();
+            write(GZIP_HEADER, 0, GZIP_HEADER.length);
+            DeflaterOutputStream out = new DeflaterOutputStream(this, gzipDeflater);
+            writeJson(params, new CheckedOutputStream(out, crc));
+            out.finish();
+            writeIntLE((int) crc.getValue());
+            writeIntLE((int) gzipDeflater.getBytesRead());
+        } else {
+            writeJson(params, this);
+        }
+    }
+
+    private static void writeJson(JSONStreamAware params, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        JSONValue.writeJSONString(params, writer);
+        writer.flush();
+    }
+
+    private void writeIntLE(int value) throws IOException {
+        write(value & 0xff);
+        write((value >> 8) & 0xff);
+        write((value >> 16) & 0xff);
+        write((value >> 24) & 0xff);
+    }
+
+    void reset(int limit) {
+        this.count = 0;
+        this.limit = limit;
+    }
+
+    /**
+     * @return the backing array. Only the first {@link #size()} bytes are valid.
+     */
+    byte[] array() {
+        return buffer;
+    }
+
+    int size() {
+        return count;
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    boolean isRetainable() {
+        return buffer.length <= MAX_RETAINED_CAPACITY;
+    }
+
+    /**
+     * Release the native resources held by the compressors. The buffer must not be used afterwards.
+     */
+    void end() {
+        if (deflater != null) {
+            deflater.end();
+        }
+        if (gzipDeflater != null) {
+            gzipDeflater.end();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureCapacity(1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureCapacity(len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    private void ensureCapacity(int len) throws PayloadLimitExceededException {
+        int required = count + len;
+        if (required > limit || required < 0) {
+            throw new PayloadLimitExceededException(required);
+        }
+        if (required > buffer.length) {
+            int newCapacity = Math.max(required, buffer.length << 1);
+            if (newCapacity < 0 || newCapacity > limit) {
+                newCapacity = Math.max(required, limit);
+            }
+            buffer = Arrays.copyOf(buffer, newCapacity);
+        }
+    }
+
+    static final class PayloadLimitExceededException extends IOException {
+
+        private final int size;
+
+        PayloadLimitExceededException(int size) {
+            super("Payload exceeded " + size + " bytes");
+            this.size = size;
+        }
+
+        /**
+         * @return the number of bytes the payload had reached when it was aborted
+         */
+        int getSize() {
+            return size;
+        }
+    }
+}
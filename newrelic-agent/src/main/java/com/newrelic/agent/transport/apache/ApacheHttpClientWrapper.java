@@ -191,7 +191,7 @@ public class ApacheHttpClientWrapper implements HttpClientWrapper {
         requestBuilder
                 .setUri(request.getURL().toURI())
                 .setHeader(new BasicHeader("CONTENT-ENCODING", request.getEncoding()))
-                .setEntity(new ByteArrayEntity(request.getData()));
+                .setEntity(new ByteArrayEntity(request.getData(), 0, request.getDataLength()));
 
         for (Map.Entry<String, String> entry : request.getRequestMetadata().entrySet()) {
             requestBuilder.addHeader(entry.getKey(), entry.getValue());
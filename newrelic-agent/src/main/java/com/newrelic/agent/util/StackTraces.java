@@ -125,20 +125,28 @@ public class StackTraces {
 
     public static List<StackTraceElement> scrub(List<StackTraceElement> stackTraces) {
         for (int i = stackTraces.size() - 1; i >= 0; i--) {
-            StackTraceElement element = stackTraces.get(i);
-            // we need the dot - data services has some packages that start with com.newrelic.agentvalidator
-            if (element.getClassName().startsWith("com.newrelic.agent.")
-                    || element.getClassName().startsWith("com.newrelic.bootstrap.")
-                    || element.getClassName().startsWith("com.newrelic.api.agent.")
-                    || element.getClassName().startsWith("com.newrelic.weave.")
-                    || element.getClassName().startsWith("com.nr.agent.instrumentation.")
-                    || ("getAgentHandle".equals(element.getMethodName()) && "java.lang.reflect.Proxy".equals(element.getClassName()))) {
+            if (isAgentFrame(stackTraces.get(i))) {
                 return stackTraces.subList(i + 1, stackTraces.size());
             }
         }
         return stackTraces;
     }
 
+    /**
+     * Returns true if the element is a New Relic frame. {@link #scrub(List)} drops everything from the outermost one of
+     * these to the top of the stack.
+     */
+    public static boolean isAgentFrame(StackTraceElement element) {
+        String className = element.getClassName();
+        // we need the dot - data services has some packages that start with com.newrelic.agentvalidator
+        return className.startsWith("com.newrelic.agent.")
+                || className.startsWith("com.newrelic.bootstrap.")
+                || className.startsWith("com.newrelic.api.agent.")
+                || className.startsWith("com.newrelic.weave.")
+                || className.startsWith("com.nr.agent.instrumentation.")
+                || ("getAgentHandle".equals(element.getMethodName()) && "java.lang.reflect.Proxy".equals(className));
+    }
+
     public static List<StackTraceElement> last(StackTraceElement[] elements, int count) {
         List<StackTraceElement> list = Arrays.asList(elements);
         if (list.size() <= count) {
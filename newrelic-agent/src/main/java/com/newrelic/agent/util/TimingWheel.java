@@ -0,0 +1,257 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.util;
+
+import com.newrelic.agent.Agent;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.logging.Level;
+
+/**
+ * A hierarchical timing wheel for timeouts that expire after last access.
+ *
+ * Scheduling, touching and cancelling a timeout are O(1) and lock free: scheduling and cancelling hand the timeout to
+ * the thread calling {@link #advance()} through concurrent queues, and touching only writes the last access time. The
+ * wheel itself is only ever modified by the thread calling {@link #advance()}, which moves the wheel forward one tick at
+ * a time, cascades timeouts from the outer wheels to the inner wheel as their ticks come up, and expires the timeouts
+ * whose deadline has passed. A timeout that was touched since it was placed is put back into the wheel at its new
+ * deadline instead of being expired, so a timeout never expires early, but may expire a tick or two late.
+ */
+public class TimingWheel {
+
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Bucket[][] wheels;
+    private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+
+    // only accessed by the thread calling advance()
+    private long currentTick;
+
+    public TimingWheel(long tick, TimeUnit unit) {
+        this.tickNanos = Math.max(1, unit.toNanos(tick));
+        this.startNanos = System.nanoTime();
+        this.wheels = new Bucket[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new Bucket();
+            }
+        }
+    }
+
+    /**
+     * Schedule a timeout that fires {@code listener} once it has not been touched for {@code timeout}.
+     */
+    public Timeout schedule(long timeout, TimeUnit unit, Listener listener) {
+        Timeout entry = new Timeout(this, unit.toNanos(timeout), listener);
+        scheduled.add(entry);
+        return entry;
+    }
+
+    /**
+     * Move the wheel up to the current time, expiring any timeouts whose deadline has passed. This must only be called
+     * by one thread at a time.
+     */
+    public void advance() {
+        long targetTick = (System.nanoTime() - startNanos) / tickNanos;
+        transferScheduled();
+        removeCancelled();
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            expire(wheels[0][(int) (currentTick & WHEEL_MASK)]);
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.state == Timeout.ACTIVE) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    /**
+     * When the inner wheels wrap around, move the timeouts in the next slot of the outer wheel inwards.
+     */
+    private void cascade() {
+        for (int level = 1; level < LEVELS; level++) {
+            long levelTick = currentTick >>> (WHEEL_BITS * level);
+            if ((currentTick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                return;
+            }
+            Bucket bucket = wheels[level][(int) (levelTick & WHEEL_MASK)];
+            Timeout timeout;
+            while ((timeout = bucket.poll()) != null) {
+                place(timeout);
+            }
+        }
+    }
+
+    private void expire(Bucket bucket) {
+        long now = System.nanoTime();
+        Timeout timeout;
+        Timeout requeue = null;
+        while ((timeout = bucket.poll()) != null) {
+            if (timeout.state != Timeout.ACTIVE) {
+                continue;
+            }
+            if (timeout.deadlineNanos() - now > 0) {
+                // touched since it was placed, or the deadline fell inside this tick
+                timeout.next = requeue;
+                requeue = timeout;
+            } else if (STATE.compareAndSet(timeout, Timeout.ACTIVE, Timeout.EXPIRED)) {
+                try {
+                    timeout.listener.onTimeout(timeout);
+                } catch (Throwable t) {
+                    Agent.LOG.log(Level.FINEST, t, "Timeout listener {0} threw an exception", timeout.listener);
+                }
+            }
+        }
+        while (requeue != null) {
+            Timeout next = requeue.next;
+            requeue.next = null;
+            place(requeue);
+            requeue = next;
+        }
+    }
+
+    private void place(Timeout timeout) {
+        long deadlineTick = (timeout.deadlineNanos() - startNanos + tickNanos - 1) / tickNanos;
+        long delta = Math.max(1, deadlineTick - currentTick);
+        long tick = currentTick + delta;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        if (level == LEVELS - 1 && delta >= (1L << (WHEEL_BITS * LEVELS))) {
+            // further out than the wheels reach, park it in the last slot it can reach and place it again from there
+            tick = currentTick + (1L << (WHEEL_BITS * LEVELS)) - 1;
+        }
+        wheels[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)].add(timeout);
+    }
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE = AtomicIntegerFieldUpdater.newUpdater(Timeout.class,
+            "state");
+
+    public interface Listener {
+        /**
+         * Called on the thread advancing the wheel when {@code timeout} expires.
+         */
+        void onTimeout(Timeout timeout);
+    }
+
+    public static final class Timeout {
+        private static final int ACTIVE = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final TimingWheel wheel;
+        private final long timeoutNanos;
+        private final Listener listener;
+        private volatile long lastAccessNanos;
+        private volatile int state;
+
+        // owned by the thread advancing the wheel
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, long timeoutNanos, Listener listener) {
+            this.wheel = wheel;
+            this.timeoutNanos = timeoutNanos;
+            this.listener = listener;
+            this.lastAccessNanos = System.nanoTime();
+        }
+
+        /**
+         * Push the deadline of this timeout out to a full timeout period from now.
+         */
+        public void touch() {
+            lastAccessNanos = System.nanoTime();
+        }
+
+        /**
+         * Cancel this timeout so it never fires.
+         *
+         * @return true if this call cancelled the timeout, false if it was already cancelled or expired
+         */
+        public boolean cancel() {
+            if (STATE.compareAndSet(this, ACTIVE, CANCELLED)) {
+                wheel.cancelled.add(this);
+                return true;
+            }
+            return false;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private long deadlineNanos() {
+            return lastAccessNanos + timeoutNanos;
+        }
+    }
+
+    /**
+     * An intrusive doubly linked list of timeouts, so cancelled timeouts can be unlinked without a search.
+     */
+    private static final class Bucket {
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null) {
+                head.prev = timeout;
+            }
+            head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.bucket = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+
+        Timeout poll() {
+            Timeout timeout = head;
+            if (timeout != null) {
+                remove(timeout);
+            }
+            return timeout;
+        }
+    }
+}
@@ -210,6 +210,69 @@ public class HarvestServiceTest {
         harvestService.stop();
     }
 
+    @Test
+    public void harvestsApplicationsInParallel() throws Exception {
+        Environment environment = ServiceFactory.getEnvironmentService().getEnvironment();
+        environment.setServerPort(null);
+        // each harvest waits for the other one, so a sequential harvest would time out
+        final CountDownLatch bothHarvesting = new CountDownLatch(2);
+        final CountDownLatch done = new CountDownLatch(2);
+        final AtomicInteger listenerCalls = new AtomicInteger();
+        final AtomicInteger concurrentListenerCalls = new AtomicInteger();
+        TestHarvestService harvestService = new TestHarvestService();
+        harvestService.setReportingPeriod(1000000L);
+        harvestService.addHarvestListener(new HarvestListener() {
+            @Override
+            public void beforeHarvest(String appName, StatsEngine statsEngine) {
+                if (listenerCalls.incrementAndGet() > 1) {
+                    concurrentListenerCalls.incrementAndGet();
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                listenerCalls.decrementAndGet();
+            }
+
+            @Override
+            public void afterHarvest(String appName) {
+            }
+        });
+        harvestService.start();
+        harvestService.startHarvest(new ParallelRPMService("app1", bothHarvesting, done));
+        harvestService.startHarvest(new ParallelRPMService("app2", bothHarvesting, done));
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, concurrentListenerCalls.get());
+        harvestService.stop();
+    }
+
+    private static class ParallelRPMService extends MyRPMService {
+
+        private final String appName;
+        private final CountDownLatch bothHarvesting;
+        private final CountDownLatch done;
+
+        private ParallelRPMService(String appName, CountDownLatch bothHarvesting, CountDownLatch done) {
+            this.appName = appName;
+            this.bothHarvesting = bothHarvesting;
+            this.done = done;
+        }
+
+        @Override
+        public String getApplicationName() {
+            return appName;
+        }
+
+        @Override
+        public void harvest(StatsEngine statsEngine) throws Exception {
+            bothHarvesting.countDown();
+            if (bothHarvesting.await(5, TimeUnit.SECONDS)) {
+                done.countDown();
+            }
+        }
+    }
+
     private static class MyRPMService extends BaseRPMService {
 
         @Override
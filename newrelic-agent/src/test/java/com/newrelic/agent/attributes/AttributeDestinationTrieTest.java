@@ -0,0 +1,120 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.attributes;
+
+import com.google.common.collect.Sets;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class AttributeDestinationTrieTest {
+
+    private static final Set<String> NONE = Collections.emptySet();
+
+    @Test
+    public void testNoRulesIncludesEverything() {
+        AttributeDestinationTrie trie = new AttributeDestinationTrie(NONE, NONE, NONE, NONE);
+        Assert.assertTrue(trie.isIncluded("anything"));
+        Assert.assertTrue(trie.isIncluded(""));
+        Assert.assertTrue(trie.isIncluded(null));
+    }
+
+    @Test
+    public void testMostSpecificRuleWins() {
+        AttributeDestinationTrie trie = new AttributeDestinationTrie(Sets.newHashSet("request.*"),
+                Sets.newHashSet("request.headers.*", "request.headers.cookie"), NONE, NONE);
+        Assert.assertFalse(trie.isIncluded("request.method"));
+        Assert.assertTrue(trie.isIncluded("request.headers.host"));
+        Assert.assertTrue(trie.isIncluded("request.headers.cookie"));
+        Assert.assertTrue(trie.isIncluded("response.status"));
+    }
+
+    @Test
+    public void testExcludeWinsForSameRule() {
+        AttributeDestinationTrie trie = new AttributeDestinationTrie(Sets.newHashSet("foo*", "bar"),
+                Sets.newHashSet("foo*", "bar"), NONE, NONE);
+        Assert.assertFalse(trie.isIncluded("foo"));
+        Assert.assertFalse(trie.isIncluded("food"));
+        Assert.assertFalse(trie.isIncluded("bar"));
+        Assert.assertTrue(trie.isIncluded("bars"));
+    }
+
+    @Test
+    public void testTiers() {
+        // config include beats the default exclude even though the default rule is more specific
+        AttributeDestinationTrie configOverDefault = new AttributeDestinationTrie(NONE, Sets.newHashSet("request.*"),
+                Sets.newHashSet("request.parameters.*"), NONE);
+        Assert.assertTrue(configOverDefault.isIncluded("request.parameters.id"));
+        Assert.assertTrue(configOverDefault.isIncluded("request.uri"));
+
+        // mandatory exclude beats config include
+        AttributeDestinationTrie mandatoryOverConfig = new AttributeDestinationTrie(NONE, Sets.newHashSet("request.*"),
+                Sets.newHashSet("request.parameters.*"), Sets.newHashSet("request.parameters.*"));
+        Assert.assertFalse(mandatoryOverConfig.isIncluded("request.parameters.id"));
+        Assert.assertTrue(mandatoryOverConfig.isIncluded("request.uri"));
+
+        AttributeDestinationTrie defaultOnly = new AttributeDestinationTrie(NONE, NONE,
+                Sets.newHashSet("request.parameters.*"), NONE);
+        Assert.assertFalse(defaultOnly.isIncluded("request.parameters.id"));
+        Assert.assertTrue(defaultOnly.isIncluded("request.uri"));
+    }
+
+    @Test
+    public void testMatchesRuleTries() {
+        // compare against the rule tries in DefaultDestinationPredicate for random rules and keys
+        Random random = new Random(42);
+        for (int run = 0; run < 200; run++) {
+            Set<String> mandatory = randomRules(random, random.nextInt(2));
+            Set<String> exclude = randomRules(random, random.nextInt(6));
+            Set<String> include = randomRules(random, random.nextInt(6));
+            Set<String> defaults = randomRules(random, random.nextInt(4));
+
+            AttributeDestinationTrie trie = new AttributeDestinationTrie(exclude, include, defaults, mandatory);
+            RootConfigAttributesNode mandatoryTrie = DefaultDestinationPredicate.generateConfigTrie("test", mandatory, NONE);
+            RootConfigAttributesNode configTrie = DefaultDestinationPredicate.generateConfigTrie("test", exclude, include);
+            AttributesNode defaultTrie = DefaultDestinationPredicate.generateDefaultTrie("test", defaults);
+
+            for (int i = 0; i < 50; i++) {
+                String key = randomName(random);
+                Boolean expected = mandatoryTrie.applyRules(key);
+                if (expected == null) {
+                    expected = configTrie.applyRules(key);
+                }
+                if (expected == null) {
+                    expected = defaultTrie.applyRules(key);
+                }
+                boolean included = expected == null || expected;
+                Assert.assertEquals("key " + key + " mandatory " + mandatory + " exclude " + exclude + " include " + include
+                        + " defaults " + defaults, included, trie.isIncluded(key));
+            }
+        }
+    }
+
+    private static Set<String> randomRules(Random random, int count) {
+        Set<String> rules = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            String name = randomName(random);
+            rules.add(random.nextBoolean() ? name + "*" : name);
+        }
+        return rules;
+    }
+
+    private static String randomName(Random random) {
+        // a small alphabet so that rules and keys share prefixes
+        StringBuilder name = new StringBuilder();
+        int length = random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            name.append("ab.".charAt(random.nextInt(3)));
+        }
+        return name.toString();
+    }
+}
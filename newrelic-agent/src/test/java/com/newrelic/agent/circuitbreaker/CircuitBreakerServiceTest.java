@@ -27,6 +27,7 @@ import org.junit.Test;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class CircuitBreakerServiceTest {
 
@@ -103,6 +104,96 @@ public class CircuitBreakerServiceTest {
         Assert.assertNotNull(outerTx);
     }
 
+    @Test
+    public void gradedBreakerDegradesOneLevelAtATime() throws Exception {
+        setGradedCBConfig(circuitBreaker, true);
+        long start = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        circuitBreaker.evaluateGCPressure(start, 0, 100);
+        Assert.assertEquals(DegradationLevel.NONE, circuitBreaker.getDegradationLevel());
+
+        // half of the time is spent in gc with 10% free memory
+        circuitBreaker.evaluateGCPressure(start + seconds(1), millis(500), 10);
+        Assert.assertEquals(DegradationLevel.NO_TRACES, circuitBreaker.getDegradationLevel());
+        Assert.assertTrue(circuitBreaker.isTraceCollectionStopped());
+        Assert.assertFalse(circuitBreaker.isSegmentCreationStopped());
+        assertNotTripped();
+
+        // too soon after the last degradation
+        circuitBreaker.evaluateGCPressure(start + seconds(2), millis(1000), 10);
+        Assert.assertEquals(DegradationLevel.NO_TRACES, circuitBreaker.getDegradationLevel());
+
+        circuitBreaker.evaluateGCPressure(start + seconds(7), millis(3500), 10);
+        Assert.assertEquals(DegradationLevel.NO_SEGMENTS, circuitBreaker.getDegradationLevel());
+        Assert.assertTrue(circuitBreaker.isSegmentCreationStopped());
+        assertNotTripped();
+
+        circuitBreaker.evaluateGCPressure(start + seconds(12), millis(6000), 10);
+        Assert.assertEquals(DegradationLevel.METRICS_ONLY, circuitBreaker.getDegradationLevel());
+        assertTripped();
+
+        circuitBreaker.evaluateGCPressure(start + seconds(20), millis(10000), 10);
+        Assert.assertEquals(DegradationLevel.METRICS_ONLY, circuitBreaker.getDegradationLevel());
+    }
+
+    @Test
+    public void gradedBreakerRecoversAfterGoodInterval() throws Exception {
+        setGradedCBConfig(circuitBreaker, true);
+        long start = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        circuitBreaker.evaluateGCPressure(start, 0, 100);
+        circuitBreaker.evaluateGCPressure(start + seconds(1), millis(500), 10);
+        circuitBreaker.evaluateGCPressure(start + seconds(7), millis(3500), 10);
+        Assert.assertEquals(DegradationLevel.NO_SEGMENTS, circuitBreaker.getDegradationLevel());
+
+        // enough free memory, but still within the recovery margin of the memory threshold
+        circuitBreaker.evaluateGCPressure(start + seconds(100), millis(3500), 25);
+        Assert.assertEquals(DegradationLevel.NO_SEGMENTS, circuitBreaker.getDegradationLevel());
+
+        circuitBreaker.evaluateGCPressure(start + seconds(110), millis(3500), 50);
+        circuitBreaker.evaluateGCPressure(start + seconds(160), millis(3500), 50);
+        Assert.assertEquals(DegradationLevel.NO_SEGMENTS, circuitBreaker.getDegradationLevel());
+        circuitBreaker.evaluateGCPressure(start + seconds(170), millis(3500), 50);
+        Assert.assertEquals(DegradationLevel.NO_TRACES, circuitBreaker.getDegradationLevel());
+
+        // memory gets worse again, so the good interval starts over
+        circuitBreaker.evaluateGCPressure(start + seconds(200), millis(3500), 25);
+        circuitBreaker.evaluateGCPressure(start + seconds(210), millis(3500), 50);
+        circuitBreaker.evaluateGCPressure(start + seconds(240), millis(3500), 50);
+        Assert.assertEquals(DegradationLevel.NO_TRACES, circuitBreaker.getDegradationLevel());
+        circuitBreaker.evaluateGCPressure(start + seconds(270), millis(3500), 50);
+        Assert.assertEquals(DegradationLevel.NONE, circuitBreaker.getDegradationLevel());
+        Assert.assertFalse(circuitBreaker.isTraceCollectionStopped());
+    }
+
+    @Test
+    public void gradedBreakerResetsWhenDisabled() throws Exception {
+        setGradedCBConfig(circuitBreaker, true);
+        long start = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        circuitBreaker.evaluateGCPressure(start, 0, 100);
+        circuitBreaker.evaluateGCPressure(start + seconds(1), millis(500), 10);
+        Assert.assertEquals(DegradationLevel.NO_TRACES, circuitBreaker.getDegradationLevel());
+
+        setGradedCBConfig(circuitBreaker, false);
+        circuitBreaker.evaluateGCPressure(start + seconds(2), -1, 100);
+        Assert.assertEquals(DegradationLevel.NONE, circuitBreaker.getDegradationLevel());
+    }
+
+    @Test
+    public void gradedBreakerDoesNotSampleTracers() throws Exception {
+        setCBConfig(circuitBreaker, true, 100, 0, true);
+        // the sampling breaker would trip here, see crossMemoryAndCpuThreshold
+        for (int i = 0; i < 2 * 1000; i++) {
+            assertNotTripped();
+        }
+    }
+
+    private static long seconds(long seconds) {
+        return TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
     private void assertTripped() {
         Assert.assertTrue(circuitBreaker.isTripped());
     }
@@ -113,7 +204,18 @@ public class CircuitBreakerServiceTest {
 
     public static void setCBConfig(CircuitBreakerService circuitBreaker, Object enabled, Object memoryThreshold,
             Object cpuThreshold) {
+        setCBConfig(circuitBreaker, enabled, memoryThreshold, cpuThreshold, null);
+    }
+
+    private static void setGradedCBConfig(CircuitBreakerService circuitBreaker, boolean enabled) {
+        setCBConfig(circuitBreaker, enabled, null, null, true);
+    }
+
+    private static void setCBConfig(CircuitBreakerService circuitBreaker, Object enabled, Object memoryThreshold,
+            Object cpuThreshold, Object graded) {
         Map<String, Object> cbSettings = new HashMap<>();
+        if (null != graded)
+            cbSettings.put(CircuitBreakerConfig.GRADED, graded);
         if (null != enabled)
             cbSettings.put(CircuitBreakerConfig.ENABLED, enabled);
         if (null != memoryThreshold)
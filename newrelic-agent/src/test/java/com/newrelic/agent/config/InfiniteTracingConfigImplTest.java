@@ -62,6 +62,22 @@ public class InfiniteTracingConfigImplTest {
         assertEquals(50.0, config.getFlakyPercentage(), 0.0);
     }
 
+    @Test
+    public void testBatchingDisabledByDefault() {
+        InfiniteTracingConfigImpl config = new InfiniteTracingConfigImpl(localProps);
+        assertFalse(config.getUseBatching());
+        assertEquals(InfiniteTracingSpanEventsConfig.DEFAULT_SPAN_EVENTS_BATCH_SIZE, config.getSpanEventsBatchSize());
+    }
+
+    @Test
+    public void testBatchingEnabledWithBatchSize() {
+        localProps.put(InfiniteTracingConfigImpl.USE_BATCHING, true);
+        localProps.put(InfiniteTracingConfigImpl.SPAN_EVENTS, Collections.<String, Object>singletonMap(InfiniteTracingSpanEventsConfig.BATCH_SIZE, 250));
+        InfiniteTracingConfigImpl config = new InfiniteTracingConfigImpl(localProps);
+        assertTrue(config.getUseBatching());
+        assertEquals(250, config.getSpanEventsBatchSize());
+    }
+
     @Test
     public void canConfigureViaSystemPropertiesAndEnvironmentVariables() {
         Properties properties = new Properties();
@@ -77,4 +77,32 @@ public class ThreadProfilerConfigImplTest {
         Assert.assertEquals(ThreadProfilerConfigImpl.DEFAULT_ENABLED, config.isEnabled());
     }
 
+    @Test
+    public void isInternFramesDefault() throws Exception {
+        Map<String, Object> localSettings = new HashMap<>();
+        ThreadProfilerConfig config = ThreadProfilerConfigImpl.createThreadProfilerConfig(localSettings);
+
+        Assert.assertEquals(ThreadProfilerConfigImpl.DEFAULT_INTERN_FRAMES, config.isInternFrames());
+    }
+
+    @Test
+    public void isInternFrames() throws Exception {
+        Map<String, Object> localSettings = new HashMap<>();
+        localSettings.put(ThreadProfilerConfigImpl.INTERN_FRAMES, !ThreadProfilerConfigImpl.DEFAULT_INTERN_FRAMES);
+        ThreadProfilerConfig config = ThreadProfilerConfigImpl.createThreadProfilerConfig(localSettings);
+
+        Assert.assertEquals(!ThreadProfilerConfigImpl.DEFAULT_INTERN_FRAMES, config.isInternFrames());
+    }
+
+    @Test
+    public void isInternFramesSystemProperty() throws Exception {
+        Map<String, String> properties = new HashMap<>();
+        String key = ThreadProfilerConfigImpl.SYSTEM_PROPERTY_ROOT + ThreadProfilerConfigImpl.INTERN_FRAMES;
+        properties.put(key, String.valueOf(!ThreadProfilerConfigImpl.DEFAULT_INTERN_FRAMES));
+        Mocks.createSystemPropertyProvider(properties);
+        ThreadProfilerConfig config = ThreadProfilerConfigImpl.createThreadProfilerConfig(new HashMap<String, Object>());
+
+        Assert.assertEquals(!ThreadProfilerConfigImpl.DEFAULT_INTERN_FRAMES, config.isInternFrames());
+    }
+
 }
@@ -0,0 +1,102 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.database;
+
+import com.newrelic.agent.MockCoreService;
+import com.newrelic.agent.bridge.datastore.UnknownDatabaseVendor;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceManager;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CachingDatabaseStatementParserTest {
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        MockCoreService.getMockAgentAndBootstrapTheServiceManager();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        ServiceManager serviceManager = ServiceFactory.getServiceManager();
+        if (serviceManager != null) {
+            serviceManager.stop();
+        }
+    }
+
+    @Test
+    public void statementShape() {
+        assertEquals("select * from t where id = ? and name = ? and x = ?",
+                CachingDatabaseStatementParser.getStatementShape("select * from t where id = 12 and name = 'o''k' and x = 1.5"));
+        assertEquals("insert into t values (?, -?, ?)",
+                CachingDatabaseStatementParser.getStatementShape("insert into t values (1, -2, 'a')"));
+        assertEquals("select /* nrhint: t2 */ ?",
+                CachingDatabaseStatementParser.getStatementShape("select /* nrhint: t2 */ 5"));
+        assertEquals("select * from 'metrics' where name like ? and id in (?, ?)",
+                CachingDatabaseStatementParser.getStatementShape("select * from 'metrics' where name like 'a%' and id in (1, 'b')"));
+        String noLiterals = "select * from t1 where a = 2fa";
+        assertSame(noLiterals, CachingDatabaseStatementParser.getStatementShape(noLiterals));
+        String backslashEscaped = "insert into t values (1, 'a\\'b', 3)";
+        assertSame(backslashEscaped, CachingDatabaseStatementParser.getStatementShape(backslashEscaped));
+        String show = "show tables like 'metrics%'";
+        assertSame(show, CachingDatabaseStatementParser.getStatementShape(show));
+    }
+
+    @Test
+    public void selectQuotedTableName() {
+        CachingDatabaseStatementParser parser = new CachingDatabaseStatementParser(new DefaultDatabaseStatementParser());
+        ParsedDatabaseStatement parsedStatement = parser.getParsedDatabaseStatement(UnknownDatabaseVendor.INSTANCE,
+                "Select * from 'metrics'", null);
+        assertEquals("select", parsedStatement.getOperation());
+        assertEquals("metrics", parsedStatement.getModel());
+
+        parsedStatement = parser.getParsedDatabaseStatement(UnknownDatabaseVendor.INSTANCE, "Select * from 'users'", null);
+        assertEquals("users", parsedStatement.getModel());
+
+        parsedStatement = parser.getParsedDatabaseStatement(UnknownDatabaseVendor.INSTANCE, "Select * from \"metrics\"", null);
+        assertEquals("metrics", parsedStatement.getModel());
+    }
+
+    @Test
+    public void parsesStatementNotShape() {
+        CachingDatabaseStatementParser parser = new CachingDatabaseStatementParser(new DefaultDatabaseStatementParser());
+        ParsedDatabaseStatement parsedStatement = parser.getParsedDatabaseStatement(UnknownDatabaseVendor.INSTANCE,
+                "insert into 'orders' values (1, 'a\\'b', 3)", null);
+        assertEquals("insert", parsedStatement.getOperation());
+        assertEquals("orders", parsedStatement.getModel());
+    }
+
+    @Test
+    public void statementsWithDifferentLiteralsShareEntry() {
+        CachingDatabaseStatementParser parser = new CachingDatabaseStatementParser(new DefaultDatabaseStatementParser());
+        ParsedDatabaseStatement first = null;
+        for (int i = 0; i < 10; i++) {
+            ParsedDatabaseStatement parsedStatement = parser.getParsedDatabaseStatement(UnknownDatabaseVendor.INSTANCE,
+                    "select * from orders where id = " + i + " and status = 'open'", null);
+            if (first == null) {
+                first = parsedStatement;
+            }
+            assertSame(first, parsedStatement);
+        }
+        assertEquals("orders", first.getModel());
+        assertEquals(9, parser.getCacheStats().hitCount());
+        assertEquals(1, parser.getCacheStats().missCount());
+    }
+
+    @Test
+    public void nullStatement() {
+        CachingDatabaseStatementParser parser = new CachingDatabaseStatementParser(new DefaultDatabaseStatementParser());
+        assertSame(DatabaseStatementParser.UNPARSEABLE_STATEMENT,
+                parser.getParsedDatabaseStatement(UnknownDatabaseVendor.INSTANCE, null, null));
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.database;
+
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.bridge.datastore.ConnectionFactory;
+import com.newrelic.agent.bridge.datastore.DatabaseVendor;
+import com.newrelic.agent.service.ServiceFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ExplainPlanWorkerTest {
+
+    private static final Object[] EXPLAIN_PLAN = new Object[] { "plan" };
+
+    private ConnectionFactory connectionFactory;
+    private ExplainPlanWorker worker;
+
+    @Before
+    public void before() throws Exception {
+        ServiceFactory.setServiceManager(new MockServiceManager());
+        connectionFactory = mock(ConnectionFactory.class);
+        when(connectionFactory.getConnection()).thenReturn(mock(Connection.class));
+        when(connectionFactory.getDatabaseVendor()).thenReturn(mock(DatabaseVendor.class));
+    }
+
+    @After
+    public void after() {
+        if (worker != null) {
+            worker.stop();
+        }
+    }
+
+    @Test
+    public void explainsSameStatementOnce() throws Exception {
+        worker = new ExplainPlanWorker(1, 5000, 0);
+        ExplainPlanExecutor first = createExecutor("select * from users where id = 1");
+        ExplainPlanExecutor second = createExecutor("select * from users where id = 2");
+
+        worker.submit(explainPlans(first, second)).await();
+
+        verify(connectionFactory, times(1)).getConnection();
+        verify(first, times(1)).getExplainPlan(any(Connection.class), any(DatabaseVendor.class), anyInt());
+        verify(second, never()).getExplainPlan(any(Connection.class), any(DatabaseVendor.class), anyInt());
+        verify(first).setExplainPlan(EXPLAIN_PLAN);
+        verify(second).setExplainPlan(EXPLAIN_PLAN);
+    }
+
+    @Test
+    public void reusesCachedExplainPlans() throws Exception {
+        worker = new ExplainPlanWorker(1, 5000, 60);
+        worker.submit(explainPlans(createExecutor("select * from users where id = 1"))).await();
+        ExplainPlanExecutor next = createExecutor("select * from users where id = 3");
+        worker.submit(explainPlans(next)).await();
+
+        verify(connectionFactory, times(1)).getConnection();
+        verify(next, never()).getExplainPlan(any(Connection.class), any(DatabaseVendor.class), anyInt());
+        verify(next).setExplainPlan(EXPLAIN_PLAN);
+    }
+
+    @Test
+    public void dropsExplainPlansAfterDeadline() throws Exception {
+        worker = new ExplainPlanWorker(1, 100, 0);
+        final CountDownLatch release = new CountDownLatch(1);
+        ExplainPlanExecutor slow = mock(ExplainPlanExecutor.class);
+        when(slow.getSql()).thenReturn("select * from users");
+        when(slow.getExplainPlan(any(Connection.class), any(DatabaseVendor.class), anyInt())).thenAnswer(
+                new Answer<Object[]>() {
+                    @Override
+                    public Object[] answer(InvocationOnMock invocation) throws Throwable {
+                        release.await();
+                        return EXPLAIN_PLAN;
+                    }
+                });
+
+        long start = System.currentTimeMillis();
+        worker.submit(explainPlans(slow)).await();
+        release.countDown();
+
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        verify(slow, never()).setExplainPlan(any(Object[].class));
+    }
+
+    @Test
+    public void runsOnCallingThreadWithoutTimeout() throws Exception {
+        worker = new ExplainPlanWorker(1, 0, 0);
+        final Thread caller = Thread.currentThread();
+        ExplainPlanExecutor executor = mock(ExplainPlanExecutor.class);
+        when(executor.getSql()).thenReturn("select * from users");
+        when(executor.getExplainPlan(any(Connection.class), any(DatabaseVendor.class), anyInt())).thenAnswer(
+                new Answer<Object[]>() {
+                    @Override
+                    public Object[] answer(InvocationOnMock invocation) throws Throwable {
+                        return Thread.currentThread() == caller ? EXPLAIN_PLAN : null;
+                    }
+                });
+
+        ExplainPlanWorker.Batch batch = worker.submit(explainPlans(executor));
+        verify(executor, never()).getExplainPlan(any(Connection.class), any(DatabaseVendor.class), anyInt());
+        batch.await();
+
+        verify(executor).getExplainPlan(any(Connection.class), any(DatabaseVendor.class), anyInt());
+        verify(executor).setExplainPlan(EXPLAIN_PLAN);
+    }
+
+    private ExplainPlanExecutor createExecutor(String sql) throws Exception {
+        ExplainPlanExecutor executor = mock(ExplainPlanExecutor.class);
+        when(executor.getSql()).thenReturn(sql);
+        when(executor.getExplainPlan(any(Connection.class), any(DatabaseVendor.class), anyInt())).thenReturn(EXPLAIN_PLAN);
+        return executor;
+    }
+
+    private Map<ConnectionFactory, List<ExplainPlanExecutor>> explainPlans(ExplainPlanExecutor... executors) {
+        return Collections.singletonMap(connectionFactory, Arrays.asList(executors));
+    }
+
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.database;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LexingSqlObfuscatorTest {
+
+    private static final String[] DIALECTS = { null, "mysql", "postgres", "postgresql", "oracle", "mssql" };
+
+    private final SqlObfuscator lexer = SqlObfuscator.getLexingSqlObfuscator();
+    private final SqlObfuscator regex = SqlObfuscator.getDefaultSqlObfuscator();
+
+    @Test
+    public void nullAndEmptySql() {
+        assertNull(lexer.obfuscateSql(null));
+        assertEquals("", lexer.obfuscateSql(""));
+        assertTrue(lexer.isObfuscating());
+    }
+
+    @Test
+    public void literals() {
+        assertEquals("select * from employees where name = ? and comment = ?",
+                lexer.obfuscateSql("select * from employees where name = \"dude\" and comment = 'whoah dude'"));
+        assertEquals("insert employees values (?, ?, ?, ?)", lexer.obfuscateSql("insert employees values (4, 'dude', -1.5e10, 0xCAFE)"));
+        assertEquals("Select id0 from metrics0", lexer.obfuscateSql("Select id0 from metrics0"));
+        assertEquals("select * from a where x = ? and b = ?",
+                lexer.obfuscateSql("select * from a where x = $$I'm a thing$$ and b = $FOO$;"));
+        assertEquals("select * from t where id = ? and ok = ?",
+                lexer.obfuscateSql("select * from t where id = '{5a3c0b1e-7f4d-4b2a-9c8e-1d2f3a4b5c6d}' and ok = TRUE"));
+    }
+
+    @Test
+    public void comments() {
+        assertEquals("select ? ?\nfrom dual", lexer.obfuscateSql("select 1 -- one\nfrom dual"));
+        assertEquals("select ? ? from dual", lexer.obfuscateSql("select /* hint */ 1 from dual"));
+        assertEquals("?", lexer.obfuscateSql("select 1 from dual */"));
+    }
+
+    @Test
+    public void unmatchedDelimitersObfuscateEverything() {
+        assertEquals("?", lexer.obfuscateSql("select * from t where name = 'unterminated"));
+        assertEquals("?", lexer.obfuscateSql("select * from t where name = \"unterminated", "mysql"));
+        assertEquals("select * from t where id = $?", lexer.obfuscateSql("select * from t where id = $1", "postgres"));
+        assertEquals("?", lexer.obfuscateSql("select * from t where id = $1"));
+    }
+
+    @Test
+    public void matchesRegexObfuscator() {
+        String alphabet = "'\"$q[]{}<>()#-/*\n\\ 0123456789abcdefxXeE._TrueFALSEnull;=,tag";
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder sql = new StringBuilder();
+            int length = random.nextInt(40);
+            for (int j = 0; j < length; j++) {
+                sql.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            if (random.nextInt(4) == 0) {
+                sql.insert(random.nextInt(sql.length() + 1), "0123456789abcdef0123456789ABCDEF");
+            }
+            // how "$" treats a trailing line feed is a regex engine detail, so keep it out of the comparison
+            String input = sql.toString() + ";";
+            for (String dialect : DIALECTS) {
+                String expected = dialect == null ? regex.obfuscateSql(input) : regex.obfuscateSql(input, dialect);
+                String actual = dialect == null ? lexer.obfuscateSql(input) : lexer.obfuscateSql(input, dialect);
+                assertEquals("dialect " + dialect + ", sql: " + input, expected, actual);
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.database;
+
+import com.newrelic.agent.MockCoreService;
+import com.newrelic.agent.attributes.CrossAgentInput;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceManager;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class StatementClassifierTest {
+
+    private static final String[] TOKENS = { "select", "SELECT", "insert", "update", "delete", "from", "FROM", "into",
+            "ignore", "(", ")", "[", "]", ",", ";", " ", "\t", "\n", "\u000B", "\u00A0", "users", "db.tbl", "`q`",
+            "\"dq\"", "*", "fromage", "from(", "where", "=", "1", "'s'", "call", "exec", "with", "show", "set",
+            "selected", "\u017Felect", "values" };
+
+    private DefaultDatabaseStatementParser parser;
+
+    @BeforeClass
+    public static void beforeClass() throws Exception {
+        MockCoreService.getMockAgentAndBootstrapTheServiceManager();
+    }
+
+    @AfterClass
+    public static void afterClass() throws Exception {
+        ServiceManager serviceManager = ServiceFactory.getServiceManager();
+        if (serviceManager != null) {
+            serviceManager.stop();
+        }
+    }
+
+    @Before
+    public void before() {
+        parser = new DefaultDatabaseStatementParser();
+    }
+
+    @Test
+    public void classifiesPlainStatements() {
+        assertClassified("select", "users", "SELECT * FROM users WHERE id = ?");
+        assertClassified("select", "users", "select a, b\nfrom\t[users] u");
+        assertClassified("insert", "users", "INSERT IGNORE INTO users (a) VALUES (?)");
+        assertClassified("insert", "users", "insert users values (?)");
+        assertClassified("update", "db.users", "update db.users set a = ?");
+        assertClassified("delete", "users", "DELETE FROM users WHERE id = ?");
+    }
+
+    @Test
+    public void leavesHardStatementsToFactories() {
+        StatementClassifier classifier = parser.getStatementClassifier();
+        assertNull(classifier.classify("select * from (select * from users) u"));
+        assertNull(classifier.classify("select * from users where id in (select id from(select id from admins))"));
+        assertNull(classifier.classify("select 1"));
+        assertNull(classifier.classify("insert into (a) values (?)"));
+        assertNull(classifier.classify("with x as (select 1) select * from x"));
+        assertNull(classifier.classify("call proc(?)"));
+    }
+
+    @Test
+    public void matchesFactoriesForCrossAgentTests() throws Exception {
+        JSONArray tests = CrossAgentInput.readJsonAndGetTests("com/newrelic/agent/cross_agent_tests/sql_parsing.json");
+        for (Object test : tests) {
+            assertSameAsFactories((String) ((JSONObject) test).get("input"));
+        }
+    }
+
+    @Test
+    public void matchesFactoriesForRandomStatements() {
+        Random random = new Random(22);
+        for (int i = 0; i < 100000; i++) {
+            StringBuilder statement = new StringBuilder();
+            if (random.nextInt(4) > 0) {
+                statement.append(random.nextBoolean() ? " " : "").append(TOKENS[random.nextInt(5)]);
+            }
+            int tokens = random.nextInt(10);
+            for (int j = 0; j < tokens; j++) {
+                statement.append(TOKENS[random.nextInt(TOKENS.length)]);
+                if (random.nextInt(3) > 0) {
+                    statement.append(' ');
+                }
+            }
+            assertSameAsFactories(statement.toString());
+        }
+    }
+
+    private void assertClassified(String operation, String model, String statement) {
+        ParsedDatabaseStatement parsedStatement = parser.getStatementClassifier().classify(statement);
+        assertNotNull(statement, parsedStatement);
+        assertEquals(operation, parsedStatement.getOperation());
+        assertEquals(model, parsedStatement.getModel());
+        assertSameAsFactories(statement);
+    }
+
+    private void assertSameAsFactories(String statement) {
+        ParsedDatabaseStatement classified = parser.getStatementClassifier().classify(statement);
+        if (classified == null) {
+            return;
+        }
+        ParsedDatabaseStatement parsed = parser.parseWithFactories(statement);
+        assertNotNull(statement, parsed);
+        assertEquals(statement, parsed.getOperation(), classified.getOperation());
+        assertEquals(statement, parsed.getModel(), classified.getModel());
+        assertEquals(statement, parsed.recordMetric(), classified.recordMetric());
+    }
+
+}
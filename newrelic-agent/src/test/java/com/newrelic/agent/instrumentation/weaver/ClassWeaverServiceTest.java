@@ -0,0 +1,95 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.weaver;
+
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsEngineImpl;
+import com.newrelic.agent.stats.StatsWork;
+import com.newrelic.weave.weavepackage.WeavePackage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.verify;
+
+public class ClassWeaverServiceTest {
+
+    private static final int PACKAGES = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() throws Exception {
+        MockServiceManager serviceManager = new MockServiceManager();
+        ServiceFactory.setServiceManager(serviceManager);
+        serviceManager.start();
+    }
+
+    @Test
+    public void internalWeavePackagesLoadOnce() throws Exception {
+        Set<String> names = new HashSet<>();
+        List<URL> jars = new ArrayList<>();
+        for (int i = 0; i < PACKAGES; i++) {
+            String name = "com.newrelic.instrumentation.load-test-" + i;
+            names.add(name);
+            jars.add(writeWeavePackageJar(name).toURI().toURL());
+        }
+
+        ClassWeaverService service = new ClassWeaverService(null);
+        service.loadInternalWeavePackages(jars);
+
+        Set<String> registered = new HashSet<>();
+        for (WeavePackage weavePackage : service.getWeavePackageManger().getRegisteredPackages()) {
+            registered.add(weavePackage.getName());
+        }
+        assertEquals(names, registered);
+
+        // replay the recorded metrics to check them by name
+        ArgumentCaptor<StatsWork> captor = ArgumentCaptor.forClass(StatsWork.class);
+        verify(ServiceFactory.getStatsService(), atLeastOnce()).doStatsWork(captor.capture());
+        StatsEngineImpl statsEngine = new StatsEngineImpl();
+        for (StatsWork work : captor.getAllValues()) {
+            work.doWork(statsEngine);
+        }
+        assertEquals(1, statsEngine.getResponseTimeStats(MetricNames.SUPPORTABILITY_WEAVE_LOAD_TIME).getCallCount());
+        // every package is among the slowest reported, and a package loaded twice would be counted twice
+        for (String name : names) {
+            assertEquals(name, 1, statsEngine.getResponseTimeStats(
+                    MessageFormat.format(MetricNames.SUPPORTABILITY_WEAVE_PACKAGE_LOAD_TIME, name)).getCallCount());
+        }
+    }
+
+    private File writeWeavePackageJar(String name) throws Exception {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Implementation-Title", name);
+        manifest.getMainAttributes().putValue("Implementation-Version", "1.0");
+        File jar = folder.newFile(name + ".jar");
+        new JarOutputStream(new FileOutputStream(jar), manifest).close();
+        return jar;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.instrumentation.weaver;
+
+import com.newrelic.weave.utils.ClassCache;
+import com.newrelic.weave.utils.ClassLoaderFinder;
+import com.newrelic.weave.weavepackage.WeavePackage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.security.cert.Certificate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UnwovenClassCacheTest {
+
+    private static final byte[] CLASS_BYTES = { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, 52 };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entriesSurviveRestart() throws Exception {
+        File dir = folder.newFolder();
+        String fingerprint = fingerprint("debug");
+        ProtectionDomain jar = protectionDomain(writeJar("app.jar"));
+
+        UnwovenClassCache cache = new UnwovenClassCache(dir, fingerprint);
+        cache.start();
+        String key = cache.key("com/example/Foo", null, jar, CLASS_BYTES);
+        assertFalse(cache.isUnwoven(key));
+        cache.recordUnwoven(key);
+        assertTrue(cache.isUnwoven(key));
+        cache.save();
+
+        UnwovenClassCache restarted = new UnwovenClassCache(dir, fingerprint);
+        restarted.start();
+        assertEquals(1, restarted.size());
+        assertTrue(restarted.isUnwoven(restarted.key("com/example/Foo", null, jar, CLASS_BYTES)));
+    }
+
+    @Test
+    public void changedFingerprintRemovesOldFile() throws Exception {
+        File dir = folder.newFolder();
+        UnwovenClassCache cache = new UnwovenClassCache(dir, fingerprint("debug"));
+        cache.start();
+        cache.recordUnwoven(cache.key("com/example/Foo", null, protectionDomain(writeJar("app.jar")), CLASS_BYTES));
+        cache.save();
+        assertEquals(1, dir.listFiles().length);
+
+        UnwovenClassCache reconfigured = new UnwovenClassCache(dir, fingerprint("info"));
+        reconfigured.start();
+        assertEquals(0, reconfigured.size());
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void corruptFileIsDiscarded() throws Exception {
+        File dir = folder.newFolder();
+        String fingerprint = fingerprint("debug");
+        UnwovenClassCache cache = new UnwovenClassCache(dir, fingerprint);
+        cache.start();
+        cache.recordUnwoven(cache.key("com/example/Foo", null, protectionDomain(writeJar("app.jar")), CLASS_BYTES));
+        cache.save();
+
+        File file = dir.listFiles()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 12);
+            raf.write(raf.read() ^ 0xFF);
+        }
+
+        UnwovenClassCache restarted = new UnwovenClassCache(dir, fingerprint);
+        restarted.start();
+        assertEquals(0, restarted.size());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void invalidatedCacheIsNotUsed() throws Exception {
+        File dir = folder.newFolder();
+        UnwovenClassCache cache = new UnwovenClassCache(dir, fingerprint("debug"));
+        cache.start();
+        String key = cache.key("com/example/Foo", null, protectionDomain(writeJar("app.jar")), CLASS_BYTES);
+        cache.recordUnwoven(key);
+        cache.save();
+
+        cache.invalidate();
+        assertFalse(cache.isUnwoven(key));
+        cache.recordUnwoven(key);
+        assertFalse(cache.isUnwoven(key));
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void keyDependsOnBytesLoaderAndJar() throws Exception {
+        UnwovenClassCache cache = new UnwovenClassCache(folder.newFolder(), fingerprint("debug"));
+        ProtectionDomain first = protectionDomain(writeJar("first.jar"));
+        String key = cache.key("com/example/Foo", null, first, CLASS_BYTES);
+        assertEquals(key, cache.key("com/example/Foo", null, first, CLASS_BYTES.clone()));
+
+        byte[] otherBytes = CLASS_BYTES.clone();
+        otherBytes[7] = 51;
+        assertNotEquals(key, cache.key("com/example/Foo", null, first, otherBytes));
+        assertNotEquals(key, cache.key("com/example/Bar", null, first, CLASS_BYTES));
+        assertNotEquals(key, cache.key("com/example/Foo", getClass().getClassLoader(), first, CLASS_BYTES));
+        assertNotEquals(key, cache.key("com/example/Foo", null, protectionDomain(writeJar("second.jar")), CLASS_BYTES));
+    }
+
+    @Test
+    public void keyChangesWhenJarChanges() throws Exception {
+        File jar = writeJar("app.jar");
+        String key = new UnwovenClassCache(folder.newFolder(), fingerprint("debug")).key("com/example/Foo", null,
+                protectionDomain(jar), CLASS_BYTES);
+
+        // a different superclass in the same jar, for example
+        writeJar("app.jar", "com/example/Base", "java/lang/Object", "com/example/Other", "java/lang/Object");
+        assertNotEquals(key, new UnwovenClassCache(folder.newFolder(), fingerprint("debug")).key("com/example/Foo", null,
+                protectionDomain(jar), CLASS_BYTES));
+    }
+
+    @Test
+    public void onlyClassesFromJarFilesAreCached() throws Exception {
+        UnwovenClassCache cache = new UnwovenClassCache(folder.newFolder(), fingerprint("debug"));
+        assertNull(cache.key("com/example/Foo", null, null, CLASS_BYTES));
+        assertNull(cache.key("com/example/Foo", null, protectionDomain(folder.newFolder("classes")), CLASS_BYTES));
+        assertNull(cache.key("com/example/Foo", null, new ProtectionDomain(
+                new CodeSource(new URL("http://example.com/app.jar"), (Certificate[]) null), null), CLASS_BYTES));
+    }
+
+    @Test
+    public void onlySelfContainedHierarchiesAreCached() throws Exception {
+        File baseJar = writeJar("base.jar", "com/example/Base", "java/lang/Object");
+        File appJar = writeJar("app.jar", "com/example/Foo", "com/example/Base", "com/example/Own", "com/example/OwnBase",
+                "com/example/OwnBase", "java/lang/Object");
+        ProtectionDomain app = protectionDomain(appJar);
+        URLClassLoader loader = new URLClassLoader(new URL[] { appJar.toURI().toURL(), baseJar.toURI().toURL() }, null);
+        try {
+            ClassCache classCache = new ClassCache(new ClassLoaderFinder(loader));
+            // the superclass comes from another jar, which could be upgraded on its own
+            assertFalse(UnwovenClassCache.hasSelfContainedHierarchy(loader, app,
+                    classCache.getClassResource("com/example/Foo"), classCache));
+            assertTrue(UnwovenClassCache.hasSelfContainedHierarchy(loader, app,
+                    classCache.getClassResource("com/example/Own"), classCache));
+            assertTrue(UnwovenClassCache.hasSelfContainedHierarchy(loader, app,
+                    classCache.getClassResource("com/example/OwnBase"), classCache));
+        } finally {
+            loader.close();
+        }
+    }
+
+    private File writeJar(String name, String... classesAndSuperclasses) throws Exception {
+        File jar = new File(folder.getRoot(), name);
+        try (JarOutputStream out = new JarOutputStream(new FileOutputStream(jar))) {
+            for (int i = 0; i < classesAndSuperclasses.length; i += 2) {
+                out.putNextEntry(new JarEntry(classesAndSuperclasses[i] + ".class"));
+                out.write(createClass(classesAndSuperclasses[i], classesAndSuperclasses[i + 1]));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static byte[] createClass(String className, String superName) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC, className, null, superName,
+                new String[] { "java/io/Serializable" });
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static ProtectionDomain protectionDomain(File location) throws Exception {
+        return new ProtectionDomain(new CodeSource(location.toURI().toURL(), (Certificate[]) null), null);
+    }
+
+    private static String fingerprint(String logLevel) {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("log_level", logLevel);
+        return UnwovenClassCache.fingerprint(Collections.<WeavePackage>emptyList(), Collections.<File>emptyList(), settings);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.logging;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.Message;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class AsyncLogWriterTest {
+
+    @Test
+    public void writesMessagesInOrder() {
+        Logger logger = mock(Logger.class);
+        AsyncLogWriter writer = new AsyncLogWriter(64, logger);
+        writer.start();
+        for (int i = 0; i < 200; i++) {
+            // more messages than fit in the buffer, so wait for the writer instead of dropping them
+            while (!writer.write(logger, Log4jLevel.FINER, "message {0}", new Object[] { i }, false, null)) {
+                Thread.yield();
+            }
+        }
+        writer.stop();
+
+        ArgumentCaptor<Message> messages = ArgumentCaptor.forClass(Message.class);
+        verify(logger, times(200)).log(eq(Level.DEBUG), eq(Log4jMarkers.FINER_MARKER), messages.capture(),
+                (Throwable) isNull());
+        List<Message> written = messages.getAllValues();
+        for (int i = 0; i < 200; i++) {
+            assertEquals("message " + i, written.get(i).getFormattedMessage());
+        }
+    }
+
+    @Test
+    public void dropsMessagesWhenFull() {
+        Logger logger = mock(Logger.class);
+        AsyncLogWriter writer = new AsyncLogWriter(64, logger);
+        for (int i = 0; i < 64; i++) {
+            assertTrue(writer.write(logger, Log4jLevel.INFO, "message", null, false, null));
+        }
+        assertFalse(writer.write(logger, Log4jLevel.INFO, "message", null, false, null));
+        assertFalse(writer.write(logger, Log4jLevel.INFO, "message", null, false, null));
+        assertEquals(2, writer.getDroppedCount());
+
+        writer.start();
+        writer.stop();
+        verify(logger, times(64)).log(eq(Level.INFO), eq(Log4jMarkers.INFO_MARKER), any(Message.class),
+                (Throwable) isNull());
+        verify(logger).warn(Log4jMarkers.WARN_MARKER,
+                "Dropped 2 log message(s) because the async log buffer of 64 messages was full");
+    }
+
+    @Test
+    public void formatsOnWriterThread() {
+        Logger logger = mock(Logger.class);
+        AsyncLogWriter writer = new AsyncLogWriter(64, logger);
+        final Thread[] formattedOn = new Thread[1];
+        Object part = new Object() {
+            @Override
+            public String toString() {
+                formattedOn[0] = Thread.currentThread();
+                return "part";
+            }
+        };
+        Throwable thrown = new Exception();
+        writer.start();
+        writer.write(logger, Log4jLevel.FINE, "message {0}", new Object[] { part }, false, thrown);
+        writer.stop();
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        verify(logger).log(eq(Level.DEBUG), eq(Log4jMarkers.FINE_MARKER), message.capture(), eq(thrown));
+        assertEquals("message part", message.getValue().getFormattedMessage());
+        assertNotSame(Thread.currentThread(), formattedOn[0]);
+        verify(logger, never()).warn(eq(Log4jMarkers.WARN_MARKER), anyString());
+    }
+
+    @Test
+    public void keepsParameterizedPatterns() {
+        Logger logger = mock(Logger.class);
+        AsyncLogWriter writer = new AsyncLogWriter(64, logger);
+        writer.start();
+        writer.write(logger, Log4jLevel.WARNING, "message {}", new Object[] { "part" }, true, null);
+        writer.stop();
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        verify(logger).log(eq(Level.WARN), eq(Log4jMarkers.WARN_MARKER), message.capture(), (Throwable) isNull());
+        assertEquals("message part", message.getValue().getFormattedMessage());
+    }
+
+}
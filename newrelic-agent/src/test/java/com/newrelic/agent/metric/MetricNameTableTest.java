@@ -0,0 +1,55 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.metric;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MetricNameTableTest {
+
+    @Test
+    public void getIdAssignsDenseIds() {
+        MetricNameTable table = new MetricNameTable(10);
+        Assert.assertEquals(0, table.getId("Test1"));
+        Assert.assertEquals(1, table.getId("Test2"));
+        Assert.assertEquals(0, table.getId("Test1"));
+        Assert.assertEquals(2, table.getSize());
+        Assert.assertEquals("Test2", table.getName(1));
+    }
+
+    @Test
+    public void findIdDoesNotAssign() {
+        MetricNameTable table = new MetricNameTable(10);
+        Assert.assertEquals(MetricNameTable.NO_ID, table.findId("Test"));
+        Assert.assertEquals(0, table.getSize());
+        int id = table.getId("Test");
+        Assert.assertEquals(id, table.findId("Test"));
+    }
+
+    @Test
+    public void growsPastInitialCapacity() {
+        MetricNameTable table = new MetricNameTable(5000);
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertEquals(i, table.getId("Metric/" + i));
+        }
+        for (int i = 0; i < 5000; i++) {
+            Assert.assertEquals("Metric/" + i, table.getName(i));
+        }
+    }
+
+    @Test
+    public void limit() {
+        MetricNameTable table = new MetricNameTable(2);
+        table.getId("Test1");
+        table.getId("Test2");
+        Assert.assertEquals(MetricNameTable.NO_ID, table.getId("Test3"));
+        Assert.assertEquals(1, table.getId("Test2"));
+        Assert.assertEquals(2, table.getSize());
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.normalization;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+public class NormalizationRuleTest {
+
+    @Test
+    public void requiredLiteral() {
+        assertLiteral("/users/", "^/Users/\\d+");
+        assertLiteral("webtransaction/", "WebTransaction/(.*)");
+        assertLiteral("a.b", "a\\.b.*");
+        assertLiteral("ab", "abc?");
+        assertLiteral("ab", "abc*");
+        assertLiteral("ab", "abc{0,2}");
+        assertLiteral("abc", "abc+");
+        assertLiteral("", "foo|bar");
+        assertLiteral("", "\\d+/foo");
+        assertLiteral("", "(?-i)Foo");
+        assertLiteral("", "[a-z]+");
+        assertLiteral("", ".*");
+        assertLiteral("caf", "caf\u00e9");
+    }
+
+    @Test
+    public void preScreenDoesNotChangeResults() {
+        // compare the literal check with running the pattern for random expressions and names
+        Random random = new Random(42);
+        String[] pieces = { "a", "B", "/", ".", "\\.", "\\d", "?", "*", "+", "(", ")", "[ab]", "|", "^", "$", "{1,2}" };
+        for (int run = 0; run < 2000; run++) {
+            StringBuilder expression = new StringBuilder();
+            int count = 1 + random.nextInt(6);
+            for (int i = 0; i < count; i++) {
+                expression.append(pieces[random.nextInt(pieces.length)]);
+            }
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(expression.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+            } catch (RuntimeException e) {
+                continue;
+            }
+            boolean eachSegment = random.nextBoolean();
+            NormalizationRule rule = new NormalizationRule(expression.toString(), "x", false, 0, false, eachSegment, false);
+
+            for (int i = 0; i < 20; i++) {
+                String name = randomName(random);
+                if (!rule.mayMatch(name)) {
+                    Assert.assertFalse("expression " + expression + " name " + name, pattern.matcher(name).find());
+                    Assert.assertFalse(rule.normalize(name).isMatch());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void matchCount() {
+        NormalizationRule rule = new NormalizationRule("^/foo", "/bar", false, 0, false, false, false);
+        NormalizerImpl normalizer = new NormalizerImpl("Unit Test", Collections.singletonList(rule));
+        Assert.assertEquals("/bar/1", normalizer.normalize("/foo/1"));
+        Assert.assertEquals("/bar/2", normalizer.normalize("/FOO/2"));
+        Assert.assertEquals("/baz/foo", normalizer.normalize("/baz/foo"));
+        Assert.assertEquals(2, rule.getAndResetMatchCount());
+        Assert.assertEquals(0, rule.getAndResetMatchCount());
+    }
+
+    private static void assertLiteral(String expected, String matchExp) {
+        Assert.assertEquals(matchExp, expected, new String(NormalizationRule.getRequiredLiteral(matchExp)));
+    }
+
+    private static String randomName(Random random) {
+        // a small alphabet so that names and expressions share characters
+        StringBuilder name = new StringBuilder();
+        int length = random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            name.append("aAbB1/.".charAt(random.nextInt(7)));
+        }
+        return name.toString();
+    }
+}
@@ -93,6 +93,30 @@ public class NormalizerTest {
         Assert.assertNull(normalizer.normalize(null));
     }
 
+    @Test
+    public void cachedNormalizer() {
+        List<NormalizationRule> rules = Arrays.asList(
+                new NormalizationRule("^/ignored/", null, true, 1, false, false, false),
+                new NormalizationRule("[0-9]+", "*", false, 2, false, true, false),
+                new NormalizationRule("^/users/", "/people/", false, 3, true, false, false),
+                new NormalizationRule("people", "never", false, 4, false, false, false));
+        Normalizer uncached = NormalizerFactory.createUrlNormalizer(APP_NAME, rules);
+        Normalizer cached = NormalizerFactory.createUrlNormalizer(APP_NAME, rules, 2);
+
+        String[] names = { "/ignored/1", "/users/12/orders/7", "/Users/a", "/other/people", "other", "/users/12/orders/7" };
+        for (int i = 0; i < 3; i++) {
+            for (String name : names) {
+                Assert.assertEquals(name, uncached.normalize(name), cached.normalize(name));
+            }
+        }
+
+        // cached names still count as matches of the rules they matched
+        Assert.assertEquals(6, rules.get(0).getAndResetMatchCount());
+        Assert.assertEquals(12, rules.get(1).getAndResetMatchCount());
+        Assert.assertEquals(18, rules.get(2).getAndResetMatchCount());
+        Assert.assertEquals(6, rules.get(3).getAndResetMatchCount());
+    }
+
     @SuppressWarnings({ "unchecked", "serial" })
     // @Test
     public void performance() {
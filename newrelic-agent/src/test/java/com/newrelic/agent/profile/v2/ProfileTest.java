@@ -41,6 +41,7 @@ import java.lang.management.ThreadInfo;
 import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -502,6 +503,55 @@ public class ProfileTest {
         });
     }
 
+    @Test
+    public void internedFramesMatchProfileTrees() {
+        ThreadMXBean threadMXBean = mock(ThreadMXBean.class);
+        ProfilerParameters parameters = new ProfilerParameters(0L, 0L, 0L, false, false, false, null, null)
+                .setProfilerFormat("v2");
+        Profile profile = new Profile(parameters, TransactionGuidFactory.generate16CharGuid(), threadNameNormalizer, threadMXBean, false);
+        Profile internedProfile = new Profile(parameters, TransactionGuidFactory.generate16CharGuid(), threadNameNormalizer, threadMXBean, true);
+
+        StackTraceElement agentFrame = new StackTraceElement("com.newrelic.agent.Agent", "run", "Agent.java", 1);
+        List<StackTraceElement[]> stacks = new ArrayList<>();
+        stacks.add(new StackTraceElement[] { createSimpleStackTrace("c"), createSimpleStackTrace("b"), createSimpleStackTrace("a") });
+        stacks.add(new StackTraceElement[] { createSimpleStackTrace("d"), createSimpleStackTrace("b"), createSimpleStackTrace("a") });
+        stacks.add(new StackTraceElement[] { createSimpleStackTrace("b"), createSimpleStackTrace("a") });
+        stacks.add(new StackTraceElement[] { createSimpleStackTrace("e"), agentFrame, createSimpleStackTrace("b"), createSimpleStackTrace("a") });
+        stacks.add(new StackTraceElement[] { createSimpleStackTrace("a"), createSimpleStackTrace("c"), createSimpleStackTrace("a") });
+        stacks.add(new StackTraceElement[] { createSimpleStackTrace("a") });
+
+        for (int i = 0; i < 20; i++) {
+            StackTraceElement[] stack = stacks.get(i % stacks.size());
+            ThreadInfo threadInfo = getMockedThreadInfo(i % 3, stack);
+            boolean runnable = i % 4 != 0;
+            profile.addStackTrace(threadInfo, runnable, ThreadType.BasicThreadType.OTHER);
+            internedProfile.addStackTrace(threadInfo, runnable, ThreadType.BasicThreadType.OTHER);
+        }
+        profile.addStackTrace(getMockedThreadInfo(0, stacks.get(3)), true, ThreadType.BasicThreadType.AGENT);
+        internedProfile.addStackTrace(getMockedThreadInfo(0, stacks.get(3)), true, ThreadType.BasicThreadType.AGENT);
+
+        profile.end();
+        internedProfile.end();
+
+        Assert.assertEquals(profile.getThreadIds(), internedProfile.getThreadIds());
+        for (long threadId = 0; threadId < 3; threadId++) {
+            String normalizedThreadName = threadNameNormalizer.getNormalizedThreadName(new BasicThreadInfo(getMockedThreadInfo(threadId)));
+            ProfileTree tree = profile.getProfileTree(normalizedThreadName);
+            ProfileTree internedTree = internedProfile.getProfileTree(normalizedThreadName);
+            Assert.assertEquals(tree.getCallSiteCount(), internedTree.getCallSiteCount());
+            Assert.assertEquals(describe(tree.getRootSegments()), describe(internedTree.getRootSegments()));
+        }
+    }
+
+    private Map<String, Object> describe(Collection<? extends ProfileSegment> segments) {
+        Map<String, Object> description = new HashMap<>();
+        for (ProfileSegment segment : segments) {
+            description.put(segment.getMethod() + " " + segment.getRunnableCallCount(),
+                    describe(segment.getChildren()));
+        }
+        return description;
+    }
+
     private void verifyTree(ProfileTree tree, Map<String, Integer> expected) {
         Assert.assertEquals(expected.size(), tree.getRootCount());
 
@@ -0,0 +1,89 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.profile.v2;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class StackTrieTest {
+
+    @Test
+    public void sharesPrefixes() {
+        StackTrie trie = new StackTrie();
+        trie.add(new int[] { 0, 1, 2 }, 3, true);
+        trie.add(new int[] { 0, 1, 3 }, 3, false);
+        trie.add(new int[] { 0, 1, 2, 9 }, 2, true);
+
+        Assert.assertEquals(4, trie.size());
+        Assert.assertEquals(StackTrie.NO_PARENT, trie.getParent(0));
+        Assert.assertEquals(0, trie.getFrameId(0));
+        Assert.assertEquals(2, trie.getRunnableCount(0));
+        Assert.assertEquals(1, trie.getNonrunnableCount(0));
+
+        Assert.assertEquals(0, trie.getParent(1));
+        Assert.assertEquals(2, trie.getRunnableCount(1));
+        Assert.assertEquals(1, trie.getNonrunnableCount(1));
+
+        Assert.assertEquals(1, trie.getParent(2));
+        Assert.assertEquals(2, trie.getFrameId(2));
+        Assert.assertEquals(1, trie.getRunnableCount(2));
+        Assert.assertEquals(0, trie.getNonrunnableCount(2));
+
+        Assert.assertEquals(1, trie.getParent(3));
+        Assert.assertEquals(3, trie.getFrameId(3));
+        Assert.assertEquals(0, trie.getRunnableCount(3));
+        Assert.assertEquals(1, trie.getNonrunnableCount(3));
+    }
+
+    @Test
+    public void sameFrameUnderDifferentParents() {
+        StackTrie trie = new StackTrie();
+        trie.add(new int[] { 5, 5, 5 }, 3, true);
+        trie.add(new int[] { 5 }, 1, true);
+
+        Assert.assertEquals(3, trie.size());
+        Assert.assertEquals(2, trie.getRunnableCount(0));
+        Assert.assertEquals(1, trie.getRunnableCount(1));
+        Assert.assertEquals(1, trie.getRunnableCount(2));
+        Assert.assertEquals(1, trie.getParent(2));
+    }
+
+    @Test
+    public void countsMatchPaths() {
+        Random random = new Random(19);
+        StackTrie trie = new StackTrie();
+        Map<String, Integer> expected = new HashMap<>();
+        int[] frames = new int[30];
+        for (int i = 0; i < 5000; i++) {
+            int length = 1 + random.nextInt(frames.length);
+            StringBuilder path = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                frames[j] = random.nextInt(4);
+                path.append(frames[j]).append('/');
+                Integer count = expected.get(path.toString());
+                expected.put(path.toString(), count == null ? 1 : count + 1);
+            }
+            trie.add(frames, length, true);
+        }
+
+        Assert.assertEquals(expected.size(), trie.size());
+        String[] paths = new String[trie.size()];
+        for (int node = 0; node < trie.size(); node++) {
+            int parent = trie.getParent(node);
+            Assert.assertTrue(parent < node);
+            paths[node] = (parent == StackTrie.NO_PARENT ? "" : paths[parent]) + trie.getFrameId(node) + '/';
+            Assert.assertEquals(expected.get(paths[node]), (Integer) trie.getRunnableCount(node));
+            Assert.assertEquals(0, trie.getNonrunnableCount(node));
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.service.analytics;
+
+import com.newrelic.agent.service.analytics.DistributedSamplingPriorityQueueTest.SimplePriorityAware;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class StripedSamplingPriorityQueueTest {
+
+    @Test
+    public void keepsSameElementsAsSingleReservoir() {
+        StripedSamplingPriorityQueue<SimplePriorityAware> striped = new StripedSamplingPriorityQueue<>("app", "test", 50, 0, 10,
+                SimplePriorityAware.COMPARATOR, 8);
+        DistributedSamplingPriorityQueue<SimplePriorityAware> single = new DistributedSamplingPriorityQueue<>(50, 0, 10,
+                SimplePriorityAware.COMPARATOR);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            SimplePriorityAware element = new SimplePriorityAware(random.nextBoolean(), random.nextFloat() * 2);
+            striped.add(element);
+            single.add(element);
+        }
+
+        assertEquals(single.size(), striped.size());
+        assertTrue(striped.isFull());
+        assertEquals(single.getNumberOfTries(), striped.getNumberOfTries());
+        List<SimplePriorityAware> expected = single.asList();
+        assertEquals(expected, striped.asList());
+        assertEquals(expected.get(expected.size() - 1).getPriority(), striped.getMinPriority(), 0.0f);
+        assertEquals(expected.get(0), striped.peek());
+    }
+
+    @Test
+    public void stripesShareReservoirSize() {
+        for (int reservoirSize : new int[] { 1, 3, 5, 50 }) {
+            StripedSamplingPriorityQueue<SimplePriorityAware> striped = new StripedSamplingPriorityQueue<>("app", "test", reservoirSize, 0,
+                    10, SimplePriorityAware.COMPARATOR, 64);
+            for (int i = 0; i < 200; i++) {
+                striped.add(new SimplePriorityAware(false, i));
+            }
+            assertEquals(reservoirSize, striped.size());
+            assertEquals(reservoirSize, striped.asList().size());
+            assertEquals(200 - reservoirSize, striped.getMinPriority(), 0.0f);
+            assertEquals(199, striped.peek().getPriority(), 0.0f);
+        }
+    }
+
+    @Test
+    public void minPriorityIsZeroUntilFull() {
+        StripedSamplingPriorityQueue<SimplePriorityAware> striped = new StripedSamplingPriorityQueue<>("app", "test", 4, 0, 4,
+                SimplePriorityAware.COMPARATOR, 4);
+        for (int i = 1; i <= 3; i++) {
+            striped.add(new SimplePriorityAware(false, i));
+            assertEquals(0.0f, striped.getMinPriority(), 0.0f);
+        }
+        striped.add(new SimplePriorityAware(false, 4));
+        assertTrue(striped.isFull());
+        assertEquals(1.0f, striped.getMinPriority(), 0.0f);
+
+        assertFalse(striped.add(new SimplePriorityAware(false, 0.5f)));
+        assertTrue(striped.add(new SimplePriorityAware(false, 5)));
+        assertEquals(2.0f, striped.getMinPriority(), 0.0f);
+    }
+
+    @Test
+    public void pollReturnsElementsInPriorityOrder() {
+        StripedSamplingPriorityQueue<SimplePriorityAware> striped = new StripedSamplingPriorityQueue<>("app", "test", 5, 0, 5,
+                SimplePriorityAware.COMPARATOR, 4);
+        striped.add(new SimplePriorityAware(false, 0.3f));
+        striped.add(new SimplePriorityAware(false, 1.9f));
+        striped.add(new SimplePriorityAware(false, 0.8f));
+
+        assertEquals(1.9f, striped.poll().getPriority(), 0.0f);
+        assertEquals(0.8f, striped.poll().getPriority(), 0.0f);
+        assertEquals(0.3f, striped.poll().getPriority(), 0.0f);
+        assertNull(striped.poll());
+        assertEquals(0, striped.size());
+    }
+
+    @Test
+    public void decidedAndSampledCountsOnlyAddedDeciders() {
+        StripedSamplingPriorityQueue<SimplePriorityAware> striped = new StripedSamplingPriorityQueue<>("app", "test", 10, 0, 10,
+                SimplePriorityAware.COMPARATOR, 2);
+        striped.add(new SimplePriorityAware(true, 1.5f));
+        striped.add(new SimplePriorityAware(true, 0.5f));
+        striped.add(new SimplePriorityAware(false, 1.5f));
+
+        assertEquals(2, striped.getDecided());
+        assertEquals(1, striped.getSampled());
+        assertEquals(3, striped.getNumberOfTries());
+    }
+
+    @Test
+    public void zeroSizeReservoirDropsEverything() {
+        StripedSamplingPriorityQueue<SimplePriorityAware> striped = new StripedSamplingPriorityQueue<>("app", "test", 0, 0, 0, null);
+        assertFalse(striped.add(new SimplePriorityAware(true, 1.5f)));
+        assertEquals(0, striped.size());
+        assertEquals(1, striped.getNumberOfTries());
+        assertTrue(striped.asList().isEmpty());
+        assertNull(striped.peek());
+    }
+
+    @Test
+    public void retryAllMergesSource() {
+        StripedSamplingPriorityQueue<SimplePriorityAware> source = new StripedSamplingPriorityQueue<>("app", "test", 3, 0, 3,
+                SimplePriorityAware.COMPARATOR, 4);
+        source.add(new SimplePriorityAware(false, 1.0f));
+        source.add(new SimplePriorityAware(false, 2.0f));
+
+        StripedSamplingPriorityQueue<SimplePriorityAware> target = new StripedSamplingPriorityQueue<>("app", "test", 3, 0, 3,
+                SimplePriorityAware.COMPARATOR, 4);
+        target.add(new SimplePriorityAware(false, 0.5f));
+        target.add(new SimplePriorityAware(false, 1.5f));
+        target.retryAll(source);
+
+        List<SimplePriorityAware> merged = target.asList();
+        assertEquals(3, merged.size());
+        assertEquals(2.0f, merged.get(0).getPriority(), 0.0f);
+        assertEquals(1.5f, merged.get(1).getPriority(), 0.0f);
+        assertEquals(1.0f, merged.get(2).getPriority(), 0.0f);
+    }
+
+    @Test
+    public void concurrentAddsKeepHighestPriorities() throws Exception {
+        final int threads = 8;
+        final int perThread = 5000;
+        final StripedSamplingPriorityQueue<SimplePriorityAware> striped = new StripedSamplingPriorityQueue<>("app", "test", 100, 0, 10,
+                SimplePriorityAware.COMPARATOR, threads);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        striped.add(new SimplePriorityAware(false, i * threads + offset));
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(threads * perThread, striped.getNumberOfTries());
+        List<SimplePriorityAware> result = striped.asList();
+        assertEquals(100, result.size());
+        assertEquals(threads * perThread - 1, result.get(0).getPriority(), 0.0f);
+        // writers that find the preferred stripe locked may evict from another one, so the set is only close to exact
+        List<Float> actual = new ArrayList<>();
+        for (SimplePriorityAware element : result) {
+            actual.add(element.getPriority());
+        }
+        List<Float> sorted = new ArrayList<>(actual);
+        Collections.sort(sorted, Collections.<Float>reverseOrder());
+        assertEquals(sorted, actual);
+        assertEquals(result.get(result.size() - 1).getPriority(), striped.getMinPriority(), 0.0f);
+    }
+}
@@ -47,6 +47,7 @@ import org.mockito.Mockito;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -401,4 +402,71 @@ public class BoundedConcurrentCacheTest {
         value = cache.get(sqlString);
         Assert.assertEquals(tracer1, value.getTracer());
     }
+
+    @Test
+    public void testKeepsLargestValuesAcrossShards() {
+        BoundedConcurrentCache<String, LongValue> longCache = new BoundedConcurrentCache<>(MAX_SIZE);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < MAX_SIZE * 5; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, new Random(42));
+        for (int i : order) {
+            longCache.putIfAbsent("key" + i, new LongValue("key" + i, i));
+        }
+
+        Assert.assertEquals(MAX_SIZE, longCache.size());
+        List<LongValue> values = longCache.asList();
+        Assert.assertEquals(MAX_SIZE, values.size());
+        for (LongValue value : values) {
+            Assert.assertTrue(value.value >= MAX_SIZE * 4);
+        }
+    }
+
+    @Test
+    public void testPutReplaceUpdatesMinimum() {
+        BoundedConcurrentCache<String, LongValue> longCache = new BoundedConcurrentCache<>(2);
+        longCache.putIfAbsent("a", new LongValue("a", 1));
+        longCache.putIfAbsent("b", new LongValue("b", 2));
+        longCache.putReplace("a", new LongValue("a", 10));
+        longCache.putIfAbsent("c", new LongValue("c", 5));
+
+        Assert.assertEquals(2, longCache.size());
+        Assert.assertNull(longCache.get("b"));
+        Assert.assertEquals(10, longCache.get("a").value);
+        Assert.assertEquals(5, longCache.get("c").value);
+
+        // smaller than everything in a full cache, so it is not added
+        Assert.assertNull(longCache.putIfAbsent("d", new LongValue("d", 0)));
+        Assert.assertNull(longCache.get("d"));
+        Assert.assertEquals(2, longCache.size());
+    }
+
+    @Test
+    public void testZeroCapacity() {
+        BoundedConcurrentCache<String, LongValue> longCache = new BoundedConcurrentCache<>(0);
+        Assert.assertNull(longCache.putIfAbsent("a", new LongValue("a", 1)));
+        Assert.assertEquals(0, longCache.size());
+        Assert.assertTrue(longCache.asList().isEmpty());
+    }
+
+    private static class LongValue implements Comparable<LongValue>, CacheValue<String> {
+        private final String key;
+        private final long value;
+
+        LongValue(String key, long value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public int compareTo(LongValue other) {
+            return Long.compare(value, other.value);
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+    }
 }
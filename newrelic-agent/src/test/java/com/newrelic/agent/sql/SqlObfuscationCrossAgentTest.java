@@ -64,4 +64,17 @@ public class SqlObfuscationCrossAgentTest {
         );
     }
 
+    @Test
+    public void runTestWithLexer() {
+        String rawSql = input.getRawSql();
+        Set<String> expectedObfuscatedSql = input.getObfuscatedSql();
+
+        SqlObfuscator sqlObfuscator = SqlObfuscator.getLexingSqlObfuscator();
+        String actualObfuscatedSql = sqlObfuscator.obfuscateSql(rawSql, input.getDialect());
+        Assert.assertTrue(
+                "Expected: " + expectedObfuscatedSql + ", Actual: " + actualObfuscatedSql,
+                expectedObfuscatedSql.contains(actualObfuscatedSql)
+        );
+    }
+
 }
@@ -0,0 +1,203 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.stats;
+
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.MockRPMServiceManager;
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.ThreadService;
+import com.newrelic.agent.config.AgentConfigImpl;
+import com.newrelic.agent.config.ConfigService;
+import com.newrelic.agent.config.ConfigServiceFactory;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.ServiceManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class ShardedStatsServiceTest {
+
+    private static final int SUPPORTABILITY_METRIC_COUNT = 2;
+
+    private ServiceManager serviceManager;
+    private String appName;
+
+    @Before
+    public void beforeTest() throws Exception {
+        Map<String, Object> configMap = new HashMap<>();
+        configMap.put("host", "nope.example.invalid");
+        configMap.put("license_key", "deadbeefcafebabe8675309babecafe1beefdead");
+        configMap.put(AgentConfigImpl.APP_NAME, "MyApplication");
+        configMap.put(AgentConfigImpl.SHARDED_STATS_PROPERTY, true);
+
+        MockServiceManager serviceManager = new MockServiceManager();
+        ServiceFactory.setServiceManager(serviceManager);
+
+        ConfigService configService = ConfigServiceFactory.createConfigService(AgentConfigImpl.createAgentConfig(configMap),
+                configMap);
+        serviceManager.setConfigService(configService);
+        serviceManager.setThreadService(new ThreadService());
+        serviceManager.setRPMServiceManager(new MockRPMServiceManager());
+
+        StatsService statsService = new ShardedStatsServiceImpl(4);
+        statsService.start();
+        serviceManager.setStatsService(statsService);
+
+        this.serviceManager = serviceManager;
+        this.appName = configService.getDefaultAgentConfig().getApplicationName();
+    }
+
+    @After
+    public void afterTest() throws Exception {
+        serviceManager.stop();
+    }
+
+    @Test
+    public void doStatsWork() {
+        StatsService statsService = serviceManager.getStatsService();
+        statsService.doStatsWork(new RecordMetric("Test1", 100f));
+        statsService.doStatsWork(new RecordMetric("Test1", 200f));
+        statsService.doStatsWork(new RecordMetric("Test1", 300f));
+
+        StatsEngine harvestStatsEngine = statsService.getStatsEngineForHarvest(appName);
+        Assert.assertEquals(1 + SUPPORTABILITY_METRIC_COUNT, harvestStatsEngine.getSize());
+        Assert.assertEquals(600f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
+        Assert.assertEquals(1, harvestStatsEngine.getResponseTimeStats(MetricNames.SUPPORTABILITY_STATS_SERVICE_MERGE_TIME).getCallCount());
+        Assert.assertEquals(4f, harvestStatsEngine.getStats(MetricNames.SUPPORTABILITY_STATS_SERVICE_MERGED_ENGINES).getTotal(), 0);
+    }
+
+    @Test
+    public void doStatsWorkAfterHarvest() {
+        StatsService statsService = serviceManager.getStatsService();
+        statsService.doStatsWork(new RecordMetric("Test1", 100f));
+        StatsEngine harvestStatsEngine = statsService.getStatsEngineForHarvest(appName);
+        Assert.assertEquals(100f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
+
+        statsService.doStatsWork(new RecordMetric("Test1", 200f));
+        harvestStatsEngine = statsService.getStatsEngineForHarvest(appName);
+        Assert.assertEquals(200f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
+    }
+
+    @Test
+    public void doStatsWorkMultiApp() {
+        StatsService statsService = serviceManager.getStatsService();
+        String appName2 = appName + "2";
+        statsService.doStatsWork(new RecordMetric("Test1", 100f));
+        statsService.doStatsWork(new AppStatsWork(appName2, "Test1", 100f));
+        statsService.doStatsWork(new RecordMetric("Test1", 200f));
+        statsService.doStatsWork(new AppStatsWork(appName2, "Test1", 200f));
+
+        Assert.assertEquals(300f, statsService.getStatsEngineForHarvest(appName).getStats("Test1").getTotal(), 0);
+        Assert.assertEquals(300f, statsService.getStatsEngineForHarvest(appName2).getStats("Test1").getTotal(), 0);
+    }
+
+    @Test
+    public void workInProgressDuringHarvestIsReportedNextHarvest() throws Exception {
+        final StatsService statsService = serviceManager.getStatsService();
+        final CountDownLatch working = new CountDownLatch(1);
+        final CountDownLatch harvested = new CountDownLatch(1);
+        final StatsWork blockingWork = new AppStatsWork(appName, "Test1", 100f) {
+            @Override
+            public void doWork(StatsEngine statsEngine) {
+                working.countDown();
+                try {
+                    harvested.await();
+                } catch (InterruptedException e) {
+                }
+                super.doWork(statsEngine);
+            }
+        };
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                statsService.doStatsWork(blockingWork);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        working.await();
+
+        statsService.doStatsWork(new RecordMetric("Test1", 200f));
+        StatsEngine harvestStatsEngine = statsService.getStatsEngineForHarvest(appName);
+        Assert.assertEquals(200f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
+
+        harvested.countDown();
+        thread.join();
+
+        harvestStatsEngine = statsService.getStatsEngineForHarvest(appName);
+        Assert.assertEquals(100f, harvestStatsEngine.getStats("Test1").getTotal(), 0);
+        Assert.assertEquals(1, harvestStatsEngine.getStats(MetricNames.SUPPORTABILITY_STATS_SERVICE_PARKED_ENGINES).getCallCount());
+    }
+
+    @Test
+    public void concurrentStatsWorkIsNotLost() throws Exception {
+        final StatsService statsService = serviceManager.getStatsService();
+        final int threads = 16;
+        final int perThread = 10000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        statsService.doStatsWork(new RecordMetric("Test1", 1f));
+                    }
+                }
+            });
+        }
+        start.countDown();
+
+        float total = 0;
+        while (!executor.isTerminated()) {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.MILLISECONDS);
+            total += statsService.getStatsEngineForHarvest(appName).getStats("Test1").getTotal();
+        }
+        total += statsService.getStatsEngineForHarvest(appName).getStats("Test1").getTotal();
+
+        Assert.assertEquals(threads * perThread, total, 0);
+    }
+
+    private static class AppStatsWork implements StatsWork {
+
+        private final String appName;
+        private final String name;
+        private final float value;
+
+        private AppStatsWork(String appName, String name, float value) {
+            this.appName = appName;
+            this.name = name;
+            this.value = value;
+        }
+
+        @Override
+        public void doWork(StatsEngine statsEngine) {
+            statsEngine.getStats(name).recordDataPoint(value);
+        }
+
+        @Override
+        public String getAppName() {
+            return appName;
+        }
+    }
+}
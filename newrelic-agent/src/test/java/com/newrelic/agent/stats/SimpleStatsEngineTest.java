@@ -0,0 +1,56 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.stats;
+
+import com.newrelic.agent.metric.MetricNameTable;
+import com.newrelic.agent.tracers.ClassMethodSignature;
+import com.newrelic.agent.tracers.metricname.ClassMethodMetricNameFormat;
+import com.newrelic.agent.tracers.metricname.SimpleMetricNameFormat;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimpleStatsEngineTest {
+
+    @Test
+    public void recordByIdSharesStatsWithName() {
+        SimpleStatsEngine engine = new SimpleStatsEngine();
+        int id = MetricNameTable.getInstance().getId("Test/ById");
+
+        engine.getOrCreateResponseTimeStats("Test/ById", id).recordResponseTimeInNanos(10, 10);
+        engine.getOrCreateResponseTimeStats("Test/ById").recordResponseTimeInNanos(20, 20);
+        engine.getStats("Test/Count", MetricNameTable.getInstance().getId("Test/Count")).incrementCallCount();
+        engine.getApdexStats("Test/Apdex", MetricNameTable.getInstance().getId("Test/Apdex")).recordApdexFrustrated();
+
+        Assert.assertEquals(3, engine.getSize());
+        Assert.assertEquals(2, engine.getOrCreateResponseTimeStats("Test/ById", id).getCallCount());
+        Assert.assertEquals(1, engine.getStats("Test/Count").getCallCount());
+        Assert.assertEquals(1, engine.getApdexStats("Test/Apdex").getApdexFrustrating());
+    }
+
+    @Test
+    public void recordWithoutIdFallsBackToName() {
+        SimpleStatsEngine engine = new SimpleStatsEngine();
+        engine.getStats("Test/NoId", MetricNameTable.NO_ID).incrementCallCount();
+        engine.getStats("Test/NoId", MetricNameTable.NO_ID).incrementCallCount();
+
+        Assert.assertEquals(1, engine.getSize());
+        Assert.assertEquals(2, engine.getStats("Test/NoId", MetricNameTable.NO_ID).getCallCount());
+    }
+
+    @Test
+    public void metricNameFormatsRememberTheirId() {
+        SimpleMetricNameFormat simple = new SimpleMetricNameFormat("Test/Simple");
+        Assert.assertEquals(MetricNameTable.getInstance().getId("Test/Simple"), simple.getMetricNameId());
+        Assert.assertEquals(simple.getMetricNameId(), simple.getMetricNameId());
+        Assert.assertEquals(MetricNameTable.NO_ID, new SimpleMetricNameFormat(null).getMetricNameId());
+
+        ClassMethodSignature sig = new ClassMethodSignature("com.example.Foo", "bar", "()V");
+        ClassMethodMetricNameFormat classMethod = new ClassMethodMetricNameFormat(sig, "com.example.Foo");
+        Assert.assertEquals(MetricNameTable.getInstance().getId("Java/com.example.Foo/bar"), classMethod.getMetricNameId());
+    }
+}
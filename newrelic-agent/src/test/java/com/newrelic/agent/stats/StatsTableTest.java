@@ -0,0 +1,76 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.stats;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class StatsTableTest {
+
+    @Test
+    public void putGetRemove() {
+        StatsTable table = new StatsTable(4);
+        StatsImpl first = new StatsImpl();
+        StatsImpl second = new StatsImpl();
+        Assert.assertNull(table.put(1, first));
+        Assert.assertNull(table.put(9, second));
+        Assert.assertSame(first, table.get(1));
+        Assert.assertSame(second, table.get(9));
+        Assert.assertNull(table.get(2));
+        Assert.assertEquals(2, table.size());
+
+        Assert.assertSame(first, table.remove(1));
+        Assert.assertNull(table.get(1));
+        Assert.assertSame(second, table.get(9));
+        Assert.assertEquals(1, table.size());
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomOperations() {
+        StatsTable table = new StatsTable(1);
+        Map<Integer, StatsBase> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 100000; i++) {
+            int id = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                Assert.assertSame(expected.remove(id), table.remove(id));
+            } else {
+                StatsImpl stats = new StatsImpl();
+                Assert.assertSame(expected.put(id, stats), table.put(id, stats));
+            }
+        }
+        Assert.assertEquals(expected.size(), table.size());
+        for (int id = 0; id < 2000; id++) {
+            Assert.assertSame(expected.get(id), table.get(id));
+        }
+
+        int slotsInUse = 0;
+        for (int slot = 0; slot < table.capacity(); slot++) {
+            if (table.idAt(slot) != StatsTable.EMPTY) {
+                Assert.assertSame(expected.get(table.idAt(slot)), table.valueAt(slot));
+                slotsInUse++;
+            }
+        }
+        Assert.assertEquals(expected.size(), slotsInUse);
+    }
+
+    @Test
+    public void clear() {
+        StatsTable table = new StatsTable(4);
+        for (int id = 0; id < 100; id++) {
+            table.put(id, new StatsImpl());
+        }
+        table.clear();
+        Assert.assertEquals(0, table.size());
+        Assert.assertNull(table.get(5));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.threads;
+
+import com.newrelic.agent.MetricNames;
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.stats.StatsEngine;
+import com.newrelic.agent.stats.StatsServiceImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AdaptiveThreadStateSamplerTest {
+
+    private static final int THREAD_COUNT = 250;
+
+    private ThreadMXBean threadMXBean;
+    private long cpuTime;
+
+    @Before
+    public void before() {
+        MockServiceManager serviceManager = new MockServiceManager();
+        ServiceFactory.setServiceManager(serviceManager);
+        serviceManager.setStatsService(new StatsServiceImpl());
+
+        long[] threadIds = new long[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            // out of order, like the ids from the JVM
+            threadIds[i] = THREAD_COUNT - i;
+        }
+        threadMXBean = mock(ThreadMXBean.class);
+        when(threadMXBean.getAllThreadIds()).thenReturn(threadIds);
+        when(threadMXBean.isThreadCpuTimeSupported()).thenReturn(true);
+        when(threadMXBean.isThreadCpuTimeEnabled()).thenReturn(true);
+        when(threadMXBean.isCurrentThreadCpuTimeSupported()).thenReturn(true);
+        when(threadMXBean.getThreadCpuTime(anyLong())).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable {
+                return cpuTime;
+            }
+        });
+        when(threadMXBean.getThreadUserTime(anyLong())).thenReturn(0L);
+        when(threadMXBean.getCurrentThreadCpuTime()).thenReturn(0L);
+        when(threadMXBean.getThreadInfo(any(long[].class), eq(0))).thenAnswer(new Answer<ThreadInfo[]>() {
+            @Override
+            public ThreadInfo[] answer(InvocationOnMock invocation) throws Throwable {
+                long[] ids = (long[]) invocation.getArguments()[0];
+                ThreadInfo[] threadInfos = new ThreadInfo[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    threadInfos[i] = mockThreadInfo(ids[i]);
+                }
+                return threadInfos;
+            }
+        });
+    }
+
+    @Test
+    public void rotatesThroughThreads() {
+        AdaptiveThreadStateSampler sampler = new AdaptiveThreadStateSampler(threadMXBean,
+                ThreadNameNormalizerTest.getThreadNameNormalizer(), 1, TimeUnit.NANOSECONDS);
+        sampler.run();
+        sampler.run();
+        sampler.run();
+
+        ArgumentCaptor<long[]> ids = ArgumentCaptor.forClass(long[].class);
+        verify(threadMXBean, times(3)).getThreadInfo(ids.capture(), eq(0));
+        assertArrayEquals(range(1, 100), ids.getAllValues().get(0));
+        assertArrayEquals(range(101, 200), ids.getAllValues().get(1));
+        long[] third = ids.getAllValues().get(2);
+        assertEquals(AdaptiveThreadStateSampler.MIN_THREADS_PER_SAMPLE, third.length);
+        assertEquals(201, third[0]);
+        assertEquals(250, third[49]);
+        assertEquals(1, third[50]);
+    }
+
+    @Test
+    public void extrapolatesStateCounts() {
+        AdaptiveThreadStateSampler sampler = new AdaptiveThreadStateSampler(threadMXBean,
+                ThreadNameNormalizerTest.getThreadNameNormalizer(), 1, TimeUnit.NANOSECONDS);
+        sampler.run();
+
+        StatsEngine engine = ServiceFactory.getStatsService().getStatsEngineForHarvest(null);
+        assertEquals(THREAD_COUNT, engine.getStats("Threads/SummaryState/RUNNABLE/Count").getCallCount());
+        assertEquals(THREAD_COUNT, engine.getStats("Threads/State/pool#thread#/RUNNABLE/Count").getCallCount());
+        assertEquals(AdaptiveThreadStateSampler.MIN_THREADS_PER_SAMPLE, (int) engine.getStats(
+                MetricNames.SUPPORTABILITY_THREAD_SAMPLER_SAMPLED_THREADS).getTotal());
+        assertEquals(1, engine.getResponseTimeStats(MetricNames.SUPPORTABILITY_THREAD_SAMPLER_SAMPLE_TIME).getCallCount());
+    }
+
+    @Test
+    public void reportsCpuTimeSinceLastSample() {
+        AdaptiveThreadStateSampler sampler = new AdaptiveThreadStateSampler(threadMXBean,
+                ThreadNameNormalizerTest.getThreadNameNormalizer(), 1, TimeUnit.NANOSECONDS);
+        // three runs sample every thread once, then three more sample them again
+        for (int i = 0; i < 3; i++) {
+            sampler.run();
+        }
+        ServiceFactory.getStatsService().getStatsEngineForHarvest(null);
+        cpuTime = TimeUnit.MILLISECONDS.toNanos(1);
+        for (int i = 0; i < 3; i++) {
+            sampler.run();
+        }
+
+        StatsEngine engine = ServiceFactory.getStatsService().getStatsEngineForHarvest(null);
+        // 300 samples of 250 threads: the first 50 threads were sampled twice
+        assertEquals(300, engine.getResponseTimeStats("Threads/TotalTime/pool#thread#/CpuTime").getCallCount());
+        assertEquals(0.25f, engine.getResponseTimeStats("Threads/TotalTime/pool#thread#/CpuTime").getTotal(), 0.0001f);
+    }
+
+    @Test
+    public void sizesSamplesToBudget() {
+        when(threadMXBean.getCurrentThreadCpuTime()).thenAnswer(new Answer<Long>() {
+            private long time;
+
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable {
+                // every run costs 100 ms, or 1 ms per thread
+                time += TimeUnit.MILLISECONDS.toNanos(100);
+                return time;
+            }
+        });
+        AdaptiveThreadStateSampler sampler = new AdaptiveThreadStateSampler(threadMXBean,
+                ThreadNameNormalizerTest.getThreadNameNormalizer(), 200, TimeUnit.MILLISECONDS);
+        sampler.run();
+        assertEquals(200, sampler.getThreadsPerSample());
+    }
+
+    private ThreadInfo mockThreadInfo(long threadId) {
+        ThreadInfo threadInfo = mock(ThreadInfo.class);
+        when(threadInfo.getThreadId()).thenReturn(threadId);
+        when(threadInfo.getThreadName()).thenReturn("pool-1-thread-" + threadId);
+        when(threadInfo.getThreadState()).thenReturn(Thread.State.RUNNABLE);
+        when(threadInfo.getBlockedCount()).thenReturn(-1L);
+        when(threadInfo.getWaitedCount()).thenReturn(-1L);
+        return threadInfo;
+    }
+
+    private static long[] range(long first, long last) {
+        long[] range = new long[(int) (last - first + 1)];
+        for (int i = 0; i < range.length; i++) {
+            range[i] = first + i;
+        }
+        return range;
+    }
+
+}
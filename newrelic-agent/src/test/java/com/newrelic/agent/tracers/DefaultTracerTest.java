@@ -74,6 +74,7 @@ import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -146,6 +147,30 @@ public class DefaultTracerTest {
         assertEquals(70, DefaultTracer.sizeof(stack));
     }
 
+    @Test
+    public void guidIsStable() {
+        DefaultTracer tracer = prepareTracer();
+        String guid = tracer.getGuid();
+        Assert.assertNotNull(guid);
+        assertEquals(16, guid.length());
+        assertEquals(guid, tracer.getGuid());
+    }
+
+    @Test
+    public void activityKeepsTracersInOrder() {
+        DefaultTracer root = prepareTracer();
+        TransactionActivity txa = root.getTransactionActivity();
+        ClassMethodSignature sig = new ClassMethodSignature("class", "child", "()V");
+        List<Tracer> added = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            DefaultTracer child = new DefaultTracer(txa, sig, this, DefaultTracer.NULL_METRIC_NAME_FORMATTER,
+                    DefaultTracer.DEFAULT_TRACER_FLAGS);
+            txa.addTracer(child);
+            added.add(child);
+        }
+        assertEquals(added, txa.getTracers());
+    }
+
     @Test
     public void exclusiveTime() throws Exception {
         Transaction tx = Transaction.getTransaction();
@@ -233,4 +233,64 @@ public class DistributedTracePayloadParserTest extends BaseDistributedTraceTest
         DistributedTracePayloadImpl payload = parser.parse(null, payloadString);
         assertNull(payload);
     }
+
+    @Test
+    public void testPayloadWithMissingColon() {
+        createDistributedTraceService("12345", "67890", "67890", 0, 2);
+
+        String payloadString =
+                "{" +
+                        "  \"v\" [0,1]," +
+                        "  \"d\": {" +
+                        "    \"ty\": \"App\"," +
+                        "    \"ac\": \"12345\"," +
+                        "    \"ap\": \"51424\"," +
+                        "    \"id\": \"27856f70d3d314b7\"," +
+                        "    \"tr\": \"3221bf09aa0bcf0d\"," +
+                        "    \"pr\": 0.0," +
+                        "    \"ti\": 1482959525577" +
+                        "  }" +
+                        "}";
+
+        DistributedTracePayloadParser parser = new DistributedTracePayloadParser(
+            NewRelic.getAgent().getMetricAggregator(), ServiceFactory.getDistributedTraceService(), noOpLogger);
+        assertNull(parser.parse(null, payloadString));
+        assertNull(parser.parse(null, payloadString.replace("\"v\" [", "\"v\":: [")));
+    }
+
+    @Test
+    public void testDeeplyNestedPayload() {
+        createDistributedTraceService("12345", "67890", "67890", 0, 2);
+
+        StringBuilder open = new StringBuilder();
+        StringBuilder close = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            open.append("{\"x\":[");
+            close.append("]}");
+        }
+
+        String payloadString =
+                "{" +
+                        "  \"v\": [0,1]," +
+                        "  \"d\": {" +
+                        "    \"ty\": \"App\"," +
+                        "    \"ac\": \"12345\"," +
+                        "    \"ap\": \"51424\"," +
+                        "    \"id\": \"27856f70d3d314b7\"," +
+                        "    \"tr\": \"3221bf09aa0bcf0d\"," +
+                        "    \"pr\": 0.0," +
+                        "    \"ti\": 1482959525577," +
+                        "    \"nested\": " + open + "0" + close +
+                        "  }" +
+                        "}";
+
+        DistributedTracePayloadParser parser = new DistributedTracePayloadParser(
+            NewRelic.getAgent().getMetricAggregator(), ServiceFactory.getDistributedTraceService(), noOpLogger);
+        DistributedTracePayloadImpl payload = parser.parse(null, payloadString);
+        assertNotNull(payload);
+        assertEquals("3221bf09aa0bcf0d", payload.traceId);
+
+        // an unterminated value is rejected rather than overflowing the stack
+        assertNull(parser.parse(null, "{\"v\": [0,1], \"d\": " + open));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,353 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.tracing;
+
+import com.google.common.base.Charsets;
+import com.newrelic.agent.attributes.CrossAgentInput;
+import com.newrelic.api.agent.MetricAggregator;
+import org.apache.commons.codec.binary.Base64;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs the in-place traceparent, tracestate and newrelic payload parsers against the split, regex and json-simple
+ * based parsers they replaced. The inputs are the inbound headers from the cross agent tests plus random mutations of
+ * them.
+ */
+public class TraceContextParsingFuzzTest extends BaseDistributedTraceTest {
+
+    private static final int MUTATIONS_PER_INPUT = 300;
+    private static final String MUTATION_CHARACTERS = "-0123456789abcdefABCDEFnrtux@=,;.: {}[]\"\\/+_*~\t";
+
+    @Before
+    public void createService() {
+        createDistributedTraceService("33", "33", "2827902", 0, 1);
+    }
+
+    @Test
+    public void traceParentMatchesLegacyParser() throws Exception {
+        List<String> inputs = crossAgentHeaders("traceparent");
+        inputs.add("00-12345678123456781234567812345678-1234123412341234-01");
+        inputs.add("cc-12345678123456781234567812345678-1234123412341234-01-what-the-future-will-be-like");
+        inputs.add("FF-12345678123456781234567812345678-1234123412341234-01");
+        inputs.add("00-00000000000000000000000000000000-1234123412341234-01--");
+
+        Random random = new Random(7);
+        for (String input : mutate(inputs, random)) {
+            assertEquals(input, legacyParseTraceParent(input), W3CTraceParentParser.parseHeader(input));
+        }
+    }
+
+    @Test
+    public void traceStateMatchesLegacyParser() throws Exception {
+        List<String> inputs = crossAgentHeaders("tracestate");
+        inputs.add("33@nr=0-0-709288-8599547-f85f42fd82a4cf1d-164d3b4b0d09cb05-1-0.789-1563574856827,dd=YzRiMTIxODk1NmVmZTE4ZQ");
+        inputs.add("foo=1, bar@baz=2 ,33@nr=0-2-1-2-3-4-0--1563574856827-extra@nr=");
+        inputs.add("33@nr=-0-1-2----1,a=b,a=c");
+
+        Random random = new Random(11);
+        for (String input : mutate(inputs, random)) {
+            List<String> headers = Arrays.asList(input.split("\n"));
+            Object expected;
+            try {
+                expected = legacyParseTraceState(headers);
+            } catch (ArrayIndexOutOfBoundsException e) {
+                // the legacy parser failed on entries made only of "=", the new one drops the other vendors' states
+                continue;
+            } catch (RuntimeException e) {
+                expected = e.getClass();
+            }
+            Object actual;
+            try {
+                actual = W3CTraceStateSupport.parseHeaders(headers);
+            } catch (RuntimeException e) {
+                actual = e.getClass();
+            }
+            assertEquals(input, expected, actual);
+        }
+    }
+
+    @Test
+    public void payloadMatchesLegacyParser() throws Exception {
+        List<String> inputs = new ArrayList<>();
+        for (Object test : CrossAgentInput.readJsonAndGetTests(
+                "com/newrelic/agent/cross_agent_tests/distributed_tracing/distributed_tracing.json")) {
+            JSONArray payloads = (JSONArray) ((JSONObject) test).get("inbound_payloads");
+            if (payloads != null) {
+                for (Object payload : payloads) {
+                    inputs.add(payload instanceof String ? (String) payload : JSONObject.toJSONString((Map) payload));
+                }
+            }
+        }
+        inputs.add("{\"v\":[0,1],\"d\":{\"ty\":\"App\",\"ac\":\"33\",\"ap\":\"2827902\",\"id\":\"7d3efb1b173fecfa\","
+                + "\"tx\":\"e8b91a159289ff74\",\"pr\":1.234567,\"sa\":true,\"ti\":1518469636035,\"tr\":\"d6b4ba0c3a712ca\"}}");
+        inputs.add("{\"v\" [0 1] \"d\" {\"ty\" \"Mobile\" \"ac\" \"33\" \"tk\" \"33\" \"ap\" \"1\" \"tx\" \"\\u0061b\\n\","
+                + "\"pr\":1e0,\"sa\":\"0\",\"ti\":1,\"tr\":\"t\",\"extra\":[{\"ac\":1},[],null,-2.5E-3]},}");
+
+        DistributedTracePayloadParser parser = new DistributedTracePayloadParser(Mockito.mock(MetricAggregator.class),
+                distributedTraceService(), noOpLogger);
+        Random random = new Random(13);
+        List<String> mutated = mutate(inputs, random);
+        for (String input : mutated) {
+            assertEquals(input, describe(legacyParsePayload(input)), describe(parser.parse(null, input)));
+
+            String encoded = Base64.encodeBase64String(input.getBytes(Charsets.UTF_8));
+            assertEquals(input, describe(legacyParsePayload(encoded)), describe(parser.parse(null, encoded)));
+        }
+    }
+
+    @Test
+    public void base64MatchesCommonsCodec() {
+        Random random = new Random(17);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/-_= \n\u00e9";
+        for (int run = 0; run < 5000; run++) {
+            StringBuilder encoded = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int i = 0; i < length; i++) {
+                encoded.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String input = encoded.toString();
+            assertEquals(input, new String(new Base64().decode(input), Charsets.UTF_8), DistributedTracePayloadReader.decodeBase64(input));
+        }
+    }
+
+    private DistributedTraceService distributedTraceService() {
+        return serviceManager.getDistributedTraceService();
+    }
+
+    private static List<String> crossAgentHeaders(String name) throws Exception {
+        List<String> headers = new ArrayList<>();
+        for (Object test : CrossAgentInput.readJsonAndGetTests(
+                "com/newrelic/agent/cross_agent_tests/distributed_tracing/trace_context.json")) {
+            JSONArray inbound = (JSONArray) ((JSONObject) test).get("inbound_headers");
+            if (inbound == null) {
+                continue;
+            }
+            for (Object header : inbound) {
+                Object value = ((JSONObject) header).get(name);
+                if (value instanceof String) {
+                    headers.add((String) value);
+                }
+            }
+        }
+        return headers;
+    }
+
+    private static List<String> mutate(List<String> inputs, Random random) {
+        List<String> mutated = new ArrayList<>(inputs);
+        for (String input : inputs) {
+            for (int i = 0; i < MUTATIONS_PER_INPUT; i++) {
+                StringBuilder value = new StringBuilder(input);
+                int edits = 1 + random.nextInt(3);
+                for (int edit = 0; edit < edits; edit++) {
+                    int position = value.length() == 0 ? 0 : random.nextInt(value.length());
+                    char c = MUTATION_CHARACTERS.charAt(random.nextInt(MUTATION_CHARACTERS.length()));
+                    switch (random.nextInt(4)) {
+                        case 0:
+                            value.insert(position, c);
+                            break;
+                        case 1:
+                            if (value.length() > 0) {
+                                value.deleteCharAt(position);
+                            }
+                            break;
+                        case 2:
+                            if (value.length() > 0) {
+                                value.setCharAt(position, c);
+                            }
+                            break;
+                        default:
+                            value.setLength(position);
+                    }
+                }
+                mutated.add(value.toString());
+            }
+        }
+        return mutated;
+    }
+
+    private static String describe(DistributedTracePayloadImpl payload) {
+        if (payload == null) {
+            return "null";
+        }
+        return Arrays.asList(payload.timestamp, payload.parentType, payload.accountId, payload.trustKey,
+                payload.applicationId, payload.guid, payload.traceId, payload.txnId, payload.priority,
+                payload.sampled).toString();
+    }
+
+    /**
+     * The traceparent parser before it scanned in place.
+     */
+    private static W3CTraceParent legacyParseTraceParent(String traceParentHeader) {
+        String[] traceParentFields = traceParentHeader.split(W3CTraceParentHeader.W3C_TRACE_PARENT_DELIMITER);
+        if (traceParentFields.length < 4) {
+            return null;
+        }
+        String version = traceParentFields[0];
+        String traceId = traceParentFields[1];
+        String parentId = traceParentFields[2];
+        String unparsedFlags = traceParentFields[3];
+        boolean valid = W3CTraceParentValidator.forHeader(traceParentHeader)
+                .version(version)
+                .traceId(traceId)
+                .parentId(parentId)
+                .flags(unparsedFlags)
+                .isValid();
+        if (!valid) {
+            return null;
+        }
+        return new W3CTraceParent(version, traceId, parentId, Integer.parseInt(unparsedFlags, 16));
+    }
+
+    private static final Pattern LEGACY_VENDOR_STATE_PATTERN = Pattern.compile("^([a-z][_0-9a-z\\-*/]{0,255}|"
+            + W3CTraceStateHeader.MULTI_TENANT_VENDOR_STATE_KEY + ")="
+            + "[\\x20-\\x2b\\x2d-\\x3c\\x3e-\\x7e]{0,255}[\\x21-\\x2b\\x2d-\\x3c\\x3e-\\x7e]$");
+
+    /**
+     * The tracestate parser before it scanned in place.
+     */
+    private W3CTraceState legacyParseTraceState(List<String> traceStateHeaders) {
+        String agentTrustKey = distributedTraceService().getTrustKey();
+        List<String> vendorStates = new LinkedList<>();
+        String nrState = null;
+        for (String header : traceStateHeaders) {
+            for (String vendor : header.split(",")) {
+                String trimmedVendor = vendor.trim();
+                if (trimmedVendor.isEmpty()) {
+                    continue;
+                }
+                if (trimmedVendor.contains(W3CTraceStateHeader.NR_VENDOR) && trimmedVendor.startsWith(agentTrustKey + W3CTraceStateHeader.NR_VENDOR)) {
+                    nrState = trimmedVendor;
+                    continue;
+                }
+                vendorStates.add(trimmedVendor);
+            }
+        }
+        List<String> vendorKeys = new ArrayList<>();
+        boolean invalid = false;
+        for (String vendorState : vendorStates) {
+            vendorKeys.add(vendorState.split("=")[0]);
+            invalid |= !LEGACY_VENDOR_STATE_PATTERN.matcher(vendorState).matches();
+        }
+        if (invalid || new java.util.HashSet<>(vendorKeys).size() != vendorKeys.size()) {
+            vendorStates = Collections.emptyList();
+        }
+
+        W3CTraceState traceState = new W3CTraceState(traceStateHeaders, vendorStates);
+        if (nrState == null) {
+            return traceState;
+        }
+        String[] trustKeyAndFields = nrState.split(W3CTraceStateHeader.NR_VENDOR);
+        if (trustKeyAndFields.length != 2 || !agentTrustKey.equals(trustKeyAndFields[0])) {
+            return traceState;
+        }
+        String[] traceFields = trustKeyAndFields[1].split(W3CTraceStateHeader.NR_TRACE_STATE_DELIMITER, 10);
+        if (traceFields.length < 9 || traceFields[0].isEmpty()) {
+            return traceState;
+        }
+        int version = Integer.parseInt(traceFields[0]);
+        if (version < 0 || traceFields[1].isEmpty()) {
+            return traceState;
+        }
+        ParentType parentType = ParentType.getParentTypeFromValue(Integer.parseInt(traceFields[1]));
+        if (parentType == null || parentType.value < ParentType.App.value || parentType.value > ParentType.Mobile.value
+                || traceFields[2].isEmpty() || traceFields[3].isEmpty()) {
+            return traceState;
+        }
+        Sampled sampled = Sampled.parse(traceFields[6]);
+        Float priority;
+        try {
+            priority = !traceFields[7].isEmpty() ? Float.parseFloat(traceFields[7]) : null;
+        } catch (NumberFormatException ignored) {
+            priority = null;
+        }
+        if (traceFields[8].isEmpty()) {
+            return traceState;
+        }
+        long timestamp;
+        try {
+            timestamp = Long.parseLong(traceFields[8]);
+        } catch (NumberFormatException ignored) {
+            return traceState;
+        }
+        return new W3CTraceState(traceStateHeaders, vendorStates, true, version, trustKeyAndFields[0], parentType,
+                traceFields[2], traceFields[3], traceFields[4], !traceFields[5].isEmpty() ? traceFields[5] : null,
+                sampled, priority, timestamp);
+    }
+
+    /**
+     * The newrelic payload parser before it read the JSON in one pass, without the logging and metrics.
+     */
+    private DistributedTracePayloadImpl legacyParsePayload(String payload) {
+        if (!payload.trim().isEmpty()) {
+            payload = payload.trim();
+            if (payload.charAt(0) != '{') {
+                payload = new String(new Base64().decode(payload), Charsets.UTF_8);
+            }
+        }
+        try {
+            JSONObject object = (JSONObject) new JSONParser().parse(payload);
+            JSONArray version = (JSONArray) object.get(DistributedTraceUtil.VERSION);
+            final Long majorVersion = (Long) version.get(0);
+            if (majorVersion > distributedTraceService().getMajorSupportedCatVersion()) {
+                return null;
+            }
+            JSONObject data = (JSONObject) object.get(DistributedTraceUtil.DATA);
+            String payloadAccountId = (String) data.get(DistributedTraceUtil.ACCOUNT_ID);
+            String payloadTrustKey = (String) data.get(DistributedTraceUtil.TRUSTED_ACCOUNT_KEY);
+            String trustKey = distributedTraceService().getTrustKey();
+            if (trustKey == null || payloadAccountId == null) {
+                return null;
+            }
+            String applicationId = (String) data.get(DistributedTraceUtil.APPLICATION_ID);
+            if (applicationId == null || !trustKey.equals(payloadTrustKey == null ? payloadAccountId : payloadTrustKey)) {
+                return null;
+            }
+            long timestamp = (Long) data.get(DistributedTraceUtil.TIMESTAMP);
+            if (timestamp <= 0) {
+                return null;
+            }
+            String parentType = (String) data.get(DistributedTraceUtil.PARENT_TYPE);
+            if (parentType == null) {
+                return null;
+            }
+            String traceId = (String) data.get(DistributedTraceUtil.TRACE_ID);
+            if (traceId == null) {
+                return null;
+            }
+            String guid = (String) data.get(DistributedTraceUtil.GUID);
+            String txnId = (String) data.get(DistributedTraceUtil.TX);
+            if (guid == null && txnId == null) {
+                return null;
+            }
+            Number priorityNumber = (Number) data.get(DistributedTraceUtil.PRIORITY);
+            Float priority = priorityNumber != null ? priorityNumber.floatValue() : null;
+            Sampled sampled = Sampled.parse(data.get(DistributedTraceUtil.SAMPLED));
+            return new DistributedTracePayloadImpl(timestamp, parentType, payloadAccountId, payloadTrustKey,
+                    applicationId, guid, traceId, txnId, priority, sampled);
+        } catch (Throwable t) {
+            // the json-simple lexer throws an Error for some malformed escapes
+            return null;
+        }
+    }
+}
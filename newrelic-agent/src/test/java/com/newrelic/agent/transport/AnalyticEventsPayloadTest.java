@@ -0,0 +1,269 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import com.newrelic.agent.MockServiceManager;
+import com.newrelic.agent.attributes.AttributesService;
+import com.newrelic.agent.config.AgentConfigImpl;
+import com.newrelic.agent.config.ConfigService;
+import com.newrelic.agent.config.ConfigServiceFactory;
+import com.newrelic.agent.model.ApdexPerfZone;
+import com.newrelic.agent.model.AttributeFilter;
+import com.newrelic.agent.model.CountedDuration;
+import com.newrelic.agent.model.CustomInsightsEvent;
+import com.newrelic.agent.model.ErrorEvent;
+import com.newrelic.agent.model.PathHashes;
+import com.newrelic.agent.model.SpanAgentAttribute;
+import com.newrelic.agent.model.SpanEvent;
+import com.newrelic.agent.model.SpanIntrinsic;
+import com.newrelic.agent.model.SyntheticsIds;
+import com.newrelic.agent.model.TimeoutCause;
+import com.newrelic.agent.service.ServiceFactory;
+import com.newrelic.agent.service.analytics.TransactionEvent;
+import com.newrelic.agent.service.analytics.TransactionEventBuilder;
+import org.json.simple.JSONStreamAware;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the event payloads with the ones json-simple wrote before the events had their own writer. The golden files
+ * were written from the same events.
+ */
+public class AnalyticEventsPayloadTest {
+
+    private static final String APP_NAME = "GoldenApp";
+    private static final String RUN_ID = "golden-run-id";
+    private static final long TIMESTAMP = 1600000000123L;
+
+    @Before
+    public void setup() {
+        MockServiceManager manager = new MockServiceManager();
+        ServiceFactory.setServiceManager(manager);
+
+        Map<String, Object> settings = new HashMap<>();
+        settings.put(AgentConfigImpl.APP_NAME, APP_NAME);
+        ConfigService configService = ConfigServiceFactory.createConfigService(AgentConfigImpl.createAgentConfig(settings), settings);
+        manager.setConfigService(configService);
+        manager.setAttributesService(new AttributesService());
+    }
+
+    @After
+    public void tearDown() {
+        ServiceFactory.setServiceManager(null);
+    }
+
+    @Test
+    public void writeTransactionEvents() throws Exception {
+        assertMatchesGolden("transaction_events.json", new AnalyticEventsPayload(RUN_ID, 2000, 2345, transactionEvents()));
+    }
+
+    @Test
+    public void writeErrorEvents() throws Exception {
+        assertMatchesGolden("error_events.json", new AnalyticEventsPayload(RUN_ID, 100, 101, errorEvents()));
+    }
+
+    @Test
+    public void writeCustomEvents() throws Exception {
+        assertMatchesGolden("custom_events.json", new AnalyticEventsPayload(RUN_ID, 30000, 3, customEvents()));
+    }
+
+    @Test
+    public void writeSpanEvents() throws Exception {
+        assertMatchesGolden("span_events.json", new AnalyticEventsPayload(RUN_ID, 2000, 1999, spanEvents()));
+    }
+
+    @Test
+    public void eventsWriteTheSameJsonAlone() throws Exception {
+        for (JSONStreamAware event : Arrays.<JSONStreamAware>asList(transactionEvents().get(0), errorEvents().get(0), customEvents().get(0), spanEvents().get(0))) {
+            String alone = JSONValue.toJSONString(event);
+            StringWriter out = new StringWriter();
+            new AnalyticEventsPayload(RUN_ID, 1, 1, Collections.singletonList(event)).writeJSONString(out);
+            List<?> payload = (List<?>) new JSONParser().parse(out.toString());
+            assertEquals(Collections.singletonList(new JSONParser().parse(alone)), payload.get(2));
+        }
+    }
+
+    private static List<TransactionEvent> transactionEvents() {
+        Map<String, Object> userAttributes = new LinkedHashMap<>();
+        userAttributes.put("user.string", "tab\there \"quoted\" back\\slash / \u2028 \u0001 caf\u00e9");
+        userAttributes.put("user.long", 42L);
+        userAttributes.put("user.int", -7);
+        userAttributes.put("user.double", 2.5d);
+        userAttributes.put("user.float", 0.125f);
+        userAttributes.put("user.bool", false);
+
+        TransactionEvent full = new TransactionEventBuilder()
+                .setAppName(APP_NAME)
+                .setTimestamp(TIMESTAMP)
+                .setName("WebTransaction/Servlet/Golden")
+                .setDuration(0.25f)
+                .setGuid("4d3c2b1a00000001")
+                .setReferringGuid("referring0001")
+                .setPort(8080)
+                .setTripId("trip0001")
+                .setApdexPerfZone(ApdexPerfZone.TOLERATING)
+                .setError(true)
+                .setpTotalTime(0.5f)
+                .setTimeoutCause(TimeoutCause.TOKEN)
+                .setPriority(1.234567f)
+                .setTimeToFirstByte(0.01f)
+                .setTimeToLastByte(0.2f)
+                .setSyntheticsIds(new SyntheticsIds("resource", "monitor", "job"))
+                .setPathHashes(new PathHashes(0x0abc, 0x12345678, "00000001,0000abcd"))
+                .setQueueDuration(0.003f)
+                .setExternal(new CountedDuration(0.07f, 3))
+                .setDatabase(new CountedDuration(0.05f, 2))
+                .setGcCumulative(0.0125f)
+                .putAllUserAttributes(userAttributes)
+                .build();
+
+        TransactionEvent minimal = new TransactionEventBuilder()
+                .setAppName(APP_NAME)
+                .setTimestamp(TIMESTAMP + 1)
+                .setName("OtherTransaction/Job/Minimal")
+                .setDuration(1.0E-4f)
+                .setPriority(0.5f)
+                .build();
+
+        Map<String, Object> distributedTraceIntrinsics = new HashMap<>();
+        distributedTraceIntrinsics.put("priority", 1.5f);
+        distributedTraceIntrinsics.put("sampled", true);
+        distributedTraceIntrinsics.put("guid", "dt-guid");
+        distributedTraceIntrinsics.put("traceId", "dt-trace");
+        distributedTraceIntrinsics.put("parent.type", "App");
+        distributedTraceIntrinsics.put("name", "WebTransaction/Intrinsic/Name");
+        TransactionEvent distributedTrace = new TransactionEventBuilder()
+                .setAppName(APP_NAME)
+                .setTimestamp(TIMESTAMP + 2)
+                .setName("WebTransaction/Servlet/Distributed")
+                .setDuration(3.5f)
+                .setpTotalTime(4.0f)
+                .setPriority(0.75f)
+                .setDistributedTraceIntrinsics(distributedTraceIntrinsics)
+                .putAllUserAttributes(Collections.<String, Object>singletonMap("user.key", "value"))
+                .build();
+
+        return Arrays.asList(full, minimal, distributedTrace);
+    }
+
+    private static List<ErrorEvent> errorEvents() {
+        AttributeFilter filter = new AttributeFilter.PassEverythingAttributeFilter();
+
+        Map<String, Object> userAttributes = new LinkedHashMap<>();
+        userAttributes.put("user.string", "line1\nline2\r\f\b");
+        userAttributes.put("user.long", Long.MAX_VALUE);
+        Map<String, Object> agentAttributes = new LinkedHashMap<>();
+        agentAttributes.put("request.uri", "/golden/path");
+        agentAttributes.put("httpResponseCode", "500");
+        agentAttributes.put("response.status", 500);
+        Map<String, Object> distributedTraceIntrinsics = new HashMap<>();
+        distributedTraceIntrinsics.put("priority", 0.5f);
+        distributedTraceIntrinsics.put("nr.tripId", "dt-trip");
+        distributedTraceIntrinsics.put("traceId", "dt-trace");
+        distributedTraceIntrinsics.put("type", "DistributedTraceType");
+        ErrorEvent full = new ErrorEvent(APP_NAME, TIMESTAMP, 1.125f, userAttributes, "java.lang.IllegalStateException",
+                "Something \"bad\" happened </script>", true, "WebTransaction/Servlet/Golden", 0.25f, 0.003f, 0.07f, 0.05f,
+                0.0125f, 2, 3, "4d3c2b1a00000001", "referring0001", "resource", "monitor", "job", 8080, "token", "trip0001",
+                distributedTraceIntrinsics, agentAttributes, filter);
+
+        ErrorEvent minimal = new ErrorEvent(APP_NAME, TIMESTAMP + 1, ErrorEvent.UNASSIGNED, Collections.<String, Object>emptyMap(),
+                "java.lang.RuntimeException", null, false, ErrorEvent.UNKNOWN, ErrorEvent.UNASSIGNED, ErrorEvent.UNASSIGNED,
+                ErrorEvent.UNASSIGNED, ErrorEvent.UNASSIGNED, ErrorEvent.UNASSIGNED, ErrorEvent.UNASSIGNED, ErrorEvent.UNASSIGNED,
+                null, null, null, null, null, ErrorEvent.UNASSIGNED_INT, null, null,
+                Collections.<String, Object>singletonMap("priority", 0.7f), Collections.<String, Object>emptyMap(), filter);
+
+        ErrorEvent userOnly = new ErrorEvent(APP_NAME, TIMESTAMP + 2, 0.25f, Collections.<String, Object>singletonMap("user.key", 1.5d),
+                "java.io.IOException", "io", false, "OtherTransaction/Job/Errors", 1.5f, ErrorEvent.UNASSIGNED,
+                ErrorEvent.UNASSIGNED, 0, ErrorEvent.UNASSIGNED, 0, 0, null, null, null, null, null, ErrorEvent.UNASSIGNED_INT,
+                null, null, null, Collections.<String, Object>emptyMap(), filter);
+
+        return Arrays.asList(full, minimal, userOnly);
+    }
+
+    private static List<CustomInsightsEvent> customEvents() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("message", "line1\nline2 \"q\" \\ / caf\u00e9 \u007f \u20ac \ud83d\ude00");
+        attributes.put("count", 7);
+        attributes.put("ratio", 0.1f);
+        attributes.put("big", Long.MIN_VALUE);
+        attributes.put("precise", 1.0E-10d);
+        attributes.put("flag", true);
+
+        return Arrays.asList(
+                new CustomInsightsEvent("GoldenCustom", TIMESTAMP, attributes, 0.5f),
+                new CustomInsightsEvent("Golden \"Custom\"", TIMESTAMP + 1, Collections.<String, Object>emptyMap(), 0.25f),
+                new CustomInsightsEvent("GoldenCustom", TIMESTAMP + 2, Collections.<String, Object>singletonMap("key", "value"), 0.75f));
+    }
+
+    private static List<SpanEvent> spanEvents() {
+        SpanEvent full = SpanEvent.builder()
+                .appName(APP_NAME)
+                .priority(1.5f)
+                .timestamp(TIMESTAMP)
+                .putIntrinsic(SpanIntrinsic.TYPE, SpanEvent.SPAN)
+                .putIntrinsic(SpanIntrinsic.CATEGORY, "http")
+                .putIntrinsic(SpanIntrinsic.NAME, "External/example.com/HttpClient/GET")
+                .putIntrinsic(SpanIntrinsic.GUID, "span0001")
+                .putIntrinsic(SpanIntrinsic.TRACE_ID, "trace0001")
+                .putIntrinsic(SpanIntrinsic.PARENT_ID, "span0000")
+                .putIntrinsic(SpanIntrinsic.TRANSACTION_ID, "4d3c2b1a00000001")
+                .putIntrinsic(SpanIntrinsic.SAMPLED, true)
+                .putIntrinsic(SpanIntrinsic.PRIORITY, 1.5f)
+                .putIntrinsic(SpanIntrinsic.DURATION, 0.0125f)
+                .putIntrinsic(SpanIntrinsic.TIMESTAMP, TIMESTAMP)
+                .putIntrinsic(SpanIntrinsic.SPAN_KIND, "client")
+                .putIntrinsic(SpanIntrinsic.COMPONENT, "HttpClient")
+                .putIntrinsic("custom.intrinsic", "extra")
+                .putAgentAttribute(SpanAgentAttribute.HTTP_URL, "https://example.com/path?q=1")
+                .putAgentAttribute(SpanAgentAttribute.HTTP_METHOD, "GET")
+                .putAgentAttribute("http.statusCode", 200)
+                .putAllUserAttributes(Collections.singletonMap("user.key", "value"))
+                .build();
+
+        SpanEvent minimal = SpanEvent.builder()
+                .appName(APP_NAME)
+                .priority(0.5f)
+                .timestamp(TIMESTAMP + 1)
+                .putIntrinsic(SpanIntrinsic.TYPE, SpanEvent.SPAN)
+                .putIntrinsic(SpanIntrinsic.NAME, "Java/Minimal")
+                .putIntrinsic(SpanIntrinsic.ENTRY_POINT, true)
+                .build();
+
+        return Arrays.asList(full, minimal);
+    }
+
+    private void assertMatchesGolden(String resource, AnalyticEventsPayload payload) throws Exception {
+        StringWriter out = new StringWriter();
+        payload.writeJSONString(out);
+
+        Object expected;
+        try (InputStream in = getClass().getResourceAsStream("analytic_events/" + resource);
+             Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            expected = new JSONParser().parse(reader);
+        }
+        // json-simple wrote the members of each object in hash order, so compare the parsed values
+        assertEquals(expected, new JSONParser().parse(out.toString()));
+    }
+}
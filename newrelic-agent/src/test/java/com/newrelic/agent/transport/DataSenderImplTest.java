@@ -435,6 +435,7 @@ public class DataSenderImplTest {
         for(Invocation invocation: output.getInvocations()) {
             found = found || (
                     invocation.getMethod().getName().equals("doStatsWork")
+                    && invocation.getArgument(0) instanceof IncrementCounter
                     && invocation.<IncrementCounter>getArgument(0).getName().equals(expectedMetricName)
                     );
         }
@@ -461,6 +462,27 @@ public class DataSenderImplTest {
         assertMetricWasRecorded(SUPPORTABILITY_METRIC_SPAN_DATA);
     }
 
+    @Test
+    public void testMaxPayloadSizeStreaming() {
+        Map<String, Object> configMap = configMap();
+        configMap.put(AgentConfigImpl.STREAMING_PAYLOADS_PROPERTY, true);
+        AgentConfig config = AgentConfigImpl.createAgentConfig(configMap);
+        DataSenderImpl dataSender = new DataSenderImpl(config, getHttpClientWrapper(), null, logger, ServiceFactory.getConfigService());
+
+        dataSender.setAgentRunId("AgentRunId");
+        dataSender.setMaxPayloadSizeInBytes(200);
+
+        sendAnalyticEventsPayloadTooBig(dataSender);
+        sendMetricDataPayloadTooBig(dataSender);
+        sendSpanEventsPayloadTooBig(dataSender);
+
+        sendMetricDataSmallPayload(dataSender);
+
+        assertMetricWasRecorded(SUPPORTABILITY_METRIC_METRIC_DATA);
+        assertMetricWasRecorded(SUPPORTABILITY_METRIC_ANALYTIC_DATA);
+        assertMetricWasRecorded(SUPPORTABILITY_METRIC_SPAN_DATA);
+    }
+
     private HttpClientWrapper getProxyAuthenticateFailingWrapper(String proxyAuthenticateHeader) {
         return getHttpClientWrapper(ReadResult.create(
                 HttpResponseCode.PROXY_AUTHENTICATION_REQUIRED,
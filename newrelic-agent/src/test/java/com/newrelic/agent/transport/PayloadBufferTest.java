@@ -0,0 +1,101 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.transport;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONStreamAware;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PayloadBufferTest {
+
+    @Test
+    public void identityEncodingWritesJson() throws IOException {
+        PayloadBuffer buffer = new PayloadBuffer(Deflater.DEFAULT_COMPRESSION);
+        buffer.write("identity", payload(3), Integer.MAX_VALUE);
+
+        assertEquals(payload(3).toJSONString(), new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void deflateRoundTrip() throws IOException {
+        PayloadBuffer buffer = new PayloadBuffer(Deflater.DEFAULT_COMPRESSION);
+        buffer.write(DataSenderImpl.DEFLATE_ENCODING, payload(500), Integer.MAX_VALUE);
+
+        assertEquals(payload(500).toJSONString(), inflate(new InflaterInputStream(new ByteArrayInputStream(buffer.toByteArray()))));
+    }
+
+    @Test
+    public void gzipRoundTrip() throws IOException {
+        PayloadBuffer buffer = new PayloadBuffer(Deflater.DEFAULT_COMPRESSION);
+        buffer.write(DataSenderImpl.GZIP_ENCODING, payload(500), Integer.MAX_VALUE);
+
+        assertEquals(payload(500).toJSONString(), inflate(new GZIPInputStream(new ByteArrayInputStream(buffer.toByteArray()))));
+    }
+
+    @Test
+    public void bufferIsReusedAcrossPayloads() throws IOException {
+        PayloadBuffer buffer = new PayloadBuffer(Deflater.DEFAULT_COMPRESSION);
+        buffer.write(DataSenderImpl.GZIP_ENCODING, payload(5000), Integer.MAX_VALUE);
+        byte[] backingArray = buffer.array();
+
+        buffer.write(DataSenderImpl.GZIP_ENCODING, payload(10), Integer.MAX_VALUE);
+        assertTrue(backingArray == buffer.array());
+        assertEquals(payload(10).toJSONString(), inflate(new GZIPInputStream(new ByteArrayInputStream(buffer.toByteArray()))));
+
+        buffer.write(DataSenderImpl.DEFLATE_ENCODING, payload(10), Integer.MAX_VALUE);
+        assertEquals(payload(10).toJSONString(), inflate(new InflaterInputStream(new ByteArrayInputStream(buffer.toByteArray()))));
+    }
+
+    @Test
+    public void writeAbortsWhenLimitExceeded() throws IOException {
+        PayloadBuffer buffer = new PayloadBuffer(Deflater.DEFAULT_COMPRESSION);
+        try {
+            buffer.write("identity", payload(1000), 100);
+            fail("Expected the payload to exceed the limit");
+        } catch (PayloadBuffer.PayloadLimitExceededException e) {
+            assertTrue(e.getSize() > 100);
+        }
+        assertTrue(buffer.size() <= 100);
+
+        // the buffer is still usable after an aborted payload
+        buffer.write("identity", payload(1), 100);
+        assertEquals(payload(1).toJSONString(), new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONArray payload(int size) {
+        JSONArray array = new JSONArray();
+        for (int i = 0; i < size; i++) {
+            array.add("event number " + i);
+        }
+        return array;
+    }
+
+    private static String inflate(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[1024];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.agent.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+
+    @Test
+    public void expiresAfterTimeout() throws InterruptedException {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS);
+        RecordingListener listener = new RecordingListener();
+        long start = System.nanoTime();
+        TimingWheel.Timeout timeout = wheel.schedule(20, TimeUnit.MILLISECONDS, listener);
+
+        advanceUntilFired(wheel, listener, 1);
+        assertTrue(timeout.isExpired());
+        assertTrue(listener.firedAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void cascadesFromOuterWheels() throws InterruptedException {
+        // 300 ticks is past the 64 slots of the inner wheel
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS);
+        RecordingListener listener = new RecordingListener();
+        long start = System.nanoTime();
+        wheel.schedule(300, TimeUnit.MILLISECONDS, listener);
+
+        advanceUntilFired(wheel, listener, 1);
+        assertTrue(listener.firedAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+    }
+
+    @Test
+    public void touchPostponesTimeout() throws InterruptedException {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS);
+        RecordingListener listener = new RecordingListener();
+        TimingWheel.Timeout timeout = wheel.schedule(50, TimeUnit.MILLISECONDS, listener);
+
+        long touchedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(150);
+        while (System.nanoTime() < touchedUntil) {
+            timeout.touch();
+            wheel.advance();
+            Thread.sleep(5);
+        }
+        assertEquals(0, listener.fired.size());
+
+        long lastTouch = System.nanoTime();
+        timeout.touch();
+        advanceUntilFired(wheel, listener, 1);
+        assertTrue(listener.firedAt.get() - lastTouch >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    public void cancelledTimeoutsNeverFire() throws InterruptedException {
+        TimingWheel wheel = new TimingWheel(1, TimeUnit.MILLISECONDS);
+        RecordingListener listener = new RecordingListener();
+        TimingWheel.Timeout beforePlaced = wheel.schedule(10, TimeUnit.MILLISECONDS, listener);
+        assertTrue(beforePlaced.cancel());
+        wheel.advance();
+        TimingWheel.Timeout afterPlaced = wheel.schedule(10, TimeUnit.MILLISECONDS, listener);
+        wheel.advance();
+        assertTrue(afterPlaced.cancel());
+        assertFalse(afterPlaced.cancel());
+        TimingWheel.Timeout kept = wheel.schedule(30, TimeUnit.MILLISECONDS, listener);
+
+        advanceUntilFired(wheel, listener, 1);
+        assertEquals(1, listener.fired.size());
+        assertTrue(listener.fired.contains(kept));
+        assertFalse(beforePlaced.isExpired());
+        assertFalse(afterPlaced.isExpired());
+    }
+
+    private static void advanceUntilFired(TimingWheel wheel, RecordingListener listener, int count)
+            throws InterruptedException {
+        long giveUp = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (listener.fired.size() < count && System.nanoTime() < giveUp) {
+            wheel.advance();
+            Thread.sleep(1);
+        }
+        assertEquals(count, listener.fired.size());
+    }
+
+    private static class RecordingListener implements TimingWheel.Listener {
+        final List<TimingWheel.Timeout> fired = new ArrayList<>();
+        final AtomicLong firedAt = new AtomicLong();
+
+        @Override
+        public void onTimeout(TimingWheel.Timeout timeout) {
+            firedAt.set(System.nanoTime());
+            fired.add(timeout);
+        }
+    }
+}
@@ -33,6 +33,8 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Manages a group of {@link WeavePackage}s. This class is thread safe.
@@ -60,6 +62,15 @@ public class WeavePackageManager {
 
     private final Set<String> requiredMethodAnnotationClasses = Sets.newConcurrentHashSet();
 
+    /**
+     * Bloom filter over the four sets above, checked before the pre-match class visitor. Rebuilt on the next weave after
+     * any of the sets change, which bumps the generation.
+     */
+    private volatile WeavePreFilter preFilter;
+    private final AtomicInteger preFilterGeneration = new AtomicInteger();
+    private final AtomicLong preFilterRejected = new AtomicLong();
+    private final AtomicLong preFilterPassed = new AtomicLong();
+
     /**
      * ClassLoader -> (WeavePackageName -> WeavePackage)
      */
@@ -154,6 +165,7 @@ public class WeavePackageManager {
             requiredClasses.addAll(weavePackage.getRequiredClasses());
             requiredAnnotationClasses.addAll(weavePackage.getAllRequiredAnnotationClasses());
             requiredMethodAnnotationClasses.addAll(weavePackage.getAllRequiredMethodAnnotationClasses());
+            preFilterGeneration.incrementAndGet();
 
             if (null != packageListener) {
                 packageListener.registered(weavePackage);
@@ -180,6 +192,7 @@ public class WeavePackageManager {
             requiredClasses.removeAll(remove.getRequiredClasses());
             // Rebuild method signatures from weavePackages map
             rebuildWeavePackages();
+            preFilterGeneration.incrementAndGet();
         }
         if (null != remove && null != packageListener) {
             packageListener.deregistered(remove);
@@ -311,12 +324,48 @@ public class WeavePackageManager {
      */
     public byte[] weave(ClassLoader classloader, ClassCache cache, String className, byte[] targetBytes,
             ClassWeavedListener weaveListener) throws IOException {
-        classloader = classLoaderSub(classloader);
-
-        if (preMatchWeaveMethods && !containsPossibleClassOrMethodMatch(className, targetBytes, requiredClasses, methodSignatures, cache)) {
-            // No potential method match was found, we are definitely not weaving this class so we should exit now
+        if (!isPossibleMatch(className, targetBytes, cache)) {
             return null;
         }
+        return weavePossibleMatch(classloader, cache, className, targetBytes, weaveListener);
+    }
+
+    /**
+     * Checks the target class against the classes, method signatures and annotations of the registered weave packages.
+     * A class rejected here is not woven by any of them, whichever classloader loads it, as long as the class and its
+     * direct interfaces are unchanged. Accepted classes still have to be matched and validated by
+     * {@link #weavePossibleMatch}.
+     *
+     * @param className target class name
+     * @param targetBytes target class bytes
+     * @param cache {@link ClassCache} to find the annotations of the target's interfaces
+     * @return <code>false</code> if no registered weave package can weave the class
+     */
+    public boolean isPossibleMatch(String className, byte[] targetBytes, ClassCache cache) {
+        if (!preMatchWeaveMethods) {
+            return true;
+        }
+        if (!passesPreFilter(targetBytes, cache)) {
+            return false;
+        }
+        // No potential method match means we are definitely not weaving this class
+        return containsPossibleClassOrMethodMatch(className, targetBytes, requiredClasses, methodSignatures, cache);
+    }
+
+    /**
+     * Weave all of the matched packages with a target class that passed {@link #isPossibleMatch}. A <code>null</code>
+     * result here can depend on which classes the classloader provides.
+     *
+     * @param classloader classloader to resolve classes with
+     * @param cache {@link ClassCache} to find class metadata
+     * @param className target class name
+     * @param targetBytes target class bytes
+     * @param weaveListener listener containing callback if/when the composite is created
+     * @return composite class bytes, or <code>null</code> if no weaving occurred
+     */
+    public byte[] weavePossibleMatch(ClassLoader classloader, ClassCache cache, String className, byte[] targetBytes,
+            ClassWeavedListener weaveListener) throws IOException {
+        classloader = classLoaderSub(classloader);
 
         ClassInformation classInformation = cache.getClassInformation(className);
         if (classInformation == null) {
@@ -393,7 +442,9 @@ public class WeavePackageManager {
                 if (!isInterface && requiredAnnotationClasses.contains(annotationClass)) {
                     // Adding class name here allows us to catch interfaces
                     containsPossibleMatch.set(true);
-                    requiredClasses.add(className);
+                    if (requiredClasses.add(className)) {
+                        preFilterGeneration.incrementAndGet();
+                    }
 
                     // Found a potential match. Exit early.
                     return null;
@@ -444,21 +495,11 @@ public class WeavePackageManager {
                 // If nothing has matched, check interface annotations
                 if (!isInterface && !requiredAnnotationClasses.isEmpty()) {
 
-                    try {
-                        for (String interfaceName : interfaces) {
-                            ClassInformation interfaceInfo = cache.getClassInformation(interfaceName);
-                            if (interfaceInfo == null) {
-                                continue;
-                            }
-
-                            for (String interfaceAnnotationName : interfaceInfo.classAnnotationNames) {
-                                if (requiredAnnotationClasses.contains(WeaveUtils.getClassBinaryName(interfaceAnnotationName))) {
-                                    containsPossibleMatch.set(true);
-                                    return;
-                                }
-                            }
+                    for (String interfaceName : interfaces) {
+                        if (hasRequiredAnnotation(interfaceName, cache)) {
+                            containsPossibleMatch.set(true);
+                            return;
                         }
-                    } catch (IOException ignored) {
                     }
                 }
             }
@@ -467,6 +508,72 @@ public class WeavePackageManager {
         return containsPossibleMatch.get();
     }
 
+    /**
+     * Checks the class bytes against a bloom filter of everything {@link #containsPossibleClassOrMethodMatch} looks for,
+     * without running a {@link ClassReader} over them. A class that fails here would also fail that check.
+     */
+    private boolean passesPreFilter(byte[] classBytes, final ClassCache cache) {
+        boolean mayMatch = getPreFilter().mayMatch(classBytes, new WeavePreFilter.InterfaceAnnotations() {
+            @Override
+            public boolean hasRequiredAnnotation(String interfaceName) {
+                return WeavePackageManager.this.hasRequiredAnnotation(interfaceName, cache);
+            }
+        });
+        if (mayMatch) {
+            preFilterPassed.incrementAndGet();
+        } else {
+            preFilterRejected.incrementAndGet();
+        }
+        return mayMatch;
+    }
+
+    private WeavePreFilter getPreFilter() {
+        WeavePreFilter filter = preFilter;
+        if (filter == null || filter.getGeneration() != preFilterGeneration.get()) {
+            synchronized (this) {
+                filter = preFilter;
+                // read the generation before the sets, so that a concurrent change leaves this filter out of date
+                int generation = preFilterGeneration.get();
+                if (filter == null || filter.getGeneration() != generation) {
+                    filter = new WeavePreFilter(requiredClasses, methodSignatures, requiredAnnotationClasses,
+                            requiredMethodAnnotationClasses, generation);
+                    preFilter = filter;
+                }
+            }
+        }
+        return filter;
+    }
+
+    private boolean hasRequiredAnnotation(String interfaceName, ClassCache cache) {
+        try {
+            ClassInformation interfaceInfo = cache.getClassInformation(interfaceName);
+            if (interfaceInfo == null) {
+                return false;
+            }
+            for (String interfaceAnnotationName : interfaceInfo.classAnnotationNames) {
+                if (requiredAnnotationClasses.contains(WeaveUtils.getClassBinaryName(interfaceAnnotationName))) {
+                    return true;
+                }
+            }
+        } catch (IOException ignored) {
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of classes the pre-match filter ruled out without parsing them
+     */
+    public long getPreFilterRejectedCount() {
+        return preFilterRejected.get();
+    }
+
+    /**
+     * @return the number of classes the pre-match filter passed on to the full pre-match check
+     */
+    public long getPreFilterPassedCount() {
+        return preFilterPassed.get();
+    }
+
     /**
      * Returns the successful validation result for the weave package against the classloader, or <code>null</code> if
      * there is no successful result.
@@ -0,0 +1,327 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.weavepackage;
+
+import java.util.Collection;
+
+/**
+ * A bloom filter over the class names, method signatures and annotations that registered weave packages care about,
+ * checked against the raw bytes of a class without building a {@link org.objectweb.asm.ClassReader} or any visitors.
+ *
+ * {@link #mayMatch} is a superset of the "pre-match" check in {@link WeavePackageManager}: it returns false only when
+ * the class name, super class name, declared methods and annotation descriptors in the constant pool are all absent
+ * from the filter, and the class can not pick up an annotation match from one of its interfaces. Anything it can not
+ * parse is passed on to the full check.
+ */
+final class WeavePreFilter {
+
+    /**
+     * Looks up whether an interface carries an annotation that a weave package matches on.
+     */
+    interface InterfaceAnnotations {
+        boolean hasRequiredAnnotation(String interfaceName);
+    }
+
+    private static final int BITS_PER_ENTRY = 16;
+    private static final int HASHES = 4;
+
+    private static final long CLASS_SEED = 0xcbf29ce484222325L;
+    private static final long METHOD_SEED = 0x84222325cbf29ce4L;
+    private static final long ANNOTATION_SEED = 0x9e3779b97f4a7c15L;
+
+    private static final byte[] INIT = modifiedUtf8("<init>");
+    private static final byte[] CLINIT = modifiedUtf8("<clinit>");
+    private static final byte[] NO_ARG_VOID = modifiedUtf8("()V");
+
+    private static final int ACC_INTERFACE = 0x0200;
+
+    private final long[] bits;
+    private final int mask;
+    private final boolean hasAnnotations;
+    private final boolean hasClassAnnotations;
+    private final int generation;
+
+    WeavePreFilter(Collection<String> requiredClasses, Collection<String> methodSignatures,
+            Collection<String> requiredAnnotationClasses, Collection<String> requiredMethodAnnotationClasses,
+            int generation) {
+        int entries = requiredClasses.size() + methodSignatures.size() + requiredAnnotationClasses.size()
+                + requiredMethodAnnotationClasses.size();
+        int size = 64;
+        while (size < entries * BITS_PER_ENTRY && size < (1 << 30)) {
+            size <<= 1;
+        }
+        this.bits = new long[size >>> 6];
+        this.mask = size - 1;
+        this.hasClassAnnotations = !requiredAnnotationClasses.isEmpty();
+        this.hasAnnotations = hasClassAnnotations || !requiredMethodAnnotationClasses.isEmpty();
+        this.generation = generation;
+
+        for (String className : requiredClasses) {
+            add(CLASS_SEED, modifiedUtf8(className), null);
+        }
+        for (String signature : methodSignatures) {
+            int paren = signature.indexOf('(');
+            if (paren > 0) {
+                add(METHOD_SEED, modifiedUtf8(signature.substring(0, paren)), modifiedUtf8(signature.substring(paren)));
+            }
+        }
+        for (String annotation : requiredAnnotationClasses) {
+            add(ANNOTATION_SEED, modifiedUtf8(descriptor(annotation)), null);
+        }
+        for (String annotation : requiredMethodAnnotationClasses) {
+            add(ANNOTATION_SEED, modifiedUtf8(descriptor(annotation)), null);
+        }
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return false if the class can not be matched by any weave package, true if it might be
+     */
+    boolean mayMatch(byte[] b, InterfaceAnnotations interfaceAnnotations) {
+        try {
+            return scan(b, interfaceAnnotations);
+        } catch (RuntimeException e) {
+            // malformed or unexpected class file, leave it to the full check
+            return true;
+        }
+    }
+
+    private boolean scan(byte[] b, InterfaceAnnotations interfaceAnnotations) {
+        int cpCount = readUnsignedShort(b, 8);
+        int[] offsets = new int[cpCount];
+        int offset = 10;
+        for (int i = 1; i < cpCount; i++) {
+            offsets[i] = offset + 1;
+            int tag = b[offset];
+            switch (tag) {
+                case 1: // Utf8
+                    int length = readUnsignedShort(b, offset + 1);
+                    if (hasAnnotations && length > 2 && b[offset + 3] == 'L' && b[offset + 2 + length] == ';'
+                            && contains(ANNOTATION_SEED, b, offset + 3, length, null, 0, 0)) {
+                        return true;
+                    }
+                    offset += 3 + length;
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    offset += 5;
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    offset += 9;
+                    i++;
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    offset += 3;
+                    break;
+                case 15: // MethodHandle
+                    offset += 4;
+                    break;
+                default:
+                    return true;
+            }
+        }
+
+        int access = readUnsignedShort(b, offset);
+        int thisClass = readUnsignedShort(b, offset + 2);
+        int superClass = readUnsignedShort(b, offset + 4);
+        if (classNameMatches(b, offsets, thisClass) || (superClass != 0 && classNameMatches(b, offsets, superClass))) {
+            return true;
+        }
+
+        int interfacesCount = readUnsignedShort(b, offset + 6);
+        int interfacesOffset = offset + 8;
+        offset = interfacesOffset + 2 * interfacesCount;
+
+        // fields
+        int fieldsCount = readUnsignedShort(b, offset);
+        offset += 2;
+        for (int i = 0; i < fieldsCount; i++) {
+            offset = skipMember(b, offset);
+        }
+
+        // methods
+        int methodsCount = readUnsignedShort(b, offset);
+        offset += 2;
+        for (int i = 0; i < methodsCount; i++) {
+            int nameOffset = offsets[readUnsignedShort(b, offset + 2)];
+            int descOffset = offsets[readUnsignedShort(b, offset + 4)];
+            int nameLength = readUnsignedShort(b, nameOffset);
+            int descLength = readUnsignedShort(b, descOffset);
+            if (!isDefaultInitializer(b, nameOffset + 2, nameLength, descOffset + 2, descLength)
+                    && contains(METHOD_SEED, b, nameOffset + 2, nameLength, b, descOffset + 2, descLength)) {
+                return true;
+            }
+            offset = skipMember(b, offset);
+        }
+
+        if (hasClassAnnotations && (access & ACC_INTERFACE) == 0) {
+            for (int i = 0; i < interfacesCount; i++) {
+                int classIndex = readUnsignedShort(b, interfacesOffset + 2 * i);
+                int nameOffset = offsets[readUnsignedShort(b, offsets[classIndex])];
+                if (interfaceAnnotations.hasRequiredAnnotation(readUtf8(b, nameOffset))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean classNameMatches(byte[] b, int[] offsets, int classIndex) {
+        int nameOffset = offsets[readUnsignedShort(b, offsets[classIndex])];
+        return contains(CLASS_SEED, b, nameOffset + 2, readUnsignedShort(b, nameOffset), null, 0, 0);
+    }
+
+    private static boolean isDefaultInitializer(byte[] b, int nameOffset, int nameLength, int descOffset, int descLength) {
+        return (equals(b, nameOffset, nameLength, INIT) || equals(b, nameOffset, nameLength, CLINIT))
+                && equals(b, descOffset, descLength, NO_ARG_VOID);
+    }
+
+    private static int skipMember(byte[] b, int offset) {
+        int attributesCount = readUnsignedShort(b, offset + 6);
+        offset += 8;
+        for (int i = 0; i < attributesCount; i++) {
+            offset += 6 + readInt(b, offset + 2);
+        }
+        return offset;
+    }
+
+    private void add(long seed, byte[] first, byte[] second) {
+        long hash = hash(seed, first, 0, first.length);
+        if (second != null) {
+            hash = hash(hash, second, 0, second.length);
+        }
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean contains(long seed, byte[] first, int firstOffset, int firstLength, byte[] second,
+            int secondOffset, int secondLength) {
+        long hash = hash(seed, first, firstOffset, firstLength);
+        if (second != null) {
+            hash = hash(hash, second, secondOffset, secondLength);
+        }
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((bits[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * FNV-1a followed by a 64 bit finalizer so both halves of the result are usable as independent hashes.
+     */
+    private static long hash(long seed, byte[] b, int offset, int length) {
+        long hash = seed;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= b[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static boolean equals(byte[] b, int offset, int length, byte[] expected) {
+        if (length != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (b[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readUnsignedShort(byte[] b, int offset) {
+        return ((b[offset] & 0xff) << 8) | (b[offset + 1] & 0xff);
+    }
+
+    private static int readInt(byte[] b, int offset) {
+        return ((b[offset] & 0xff) << 24) | ((b[offset + 1] & 0xff) << 16) | ((b[offset + 2] & 0xff) << 8)
+                | (b[offset + 3] & 0xff);
+    }
+
+    /**
+     * Decode the constant pool Utf8 entry at {@code offset}, which points at its length.
+     */
+    private static String readUtf8(byte[] b, int offset) {
+        int length = readUnsignedShort(b, offset);
+        char[] chars = new char[length];
+        int count = 0;
+        int i = offset + 2;
+        int end = i + length;
+        while (i < end) {
+            int c = b[i++] & 0xff;
+            if (c < 0x80) {
+                chars[count++] = (char) c;
+            } else if (c < 0xe0) {
+                chars[count++] = (char) (((c & 0x1f) << 6) | (b[i++] & 0x3f));
+            } else {
+                chars[count++] = (char) (((c & 0x0f) << 12) | ((b[i++] & 0x3f) << 6) | (b[i++] & 0x3f));
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    /**
+     * Encode the way class files store strings, so names hash the same as their constant pool entries.
+     */
+    static byte[] modifiedUtf8(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            length += c >= 0x01 && c <= 0x7f ? 1 : c <= 0x7ff ? 2 : 3;
+        }
+        byte[] bytes = new byte[length];
+        int index = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x01 && c <= 0x7f) {
+                bytes[index++] = (byte) c;
+            } else if (c <= 0x7ff) {
+                bytes[index++] = (byte) (0xc0 | (c >> 6));
+                bytes[index++] = (byte) (0x80 | (c & 0x3f));
+            } else {
+                bytes[index++] = (byte) (0xe0 | (c >> 12));
+                bytes[index++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                bytes[index++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return bytes;
+    }
+
+    private static String descriptor(String annotationClass) {
+        return 'L' + annotationClass.replace('.', '/') + ';';
+    }
+}
@@ -313,6 +313,30 @@ public class WeavePackageManagerTest {
         Assert.assertNotNull(result);
     }
 
+    @Test
+    public void testIsPossibleMatch() throws IOException {
+        ClassLoader cl = new ClassLoader(Thread.currentThread().getContextClassLoader()) {
+        };
+        ClassCache cache = new ClassCache(new ClassLoaderFinder(cl));
+        String matchName = "com/newrelic/weave/weavepackage/testclasses/MyOriginalBase";
+        byte[] matchBytes = WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.testclasses.MyOriginalBase");
+        String noMatchName = "com/newrelic/weave/weavepackage/WeavePackageManagerTest$NewNoMatchClass";
+        byte[] noMatchBytes = WeaveTestUtils.getClassBytes("com.newrelic.weave.weavepackage.WeavePackageManagerTest$NewNoMatchClass");
+
+        WeavePackageManager wpm = new WeavePackageManager();
+        wpm.register(testPackage1);
+        Assert.assertTrue(wpm.isPossibleMatch(matchName, matchBytes, cache));
+        Assert.assertNotNull(wpm.weavePossibleMatch(cl, cache, matchName, matchBytes, null));
+        Assert.assertFalse(wpm.isPossibleMatch(noMatchName, noMatchBytes, cache));
+        Assert.assertNull(wpm.weave(cl, cache, noMatchName, noMatchBytes, null));
+
+        // without pre-matching every class has to go through matching and validation
+        WeavePackageManager noPreMatch = new WeavePackageManager(null, null, 10, true, false);
+        noPreMatch.register(testPackage1);
+        Assert.assertTrue(noPreMatch.isPossibleMatch(noMatchName, noMatchBytes, cache));
+        Assert.assertNull(noPreMatch.weavePossibleMatch(cl, cache, noMatchName, noMatchBytes, null));
+    }
+
     @Test
     public void testConcurrentWeavePackage() throws Exception {
         final ExecutorService executor1 = Executors.newFixedThreadPool(5);
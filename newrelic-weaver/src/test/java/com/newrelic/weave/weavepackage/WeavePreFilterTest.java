@@ -0,0 +1,176 @@
+/*
+ *
+ *  * Copyright 2020 New Relic Corporation. All rights reserved.
+ *  * SPDX-License-Identifier: Apache-2.0
+ *
+ */
+
+package com.newrelic.weave.weavepackage;
+
+import com.newrelic.api.agent.weaver.Weave;
+import com.newrelic.api.agent.weaver.Weaver;
+import com.newrelic.weave.WeaveTestUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class WeavePreFilterTest {
+
+    private static final Set<String> NONE = Collections.emptySet();
+
+    private static final WeavePreFilter.InterfaceAnnotations NO_INTERFACE_ANNOTATIONS = new WeavePreFilter.InterfaceAnnotations() {
+        @Override
+        public boolean hasRequiredAnnotation(String interfaceName) {
+            return false;
+        }
+    };
+
+    @Test
+    public void testEmptyFilterRejects() throws IOException {
+        WeavePreFilter filter = new WeavePreFilter(NONE, NONE, NONE, NONE, 0);
+        Assert.assertFalse(filter.mayMatch(bytes(Target.class), NO_INTERFACE_ANNOTATIONS));
+        Assert.assertFalse(filter.mayMatch(bytes(AnnotatedTarget.class), NO_INTERFACE_ANNOTATIONS));
+    }
+
+    @Test
+    public void testClassName() throws IOException {
+        WeavePreFilter filter = new WeavePreFilter(set(internalName(Target.class)), NONE, NONE, NONE, 0);
+        Assert.assertTrue(filter.mayMatch(bytes(Target.class), NO_INTERFACE_ANNOTATIONS));
+        Assert.assertFalse(filter.mayMatch(bytes(AnnotatedTarget.class), NO_INTERFACE_ANNOTATIONS));
+    }
+
+    @Test
+    public void testSuperClassName() throws IOException {
+        WeavePreFilter filter = new WeavePreFilter(set(internalName(Target.class)), NONE, NONE, NONE, 0);
+        Assert.assertTrue(filter.mayMatch(bytes(SubTarget.class), NO_INTERFACE_ANNOTATIONS));
+    }
+
+    @Test
+    public void testMethodSignature() throws IOException {
+        WeavePreFilter filter = new WeavePreFilter(NONE, set("execute(Ljava/lang/Runnable;)V"), NONE, NONE, 0);
+        Assert.assertTrue(filter.mayMatch(bytes(Target.class), NO_INTERFACE_ANNOTATIONS));
+        Assert.assertFalse(filter.mayMatch(bytes(AnnotatedTarget.class), NO_INTERFACE_ANNOTATIONS));
+
+        // same name, different descriptor
+        filter = new WeavePreFilter(NONE, set("execute(Ljava/lang/Object;)V"), NONE, NONE, 0);
+        Assert.assertFalse(filter.mayMatch(bytes(Target.class), NO_INTERFACE_ANNOTATIONS));
+    }
+
+    @Test
+    public void testDefaultConstructorIsIgnored() throws IOException {
+        WeavePreFilter filter = new WeavePreFilter(NONE, set("<init>()V"), NONE, NONE, 0);
+        Assert.assertFalse(filter.mayMatch(bytes(Target.class), NO_INTERFACE_ANNOTATIONS));
+    }
+
+    @Test
+    public void testAnnotations() throws IOException {
+        WeavePreFilter filter = new WeavePreFilter(NONE, NONE, set(Deprecated.class.getName()), NONE, 0);
+        Assert.assertTrue(filter.mayMatch(bytes(AnnotatedTarget.class), NO_INTERFACE_ANNOTATIONS));
+        Assert.assertFalse(filter.mayMatch(bytes(Target.class), NO_INTERFACE_ANNOTATIONS));
+
+        filter = new WeavePreFilter(NONE, NONE, NONE, set(Deprecated.class.getName()), 0);
+        Assert.assertTrue(filter.mayMatch(bytes(AnnotatedMethodTarget.class), NO_INTERFACE_ANNOTATIONS));
+        Assert.assertFalse(filter.mayMatch(bytes(Target.class), NO_INTERFACE_ANNOTATIONS));
+    }
+
+    @Test
+    public void testInterfaceAnnotations() throws IOException {
+        final Set<String> looked = new HashSet<>();
+        WeavePreFilter.InterfaceAnnotations interfaceAnnotations = new WeavePreFilter.InterfaceAnnotations() {
+            @Override
+            public boolean hasRequiredAnnotation(String interfaceName) {
+                looked.add(interfaceName);
+                return true;
+            }
+        };
+
+        // not consulted unless a weave package matches on class annotations
+        WeavePreFilter filter = new WeavePreFilter(NONE, NONE, NONE, NONE, 0);
+        Assert.assertFalse(filter.mayMatch(bytes(Target.class), interfaceAnnotations));
+        Assert.assertTrue(looked.isEmpty());
+
+        filter = new WeavePreFilter(NONE, NONE, set("com.example.Unused"), NONE, 0);
+        Assert.assertTrue(filter.mayMatch(bytes(Target.class), interfaceAnnotations));
+        Assert.assertEquals(set("java/lang/Runnable"), looked);
+    }
+
+    @Test
+    public void testMalformedBytesPass() {
+        WeavePreFilter filter = new WeavePreFilter(NONE, NONE, NONE, NONE, 0);
+        Assert.assertTrue(filter.mayMatch(new byte[] { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0 },
+                NO_INTERFACE_ANNOTATIONS));
+    }
+
+    @Test
+    public void testManagerCounts() throws IOException {
+        WeavePackageConfig config = WeavePackageConfig.builder().name("weave_prefilter_test").source(
+                "com.newrelic.weave.weavepackage").build();
+        WeavePackage weavePackage = new WeavePackage(config, Collections.singletonList(bytes(WeaveOriginal.class)));
+        WeavePackageManager manager = new WeavePackageManager();
+        manager.register(weavePackage);
+
+        ClassLoader classloader = getClass().getClassLoader();
+        manager.weave(classloader, internalName(Original.class), bytes(Original.class));
+        Assert.assertEquals(1, manager.getPreFilterPassedCount());
+        Assert.assertEquals(0, manager.getPreFilterRejectedCount());
+
+        Assert.assertNull(manager.weave(classloader, internalName(Target.class), bytes(Target.class)));
+        Assert.assertEquals(1, manager.getPreFilterPassedCount());
+        Assert.assertEquals(1, manager.getPreFilterRejectedCount());
+
+        // the filter is rebuilt when the registered packages change
+        manager.deregister(weavePackage);
+        Assert.assertNull(manager.weave(classloader, internalName(Original.class), bytes(Original.class)));
+        Assert.assertEquals(2, manager.getPreFilterRejectedCount());
+    }
+
+    private static byte[] bytes(Class<?> clazz) throws IOException {
+        return WeaveTestUtils.getClassBytes(clazz.getName());
+    }
+
+    private static String internalName(Class<?> clazz) {
+        return clazz.getName().replace('.', '/');
+    }
+
+    private static Set<String> set(String value) {
+        return Collections.singleton(value);
+    }
+
+    public static class Original {
+        public void aMethodToWeave() {
+        }
+    }
+
+    @Weave(originalName = "com.newrelic.weave.weavepackage.WeavePreFilterTest$Original")
+    public static class WeaveOriginal {
+        public void aMethodToWeave() {
+            Weaver.callOriginal();
+        }
+    }
+
+    public static class Target implements Runnable {
+        public void execute(Runnable runnable) {
+        }
+
+        @Override
+        public void run() {
+        }
+    }
+
+    public static class SubTarget extends Target {
+    }
+
+    @Deprecated
+    public static class AnnotatedTarget {
+    }
+
+    public static class AnnotatedMethodTarget {
+        @Deprecated
+        public void old() {
+        }
+    }
+}